@@ -341,6 +341,46 @@ class BaseSettings(val config: Config) {
     */
   lazy val metascopeMetastoreJdbcPw = config.getString("schedoscope.metascope.metastore.jdbc.password")
 
+  /**
+    * Number of tables synced in parallel from the hive metastore
+    */
+  lazy val metascopeMetastoreWorkers = config.getInt("schedoscope.metascope.metastore.workers")
+
+  /**
+    * Number of threads collecting HDFS directory sizes for metascope
+    */
+  lazy val metascopeHdfsStatsThreads = config.getInt("schedoscope.metascope.metastore.hdfs-stats-threads")
+
+  /**
+    * Maximum number of namenode calls per second issued while collecting HDFS directory sizes
+    */
+  lazy val metascopeHdfsStatsRpcPerSecond = config.getInt("schedoscope.metascope.metastore.hdfs-stats-rpc-per-second")
+
+  /**
+    * Seconds after which a cached HDFS directory size is summarized again, even if the directory listing is unchanged
+    */
+  lazy val metascopeHdfsStatsCacheTtl = config.getInt("schedoscope.metascope.metastore.hdfs-stats-cache-ttl")
+
+  /**
+    * Maximum number of HiveServer2 connections held by metascope
+    */
+  lazy val metascopeHiveServerPoolSize = config.getInt("schedoscope.metascope.hiveserver.pool-size")
+
+  /**
+    * Maximum number of concurrent Hive queries per metascope user
+    */
+  lazy val metascopeHiveServerMaxQueriesPerUser = config.getInt("schedoscope.metascope.hiveserver.max-queries-per-user")
+
+  /**
+    * Timeout in seconds for metascope sample queries
+    */
+  lazy val metascopeHiveServerSampleTimeout = config.getInt("schedoscope.metascope.hiveserver.sample-timeout")
+
+  /**
+    * Timeout in seconds for metascope data distribution queries
+    */
+  lazy val metascopeHiveServerQueryTimeout = config.getInt("schedoscope.metascope.hiveserver.query-timeout")
+
   /**
     * SQL Dialect for the specified database
     */
@@ -19,21 +19,28 @@ package org.schedoscope.dsl.transformations
 import org.apache.hadoop.mapreduce.Job
 import org.schedoscope.Schedoscope
 import org.schedoscope.dsl.{Field, View}
+import org.schedoscope.export.fanout.{FanOutExportJob, FanOutExportMapper}
 import org.schedoscope.export.ftp.FtpExportJob
 import org.schedoscope.export.ftp.outputformat.FileOutputType
-import org.schedoscope.export.ftp.upload.FileCompressionCodec
+import org.schedoscope.export.ftp.upload.{ChecksumAlgorithm, FileCompressionCodec}
 import org.schedoscope.export.jdbc.JdbcExportJob
 import org.schedoscope.export.jdbc.exception.{RetryException, UnrecoverableException}
 import org.schedoscope.export.kafka.KafkaExportJob
 import org.schedoscope.export.kafka.options.{CleanupPolicy, CompressionCodec, OutputEncoding, ProducerType}
 import org.schedoscope.export.redis.RedisExportJob
+import org.schedoscope.export.utils.ExportMetrics
 import org.schedoscope.scheduler.driver._
+import org.slf4j.LoggerFactory
+
+import scala.collection.JavaConverters._
 
 /**
   * A helper class to with constructors for exportTo() MR jobs.
   */
 object Export {
 
+  private val log = LoggerFactory.getLogger(getClass)
+
   /**
     * This function configures the JDBC export job and returns a MapreduceTransformation.
     *
@@ -135,6 +142,8 @@ object Export {
                       driver: Driver[MapreduceBaseTransformation],
                       runState: DriverRunState[MapreduceBaseTransformation]): DriverRunState[MapreduceBaseTransformation] = {
 
+    logExportMetrics(job, driver, runState)
+
     val jobConfigurer = new JdbcExportJob()
 
     try {
@@ -148,6 +157,59 @@ object Export {
     }
   }
 
+  /**
+    * This function logs the Json summary of the export metrics collected by the export job.
+    *
+    * @param job      The MR job object
+    * @param driver   The schedoscope driver
+    * @param runState The job's runstate
+    */
+  def logExportMetrics(
+                        job: Job,
+                        driver: Driver[MapreduceBaseTransformation],
+                        runState: DriverRunState[MapreduceBaseTransformation]): DriverRunState[MapreduceBaseTransformation] = {
+
+    try {
+      log.info(s"Export metrics of ${job.getJobName}: ${ExportMetrics.toJson(job.getCounters)}")
+    } catch {
+      case ex: Exception => log.warn(s"Could not retrieve export metrics of ${job.getJobName}", ex)
+    }
+
+    runState
+  }
+
+  /**
+    * This function logs the Json summary of the per sink metrics of a fan-out export and fails the run
+    * if a sink has been disabled in any of the tasks, as the export to that sink is incomplete.
+    *
+    * @param job      The MR job object
+    * @param driver   The schedoscope driver
+    * @param runState The job's runstate
+    */
+  def fanOutPostCommit(
+                        job: Job,
+                        driver: Driver[MapreduceBaseTransformation],
+                        runState: DriverRunState[MapreduceBaseTransformation]): DriverRunState[MapreduceBaseTransformation] = {
+
+    val disabledSinks = try {
+      val counters = job.getCounters
+      log.info(s"Export metrics of ${job.getJobName}: ${
+        ExportMetrics.toJson(counters, FanOutExportMapper.EXPORT_FANOUT_COUNTER_GROUP_PREFIX, FanOutExportJob.SINKS: _*)
+      }")
+      FanOutExportJob.getDisabledSinks(counters).asScala.toList
+    } catch {
+      case ex: Exception =>
+        log.warn(s"Could not retrieve export metrics of ${job.getJobName}", ex)
+        List()
+    }
+
+    runState match {
+      case DriverRunSucceeded(_, _) if disabledSinks.nonEmpty =>
+        DriverRunFailed(driver, s"Export of ${job.getJobName} is incomplete, disabled sinks: ${disabledSinks.mkString(", ")}", null)
+      case _ => runState
+    }
+  }
+
   /**
     * This function configures the Redis export job and returns a MapreduceTransformation.
     *
@@ -232,7 +294,8 @@ object Export {
           anonFields ++ anonParameters,
           conf.get("schedoscope.export.salt").get.asInstanceOf[String])
 
-      })
+      },
+      logExportMetrics)
 
     t.directoriesToDelete = List()
     t.configureWith(
@@ -328,7 +391,8 @@ object Export {
           encoding,
           anonFields ++ anonParameters,
           conf.get("schedoscope.export.salt").get.asInstanceOf[String])
-      })
+      },
+      logExportMetrics)
 
     t.directoriesToDelete = List()
     t.configureWith(
@@ -344,6 +408,136 @@ object Export {
         "schedoscope.export.metastoreUri" -> metastoreUri))
   }
 
+  /**
+    * This function creates a combined Redis and Kafka export MapreduceTransformation. The view is
+    * read only once and every record is written to both targets by the same map task.
+    *
+    * @param v                 The view to export
+    * @param key               The field to use as the Redis key and the Kafka topic's key
+    * @param redisHost         The Redis hostname
+    * @param kafkaHosts        String list of Kafka hosts to communicate with
+    * @param zookeeperHosts    String list of zookeeper hosts
+    * @param value             An optional field to export to Redis. If null, all fields are attached to the key as a map.
+    * @param keyPrefix         An optional Redis key prefix
+    * @param exportSalt        an optional salt when anonymizing fields
+    * @param replace           A flag indicating of existing Redis keys should be replaced (or extended)
+    * @param flush             A flag indicating if the Redis key space should be flushed before writing data
+    * @param redisPort         The Redis port (default 6379)
+    * @param redisKeySpace     The Redis key space (default 0)
+    * @param commitSize        The number of events to write before syncing the pipelined Redis writer.
+    * @param pipeline          A flag indicating that the Redis pipeline mode should be used for writing data
+    * @param replicationFactor The Kafka replication factor, defaults to 1
+    * @param numPartitons      The number of partitions in the Kafka topic. Defaults to 3
+    * @param producerType      The type of Kafka producer to use, defaults to synchronous
+    * @param cleanupPolicy     Default Kafka cleanup policy is delete
+    * @param compressionCodec  Default Kafka compression codec is gzip
+    * @param encoding          Defines, whether Kafka data is to be serialized as strings (one line JSONs) or Avro
+    * @param maxFailures       The number of failed records tolerated per target before it is disabled
+    * @param isKerberized      Is the cluster kerberized?
+    * @param kerberosPrincipal The kerberos principal to use
+    * @param metastoreUri      The thrift URI to the metastore
+    */
+  def RedisAndKafka(
+                     v: View,
+                     key: Field[_],
+                     redisHost: String,
+                     kafkaHosts: String,
+                     zookeeperHosts: String,
+                     value: Field[_] = null,
+                     keyPrefix: String = "",
+                     exportSalt: String = Schedoscope.settings.exportSalt,
+                     replace: Boolean = true,
+                     flush: Boolean = false,
+                     redisPort: Int = 6379,
+                     redisPassword: String = null,
+                     redisKeySpace: Int = 0,
+                     commitSize: Int = Schedoscope.settings.redisExportBatchSize,
+                     pipeline: Boolean = Schedoscope.settings.redisExportUsesPipelineMode,
+                     replicationFactor: Int = 1,
+                     numPartitons: Int = 3,
+                     producerType: ProducerType = ProducerType.sync,
+                     cleanupPolicy: CleanupPolicy = CleanupPolicy.delete,
+                     compressionCodec: CompressionCodec = CompressionCodec.gzip,
+                     encoding: OutputEncoding = OutputEncoding.string,
+                     maxFailures: Long = 0,
+                     isKerberized: Boolean = !Schedoscope.settings.kerberosPrincipal.isEmpty(),
+                     kerberosPrincipal: String = Schedoscope.settings.kerberosPrincipal,
+                     metastoreUri: String = Schedoscope.settings.metastoreUri) = {
+
+    val t = MapreduceTransformation(
+      v,
+      (conf) => {
+
+        val filter = v.partitionParameters
+          .map {
+            (p => s"${p.n} = '${p.v.get}'")
+          }
+          .mkString(" and ")
+
+        val valueFieldName = if (value != null) value.n else null
+
+        val anonFields = v.fields.filter {
+          _.isPrivacySensitive
+        }.map {
+          _.n
+        }.toArray
+        val anonParameters = v.partitionParameters.filter {
+          _.isPrivacySensitive
+        }.map {
+          _.n
+        }.toArray
+
+        new FanOutExportJob().configure(
+          conf.get("schedoscope.export.isKerberized").get.asInstanceOf[Boolean],
+          conf.get("schedoscope.export.metastoreUri").get.asInstanceOf[String],
+          conf.get("schedoscope.export.kerberosPrincipal").get.asInstanceOf[String],
+          v.dbName,
+          v.n,
+          filter,
+          key.n,
+          conf.get("schedoscope.export.redisHost").get.asInstanceOf[String],
+          conf.get("schedoscope.export.redisPort").get.asInstanceOf[Int],
+          conf.get("schedoscope.export.redisPassword").get.asInstanceOf[String],
+          conf.get("schedoscope.export.redisKeySpace").get.asInstanceOf[Int],
+          valueFieldName,
+          keyPrefix,
+          replace,
+          conf.get("schedoscope.export.pipeline").get.asInstanceOf[Boolean],
+          flush,
+          conf.get("schedoscope.export.commitSize").get.asInstanceOf[Int],
+          conf.get("schedoscope.export.kafkaHosts").get.asInstanceOf[String],
+          conf.get("schedoscope.export.zookeeperHosts").get.asInstanceOf[String],
+          producerType,
+          cleanupPolicy,
+          conf.get("schedoscope.export.numPartitions").get.asInstanceOf[Int],
+          conf.get("schedoscope.export.replicationFactor").get.asInstanceOf[Int],
+          compressionCodec,
+          encoding,
+          maxFailures,
+          anonFields ++ anonParameters,
+          conf.get("schedoscope.export.salt").get.asInstanceOf[String])
+      },
+      fanOutPostCommit)
+
+    t.directoriesToDelete = List()
+    t.configureWith(
+      Map(
+        "schedoscope.export.redisHost" -> redisHost,
+        "schedoscope.export.redisPort" -> redisPort,
+        "schedoscope.export.redisPassword" -> redisPassword,
+        "schedoscope.export.redisKeySpace" -> redisKeySpace,
+        "schedoscope.export.pipeline" -> pipeline,
+        "schedoscope.export.commitSize" -> commitSize,
+        "schedoscope.export.kafkaHosts" -> kafkaHosts,
+        "schedoscope.export.zookeeperHosts" -> zookeeperHosts,
+        "schedoscope.export.numPartitions" -> numPartitons,
+        "schedoscope.export.replicationFactor" -> replicationFactor,
+        "schedoscope.export.salt" -> exportSalt,
+        "schedoscope.export.isKerberized" -> isKerberized,
+        "schedoscope.export.kerberosPrincipal" -> kerberosPrincipal,
+        "schedoscope.export.metastoreUri" -> metastoreUri))
+  }
+
   /**
     * This function configures the (S)FTP export and returns a configured MapReduceTransformation.
     *
@@ -362,6 +556,7 @@ object Export {
     * @param cleanHdfsDir      Clean up HDFS temporary files (or not).
     * @param exportSalt        an optional salt when anonymizing fields.
     * @param codec             The compression codec to use, either gzip or bzip2
+    * @param checksum          The checksum sidecar file written to verify uploads, either none, md5 or sha256
     * @param isKerberized      A flag indication if Kerberos is enabled.
     * @param kerberosPrincipal The Kerberos principal
     * @param metastoreUri      A string containing the Hive meta store url.
@@ -382,6 +577,7 @@ object Export {
            cleanHdfsDir: Boolean = true,
            exportSalt: String = Schedoscope.settings.exportSalt,
            codec: FileCompressionCodec = FileCompressionCodec.gzip,
+           checksum: ChecksumAlgorithm = ChecksumAlgorithm.none,
            isKerberized: Boolean = !Schedoscope.settings.kerberosPrincipal.isEmpty(),
            kerberosPrincipal: String = Schedoscope.settings.kerberosPrincipal,
            metastoreUri: String = Schedoscope.settings.metastoreUri) = {
@@ -427,10 +623,12 @@ object Export {
           conf.get("schedoscope.export.userIsRoot").get.asInstanceOf[Boolean],
           conf.get("schedoscope.export.cleanHdfsDir").get.asInstanceOf[Boolean],
           codec,
-          fileType
+          fileType,
+          checksum
         )
 
-      })
+      },
+      logExportMetrics)
     t.directoriesToDelete = List()
     t.configureWith(
       Map(
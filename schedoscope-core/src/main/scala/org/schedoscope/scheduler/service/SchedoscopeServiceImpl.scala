@@ -170,22 +170,28 @@ class SchedoscopeServiceImpl(actorSystem: ActorSystem, settings: SchedoscopeSett
       )
     }
 
-    lazy val viewStatusList = if (all.getOrElse(false))
+    // with all=true, every table entry is directly followed by the views of that table,
+    // so that clients can consume the list table by table
+    lazy val viewStatusList = if (all.getOrElse(false)) {
+      val viewsByTable = viewStatusResponses
+        .zip(viewStatusListWithoutViewDetails)
+        .groupBy { case (v, _) => v.view.tableName }
+
       viewStatusResponses
-        .groupBy(v => v.view.tableName)
-        .map(e => e._2.head)
-        .map(v =>
-          viewStatusOutput(vsr = v,
-            viewTableName = Option(v.view.tableName),
+        .map(v => v.view.tableName)
+        .distinct
+        .flatMap { tableName =>
+          val views = viewsByTable(tableName)
+          viewStatusOutput(vsr = views.head._1,
+            viewTableName = Option(tableName),
             isTable = Option(true),
             dependencies = dependencies,
             overview = false,
             all = all,
             issueFilter
-          )
-        )
-        .toList ::: viewStatusListWithoutViewDetails
-    else
+          ) :: views.map { case (_, viewStatus) => viewStatus }
+        }
+    } else
       viewStatusListWithoutViewDetails
 
     val statusOverview = viewStatusListWithoutViewDetails.groupBy(_.status).mapValues(_.size)
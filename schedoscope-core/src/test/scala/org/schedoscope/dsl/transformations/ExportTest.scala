@@ -22,15 +22,19 @@ import _root_.test.views._
 import com.google.common.collect.ImmutableList
 import org.apache.commons.net.ftp.FTPClient
 import org.apache.curator.test.TestingServer
+import org.apache.hadoop.mapreduce.{Counters, Job}
 import org.codehaus.jackson.map.ObjectMapper
 import org.codehaus.jackson.map.`type`.TypeFactory
+import org.mockito.Mockito.{mock, when}
 import org.rarefiedredis.redis.adapter.jedis.JedisAdapter
 import org.scalatest.{FlatSpec, Matchers}
 import org.schedoscope.Schedoscope
 import org.schedoscope.dsl.Field.v
 import org.schedoscope.dsl.Parameter.p
+import org.schedoscope.export.fanout.{FanOutExportJob, FanOutExportMapper}
 import org.schedoscope.export.testsupport.{EmbeddedFtpSftpServer, EmbeddedKafkaCluster, SimpleTestKafkaConsumer}
 import org.schedoscope.export.utils.RedisMRJedisFactory
+import org.schedoscope.scheduler.driver.{Driver, DriverRunFailed, DriverRunSucceeded}
 import org.schedoscope.test.{rows, test}
 
 import scala.collection.JavaConversions.iterableAsScalaIterable
@@ -199,4 +203,33 @@ class ExportTest extends FlatSpec with Matchers {
 
     ftpServer.stopEmbeddedFtpServer()
   }
+  "Fan-out post commit" should "fail a succeeded run if a sink has been disabled" in {
+    val counters = new Counters()
+    counters.findCounter(FanOutExportMapper.EXPORT_FANOUT_COUNTER_GROUP_PREFIX + FanOutExportJob.KAFKA_SINK,
+      FanOutExportMapper.DISABLED_COUNTER).increment(1)
+    val job = mock(classOf[Job])
+    when(job.getCounters).thenReturn(counters)
+    when(job.getJobName).thenReturn("fanout")
+    val driver = mock(classOf[Driver[MapreduceBaseTransformation]])
+
+    val runState = Export.fanOutPostCommit(job, driver, DriverRunSucceeded(driver, "done"))
+
+    runState shouldBe a[DriverRunFailed[_]]
+    runState.asInstanceOf[DriverRunFailed[_]].reason should include(FanOutExportJob.KAFKA_SINK)
+  }
+
+  it should "keep the run state if all sinks are complete" in {
+    val counters = new Counters()
+    counters.findCounter(FanOutExportMapper.EXPORT_FANOUT_COUNTER_GROUP_PREFIX + FanOutExportJob.REDIS_SINK,
+      FanOutExportMapper.ERRORS_COUNTER).increment(2)
+    val job = mock(classOf[Job])
+    when(job.getCounters).thenReturn(counters)
+    when(job.getJobName).thenReturn("fanout")
+    val driver = mock(classOf[Driver[MapreduceBaseTransformation]])
+    val succeeded = DriverRunSucceeded(driver, "done")
+    val failed = DriverRunFailed(driver, "failed", null)
+
+    Export.fanOutPostCommit(job, driver, succeeded) shouldBe succeeded
+    Export.fanOutPostCommit(job, driver, failed) shouldBe failed
+  }
 }
\ No newline at end of file
@@ -379,11 +379,16 @@ class SchedoscopeServiceImplSpec extends TestKit(ActorSystem("schedoscope"))
     response.value.get.get.overview shouldBe Map((initStatus, 3))
     response.value.get.get.views.size shouldBe 6
     response.value.get.get.views(0).status shouldBe initStatus
-    response.value.get.get.views(1).status shouldBe initStatus
     response.value.get.get.views(2).status shouldBe initStatus
+    response.value.get.get.views(4).status shouldBe initStatus
 
     val resultViews = response.value.get.get.views
-    val resultViewsList = List(resultViews(3), resultViews(4), resultViews(5)).sortBy(_.viewPath)
+    resultViews.map(_.isTable) shouldBe List.fill(3)(List(Some(true), Some(false))).flatten
+    resultViews.grouped(2).foreach { tableAndView =>
+      tableAndView(1).viewTableName shouldBe tableAndView(0).viewTableName
+    }
+
+    val resultViewsList = List(resultViews(1), resultViews(3), resultViews(5)).sortBy(_.viewPath)
     resultViewsList(0).viewPath shouldBe brandUrl01
     resultViewsList(1).viewPath shouldBe prodUrl01 + s"/${year}${month}${day}"
     resultViewsList(2).viewPath shouldBe prodBrandUrl01 + s"/${year}${month}${day}"
@@ -395,7 +400,7 @@ class SchedoscopeServiceImplSpec extends TestKit(ActorSystem("schedoscope"))
     resultViewsList(2).dependencies.get.get(s"dev_test_views.product_${shop01.toLowerCase}") shouldBe
       Some(List(prodUrl01 + s"/${year}${month}${day}"))
 
-    val resultViewsList2 = List(resultViews(0), resultViews(1), resultViews(2))
+    val resultViewsList2 = List(resultViews(0), resultViews(2), resultViews(4))
     resultViewsList2(0).properties shouldBe None
     resultViewsList2(1).properties shouldBe None
     resultViewsList2(2).properties shouldBe None
@@ -419,11 +424,16 @@ class SchedoscopeServiceImplSpec extends TestKit(ActorSystem("schedoscope"))
     response.value.get.get.overview shouldBe Map((initStatus, 3))
     response.value.get.get.views.size shouldBe 6
     response.value.get.get.views(0).status shouldBe initStatus
-    response.value.get.get.views(1).status shouldBe initStatus
     response.value.get.get.views(2).status shouldBe initStatus
+    response.value.get.get.views(4).status shouldBe initStatus
 
     val resultViews = response.value.get.get.views
-    val resultViewsList = List(resultViews(3), resultViews(4), resultViews(5)).sortBy(_.viewPath)
+    resultViews.map(_.isTable) shouldBe List.fill(3)(List(Some(true), Some(false))).flatten
+    resultViews.grouped(2).foreach { tableAndView =>
+      tableAndView(1).viewTableName shouldBe tableAndView(0).viewTableName
+    }
+
+    val resultViewsList = List(resultViews(1), resultViews(3), resultViews(5)).sortBy(_.viewPath)
     resultViewsList(0).viewPath shouldBe brandUrl01
     resultViewsList(1).viewPath shouldBe prodUrl01 + s"/${year}${month}${day}"
     resultViewsList(2).viewPath shouldBe prodBrandUrl01 + s"/${year}${month}${day}"
@@ -435,7 +445,7 @@ class SchedoscopeServiceImplSpec extends TestKit(ActorSystem("schedoscope"))
     resultViewsList(2).dependencies.get.get(s"dev_test_views.product_${shop01.toLowerCase}") shouldBe
       Some(List(prodUrl01 + s"/${year}${month}${day}"))
 
-    val resultViewsList2 = List(resultViews(0), resultViews(1), resultViews(2))
+    val resultViewsList2 = List(resultViews(0), resultViews(2), resultViews(4))
     resultViewsList2(0).properties shouldBe None
     resultViewsList2(1).properties shouldBe None
     resultViewsList2(2).properties shouldBe None
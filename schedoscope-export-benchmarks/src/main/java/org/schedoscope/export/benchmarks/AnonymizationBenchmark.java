@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.benchmarks;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.schedoscope.export.utils.Anonymizer;
+import org.schedoscope.export.utils.HCatUtils;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures anonymizing field values, comparing the static md5 path of
+ * HCatUtils with the algorithms of the Anonymizer, with and without memo.
+ * The values are drawn from a fixed number of distinct values.
+ */
+@State(Scope.Benchmark)
+public class AnonymizationBenchmark {
+
+    private static final String SALT = "vD75MqvaasIlCf7H";
+
+    private static final String FIELD = "visitor_id";
+
+    @Param({"legacy", "md5", "hmac_sha256", "siphash"})
+    public String algorithm;
+
+    @Param({"0", "1024"})
+    public int cacheSize;
+
+    @Param({"100", "100000"})
+    public int cardinality;
+
+    private Set<String> anonFields = ImmutableSet.of(FIELD);
+
+    private Anonymizer anonymizer;
+
+    private String[] values;
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+
+        if (!"legacy".equals(algorithm)) {
+            anonymizer = new Anonymizer(Anonymizer.Algorithm.valueOf(algorithm), SALT, cacheSize);
+        }
+
+        Random random = new Random(42);
+        values = new String[4096];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "visitor-" + random.nextInt(cardinality);
+        }
+    }
+
+    @Benchmark
+    public String getHashValueIfInList() {
+
+        String value = values[next];
+        next = (next + 1) % values.length;
+
+        if (anonymizer == null) {
+            return HCatUtils.getHashValueIfInList(FIELD, value, anonFields, SALT);
+        } else {
+            return HCatUtils.getHashValueIfInList(FIELD, value, anonFields, anonymizer);
+        }
+    }
+}
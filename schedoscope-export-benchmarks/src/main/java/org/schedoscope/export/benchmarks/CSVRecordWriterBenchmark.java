@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.benchmarks;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.schedoscope.export.ftp.outputformat.CSVRecordWriter;
+import org.schedoscope.export.utils.RowProjection;
+import org.schedoscope.export.writables.TextPairArrayWritable;
+import org.schedoscope.export.writables.TextPairWritable;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures writing records as CSV, the output is discarded.
+ */
+public class CSVRecordWriterBenchmark extends ExportBenchmarkState {
+
+    private CSVRecordWriter<Object, TextPairArrayWritable> writer;
+
+    private List<TextPairArrayWritable> writables;
+
+    private int next = 0;
+
+    @Override
+    protected void init() throws IOException {
+
+        RowProjection projection = new RowProjection(new Configuration(), schema);
+
+        writables = new ArrayList<TextPairArrayWritable>(records.size());
+        for (HCatRecord record : records) {
+            String[] values = projection.project(record, "");
+            TextPairWritable[] pairs = new TextPairWritable[values.length];
+            for (int i = 0; i < values.length; i++) {
+                pairs[i] = new TextPairWritable(projection.getName(i), values[i]);
+            }
+            writables.add(new TextPairArrayWritable(pairs));
+        }
+
+        writer = new CSVRecordWriter<Object, TextPairArrayWritable>(
+                new DataOutputStream(new IOUtils.NullOutputStream()), null, ',');
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+
+        TextPairArrayWritable writable = writables.get(next);
+        next = (next + 1) % writables.size();
+        writer.write(null, writable);
+    }
+}
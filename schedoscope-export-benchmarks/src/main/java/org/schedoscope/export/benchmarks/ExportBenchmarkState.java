@@ -0,0 +1,158 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.benchmarks;
+
+import org.apache.hadoop.hive.metastore.api.FieldSchema;
+import org.apache.hive.hcatalog.data.DefaultHCatRecord;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchemaUtils;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The shared benchmark state, builds an HCatSchema and a set of
+ * DefaultHCatRecords for each combination of a narrow (5 columns) or wide
+ * (50 columns) and a flat (primitive columns only) or nested (struct, array
+ * and map columns) schema.
+ */
+@State(Scope.Benchmark)
+public abstract class ExportBenchmarkState {
+
+    private static final String[] FLAT_TYPES = new String[]{
+            "string", "int", "bigint", "double", "boolean"};
+
+    private static final String[] NESTED_TYPES = new String[]{
+            "string", "int", "struct<name:string,count:int>", "array<string>", "map<string,string>"};
+
+    private static final int NUM_RECORDS = 256;
+
+    @Param({"narrow", "wide"})
+    public String width;
+
+    @Param({"flat", "nested"})
+    public String shape;
+
+    protected HCatSchema schema;
+
+    protected String[] hiveTypes;
+
+    protected List<HCatRecord> records;
+
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+
+        int columns = "wide".equals(width) ? 50 : 5;
+        String[] types = "nested".equals(shape) ? NESTED_TYPES : FLAT_TYPES;
+
+        hiveTypes = new String[columns];
+        List<HCatFieldSchema> fields = new ArrayList<HCatFieldSchema>(columns);
+        for (int i = 0; i < columns; i++) {
+            hiveTypes[i] = types[i % types.length];
+            fields.add(HCatSchemaUtils.getHCatFieldSchema(new FieldSchema("c" + i, hiveTypes[i], null)));
+        }
+        schema = new HCatSchema(fields);
+
+        Random random = new Random(42);
+        records = new ArrayList<HCatRecord>(NUM_RECORDS);
+        for (int r = 0; r < NUM_RECORDS; r++) {
+            DefaultHCatRecord record = new DefaultHCatRecord(columns);
+            for (int i = 0; i < columns; i++) {
+                record.set(i, createValue(hiveTypes[i], random));
+            }
+            records.add(record);
+        }
+
+        init();
+    }
+
+    /**
+     * Called after the schema and records have been created, to set up the
+     * objects under test.
+     *
+     * @throws Exception Is thrown if an error occurs.
+     */
+    protected void init() throws Exception {
+    }
+
+    /**
+     * Returns the next record, cycling through all records.
+     *
+     * @return The record.
+     */
+    protected HCatRecord nextRecord() {
+
+        HCatRecord record = records.get(next);
+        next = (next + 1) % records.size();
+        return record;
+    }
+
+    /**
+     * Maps a Hive type to the type name used by the JDBC export.
+     *
+     * @param hiveType The Hive type.
+     * @return The JDBC export type.
+     */
+    protected static String toJdbcType(String hiveType) {
+
+        if (hiveType.equals("bigint")) {
+            return "long";
+        } else if (hiveType.equals("int") || hiveType.equals("double") || hiveType.equals("boolean")) {
+            return hiveType;
+        } else {
+            return "string";
+        }
+    }
+
+    private static Object createValue(String type, Random random) {
+
+        if (type.equals("string")) {
+            return "value-" + random.nextInt(100000);
+        } else if (type.equals("int")) {
+            return random.nextInt();
+        } else if (type.equals("bigint")) {
+            return random.nextLong();
+        } else if (type.equals("double")) {
+            return random.nextDouble();
+        } else if (type.equals("boolean")) {
+            return random.nextBoolean();
+        } else if (type.startsWith("struct")) {
+            return Arrays.<Object>asList("name-" + random.nextInt(1000), random.nextInt(100));
+        } else if (type.startsWith("array")) {
+            return Arrays.asList("a" + random.nextInt(100), "b" + random.nextInt(100), "c" + random.nextInt(100));
+        } else {
+            Map<String, String> map = new HashMap<String, String>();
+            for (int i = 0; i < 3; i++) {
+                map.put("key" + i, "value-" + random.nextInt(1000));
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.hadoop.conf.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.schedoscope.export.utils.HCatRecordJsonSerializer;
+
+import java.io.IOException;
+
+/**
+ * Measures the Json serialization of HCatRecords, used for complex columns.
+ */
+public class HCatRecordJsonSerializerBenchmark extends ExportBenchmarkState {
+
+    private HCatRecordJsonSerializer serializer;
+
+    private String lastField;
+
+    @Override
+    protected void init() {
+
+        serializer = new HCatRecordJsonSerializer(new Configuration(), schema);
+        lastField = schema.getFieldNames().get(schema.size() - 1);
+    }
+
+    @Benchmark
+    public String getFieldAsJson() throws IOException {
+        return serializer.getFieldAsJson(nextRecord(), lastField);
+    }
+
+    @Benchmark
+    public JsonNode getRecordAsJson() throws IOException {
+        return serializer.getRecordAsJson(nextRecord());
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.benchmarks;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.schedoscope.export.kafka.avro.HCatToAvroRecordConverter;
+import org.schedoscope.export.kafka.avro.HCatToAvroSchemaConverter;
+import org.schedoscope.export.utils.HCatRecordJsonSerializer;
+
+import java.io.IOException;
+import java.util.HashSet;
+
+/**
+ * Measures the conversion of HCatRecords to Avro, used by the Kafka and the
+ * Json (S)FTP export.
+ */
+public class HCatToAvroRecordConverterBenchmark extends ExportBenchmarkState {
+
+    private HCatToAvroRecordConverter converter;
+
+    private Schema avroSchema;
+
+    @Override
+    protected void init() throws IOException {
+
+        converter = new HCatToAvroRecordConverter(new HCatRecordJsonSerializer(new Configuration(), schema));
+        avroSchema = new HCatToAvroSchemaConverter(new HashSet<String>()).convertSchema(schema, "benchmark");
+    }
+
+    @Benchmark
+    public GenericRecord convert() throws IOException {
+        return converter.convert(nextRecord(), avroSchema);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.benchmarks;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.schedoscope.export.jdbc.outputformat.JdbcOutputWritable;
+import org.schedoscope.export.utils.RowProjection;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures binding a JdbcOutputWritable to a prepared statement. The
+ * statement is a stub ignoring all parameters, so that only the work done
+ * by the writable is measured.
+ */
+public class JdbcOutputWritableBenchmark extends ExportBenchmarkState {
+
+    private List<JdbcOutputWritable> writables;
+
+    private PreparedStatement statement;
+
+    private int next = 0;
+
+    @Override
+    protected void init() throws IOException {
+
+        RowProjection projection = new RowProjection(new Configuration(), schema);
+
+        writables = new ArrayList<JdbcOutputWritable>(records.size());
+        for (HCatRecord record : records) {
+            String[] values = projection.project(record, "NULL");
+            List<Pair<String, String>> row = new ArrayList<Pair<String, String>>(values.length);
+            for (int i = 0; i < values.length; i++) {
+                row.add(Pair.of(toJdbcType(hiveTypes[i]), values[i]));
+            }
+            writables.add(new JdbcOutputWritable(row));
+        }
+
+        statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+    }
+
+    @Benchmark
+    public PreparedStatement write() throws SQLException {
+
+        JdbcOutputWritable writable = writables.get(next);
+        next = (next + 1) % writables.size();
+        writable.write(statement);
+        return statement;
+    }
+}
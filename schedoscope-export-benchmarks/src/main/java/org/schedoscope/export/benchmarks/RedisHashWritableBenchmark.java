@@ -0,0 +1,104 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.benchmarks;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.schedoscope.export.redis.outputformat.RedisHashWritable;
+import org.schedoscope.export.utils.RowProjection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures creating and (de)serializing RedisHashWritables, as done by the
+ * full table Redis export between map and reduce phase.
+ */
+public class RedisHashWritableBenchmark extends ExportBenchmarkState {
+
+    private List<Map<String, String>> rows;
+
+    private List<RedisHashWritable> writables;
+
+    private DataOutputBuffer out;
+
+    private DataInputBuffer in;
+
+    private RedisHashWritable target;
+
+    private int next = 0;
+
+    @Override
+    protected void init() throws IOException {
+
+        RowProjection projection = new RowProjection(new Configuration(), schema);
+
+        rows = new ArrayList<Map<String, String>>(records.size());
+        writables = new ArrayList<RedisHashWritable>(records.size());
+        for (HCatRecord record : records) {
+            String[] values = projection.project(record, "");
+            Map<String, String> row = new HashMap<String, String>();
+            for (int i = 0; i < values.length; i++) {
+                row.put(projection.getName(i), values[i]);
+            }
+            rows.add(row);
+            writables.add(new RedisHashWritable(values[0], row));
+        }
+
+        out = new DataOutputBuffer();
+        in = new DataInputBuffer();
+        target = new RedisHashWritable();
+    }
+
+    private int nextIndex() {
+
+        int i = next;
+        next = (next + 1) % records.size();
+        return i;
+    }
+
+    @Benchmark
+    public RedisHashWritable create() {
+
+        Map<String, String> row = rows.get(nextIndex());
+        return new RedisHashWritable("key", row);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+
+        out.reset();
+        writables.get(nextIndex()).write(out);
+        return out.getLength();
+    }
+
+    @Benchmark
+    public RedisHashWritable roundTrip() throws IOException {
+
+        out.reset();
+        writables.get(nextIndex()).write(out);
+        in.reset(out.getData(), out.getLength());
+        target.readFields(in);
+        return target;
+    }
+}
@@ -16,22 +16,36 @@
 
 package org.schedoscope.export;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.util.Tool;
+import org.apache.hive.hcatalog.mapreduce.HCatInputFormat;
 import org.kohsuke.args4j.Option;
 import org.kohsuke.args4j.spi.StringArrayOptionHandler;
+import org.schedoscope.export.utils.Anonymizer;
+import org.schedoscope.export.utils.ExportMetrics;
+
+import java.io.IOException;
 
 /**
  * Base class with common functions to configure Job objects.
  */
 public abstract class BaseExportJob extends Configured implements Tool {
 
+    private static final Log LOG = LogFactory.getLog(BaseExportJob.class);
+
     public static final String EXPORT_ANON_FIELDS = "export.anon.fields";
 
     public static final String EXPORT_ANON_SALT = "export.anon.salt";
 
+    public static final String EXPORT_ANON_ALGORITHM = "export.anon.algorithm";
+
+    public static final String EXPORT_ANON_CACHE_SIZE = "export.anon.cache.size";
+
     @Option(name = "-s", usage = "set to true if kerberos is enabled")
     protected boolean isSecured = false;
 
@@ -59,6 +73,12 @@ public abstract class BaseExportJob extends Configured implements Tool {
     @Option(name = "-S", usage = "an optional salt used to anonymize fields")
     protected String exportSalt = "";
 
+    @Option(name = "-H", usage = "the anonymization algorithm, either 'md5', 'hmac_sha256' or 'siphash'")
+    protected Anonymizer.Algorithm anonAlgorithm = Anonymizer.Algorithm.md5;
+
+    @Option(name = "-M", usage = "number of anonymized values to memoize per task, 0 disables the memo")
+    protected int anonCacheSize = 0;
+
     protected Configuration getConfiguration() {
 
         if (getConf() == null)
@@ -100,6 +120,52 @@ public abstract class BaseExportJob extends Configured implements Tool {
     protected Configuration configureAnonFields(Configuration conf) {
         conf.setStrings(EXPORT_ANON_FIELDS, anonFields);
         conf.set(EXPORT_ANON_SALT, exportSalt);
+        conf.set(EXPORT_ANON_ALGORITHM, anonAlgorithm.name());
+        conf.setInt(EXPORT_ANON_CACHE_SIZE, anonCacheSize);
         return conf;
     }
+
+    /**
+     * Creates a job reading the input table via HCatalog, with meta store,
+     * Kerberos and anonymization settings applied. The export jobs only need
+     * to add their sink and output format.
+     *
+     * @param jobName The name of the export, used as job name prefix.
+     * @return A job object with its input configured.
+     * @throws IOException Is thrown if an error occurs.
+     */
+    protected Job configureJob(String jobName) throws IOException {
+
+        Configuration conf = getConfiguration();
+        conf = configureHiveMetaStore(conf);
+        conf = configureKerberos(conf);
+        conf = configureAnonFields(conf);
+
+        Job job = Job.getInstance(conf, jobName + ": " + inputDatabase + "."
+                + inputTable);
+
+        job.setJarByClass(getClass());
+
+        if (inputFilter == null || inputFilter.trim().equals("")) {
+            HCatInputFormat.setInput(job, inputDatabase, inputTable);
+
+        } else {
+            HCatInputFormat.setInput(job, inputDatabase, inputTable,
+                    inputFilter);
+        }
+
+        job.setInputFormatClass(HCatInputFormat.class);
+        return job;
+    }
+
+    /**
+     * Logs the export metrics of a finished job as Json summary.
+     *
+     * @param job The finished job.
+     * @throws IOException Is thrown if the counters can not be retrieved.
+     */
+    protected void logExportMetrics(Job job) throws IOException {
+
+        LOG.info("export metrics: " + ExportMetrics.toJson(job.getCounters()));
+    }
 }
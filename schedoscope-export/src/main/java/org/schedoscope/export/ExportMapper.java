@@ -0,0 +1,171 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MapContext;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.mapreduce.HCatInputFormat;
+import org.schedoscope.export.utils.ExportMetrics;
+import org.schedoscope.export.utils.RowProjection;
+import org.schedoscope.export.utils.StatCounter;
+
+import java.io.IOException;
+
+/**
+ * A generic mapper that reads data from Hive via HCatalog, compiles the
+ * input schema into a {@link RowProjection} once and hands each record to
+ * the configured {@link ExportSink}. The time spent reading, converting and
+ * emitting records is published as {@link org.schedoscope.export.utils.ExportCounter}s.
+ *
+ * @param <K> The output key class.
+ * @param <V> The output value class.
+ */
+public class ExportMapper<K, V> extends Mapper<WritableComparable<?>, HCatRecord, K, V> {
+
+    public static final String EXPORT_SINK_CLASS = "export.sink.class";
+
+    private ExportSink<K, V> sink;
+
+    private Counter successCounter;
+
+    private Counter failedCounter;
+
+    private final ExportMetrics metrics = new ExportMetrics();
+
+    private TimedContext<K, V> timedContext;
+
+    public ExportMapper() {
+    }
+
+    /**
+     * A constructor to bind the mapper to a sink, used by the mappers of the
+     * individual export jobs.
+     *
+     * @param sink The sink to write to.
+     */
+    protected ExportMapper(ExportSink<K, V> sink) {
+
+        this.sink = sink;
+    }
+
+    /**
+     * Configures a job to use the generic mapper with the given sink.
+     *
+     * @param job       The job object.
+     * @param sinkClass The sink class, must have a default constructor.
+     */
+    @SuppressWarnings("rawtypes")
+    public static void setSink(Job job, Class<? extends ExportSink> sinkClass) {
+
+        job.getConfiguration().setClass(EXPORT_SINK_CLASS, sinkClass, ExportSink.class);
+        job.setMapperClass(ExportMapper.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+
+        if (sink == null) {
+            Class<?> sinkClass = conf.getClass(EXPORT_SINK_CLASS, null, ExportSink.class);
+            if (sinkClass == null) {
+                throw new IllegalArgumentException("no export sink configured, set " + EXPORT_SINK_CLASS);
+            }
+            sink = (ExportSink<K, V>) ReflectionUtils.newInstance(sinkClass, conf);
+        }
+
+        RowProjection projection = new RowProjection(conf, HCatInputFormat.getTableSchema(conf));
+        sink.setup(conf, projection);
+
+        successCounter = context.getCounter(StatCounter.SUCCESS);
+        failedCounter = context.getCounter(StatCounter.FAILED);
+
+        timedContext = new TimedContext<K, V>(context);
+    }
+
+    @Override
+    public void run(Context context) throws IOException, InterruptedException {
+
+        setup(context);
+        try {
+            long start = System.nanoTime();
+            while (context.nextKeyValue()) {
+                metrics.recordRead(start);
+                map(context.getCurrentKey(), context.getCurrentValue(), context);
+                start = System.nanoTime();
+            }
+        } finally {
+            cleanup(context);
+        }
+    }
+
+    @Override
+    protected void map(WritableComparable<?> key, HCatRecord value, Context context)
+            throws IOException, InterruptedException {
+
+        long start = System.nanoTime();
+        timedContext.emitNanos = 0;
+
+        boolean written = sink.write(value, timedContext);
+        metrics.recordConversion(start, timedContext.emitNanos);
+
+        if (written) {
+            successCounter.increment(1);
+        } else {
+            failedCounter.increment(1);
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+
+        metrics.publish(context);
+        super.cleanup(context);
+    }
+
+    /**
+     * A map context delegating to the task context, measuring the time spent
+     * in writing to the output.
+     */
+    private static class TimedContext<K, V>
+            extends WrappedMapper<WritableComparable<?>, HCatRecord, K, V>.Context {
+
+        private long emitNanos;
+
+        TimedContext(MapContext<WritableComparable<?>, HCatRecord, K, V> mapContext) {
+
+            new WrappedMapper<WritableComparable<?>, HCatRecord, K, V>().super(mapContext);
+        }
+
+        @Override
+        public void write(K key, V value) throws IOException, InterruptedException {
+
+            long start = System.nanoTime();
+            super.write(key, value);
+            emitNanos += System.nanoTime() - start;
+        }
+    }
+}
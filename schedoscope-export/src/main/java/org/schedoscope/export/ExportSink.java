@@ -0,0 +1,56 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.schedoscope.export.utils.RowProjection;
+
+import java.io.IOException;
+
+/**
+ * The SPI implemented by each export target. A sink converts the HCatRecords
+ * read by the {@link ExportMapper} into the key / value pairs consumed by the
+ * output format of the target (JDBC, Redis, Kafka or files).
+ *
+ * @param <K> The output key class.
+ * @param <V> The output value class.
+ */
+public interface ExportSink<K, V> {
+
+    /**
+     * Initializes the sink, called once per task.
+     *
+     * @param conf       The Hadoop configuration object.
+     * @param projection The compiled row projection of the input table.
+     * @throws IOException Is thrown if an error occurs.
+     */
+    void setup(Configuration conf, RowProjection projection) throws IOException;
+
+    /**
+     * Converts a record and writes it to the context.
+     *
+     * @param record  The HCatRecord to export.
+     * @param context The task context to write to.
+     * @return True if the record has been written, false if it has been skipped.
+     * @throws IOException          Is thrown if an error occurs.
+     * @throws InterruptedException Is thrown if the task is interrupted.
+     */
+    boolean write(HCatRecord record, TaskInputOutputContext<?, ?, K, V> context)
+            throws IOException, InterruptedException;
+}
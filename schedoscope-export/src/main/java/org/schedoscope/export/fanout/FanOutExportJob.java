@@ -0,0 +1,335 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.fanout;
+
+import org.apache.avro.mapred.AvroValue;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.apache.hive.hcatalog.mapreduce.HCatInputFormat;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.schedoscope.export.BaseExportJob;
+import org.schedoscope.export.kafka.KafkaExportSink;
+import org.schedoscope.export.kafka.options.CleanupPolicy;
+import org.schedoscope.export.kafka.options.CompressionCodec;
+import org.schedoscope.export.kafka.options.OutputEncoding;
+import org.schedoscope.export.kafka.options.ProducerType;
+import org.schedoscope.export.kafka.outputformat.KafkaOutputFormat;
+import org.schedoscope.export.redis.RedisExportSink;
+import org.schedoscope.export.redis.RedisFullTableExportSink;
+import org.schedoscope.export.redis.outputformat.RedisHashWritable;
+import org.schedoscope.export.redis.outputformat.RedisOutputFormat;
+import org.schedoscope.export.utils.ExportMetrics;
+import org.schedoscope.export.utils.RedisMRJedisFactory;
+import org.schedoscope.export.utils.StatCounter;
+import redis.clients.jedis.Jedis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The MR driver to run a combined Hive to Redis and Kafka export. The input
+ * table is read once and every record is written to both targets in the same
+ * map task, there is no reduce phase.
+ */
+public class FanOutExportJob extends BaseExportJob {
+
+    private static final Log LOG = LogFactory.getLog(FanOutExportJob.class);
+
+    public static final String REDIS_SINK = "redis";
+
+    public static final String KAFKA_SINK = "kafka";
+
+    public static final String[] SINKS = new String[]{REDIS_SINK, KAFKA_SINK};
+
+    @Option(name = "-k", usage = "key column for redis and kafka", required = true)
+    private String keyName;
+
+    @Option(name = "-h", usage = "redis host")
+    private String redisHost = "localhost";
+
+    @Option(name = "-P", usage = "redis port")
+    private int redisPort = 6379;
+
+    @Option(name = "-w", usage = "redis password to authenticate")
+    private String redisPassword;
+
+    @Option(name = "-K", usage = "redis key space (default is 0)")
+    private int redisDb = 0;
+
+    @Option(name = "-v", usage = "redis value column, if empty full table export")
+    private String valueName;
+
+    @Option(name = "-r", usage = "optional key prefix for redis key")
+    private String keyPrefix = "";
+
+    @Option(name = "-a", usage = "append data to existing redis keys, only useful for native export of map/list types")
+    private boolean replace = false;
+
+    @Option(name = "-l", usage = "pipeline mode for redis client")
+    private boolean pipeline = false;
+
+    @Option(name = "-f", usage = "flush redis key space")
+    private boolean flush = false;
+
+    @Option(name = "-x", usage = "commit size for redis pipeline mode", depends = {"-l"})
+    private int commitSize = 10000;
+
+    @Option(name = "-b", usage = "list of kafka brokers: host1:9092,host2:9092,host3:9092", required = true)
+    private String brokerList;
+
+    @Option(name = "-z", usage = "list of zookeeper hosts: host1:2181,host2:2181,host3:2181", required = true)
+    private String zookeeperHosts;
+
+    @Option(name = "-T", usage = "kafka producer type, either 'async' or 'sync'")
+    private ProducerType producerType = ProducerType.sync;
+
+    @Option(name = "-C", usage = "kafka cleanup policy, either 'delete' or 'compact'")
+    private CleanupPolicy cleanupPolicy = CleanupPolicy.delete;
+
+    @Option(name = "-n", usage = "number of kafka partitons, default to 1")
+    private int numPartitions = 1;
+
+    @Option(name = "-R", usage = "kafka replication factor, defaults to 1")
+    private int replicationFactor = 1;
+
+    @Option(name = "-X", usage = "kafka compression codec, either 'none', 'snappy' or 'gzip'")
+    private CompressionCodec codec = CompressionCodec.none;
+
+    @Option(name = "-o", usage = "kafka output encoding, either 'string' or 'avro'")
+    private OutputEncoding encoding = OutputEncoding.string;
+
+    @Option(name = "-F", usage = "number of failed records tolerated per sink before the sink is disabled")
+    private long maxFailures = 0;
+
+    @Override
+    public int run(String[] args) throws Exception {
+
+        CmdLineParser cmd = new CmdLineParser(this);
+
+        try {
+            cmd.parseArgument(args);
+        } catch (CmdLineException e) {
+            System.err.println(e.getMessage());
+            cmd.printUsage(System.err);
+            throw e;
+        }
+
+        Job job = configure();
+        boolean success = job.waitForCompletion(true);
+        boolean complete = logSinkCounters(job);
+        logExportMetrics(job);
+        return (success && complete ? 0 : 1);
+    }
+
+    /**
+     * This function takes all required parameters and returns a configured job
+     * object.
+     *
+     * @param isSecured         A flag indicating if Kerberos is enabled.
+     * @param metaStoreUris     A string containing the Hive meta store URI
+     * @param principal         The Kerberos principal.
+     * @param inputDatabase     The Hive input database
+     * @param inputTable        The Hive input table.
+     * @param inputFilter       An optional filter for Hive.
+     * @param keyName           The field name to use as key for Redis and Kafka.
+     * @param redisHost         The Redis host.
+     * @param redisPort         The Redis port.
+     * @param redisPassword     The password to authenticate
+     * @param redisDb           The Redis key space / database.
+     * @param valueName         The fields name to use as Redis value, can be null.
+     * @param keyPrefix         An optional Redis key prefix.
+     * @param replace           A flag indicating of Redis data should be replaced.
+     * @param pipeline          A flag to set the Redis client pipeline mode.
+     * @param flush             A flag indicating Redis key space should be flushed.
+     * @param commitSize        The batch size for storing records in Redis in pipeline mode
+     * @param brokers           A list of Kafka brokers
+     * @param zookeepers        A list of zookeeper brokers
+     * @param producerType      The Kafka producer type (sync / async)
+     * @param cleanupPolicy     The cleanup policy (delete / compact)
+     * @param numPartitions     Num of partitions for the Kafka topic
+     * @param replicationFactor The replication factor for the topic
+     * @param codec             The compression codec (gzip / snappy / none)
+     * @param outputEncoding    Output encoding (string / avro)
+     * @param maxFailures       The number of failed records tolerated per sink
+     * @param anonFields        A list of fields to anonymize.
+     * @param exportSalt        An optional salt when anonymizing fields
+     * @return A configured job instance
+     * @throws Exception is thrown if an error occurs.
+     */
+    public Job configure(boolean isSecured, String metaStoreUris, String principal,
+                         String inputDatabase, String inputTable, String inputFilter, String keyName,
+                         String redisHost, int redisPort, String redisPassword, int redisDb,
+                         String valueName, String keyPrefix, boolean replace, boolean pipeline,
+                         boolean flush, int commitSize, String brokers, String zookeepers,
+                         ProducerType producerType, CleanupPolicy cleanupPolicy, int numPartitions,
+                         int replicationFactor, CompressionCodec codec, OutputEncoding outputEncoding,
+                         long maxFailures, String[] anonFields, String exportSalt) throws Exception {
+
+        this.isSecured = isSecured;
+        this.metaStoreUris = metaStoreUris;
+        this.principal = principal;
+        this.inputDatabase = inputDatabase;
+        this.inputTable = inputTable;
+        this.inputFilter = inputFilter;
+        this.keyName = keyName;
+        this.redisHost = redisHost;
+        this.redisPort = redisPort;
+        this.redisPassword = redisPassword;
+        this.redisDb = redisDb;
+        this.valueName = valueName;
+        this.keyPrefix = keyPrefix;
+        this.replace = replace;
+        this.pipeline = pipeline;
+        this.flush = flush;
+        this.commitSize = commitSize;
+        this.brokerList = brokers;
+        this.zookeeperHosts = zookeepers;
+        this.producerType = producerType;
+        this.cleanupPolicy = cleanupPolicy;
+        this.numPartitions = numPartitions;
+        this.replicationFactor = replicationFactor;
+        this.codec = codec;
+        this.encoding = outputEncoding;
+        this.maxFailures = maxFailures;
+        this.anonFields = anonFields.clone();
+        this.exportSalt = exportSalt;
+        return configure();
+    }
+
+    private Job configure() throws Exception {
+
+        Job job = configureJob("FanOutExport");
+
+        HCatSchema hcatSchema = HCatInputFormat.getTableSchema(job
+                .getConfiguration());
+
+        // redis
+        if (valueName == null) {
+            RedisOutputFormat.setOutput(job.getConfiguration(), redisHost,
+                    redisPort, redisPassword, redisDb, keyName, keyPrefix, replace,
+                    pipeline, commitSize);
+            FanOutExportMapper.addSink(job, REDIS_SINK, RedisFullTableExportSink.class,
+                    RedisOutputFormat.class, Text.class, RedisHashWritable.class);
+        } else {
+            RedisOutputFormat.setOutput(job.getConfiguration(), redisHost,
+                    redisPort, redisPassword, redisDb, keyName, keyPrefix,
+                    valueName, replace, pipeline, commitSize);
+            FanOutExportMapper.addSink(job, REDIS_SINK, RedisExportSink.class,
+                    RedisOutputFormat.class, Text.class,
+                    RedisOutputFormat.getRedisWritableClazz(hcatSchema, valueName));
+        }
+
+        if (flush) {
+            Jedis jedis = RedisMRJedisFactory.getJedisClient(job
+                    .getConfiguration());
+            jedis.flushDB();
+        }
+
+        // kafka
+        KafkaOutputFormat.setOutput(job.getConfiguration(), brokerList,
+                zookeeperHosts, producerType, cleanupPolicy, keyName,
+                inputTable, inputDatabase, numPartitions, replicationFactor,
+                codec, encoding);
+        FanOutExportMapper.addSink(job, KAFKA_SINK, KafkaExportSink.class,
+                KafkaOutputFormat.class, Text.class, AvroValue.class);
+
+        job.getConfiguration().setLong(FanOutExportMapper.EXPORT_FANOUT_MAX_FAILURES, maxFailures);
+
+        // map only, all records are written through the named outputs
+        job.setNumReduceTasks(0);
+        job.setOutputFormatClass(NullOutputFormat.class);
+
+        return job;
+    }
+
+    /**
+     * Logs the record counts of each sink.
+     *
+     * @param job The finished job.
+     * @return False if a sink has been disabled in any of the tasks.
+     * @throws Exception is thrown if an error occurs.
+     */
+    private boolean logSinkCounters(Job job) throws Exception {
+
+        for (String sink : SINKS) {
+            CounterGroup group = job.getCounters().getGroup(
+                    FanOutExportMapper.EXPORT_FANOUT_COUNTER_GROUP_PREFIX + sink);
+            Counter success = group.findCounter(StatCounter.SUCCESS.name());
+            Counter failed = group.findCounter(StatCounter.FAILED.name());
+            LOG.info(sink + ": " + success.getValue() + " records written, "
+                    + failed.getValue() + " records skipped");
+        }
+        List<String> disabledSinks = getDisabledSinks(job.getCounters());
+        for (String sink : disabledSinks) {
+            LOG.error(sink + ": disabled in at least one task, export is incomplete");
+        }
+        return disabledSinks.isEmpty();
+    }
+
+    /**
+     * Returns the sinks which have been disabled in any of the tasks of a
+     * finished fan-out job, i.e. the sinks whose export is incomplete.
+     *
+     * @param counters The counters of the finished job.
+     * @return The names of the disabled sinks.
+     */
+    public static List<String> getDisabledSinks(Counters counters) {
+
+        List<String> disabledSinks = new ArrayList<String>();
+        for (String sink : SINKS) {
+            CounterGroup group = counters.getGroup(FanOutExportMapper.EXPORT_FANOUT_COUNTER_GROUP_PREFIX + sink);
+            if (group.findCounter(FanOutExportMapper.DISABLED_COUNTER).getValue() > 0) {
+                disabledSinks.add(sink);
+            }
+        }
+        return disabledSinks;
+    }
+
+    @Override
+    protected void logExportMetrics(Job job) throws IOException {
+
+        LOG.info("export metrics: " + ExportMetrics.toJson(job.getCounters(),
+                FanOutExportMapper.EXPORT_FANOUT_COUNTER_GROUP_PREFIX, SINKS));
+    }
+
+    /**
+     * The entry point when called from the command line.
+     *
+     * @param args A string array containing the cmdl args.
+     * @throws Exception is thrown if an error occurs.
+     */
+    public static void main(String[] args) throws Exception {
+        try {
+            int exitCode = ToolRunner.run(new FanOutExportJob(), args);
+            System.exit(exitCode);
+        } catch (Exception e) {
+            LOG.error(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
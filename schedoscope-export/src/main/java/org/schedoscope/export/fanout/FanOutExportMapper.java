@@ -0,0 +1,274 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.fanout;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MapContext;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.lib.map.WrappedMapper;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.hadoop.util.StringUtils;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.mapreduce.HCatInputFormat;
+import org.schedoscope.export.ExportSink;
+import org.schedoscope.export.utils.ExportMetrics;
+import org.schedoscope.export.utils.RowProjection;
+import org.schedoscope.export.utils.StatCounter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A mapper that reads each record once and writes it to several sinks. Every
+ * sink writes to its own named output, counts its records in a separate counter
+ * group and is isolated from failures of the other sinks: a failing sink is
+ * disabled for the rest of the task while the others continue. A disabled sink
+ * is reported through the DISABLED counter of its group instead of failing the
+ * task, as a retried task would write all records to the healthy sinks again.
+ * Stage timings are published as
+ * {@link org.schedoscope.export.utils.ExportCounter}s summed over all sinks.
+ */
+public class FanOutExportMapper extends Mapper<WritableComparable<?>, HCatRecord, Object, Object> {
+
+    private static final Log LOG = LogFactory.getLog(FanOutExportMapper.class);
+
+    public static final String EXPORT_FANOUT_SINKS = "export.fanout.sinks";
+
+    public static final String EXPORT_FANOUT_SINK_CLASS_PREFIX = "export.fanout.sink.class.";
+
+    public static final String EXPORT_FANOUT_MAX_FAILURES = "export.fanout.max.failures";
+
+    public static final String EXPORT_FANOUT_COUNTER_GROUP_PREFIX = "FanOut ";
+
+    public static final String ERRORS_COUNTER = "ERRORS";
+
+    public static final String DISABLED_COUNTER = "DISABLED";
+
+    private List<SinkState> sinks;
+
+    private long maxFailures;
+
+    private final ExportMetrics metrics = new ExportMetrics();
+
+    /**
+     * Adds a sink to a fan out job. The name is used for the named output as
+     * well as the counter group and must consist of letters and digits only.
+     *
+     * @param job          The job object.
+     * @param name         The name of the sink.
+     * @param sinkClass    The sink class, must have a default constructor.
+     * @param outputFormat The output format the sink writes to.
+     * @param keyClass     The output key class.
+     * @param valueClass   The output value class.
+     */
+    @SuppressWarnings("rawtypes")
+    public static void addSink(Job job, String name, Class<? extends ExportSink> sinkClass,
+                               Class<? extends OutputFormat> outputFormat, Class<?> keyClass, Class<?> valueClass) {
+
+        Configuration conf = job.getConfiguration();
+
+        MultipleOutputs.addNamedOutput(job, name, outputFormat, keyClass, valueClass);
+        conf.setClass(EXPORT_FANOUT_SINK_CLASS_PREFIX + name, sinkClass, ExportSink.class);
+
+        List<String> names = new ArrayList<String>(Arrays.asList(conf.getStrings(EXPORT_FANOUT_SINKS, new String[0])));
+        names.add(name);
+        conf.setStrings(EXPORT_FANOUT_SINKS, names.toArray(new String[names.size()]));
+
+        job.setMapperClass(FanOutExportMapper.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+
+        super.setup(context);
+        Configuration conf = context.getConfiguration();
+
+        String[] names = conf.getStrings(EXPORT_FANOUT_SINKS, new String[0]);
+        if (names.length == 0) {
+            throw new IllegalArgumentException("no sinks configured, set " + EXPORT_FANOUT_SINKS);
+        }
+
+        maxFailures = conf.getLong(EXPORT_FANOUT_MAX_FAILURES, 0);
+
+        RowProjection projection = new RowProjection(conf, HCatInputFormat.getTableSchema(conf));
+
+        sinks = new ArrayList<SinkState>(names.length);
+        for (String name : names) {
+            Class<?> sinkClass = conf.getClass(EXPORT_FANOUT_SINK_CLASS_PREFIX + name, null, ExportSink.class);
+            ExportSink<Object, Object> sink = (ExportSink<Object, Object>) ReflectionUtils.newInstance(sinkClass, conf);
+            sink.setup(conf, projection);
+            // one instance per sink, so that the outputs can be closed independently
+            MultipleOutputs<Object, Object> outputs = new MultipleOutputs<Object, Object>(context);
+            sinks.add(new SinkState(name, sink, outputs, new NamedOutputContext(context, outputs, name), context));
+        }
+    }
+
+    @Override
+    public void run(Context context) throws IOException, InterruptedException {
+
+        setup(context);
+        try {
+            long start = System.nanoTime();
+            while (context.nextKeyValue()) {
+                metrics.recordRead(start);
+                map(context.getCurrentKey(), context.getCurrentValue(), context);
+                start = System.nanoTime();
+            }
+        } finally {
+            cleanup(context);
+        }
+    }
+
+    @Override
+    protected void map(WritableComparable<?> key, HCatRecord value, Context context)
+            throws IOException, InterruptedException {
+
+        for (SinkState s : sinks) {
+
+            if (s.disabled) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            s.context.emitNanos = 0;
+
+            try {
+                boolean written = s.sink.write(value, s.context);
+                metrics.recordConversion(start, s.context.emitNanos);
+
+                if (written) {
+                    s.success.increment(1);
+                } else {
+                    s.failed.increment(1);
+                }
+            } catch (IOException | RuntimeException e) {
+                s.errors.increment(1);
+                if (s.errors.getValue() > maxFailures) {
+                    LOG.error("disabling sink " + s.name + " for the rest of the task: "
+                            + StringUtils.stringifyException(e));
+                    s.disable();
+                } else {
+                    LOG.warn("sink " + s.name + " failed to write record: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+
+        for (SinkState s : sinks) {
+            try {
+                s.outputs.close();
+            } catch (IOException | RuntimeException e) {
+                LOG.error("failed to close sink " + s.name + ": " + StringUtils.stringifyException(e));
+                if (!s.disabled) {
+                    s.disable();
+                }
+            }
+        }
+
+        metrics.publish(context);
+
+        for (SinkState s : sinks) {
+            if (s.disabled) {
+                LOG.error("sink " + s.name + " has been disabled, its export is incomplete");
+            }
+        }
+    }
+
+    private static class SinkState {
+
+        private final String name;
+
+        private final ExportSink<Object, Object> sink;
+
+        private final MultipleOutputs<Object, Object> outputs;
+
+        private final NamedOutputContext context;
+
+        private final Counter success;
+
+        private final Counter failed;
+
+        private final Counter errors;
+
+        private final Counter disabledCounter;
+
+        private boolean disabled = false;
+
+        SinkState(String name, ExportSink<Object, Object> sink, MultipleOutputs<Object, Object> outputs,
+                  NamedOutputContext context, Context mapContext) {
+
+            this.name = name;
+            this.sink = sink;
+            this.outputs = outputs;
+            this.context = context;
+
+            String group = EXPORT_FANOUT_COUNTER_GROUP_PREFIX + name;
+            this.success = mapContext.getCounter(group, StatCounter.SUCCESS.name());
+            this.failed = mapContext.getCounter(group, StatCounter.FAILED.name());
+            this.errors = mapContext.getCounter(group, ERRORS_COUNTER);
+            this.disabledCounter = mapContext.getCounter(group, DISABLED_COUNTER);
+        }
+
+        void disable() {
+
+            disabled = true;
+            disabledCounter.increment(1);
+        }
+    }
+
+    /**
+     * A map context delegating to the task context, but writing to a named output.
+     */
+    private static class NamedOutputContext
+            extends WrappedMapper<WritableComparable<?>, HCatRecord, Object, Object>.Context {
+
+        private final MultipleOutputs<Object, Object> outputs;
+
+        private final String name;
+
+        private long emitNanos;
+
+        NamedOutputContext(MapContext<WritableComparable<?>, HCatRecord, Object, Object> mapContext,
+                           MultipleOutputs<Object, Object> outputs, String name) {
+
+            new WrappedMapper<WritableComparable<?>, HCatRecord, Object, Object>().super(mapContext);
+            this.outputs = outputs;
+            this.name = name;
+        }
+
+        @Override
+        public void write(Object key, Object value) throws IOException, InterruptedException {
+
+            long start = System.nanoTime();
+            outputs.write(name, key, value);
+            emitNanos += System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.ftp;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.schedoscope.export.ExportSink;
+import org.schedoscope.export.utils.RowProjection;
+import org.schedoscope.export.writables.TextPairArrayWritable;
+import org.schedoscope.export.writables.TextPairWritable;
+
+import java.io.IOException;
+
+/**
+ * A sink that converts HCatRecords into TextPairArrayWritables written as CSV files.
+ */
+public class FtpExportCSVSink implements ExportSink<LongWritable, TextPairArrayWritable> {
+
+    private RowProjection projection;
+
+    @Override
+    public void setup(Configuration conf, RowProjection projection) throws IOException {
+
+        this.projection = projection;
+    }
+
+    @Override
+    public boolean write(HCatRecord record, TaskInputOutputContext<?, ?, LongWritable, TextPairArrayWritable> context)
+            throws IOException, InterruptedException {
+
+        String[] values = projection.project(record, "");
+
+        TextPairWritable[] items = new TextPairWritable[values.length];
+        for (int i = 0; i < values.length; i++) {
+            items[i] = new TextPairWritable(projection.getName(i), values[i]);
+        }
+
+        LongWritable localKey = new LongWritable(context.getCounter(TaskCounter.MAP_INPUT_RECORDS).getValue());
+        context.write(localKey, new TextPairArrayWritable(items));
+        return true;
+    }
+}
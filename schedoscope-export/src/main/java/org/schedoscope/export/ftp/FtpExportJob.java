@@ -21,7 +21,6 @@ import org.apache.avro.mapred.AvroValue;
 import org.apache.avro.mapreduce.AvroJob;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Reducer;
@@ -32,8 +31,10 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.schedoscope.export.BaseExportJob;
+import org.schedoscope.export.ExportMapper;
 import org.schedoscope.export.ftp.outputformat.FileOutputType;
 import org.schedoscope.export.ftp.outputformat.FtpUploadOutputFormat;
+import org.schedoscope.export.ftp.upload.ChecksumAlgorithm;
 import org.schedoscope.export.ftp.upload.FileCompressionCodec;
 import org.schedoscope.export.kafka.avro.HCatToAvroSchemaConverter;
 import org.schedoscope.export.writables.TextPairArrayWritable;
@@ -81,6 +82,9 @@ public class FtpExportJob extends BaseExportJob {
     @Option(name = "-v", usage = "file output encoding, either 'csv' or 'json', defaults to 'csv'")
     private FileOutputType fileType = FileOutputType.csv;
 
+    @Option(name = "-a", usage = "checksum sidecar file to verify uploads, either 'none', 'md5' or 'sha256', defaults to 'none'")
+    private ChecksumAlgorithm checksum = ChecksumAlgorithm.none;
+
     @Override
     public int run(String[] args) throws Exception {
 
@@ -95,7 +99,9 @@ public class FtpExportJob extends BaseExportJob {
         }
 
         Job job = configure();
-        return job.waitForCompletion(true) ? 0 : 1;
+        boolean success = job.waitForCompletion(true);
+        logExportMetrics(job);
+        return (success ? 0 : 1);
     }
 
     /**
@@ -130,6 +136,45 @@ public class FtpExportJob extends BaseExportJob {
                          boolean printHeader, boolean passiveMode, boolean userIsRoot,
                          boolean cleanHdfsDir, FileCompressionCodec codec, FileOutputType fileType) throws Exception {
 
+        return configure(isSecured, metaStoreUris, principal, inputDatabase, inputTable, inputFilter, numReducer,
+                anonFields, exportSalt, keyFile, ftpUser, ftpPass, ftpEndpoint, filePrefix, delimiter, printHeader,
+                passiveMode, userIsRoot, cleanHdfsDir, codec, fileType, ChecksumAlgorithm.none);
+    }
+
+    /**
+     * @param isSecured     A flag indicating if Kerberos is enabled.
+     * @param metaStoreUris A string containing the Hive meta store URI
+     * @param principal     The Kerberos principal
+     * @param inputDatabase The Hive input database
+     * @param inputTable    The Hive input table
+     * @param inputFilter   An optional input filter
+     * @param numReducer    Number of reducers / partitions
+     * @param anonFields    A list of fields to anonymize
+     * @param exportSalt    An optional salt when anonymizing fields
+     * @param keyFile       A private ssh key file
+     * @param ftpUser       The (s)ftp user
+     * @param ftpPass       The (s)ftp password or passphrase is key file is set
+     * @param ftpEndpoint   The (s)ftp endpoint.
+     * @param filePrefix    A custom file prefix for exported files
+     * @param delimiter     A custom delimiter to use
+     * @param printHeader   To print a header or not (only CSV)
+     * @param passiveMode   Enable passive mode for FTP connections
+     * @param userIsRoot    User dir is root for (s)ftp connections
+     * @param cleanHdfsDir  Clean up HDFS temporary files (or  not)
+     * @param codec         The compression codec to use, either gzip or bzip2
+     * @param fileType      The output file type, either csv or json
+     * @param checksum      The checksum algorithm for the sidecar file, either none, md5 or sha256
+     * @return A configured MR job object.
+     * @throws Exception
+     */
+    public Job configure(boolean isSecured, String metaStoreUris, String principal,
+                         String inputDatabase, String inputTable, String inputFilter, int numReducer,
+                         String[] anonFields, String exportSalt, String keyFile, String ftpUser,
+                         String ftpPass, String ftpEndpoint, String filePrefix, String delimiter,
+                         boolean printHeader, boolean passiveMode, boolean userIsRoot,
+                         boolean cleanHdfsDir, FileCompressionCodec codec, FileOutputType fileType,
+                         ChecksumAlgorithm checksum) throws Exception {
+
         this.isSecured = isSecured;
         this.metaStoreUris = metaStoreUris;
         this.principal = principal;
@@ -151,47 +196,33 @@ public class FtpExportJob extends BaseExportJob {
         this.cleanHdfsDir = cleanHdfsDir;
         this.codec = codec;
         this.fileType = fileType;
+        this.checksum = checksum;
 
         return configure();
     }
 
     private Job configure() throws Exception {
 
-        Configuration conf = getConfiguration();
-        conf = configureHiveMetaStore(conf);
-        conf = configureKerberos(conf);
-        conf = configureAnonFields(conf);
-
-        Job job = Job.getInstance(conf, "FtpExport: " + inputDatabase + "." + inputTable);
+        Job job = configureJob("FtpExport");
 
-        job.setJarByClass(FtpExportJob.class);
         job.setReducerClass(Reducer.class);
         job.setNumReduceTasks(numReducer);
 
-        if (inputFilter == null || inputFilter.trim().equals("")) {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable);
-
-        } else {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable,
-                    inputFilter);
-        }
-
         if (filePrefix == null) {
             filePrefix = inputDatabase + "-" + inputTable;
         }
 
         FtpUploadOutputFormat.setOutput(job, inputTable, printHeader, delimiter,
                 fileType, codec, ftpEndpoint, ftpUser, ftpPass, keyFile,
-                filePrefix, passiveMode, userIsRoot, cleanHdfsDir);
+                filePrefix, passiveMode, userIsRoot, cleanHdfsDir, checksum);
 
-        job.setInputFormatClass(HCatInputFormat.class);
         job.setOutputFormatClass(FtpUploadOutputFormat.class);
         job.setOutputKeyClass(LongWritable.class);
 
         if (fileType.equals(FileOutputType.csv)) {
 
             job.setOutputValueClass(TextPairArrayWritable.class);
-            job.setMapperClass(FtpExportCSVMapper.class);
+            ExportMapper.setSink(job, FtpExportCSVSink.class);
         } else if (fileType.equals(FileOutputType.json)) {
 
             HCatSchema hcatInputSchema = HCatInputFormat.getTableSchema(job.getConfiguration());
@@ -201,7 +232,7 @@ public class FtpExportJob extends BaseExportJob {
 
 
             job.setOutputValueClass(AvroValue.class);
-            job.setMapperClass(FtpExportJsonMapper.class);
+            ExportMapper.setSink(job, FtpExportJsonSink.class);
         } else {
             throw new IllegalArgumentException("file output type must be either 'csv' or 'json'");
         }
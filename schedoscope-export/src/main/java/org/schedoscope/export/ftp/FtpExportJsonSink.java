@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.ftp;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.AvroValue;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.schedoscope.export.ExportSink;
+import org.schedoscope.export.ftp.outputformat.FtpUploadOutputFormat;
+import org.schedoscope.export.kafka.avro.HCatToAvroRecordConverter;
+import org.schedoscope.export.kafka.avro.HCatToAvroSchemaConverter;
+import org.schedoscope.export.utils.RowProjection;
+
+import java.io.IOException;
+
+/**
+ * A sink that converts HCatRecords into Avro GenericRecords written as Json files.
+ */
+public class FtpExportJsonSink implements ExportSink<LongWritable, AvroValue<GenericRecord>> {
+
+    private HCatToAvroRecordConverter converter;
+
+    private Schema avroSchema;
+
+    @Override
+    public void setup(Configuration conf, RowProjection projection) throws IOException {
+
+        String tableName = conf.get(FtpUploadOutputFormat.FTP_EXPORT_TABLE_NAME);
+
+        converter = new HCatToAvroRecordConverter(projection.getSerializer(),
+                projection.getAnonFields(), projection.getAnonymizer());
+
+        HCatToAvroSchemaConverter schemaConverter = new HCatToAvroSchemaConverter(projection.getAnonFields());
+        avroSchema = schemaConverter.convertSchema(projection.getSchema(), tableName);
+    }
+
+    @Override
+    public boolean write(HCatRecord record, TaskInputOutputContext<?, ?, LongWritable, AvroValue<GenericRecord>> context)
+            throws IOException, InterruptedException {
+
+        GenericRecord avroRecord = converter.convert(record, avroSchema);
+
+        LongWritable localKey = new LongWritable(context.getCounter(TaskCounter.MAP_INPUT_RECORDS).getValue());
+        context.write(localKey, new AvroValue<GenericRecord>(avroRecord));
+        return true;
+    }
+}
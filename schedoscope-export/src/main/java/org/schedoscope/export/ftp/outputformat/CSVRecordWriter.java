@@ -21,6 +21,7 @@ import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.QuoteMode;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.schedoscope.export.utils.ExportMetrics;
 import org.schedoscope.export.writables.TextPairArrayWritable;
 
 import java.io.DataOutputStream;
@@ -40,6 +41,8 @@ public class CSVRecordWriter<K, V> extends RecordWriter<K, V> {
 
     private StringBuilder buffer;
 
+    private final ExportMetrics metrics = new ExportMetrics();
+
     /**
      * The constructor to initialize the CSV Record Writer.
      *
@@ -64,14 +67,20 @@ public class CSVRecordWriter<K, V> extends RecordWriter<K, V> {
     @Override
     public void write(K key, V value) throws IOException {
 
+        long start = System.nanoTime();
         csvPrinter.printRecord(((TextPairArrayWritable) value).getSecondAsList());
-        out.write(buffer.toString().getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
         buffer.setLength(0);
+        metrics.recordWrite(start, bytes.length);
     }
 
     @Override
     public void close(TaskAttemptContext context) throws IOException {
 
+        long start = System.nanoTime();
         out.close();
+        metrics.recordSinkTime(start);
+        metrics.publish(context);
     }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.schedoscope.export.ftp.upload.ChecksumAlgorithm;
 import org.schedoscope.export.ftp.upload.Uploader;
 
 import java.io.File;
@@ -63,6 +64,8 @@ public class FtpUploadOutputCommitter extends FileOutputCommitter {
 
     private boolean cleanHdfsDir;
 
+    private ChecksumAlgorithm checksum;
+
     /**
      * The constructor to initialize the output committer.
      *
@@ -86,6 +89,8 @@ public class FtpUploadOutputCommitter extends FileOutputCommitter {
         this.passiveMode = conf.getBoolean(FtpUploadOutputFormat.FTP_EXPORT_PASSIVE_MODE, true);
         this.userIsRoot = conf.getBoolean(FtpUploadOutputFormat.FTP_EXPORT_USER_IS_ROOT, true);
         this.cleanHdfsDir = conf.getBoolean(FtpUploadOutputFormat.FTP_EXPORT_CLEAN_HDFS_DIR, true);
+        this.checksum = ChecksumAlgorithm.valueOf(conf.get(FtpUploadOutputFormat.FTP_EXPORT_CHECKSUM_ALGORITHM,
+                ChecksumAlgorithm.none.toString()));
         this.numReducer = context.getNumReduceTasks();
 
         try {
@@ -122,8 +127,13 @@ public class FtpUploadOutputCommitter extends FileOutputCommitter {
             uploader = new Uploader(user, pass, conf, passiveMode, userIsRoot);
 
         }
-        uploader.uploadFile(new Path(outputPath, fileName).toString(), remote);
-        uploader.closeFilesystem();
+        uploader.setChecksumAlgorithm(checksum);
+
+        try {
+            uploader.uploadFile(new Path(outputPath, fileName).toString(), remote);
+        } finally {
+            uploader.closeFilesystem();
+        }
     }
 
     @Override
@@ -40,6 +40,7 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.format.DateTimeFormatter;
 import org.joda.time.format.ISODateTimeFormat;
+import org.schedoscope.export.ftp.upload.ChecksumAlgorithm;
 import org.schedoscope.export.ftp.upload.FileCompressionCodec;
 
 import java.io.DataOutputStream;
@@ -76,6 +77,8 @@ public class FtpUploadOutputFormat<K, V> extends FileOutputFormat<K, V> {
 
     public static final String FTP_EXPORT_CLEAN_HDFS_DIR = "ftp.export.clean.hdfs.dir";
 
+    public static final String FTP_EXPORT_CHECKSUM_ALGORITHM = "ftp.export.checksum.algorithm";
+
     public static final String FTP_EXPORT_CVS_DELIMITER = "ftp.export.csv.delimmiter";
 
     private static final String FTP_EXPORT_HEADER_COLUMNS = "ftp.export.header.columns";
@@ -163,6 +166,34 @@ public class FtpUploadOutputFormat<K, V> extends FileOutputFormat<K, V> {
                                  FileCompressionCodec codec, String ftpEndpoint, String ftpUser, String ftpPass, String keyFile, String filePrefix,
                                  boolean passiveMode, boolean userIsRoot, boolean cleanHdfsDir) throws Exception {
 
+        setOutput(job, tableName, printHeader, delimiter, fileType, codec, ftpEndpoint, ftpUser, ftpPass, keyFile,
+                filePrefix, passiveMode, userIsRoot, cleanHdfsDir, ChecksumAlgorithm.none);
+    }
+
+    /**
+     * A method to configure the output format.
+     *
+     * @param job          The job object.
+     * @param tableName    The Hive input table name
+     * @param printHeader  A flag indicating to print a csv header or not.
+     * @param delimiter    The delimiter to use for separating the records (CSV)
+     * @param fileType     The file type (csv / json)
+     * @param codec        The compresson codec (none / gzip / bzip2)
+     * @param ftpEndpoint  The (s)ftp endpoint.
+     * @param ftpUser      The (s)ftp user
+     * @param ftpPass      The (s)ftp password or sftp passphrase
+     * @param keyFile      The private ssh key file
+     * @param filePrefix   An optional file prefix
+     * @param passiveMode  Passive mode or not (only ftp)
+     * @param userIsRoot   User dir is root or not
+     * @param cleanHdfsDir Clean up HDFS temporary files.
+     * @param checksum     The checksum algorithm for the sidecar file (none / md5 / sha256)
+     * @throws Exception Is thrown if an error occurs.
+     */
+    public static void setOutput(Job job, String tableName, boolean printHeader, String delimiter, FileOutputType fileType,
+                                 FileCompressionCodec codec, String ftpEndpoint, String ftpUser, String ftpPass, String keyFile, String filePrefix,
+                                 boolean passiveMode, boolean userIsRoot, boolean cleanHdfsDir, ChecksumAlgorithm checksum) throws Exception {
+
         Configuration conf = job.getConfiguration();
         String tmpDir = conf.get("hadoop.tmp.dir");
         String localTmpDir = RandomStringUtils.randomNumeric(10);
@@ -196,6 +227,7 @@ public class FtpUploadOutputFormat<K, V> extends FileOutputFormat<K, V> {
         conf.setBoolean(FTP_EXPORT_PASSIVE_MODE, passiveMode);
         conf.setBoolean(FTP_EXPORT_USER_IS_ROOT, userIsRoot);
         conf.setBoolean(FTP_EXPORT_CLEAN_HDFS_DIR, cleanHdfsDir);
+        conf.set(FTP_EXPORT_CHECKSUM_ALGORITHM, checksum.toString());
 
         DateTimeFormatter fmt = ISODateTimeFormat.basicDateTimeNoMillis();
         String timestamp = fmt.print(DateTime.now(DateTimeZone.UTC));
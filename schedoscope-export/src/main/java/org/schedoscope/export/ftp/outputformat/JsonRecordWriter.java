@@ -24,6 +24,7 @@ import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.mapred.AvroValue;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.schedoscope.export.utils.ExportMetrics;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -31,10 +32,12 @@ import java.nio.charset.StandardCharsets;
 
 public class JsonRecordWriter<K, V> extends RecordWriter<K, V> {
 
-    private static final String NEWLINE = "\n";
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
 
     private DataOutputStream out;
 
+    private final ExportMetrics metrics = new ExportMetrics();
+
     /**
      * The constructor to initialize the Json Record Writer.
      *
@@ -49,14 +52,20 @@ public class JsonRecordWriter<K, V> extends RecordWriter<K, V> {
     @Override
     public void write(K key, V value) throws IOException {
 
+        long start = System.nanoTime();
         AvroValue<GenericRecord> avroValue = (AvroValue<GenericRecord>) value;
-        out.write(avroValue.datum().toString().getBytes(StandardCharsets.UTF_8));
-        out.write(NEWLINE.getBytes(StandardCharsets.UTF_8));
+        byte[] bytes = avroValue.datum().toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.write(NEWLINE);
+        metrics.recordWrite(start, bytes.length + NEWLINE.length);
     }
 
     @Override
     public void close(TaskAttemptContext context) throws IOException {
 
+        long start = System.nanoTime();
         out.close();
+        metrics.recordSinkTime(start);
+        metrics.publish(context);
     }
 }
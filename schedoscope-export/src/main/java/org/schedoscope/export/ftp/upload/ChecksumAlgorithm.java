@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.ftp.upload;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An enum representing the available checksum algorithms (none / md5 / sha256)
+ * used to verify uploaded files by means of a sidecar file.
+ */
+public enum ChecksumAlgorithm {
+    none {
+        @Override
+        public String toString() {
+            return "none";
+        }
+
+        @Override
+        public String getExtension() {
+            return "";
+        }
+
+        @Override
+        public String digest(InputStream in) throws IOException {
+            return null;
+        }
+    },
+    md5 {
+        @Override
+        public String toString() {
+            return "md5";
+        }
+
+        @Override
+        public String getExtension() {
+            return ".md5";
+        }
+
+        @Override
+        public String digest(InputStream in) throws IOException {
+            return DigestUtils.md5Hex(in);
+        }
+    },
+    sha256 {
+        @Override
+        public String toString() {
+            return "sha256";
+        }
+
+        @Override
+        public String getExtension() {
+            return ".sha256";
+        }
+
+        @Override
+        public String digest(InputStream in) throws IOException {
+            return DigestUtils.sha256Hex(in);
+        }
+    };
+
+    /**
+     * Returns the file extension of the sidecar file.
+     *
+     * @return The extension, empty if no sidecar file is written.
+     */
+    public abstract String getExtension();
+
+    /**
+     * Computes the hex encoded checksum of a stream.
+     *
+     * @param in The stream to consume.
+     * @return The hex encoded checksum or null if checksums are disabled.
+     * @throws IOException Is thrown if an error occurs.
+     */
+    public abstract String digest(InputStream in) throws IOException;
+}
@@ -29,22 +29,35 @@ import org.apache.commons.vfs2.provider.hdfs.HdfsFileSystemConfigBuilder;
 import org.apache.commons.vfs2.provider.sftp.IdentityInfo;
 import org.apache.commons.vfs2.provider.sftp.SftpFileSystemConfigBuilder;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IOUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * The class takes care of setting up the (S)FTP connection and provides
- * a function to upload a file.
+ * a function to upload a file. Files are first written to a temporary
+ * &lt;name&gt;.part file, verified and then renamed, so that an interrupted
+ * upload can be resumed and already committed files are skipped on retry.
  */
 public class Uploader {
 
     private static final Log LOG = LogFactory.getLog(Uploader.class);
 
+    public static final String PART_FILE_SUFFIX = ".part";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private StandardFileSystemManager fsManager = null;
 
     private FileSystemOptions opts = null;
 
+    private ChecksumAlgorithm checksum = ChecksumAlgorithm.none;
+
     /**
      * The constructor to initialize a user name / password (s)ftp connection.
      *
@@ -128,18 +141,157 @@ public class Uploader {
     }
 
     /**
-     * A method to copy a file from src (hdfs) to (s)ftp (remote).
+     * A method to set the checksum algorithm used to verify uploads, defaults to none.
+     *
+     * @param checksum The checksum algorithm, none disables the sidecar file.
+     */
+    public void setChecksumAlgorithm(ChecksumAlgorithm checksum) {
+
+        this.checksum = checksum;
+    }
+
+    /**
+     * A method to copy a file from src (hdfs) to (s)ftp (remote). The file is
+     * uploaded to a .part file first. An interrupted upload of the same content
+     * is resumed from the remote size of the .part file if the file system supports
+     * appending, which requires a checksum to recognize the content. After the size
+     * has been verified a checksum sidecar file is written and the .part file is renamed
+     * to its final name. If the remote file already exists with matching size and
+     * checksum, the upload is skipped.
      *
      * @param inFile  The input file to copy.
      * @param outFile The output file to create.
-     * @throws FileSystemException Is thrown if an error occurs.
+     * @throws IOException Is thrown if an error occurs.
      */
-    public void uploadFile(String inFile, String outFile) throws FileSystemException {
+    public void uploadFile(String inFile, String outFile) throws IOException {
 
         FileObject local = fsManager.resolveFile(inFile);
         FileObject remote = fsManager.resolveFile(outFile, opts);
-        LOG.debug("copy " + local + " to " + remote);
-        remote.copyFrom(local, new AllFileSelector());
+        FileObject part = fsManager.resolveFile(outFile + PART_FILE_SUFFIX, opts);
+
+        long localSize = local.getContent().getSize();
+        String localChecksum = computeChecksum(local);
+
+        if (matchesChecksum(remote, localSize, localChecksum, outFile)) {
+            LOG.info("file " + remote + " already committed - skipping upload");
+            return;
+        }
+
+        long offset = 0;
+        if (localChecksum != null
+                && part.getFileSystem().hasCapability(Capability.APPEND_CONTENT)
+                && matchesChecksum(part, -1, localChecksum, outFile + PART_FILE_SUFFIX)) {
+            offset = Math.min(part.getContent().getSize(), localSize);
+        } else {
+            if (part.exists()) {
+                part.delete();
+            }
+            if (localChecksum != null) {
+                // remember the content of the .part file to be able to resume it
+                writeSidecar(outFile + PART_FILE_SUFFIX, localChecksum, remote.getName().getBaseName());
+            }
+        }
+
+        LOG.debug("copy " + local + " to " + part + " starting at offset " + offset);
+        copy(local, part, offset);
+
+        part.refresh();
+        long partSize = part.getContent().getSize();
+        if (partSize != localSize) {
+            part.delete();
+            throw new IOException("size mismatch after upload of " + part + ": expected "
+                    + localSize + " bytes, found " + partSize);
+        }
+
+        if (localChecksum != null) {
+            writeSidecar(outFile, localChecksum, remote.getName().getBaseName());
+        }
+
+        if (remote.exists()) {
+            remote.delete();
+        }
+        part.moveTo(remote);
+
+        if (localChecksum != null) {
+            fsManager.resolveFile(outFile + PART_FILE_SUFFIX + checksum.getExtension(), opts).delete();
+        }
+    }
+
+    /**
+     * Checks if a remote file exists and its sidecar file contains the given checksum.
+     *
+     * @param file          The remote file.
+     * @param size          The expected size, -1 to skip the size check.
+     * @param localChecksum The expected checksum, null if checksums are disabled.
+     * @param fileName      The remote file name, used to resolve the sidecar file.
+     * @return True if file and sidecar file match.
+     * @throws IOException Is thrown if an error occurs.
+     */
+    private boolean matchesChecksum(FileObject file, long size, String localChecksum, String fileName)
+            throws IOException {
+
+        if (!file.exists() || (size >= 0 && file.getContent().getSize() != size)) {
+            return false;
+        }
+
+        if (localChecksum == null) {
+            return true;
+        }
+
+        FileObject sidecar = fsManager.resolveFile(fileName + checksum.getExtension(), opts);
+        if (!sidecar.exists()) {
+            return false;
+        }
+
+        InputStream in = sidecar.getContent().getInputStream();
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            IOUtils.copyBytes(in, content, COPY_BUFFER_SIZE, false);
+            String remoteChecksum = new String(content.toByteArray(), StandardCharsets.US_ASCII).trim();
+            return remoteChecksum.split("\\s+")[0].equalsIgnoreCase(localChecksum);
+        } finally {
+            IOUtils.closeStream(in);
+        }
+    }
+
+    private String computeChecksum(FileObject local) throws IOException {
+
+        if (checksum == ChecksumAlgorithm.none) {
+            return null;
+        }
+
+        InputStream in = local.getContent().getInputStream();
+        try {
+            return checksum.digest(in);
+        } finally {
+            IOUtils.closeStream(in);
+        }
+    }
+
+    private void copy(FileObject local, FileObject part, long offset) throws IOException {
+
+        InputStream in = local.getContent().getInputStream();
+        OutputStream out = null;
+        try {
+            IOUtils.skipFully(in, offset);
+            out = part.getContent().getOutputStream(offset > 0);
+            IOUtils.copyBytes(in, out, COPY_BUFFER_SIZE, false);
+        } finally {
+            IOUtils.closeStream(out);
+            IOUtils.closeStream(in);
+        }
+    }
+
+    private void writeSidecar(String fileName, String localChecksum, String baseName) throws IOException {
+
+        FileObject sidecar = fsManager.resolveFile(fileName + checksum.getExtension(), opts);
+        OutputStream out = sidecar.getContent().getOutputStream();
+        try {
+            // same layout as md5sum / sha256sum
+            out.write((localChecksum + "  " + baseName + "\n").getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            IOUtils.closeStream(out);
+        }
     }
 
     public void closeFilesystem() {
@@ -34,6 +34,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.schedoscope.export.BaseExportJob;
+import org.schedoscope.export.ExportMapper;
 import org.schedoscope.export.jdbc.exception.RetryException;
 import org.schedoscope.export.jdbc.exception.UnrecoverableException;
 import org.schedoscope.export.jdbc.outputformat.JdbcOutputFormat;
@@ -84,6 +85,7 @@ public class JdbcExportJob extends BaseExportJob {
 
         Job job = configure();
         boolean success = job.waitForCompletion(true);
+        logExportMetrics(job);
 
         postCommit(success, job.getConfiguration());
         return (success ? 0 : 1);
@@ -157,27 +159,12 @@ public class JdbcExportJob extends BaseExportJob {
 
     private Job configure() throws Exception {
 
-        Configuration conf = getConfiguration();
-        conf = configureHiveMetaStore(conf);
-        conf = configureKerberos(conf);
-        conf = configureAnonFields(conf);
+        Job job = configureJob("JDBCExport");
 
-        Job job = Job.getInstance(conf, "JDBCExport: " + inputDatabase + "."
-                + inputTable);
-
-        job.setJarByClass(JdbcExportJob.class);
-        job.setMapperClass(JdbcExportMapper.class);
+        ExportMapper.setSink(job, JdbcExportSink.class);
         job.setReducerClass(Reducer.class);
         job.setNumReduceTasks(numReducer);
 
-        if (inputFilter == null || inputFilter.trim().equals("")) {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable);
-
-        } else {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable,
-                    inputFilter);
-        }
-
         Schema outputSchema = SchemaFactory.getSchema(dbConnectionString,
                 job.getConfiguration());
         HCatSchema hcatInputSchema = HCatInputFormat.getTableSchema(job
@@ -195,7 +182,6 @@ public class JdbcExportJob extends BaseExportJob {
                 commitSize, storageEngine, distributeBy, columnNames,
                 columnTypes);
 
-        job.setInputFormatClass(HCatInputFormat.class);
         job.setOutputFormatClass(JdbcOutputFormat.class);
 
         job.setMapOutputKeyClass(LongWritable.class);
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.jdbc;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.schedoscope.export.ExportSink;
+import org.schedoscope.export.jdbc.outputformat.JdbcOutputWritable;
+import org.schedoscope.export.jdbc.outputschema.Schema;
+import org.schedoscope.export.jdbc.outputschema.SchemaFactory;
+import org.schedoscope.export.utils.RowProjection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A sink that converts HCatRecords into JDBC writables.
+ */
+public class JdbcExportSink implements ExportSink<LongWritable, JdbcOutputWritable> {
+
+    private static final Log LOG = LogFactory.getLog(JdbcExportSink.class);
+
+    private RowProjection projection;
+
+    private String[] fieldTypes;
+
+    private String filterType;
+
+    private String inputFilter;
+
+    @Override
+    public void setup(Configuration conf, RowProjection projection) throws IOException {
+
+        this.projection = projection;
+
+        Schema outputSchema = SchemaFactory.getSchema(conf);
+        inputFilter = outputSchema.getFilter();
+
+        String[] columnTypes = outputSchema.getColumnTypes();
+        Map<String, String> typeMapping = outputSchema.getPreparedStatementTypeMapping();
+
+        fieldTypes = new String[projection.size()];
+        for (int i = 0; i < fieldTypes.length; i++) {
+            fieldTypes[i] = typeMapping.get(columnTypes[projection.getSchema().getPosition(projection.getName(i))]);
+        }
+        filterType = typeMapping.get(columnTypes[columnTypes.length - 1]);
+
+        LOG.info("Used Filter: " + inputFilter);
+    }
+
+    @Override
+    public boolean write(HCatRecord record, TaskInputOutputContext<?, ?, LongWritable, JdbcOutputWritable> context)
+            throws IOException, InterruptedException {
+
+        String[] values = projection.project(record, "NULL");
+
+        List<Pair<String, String>> row = new ArrayList<Pair<String, String>>(values.length + 1);
+        for (int i = 0; i < values.length; i++) {
+            row.add(Pair.of(fieldTypes[i], values[i]));
+        }
+
+        if (inputFilter == null) {
+            row.add(Pair.of(filterType, "NULL"));
+        } else {
+            row.add(Pair.of(filterType, inputFilter));
+        }
+
+        LongWritable localKey = new LongWritable(context.getCounter(
+                TaskCounter.MAP_INPUT_RECORDS).getValue());
+        context.write(localKey, new JdbcOutputWritable(row));
+        return true;
+    }
+}
@@ -31,6 +31,7 @@ import org.schedoscope.export.jdbc.exception.RetryException;
 import org.schedoscope.export.jdbc.exception.UnrecoverableException;
 import org.schedoscope.export.jdbc.outputschema.Schema;
 import org.schedoscope.export.jdbc.outputschema.SchemaFactory;
+import org.schedoscope.export.utils.ExportMetrics;
 import org.schedoscope.export.utils.JdbcQueryUtils;
 
 import java.io.IOException;
@@ -79,6 +80,7 @@ public class JdbcOutputFormat<K, V extends DBWritable> extends
         private int rowsInBatch = 0;
         private int rowsTotal = 0;
         private int commitSize = 25000;
+        private final ExportMetrics metrics = new ExportMetrics();
 
         public JdbcRecordWriter() throws SQLException {
         }
@@ -114,16 +116,22 @@ public class JdbcOutputFormat<K, V extends DBWritable> extends
         @Override
         public void close(TaskAttemptContext context) throws IOException {
 
+            long start = System.nanoTime();
+
             try {
 
                 if (rowsInBatch > 0) {
                     statement.executeBatch();
+                    metrics.recordBatch(start);
                 }
 
                 if (rowsTotal > 0) {
                     connection.commit();
                 }
 
+                metrics.recordSinkTime(start);
+                metrics.publish(context);
+
             } catch (SQLException e) {
                 try {
                     connection.rollback();
@@ -140,16 +148,21 @@ public class JdbcOutputFormat<K, V extends DBWritable> extends
         @Override
         public void write(K key, V value) throws IOException {
 
+            long start = System.nanoTime();
+
             try {
                 value.write(statement);
                 statement.addBatch();
                 if (rowsInBatch == commitSize) {
+                    long batchStart = System.nanoTime();
                     statement.executeBatch();
+                    metrics.recordBatch(batchStart);
                     rowsInBatch = 0;
                 } else {
                     rowsInBatch++;
                     rowsTotal++;
                 }
+                metrics.recordWrite(start, 0);
             } catch (SQLException e) {
                 e.printStackTrace();
             }
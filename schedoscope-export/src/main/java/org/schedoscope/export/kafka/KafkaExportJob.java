@@ -22,7 +22,6 @@ import org.apache.avro.mapred.AvroValue;
 import org.apache.avro.mapreduce.AvroJob;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Reducer;
@@ -33,6 +32,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.schedoscope.export.BaseExportJob;
+import org.schedoscope.export.ExportMapper;
 import org.schedoscope.export.kafka.avro.HCatToAvroSchemaConverter;
 import org.schedoscope.export.kafka.options.CleanupPolicy;
 import org.schedoscope.export.kafka.options.CompressionCodec;
@@ -89,7 +89,9 @@ public class KafkaExportJob extends BaseExportJob {
         }
 
         Job job = configure();
-        return job.waitForCompletion(true) ? 0 : 1;
+        boolean success = job.waitForCompletion(true);
+        logExportMetrics(job);
+        return (success ? 0 : 1);
     }
 
     /**
@@ -146,23 +148,7 @@ public class KafkaExportJob extends BaseExportJob {
 
     private Job configure() throws Exception {
 
-        Configuration conf = getConfiguration();
-        conf = configureHiveMetaStore(conf);
-        conf = configureKerberos(conf);
-        conf = configureAnonFields(conf);
-
-        Job job = Job.getInstance(conf, "KafkaExport: " + inputDatabase + "."
-                + inputTable);
-
-        job.setJarByClass(KafkaExportJob.class);
-
-        if (inputFilter == null || inputFilter.trim().equals("")) {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable);
-
-        } else {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable,
-                    inputFilter);
-        }
+        Job job = configureJob("KafkaExport");
 
         HCatSchema hcatSchema = HCatInputFormat.getTableSchema(job
                 .getConfiguration());
@@ -181,10 +167,9 @@ public class KafkaExportJob extends BaseExportJob {
                 inputTable, inputDatabase, numPartitions, replicationFactor,
                 codec, encoding);
 
-        job.setMapperClass(KafkaExportMapper.class);
+        ExportMapper.setSink(job, KafkaExportSink.class);
         job.setReducerClass(Reducer.class);
         job.setNumReduceTasks(numReducer);
-        job.setInputFormatClass(HCatInputFormat.class);
         job.setOutputFormatClass(KafkaOutputFormat.class);
 
         job.setMapOutputKeyClass(Text.class);
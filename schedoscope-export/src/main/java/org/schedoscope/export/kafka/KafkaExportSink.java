@@ -0,0 +1,77 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.kafka;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.AvroValue;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.schedoscope.export.ExportSink;
+import org.schedoscope.export.kafka.avro.HCatToAvroRecordConverter;
+import org.schedoscope.export.kafka.avro.HCatToAvroSchemaConverter;
+import org.schedoscope.export.kafka.outputformat.KafkaOutputFormat;
+import org.schedoscope.export.utils.HCatUtils;
+import org.schedoscope.export.utils.RowProjection;
+
+import java.io.IOException;
+
+/**
+ * A sink that converts HCatRecords into Avro GenericRecords keyed by a column.
+ */
+public class KafkaExportSink implements ExportSink<Text, AvroValue<GenericRecord>> {
+
+    private HCatSchema hcatSchema;
+
+    private String keyName;
+
+    private HCatToAvroRecordConverter converter;
+
+    private Schema avroSchema;
+
+    @Override
+    public void setup(Configuration conf, RowProjection projection) throws IOException {
+
+        hcatSchema = projection.getSchema();
+
+        keyName = conf.get(KafkaOutputFormat.KAFKA_EXPORT_KEY_NAME);
+        String tableName = conf.get(KafkaOutputFormat.KAFKA_EXPORT_TABLE_NAME);
+
+        HCatUtils.checkKeyType(hcatSchema, keyName);
+
+        converter = new HCatToAvroRecordConverter(projection.getSerializer(),
+                projection.getAnonFields(), projection.getAnonymizer());
+
+        HCatToAvroSchemaConverter schemaConverter = new HCatToAvroSchemaConverter(
+                projection.getAnonFields());
+        avroSchema = schemaConverter.convertSchema(hcatSchema, tableName);
+    }
+
+    @Override
+    public boolean write(HCatRecord record, TaskInputOutputContext<?, ?, Text, AvroValue<GenericRecord>> context)
+            throws IOException, InterruptedException {
+
+        Text kafkaKey = new Text(record.getString(keyName, hcatSchema));
+        GenericRecord avroRecord = converter.convert(record, avroSchema);
+
+        context.write(kafkaKey, new AvroValue<GenericRecord>(avroRecord));
+        return true;
+    }
+}
@@ -22,6 +22,7 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.generic.GenericRecordBuilder;
 import org.apache.hive.hcatalog.data.HCatRecord;
+import org.schedoscope.export.utils.Anonymizer;
 import org.schedoscope.export.utils.HCatRecordJsonSerializer;
 import org.schedoscope.export.utils.HCatUtils;
 
@@ -39,7 +40,7 @@ public class HCatToAvroRecordConverter {
 
     private Set<String> anonFields;
 
-    private String salt;
+    private Anonymizer anonymizer;
 
     /**
      * Create a new record converter instance, pass in a json serializer and a
@@ -52,9 +53,23 @@ public class HCatToAvroRecordConverter {
     public HCatToAvroRecordConverter(HCatRecordJsonSerializer serializer,
                                      Set<String> anonFields, String salt) {
 
+        this(serializer, anonFields, new Anonymizer(Anonymizer.Algorithm.md5, salt, 0));
+    }
+
+    /**
+     * Create a new record converter instance, pass in a json serializer, a
+     * list with field names to anonymize and the anonymizer to use.
+     *
+     * @param serializer A Json serializer
+     * @param anonFields A list with fields to anonymize
+     * @param anonymizer The anonymizer computing the pseudonyms
+     */
+    public HCatToAvroRecordConverter(HCatRecordJsonSerializer serializer,
+                                     Set<String> anonFields, Anonymizer anonymizer) {
+
         this.serializer = serializer;
         this.anonFields = anonFields;
-        this.salt = salt;
+        this.anonymizer = anonymizer;
     }
 
     /**
@@ -66,7 +81,7 @@ public class HCatToAvroRecordConverter {
 
         this.serializer = serializer;
         this.anonFields = new HashSet<String>(0);
-        this.salt = "";
+        this.anonymizer = new Anonymizer(Anonymizer.Algorithm.md5, "", 0);
     }
 
     /**
@@ -98,7 +113,7 @@ public class HCatToAvroRecordConverter {
                     if (s.getType().equals(Schema.Type.STRING)) {
                         builder.set(f.name(), HCatUtils.getHashValueIfInList(
                                 f.name(), json.get(f.name()).asText(),
-                                anonFields, salt));
+                                anonFields, anonymizer));
                     } else if (s.getType().equals(Schema.Type.INT)) {
                         builder.set(f.name(), json.get(f.name()).asInt());
                     } else if (s.getType().equals(Schema.Type.LONG)) {
@@ -33,6 +33,7 @@ import org.schedoscope.export.kafka.options.CleanupPolicy;
 import org.schedoscope.export.kafka.options.CompressionCodec;
 import org.schedoscope.export.kafka.options.OutputEncoding;
 import org.schedoscope.export.kafka.options.ProducerType;
+import org.schedoscope.export.utils.ExportMetrics;
 
 import java.io.IOException;
 import java.util.Properties;
@@ -198,6 +199,8 @@ public class KafkaOutputFormat<K extends Text, V extends AvroValue<GenericRecord
 
         private String topic;
 
+        private final ExportMetrics metrics = new ExportMetrics();
+
         /**
          * Inializes a new Kafka Record Writer using a Kafka producer under the
          * hood.
@@ -215,15 +218,20 @@ public class KafkaOutputFormat<K extends Text, V extends AvroValue<GenericRecord
         @Override
         public void write(K key, V value) {
 
+            long start = System.nanoTime();
             KeyedMessage<String, String> message = new KeyedMessage<String, String>(
                     topic, key.toString(), value.datum().toString());
             producer.send(message);
+            metrics.recordWrite(start, 0);
         }
 
         @Override
         public void close(TaskAttemptContext context) throws IOException {
 
+            long start = System.nanoTime();
             producer.close();
+            metrics.recordSinkTime(start);
+            metrics.publish(context);
         }
     }
 
@@ -237,6 +245,8 @@ public class KafkaOutputFormat<K extends Text, V extends AvroValue<GenericRecord
 
         private String topic;
 
+        private final ExportMetrics metrics = new ExportMetrics();
+
         /**
          * Inializes a new Kafka Record Writer using a Kafka producer under the
          * hood. This one writes avro generic records to Kafka.
@@ -254,15 +264,20 @@ public class KafkaOutputFormat<K extends Text, V extends AvroValue<GenericRecord
         @Override
         public void write(K key, V value) {
 
+            long start = System.nanoTime();
             KeyedMessage<String, GenericRecord> message = new KeyedMessage<String, GenericRecord>(
                     topic, key.toString(), value.datum());
             producer.send(message);
+            metrics.recordWrite(start, 0);
         }
 
         @Override
         public void close(TaskAttemptContext context) throws IOException {
 
+            long start = System.nanoTime();
             producer.close();
+            metrics.recordSinkTime(start);
+            metrics.publish(context);
         }
     }
 }
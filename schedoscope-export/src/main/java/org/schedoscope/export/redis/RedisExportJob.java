@@ -16,7 +16,6 @@
 
 package org.schedoscope.export.redis;
 
-import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Reducer;
@@ -27,6 +26,7 @@ import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.schedoscope.export.BaseExportJob;
+import org.schedoscope.export.ExportMapper;
 import org.schedoscope.export.redis.outputformat.RedisHashWritable;
 import org.schedoscope.export.redis.outputformat.RedisOutputFormat;
 import org.schedoscope.export.utils.RedisMRJedisFactory;
@@ -86,6 +86,7 @@ public class RedisExportJob extends BaseExportJob {
 
         Job job = configure();
         boolean success = job.waitForCompletion(true);
+        logExportMetrics(job);
         return (success ? 0 : 1);
     }
 
@@ -149,23 +150,7 @@ public class RedisExportJob extends BaseExportJob {
 
     private Job configure() throws Exception {
 
-        Configuration conf = getConfiguration();
-        conf = configureHiveMetaStore(conf);
-        conf = configureKerberos(conf);
-        conf = configureAnonFields(conf);
-
-        Job job = Job.getInstance(conf, "RedisExport: " + inputDatabase + "."
-                + inputTable);
-
-        job.setJarByClass(RedisExportJob.class);
-
-        if (inputFilter == null || inputFilter.trim().equals("")) {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable);
-
-        } else {
-            HCatInputFormat.setInput(job, inputDatabase, inputTable,
-                    inputFilter);
-        }
+        Job job = configureJob("RedisExport");
 
         HCatSchema hcatSchema = HCatInputFormat.getTableSchema(job
                 .getConfiguration());
@@ -177,14 +162,14 @@ public class RedisExportJob extends BaseExportJob {
                     redisPort, password, redisDb, keyName, keyPrefix, replace,
                     pipeline, commitSize);
 
-            job.setMapperClass(RedisFullTableExportMapper.class);
+            ExportMapper.setSink(job, RedisFullTableExportSink.class);
             OutputClazz = RedisHashWritable.class;
 
         } else {
             RedisOutputFormat.setOutput(job.getConfiguration(), redisHost,
                     redisPort, password, redisDb, keyName, keyPrefix,
                     valueName, replace, pipeline, commitSize);
-            job.setMapperClass(RedisExportMapper.class);
+            ExportMapper.setSink(job, RedisExportSink.class);
             OutputClazz = RedisOutputFormat.getRedisWritableClazz(hcatSchema,
                     valueName);
         }
@@ -197,7 +182,6 @@ public class RedisExportJob extends BaseExportJob {
 
         job.setReducerClass(Reducer.class);
         job.setNumReduceTasks(numReducer);
-        job.setInputFormatClass(HCatInputFormat.class);
         job.setOutputFormatClass(RedisOutputFormat.class);
 
         job.setMapOutputKeyClass(Text.class);
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.redis;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.MapWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.schedoscope.export.ExportSink;
+import org.schedoscope.export.redis.outputformat.RedisHashWritable;
+import org.schedoscope.export.redis.outputformat.RedisOutputFormat;
+import org.schedoscope.export.utils.HCatUtils;
+import org.schedoscope.export.utils.RowProjection;
+
+import java.io.IOException;
+
+/**
+ * A sink that converts a full HCatRecord into a RedisHashWritable
+ * containing all columns and values as pairs.
+ */
+public class RedisFullTableExportSink implements ExportSink<Text, RedisHashWritable> {
+
+    private RowProjection projection;
+
+    private int keyPosition;
+
+    private String keyPrefix;
+
+    @Override
+    public void setup(Configuration conf, RowProjection projection) throws IOException {
+
+        this.projection = projection;
+
+        String keyName = conf.get(RedisOutputFormat.REDIS_EXPORT_KEY_NAME);
+        HCatUtils.checkKeyType(projection.getSchema(), keyName);
+
+        keyPosition = projection.getSchema().getPosition(keyName);
+        keyPrefix = RedisOutputFormat.getExportKeyPrefix(conf);
+    }
+
+    @Override
+    public boolean write(HCatRecord record, TaskInputOutputContext<?, ?, Text, RedisHashWritable> context)
+            throws IOException, InterruptedException {
+
+        Text redisKey = new Text(keyPrefix + record.get(keyPosition));
+
+        String[] values = projection.project(record, null);
+
+        MapWritable redisValue = new MapWritable();
+        boolean write = false;
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                redisValue.put(new Text(projection.getName(i)), new Text(values[i]));
+                write = true;
+            }
+        }
+
+        if (write) {
+            context.write(redisKey, new RedisHashWritable(redisKey, redisValue));
+        }
+        return write;
+    }
+}
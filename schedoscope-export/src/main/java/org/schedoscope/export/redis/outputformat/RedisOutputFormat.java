@@ -22,6 +22,7 @@ import org.apache.hadoop.mapreduce.*;
 import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
 import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
 import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.schedoscope.export.utils.ExportMetrics;
 import org.schedoscope.export.utils.RedisMRJedisFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Pipeline;
@@ -197,6 +198,8 @@ public class RedisOutputFormat<K, V extends RedisWritable> extends
 
         boolean replace;
 
+        private final ExportMetrics metrics = new ExportMetrics();
+
         /**
          * The constructor to initialize the record writer.
          *
@@ -212,13 +215,16 @@ public class RedisOutputFormat<K, V extends RedisWritable> extends
         @Override
         public void write(K key, V value) {
 
+            long start = System.nanoTime();
             value.write(jedis, replace);
+            metrics.recordWrite(start, 0);
         }
 
         @Override
         public void close(TaskAttemptContext context) throws IOException {
 
             jedis.close();
+            metrics.publish(context);
         }
     }
 
@@ -236,6 +242,8 @@ public class RedisOutputFormat<K, V extends RedisWritable> extends
 
         private int written;
 
+        private final ExportMetrics metrics = new ExportMetrics();
+
         /**
          * The constructor to initialize the pipelined writer.
          *
@@ -255,18 +263,26 @@ public class RedisOutputFormat<K, V extends RedisWritable> extends
         @Override
         public void write(K key, V value) {
 
+            long start = System.nanoTime();
             value.write(jedis, replace);
             written++;
             if ((written % commitSize) == 0) {
+                long batchStart = System.nanoTime();
                 jedis.sync();
+                metrics.recordBatch(batchStart);
             }
+            metrics.recordWrite(start, 0);
         }
 
         @Override
         public void close(TaskAttemptContext context) throws IOException {
 
+            long start = System.nanoTime();
             jedis.sync();
+            metrics.recordBatch(start);
+            metrics.recordSinkTime(start);
             jedis.close();
+            metrics.publish(context);
         }
     }
 }
@@ -0,0 +1,288 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.schedoscope.export.BaseExportJob;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Computes pseudonyms for anonymized fields. The digest or mac instance is
+ * created once and reused for every value, the salt is encoded once instead
+ * of being concatenated to each value. An optional bounded LRU memo avoids
+ * rehashing recurring values of low cardinality columns.
+ * <p>
+ * Instances are not thread safe, each task creates its own one.
+ */
+public class Anonymizer {
+
+    /**
+     * The supported pseudonymization algorithms.
+     * <ul>
+     * <li>md5 - md5 of value and salt, compatible with earlier exports</li>
+     * <li>hmac_sha256 - HMAC-SHA256 keyed with the salt</li>
+     * <li>siphash - SipHash-2-4 keyed with the salt, a fast non cryptographic 64 bit hash</li>
+     * </ul>
+     */
+    public enum Algorithm {
+        md5, hmac_sha256, siphash
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            return newMessageDigest("MD5");
+        }
+    };
+
+    private final Algorithm algorithm;
+
+    private final byte[] salt;
+
+    private final MessageDigest digest;
+
+    private final Mac mac;
+
+    private final long k0;
+
+    private final long k1;
+
+    private final Map<String, String> memo;
+
+    /**
+     * The constructor to create an anonymizer from the job configuration.
+     *
+     * @param conf The Hadoop configuration object.
+     */
+    public Anonymizer(Configuration conf) {
+        this(Algorithm.valueOf(conf.get(BaseExportJob.EXPORT_ANON_ALGORITHM, Algorithm.md5.name())),
+                conf.get(BaseExportJob.EXPORT_ANON_SALT, ""),
+                conf.getInt(BaseExportJob.EXPORT_ANON_CACHE_SIZE, 0));
+    }
+
+    /**
+     * The constructor to create an anonymizer.
+     *
+     * @param algorithm The algorithm to use.
+     * @param salt      The salt, must not be empty for hmac_sha256.
+     * @param cacheSize The number of values to memoize, 0 disables the memo.
+     */
+    public Anonymizer(Algorithm algorithm, String salt, final int cacheSize) {
+
+        this.algorithm = algorithm;
+        this.salt = salt == null ? new byte[0] : salt.getBytes(StandardCharsets.UTF_8);
+
+        MessageDigest digest = null;
+        Mac mac = null;
+        long k0 = 0;
+        long k1 = 0;
+
+        switch (algorithm) {
+            case md5:
+                digest = newMessageDigest("MD5");
+                break;
+            case hmac_sha256:
+                if (this.salt.length == 0) {
+                    throw new IllegalArgumentException("hmac_sha256 anonymization requires a salt");
+                }
+                try {
+                    mac = Mac.getInstance("HmacSHA256");
+                    mac.init(new SecretKeySpec(this.salt, "HmacSHA256"));
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(e);
+                }
+                break;
+            case siphash:
+                byte[] key = newMessageDigest("MD5").digest(this.salt);
+                k0 = getLongLE(key, 0);
+                k1 = getLongLE(key, 8);
+                break;
+        }
+
+        this.digest = digest;
+        this.mac = mac;
+        this.k0 = k0;
+        this.k1 = k1;
+
+        if (cacheSize > 0) {
+            this.memo = new LinkedHashMap<String, String>(Math.min(cacheSize, 1024), 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        } else {
+            this.memo = null;
+        }
+    }
+
+    /**
+     * Computes the pseudonym of a value.
+     *
+     * @param value The value to anonymize.
+     * @return The hex encoded pseudonym.
+     */
+    public String anonymize(String value) {
+
+        if (memo == null) {
+            return hash(value);
+        }
+
+        String result = memo.get(value);
+        if (result == null) {
+            result = hash(value);
+            memo.put(value, result);
+        }
+        return result;
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    private String hash(String value) {
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        switch (algorithm) {
+            case hmac_sha256:
+                return toHex(mac.doFinal(bytes));
+            case siphash:
+                long h = sipHash24(k0, k1, bytes);
+                byte[] out = new byte[8];
+                for (int i = 7; i >= 0; i--) {
+                    out[i] = (byte) h;
+                    h >>>= 8;
+                }
+                return toHex(out);
+            default:
+                digest.update(bytes);
+                return toHex(digest.digest(salt));
+        }
+    }
+
+    /**
+     * Computes the md5 of a value and a salt, equivalent to
+     * DigestUtils.md5Hex(value + salt) but using a per thread digest.
+     *
+     * @param value The value to anonymize.
+     * @param salt  The salt to append.
+     * @return The hex encoded md5.
+     */
+    public static String md5Hex(String value, String salt) {
+
+        MessageDigest md5 = MD5.get();
+        md5.update(value.getBytes(StandardCharsets.UTF_8));
+        return toHex(md5.digest(salt.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static long sipHash24(long k0, long k1, byte[] data) {
+
+        long[] v = new long[]{
+                0x736f6d6570736575L ^ k0,
+                0x646f72616e646f6dL ^ k1,
+                0x6c7967656e657261L ^ k0,
+                0x7465646279746573L ^ k1};
+
+        int len = data.length;
+        int end = len - (len % 8);
+
+        for (int i = 0; i < end; i += 8) {
+            long m = getLongLE(data, i);
+            v[3] ^= m;
+            sipRound(v);
+            sipRound(v);
+            v[0] ^= m;
+        }
+
+        long b = ((long) len) << 56;
+        for (int i = end; i < len; i++) {
+            b |= (data[i] & 0xffL) << (8 * (i - end));
+        }
+
+        v[3] ^= b;
+        sipRound(v);
+        sipRound(v);
+        v[0] ^= b;
+
+        v[2] ^= 0xff;
+        sipRound(v);
+        sipRound(v);
+        sipRound(v);
+        sipRound(v);
+
+        return v[0] ^ v[1] ^ v[2] ^ v[3];
+    }
+
+    private static void sipRound(long[] v) {
+
+        v[0] += v[1];
+        v[1] = Long.rotateLeft(v[1], 13);
+        v[1] ^= v[0];
+        v[0] = Long.rotateLeft(v[0], 32);
+        v[2] += v[3];
+        v[3] = Long.rotateLeft(v[3], 16);
+        v[3] ^= v[2];
+        v[0] += v[3];
+        v[3] = Long.rotateLeft(v[3], 21);
+        v[3] ^= v[0];
+        v[2] += v[1];
+        v[1] = Long.rotateLeft(v[1], 17);
+        v[1] ^= v[2];
+        v[2] = Long.rotateLeft(v[2], 32);
+    }
+
+    private static long getLongLE(byte[] b, int off) {
+
+        long r = 0;
+        for (int i = 7; i >= 0; i--) {
+            r = (r << 8) | (b[off + i] & 0xffL);
+        }
+        return r;
+    }
+
+    private static String toHex(byte[] bytes) {
+
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+            out[2 * i + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(out);
+    }
+
+    private static MessageDigest newMessageDigest(String name) {
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
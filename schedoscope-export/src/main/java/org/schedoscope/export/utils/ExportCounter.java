@@ -0,0 +1,29 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.utils;
+
+/**
+ * Counts records, bytes and nanoseconds spent in the stages of an export:
+ * reading from HCatalog, converting records, emitting them to the output
+ * and writing them to the sink, including a batch latency histogram.
+ */
+public enum ExportCounter {
+    RECORDS_READ, READ_NANOS, CONVERSION_NANOS, EMIT_NANOS,
+    SINK_RECORDS, SINK_BYTES, SINK_NANOS, SINK_BATCHES, SINK_BATCH_NANOS,
+    BATCH_LATENCY_UNDER_1MS, BATCH_LATENCY_UNDER_10MS, BATCH_LATENCY_UNDER_100MS,
+    BATCH_LATENCY_UNDER_1S, BATCH_LATENCY_OVER_1S
+}
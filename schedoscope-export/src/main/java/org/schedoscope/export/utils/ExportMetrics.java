@@ -0,0 +1,228 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the {@link ExportCounter} values of a mapper or record writer in
+ * plain fields and publishes them as Hadoop counters once the task is done,
+ * so that the per record overhead is limited to reading the clock.
+ */
+public class ExportMetrics {
+
+    private static final long[] BATCH_LATENCY_BOUNDS = new long[]{
+            TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.SECONDS.toNanos(1)};
+
+    private static final ExportCounter[] BATCH_LATENCY_COUNTERS = new ExportCounter[]{
+            ExportCounter.BATCH_LATENCY_UNDER_1MS, ExportCounter.BATCH_LATENCY_UNDER_10MS,
+            ExportCounter.BATCH_LATENCY_UNDER_100MS, ExportCounter.BATCH_LATENCY_UNDER_1S,
+            ExportCounter.BATCH_LATENCY_OVER_1S};
+
+    private final long[] values = new long[ExportCounter.values().length];
+
+    /**
+     * Records a record read from the input.
+     *
+     * @param startNanos The time the read started, as given by System.nanoTime().
+     */
+    public void recordRead(long startNanos) {
+
+        add(ExportCounter.RECORDS_READ, 1);
+        add(ExportCounter.READ_NANOS, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the time a sink spent on a record, the time spent emitting the
+     * record to the output is subtracted to get the conversion time.
+     *
+     * @param startNanos The time the sink was called.
+     * @param emitNanos  The time spent in emitting the result.
+     */
+    public void recordConversion(long startNanos, long emitNanos) {
+
+        add(ExportCounter.CONVERSION_NANOS, System.nanoTime() - startNanos - emitNanos);
+        add(ExportCounter.EMIT_NANOS, emitNanos);
+    }
+
+    /**
+     * Records a record written to the sink.
+     *
+     * @param startNanos The time the write started.
+     * @param bytes      The number of bytes written, 0 if unknown.
+     */
+    public void recordWrite(long startNanos, long bytes) {
+
+        add(ExportCounter.SINK_RECORDS, 1);
+        add(ExportCounter.SINK_BYTES, bytes);
+        add(ExportCounter.SINK_NANOS, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records time spent in the sink outside of a write, e.g. for the final
+     * flush when closing.
+     *
+     * @param startNanos The time the operation started.
+     */
+    public void recordSinkTime(long startNanos) {
+
+        add(ExportCounter.SINK_NANOS, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a batch flushed to the sink and sorts its latency into the
+     * histogram buckets.
+     *
+     * @param startNanos The time the flush started.
+     */
+    public void recordBatch(long startNanos) {
+
+        long nanos = System.nanoTime() - startNanos;
+        add(ExportCounter.SINK_BATCHES, 1);
+        add(ExportCounter.SINK_BATCH_NANOS, nanos);
+
+        int bucket = 0;
+        while (bucket < BATCH_LATENCY_BOUNDS.length && nanos >= BATCH_LATENCY_BOUNDS[bucket]) {
+            bucket++;
+        }
+        add(BATCH_LATENCY_COUNTERS[bucket], 1);
+    }
+
+    /**
+     * Returns the value collected so far and not yet published.
+     *
+     * @param counter The counter.
+     * @return The value.
+     */
+    public long get(ExportCounter counter) {
+        return values[counter.ordinal()];
+    }
+
+    /**
+     * Adds the collected values to the task counters and resets them.
+     *
+     * @param context The task context.
+     */
+    public void publish(TaskAttemptContext context) {
+
+        for (ExportCounter c : ExportCounter.values()) {
+            if (values[c.ordinal()] != 0) {
+                context.getCounter(c).increment(values[c.ordinal()]);
+                values[c.ordinal()] = 0;
+            }
+        }
+    }
+
+    private void add(ExportCounter counter, long value) {
+        values[counter.ordinal()] += value;
+    }
+
+    /**
+     * Creates a Json summary of the export counters of a finished job, times
+     * are given in milliseconds.
+     *
+     * @param counters The job counters.
+     * @return The summary as Json string.
+     */
+    public static String toJson(Counters counters) {
+
+        Map<String, Object> summary = new LinkedHashMap<String, Object>();
+        summary.put("success", counters.findCounter(StatCounter.SUCCESS).getValue());
+        summary.put("failed", counters.findCounter(StatCounter.FAILED).getValue());
+        return toJson(counters, summary);
+    }
+
+    /**
+     * Creates a Json summary of the export counters of a finished job writing
+     * to several sinks. Instead of the job wide record counts, the summary
+     * contains all counters of each sink's counter group.
+     *
+     * @param counters    The job counters.
+     * @param groupPrefix The prefix of the sink counter groups.
+     * @param sinks       The names of the sinks.
+     * @return The summary as Json string.
+     */
+    public static String toJson(Counters counters, String groupPrefix, String... sinks) {
+
+        Map<String, Object> perSink = new LinkedHashMap<String, Object>();
+        for (String sink : sinks) {
+            Map<String, Object> values = new LinkedHashMap<String, Object>();
+            CounterGroup group = counters.getGroup(groupPrefix + sink);
+            for (Counter counter : group) {
+                values.put(counter.getName().toLowerCase(), counter.getValue());
+            }
+            perSink.put(sink, values);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<String, Object>();
+        summary.put("sinks", perSink);
+        return toJson(counters, summary);
+    }
+
+    private static String toJson(Counters counters, Map<String, Object> summary) {
+
+        Map<ExportCounter, Long> c = new EnumMap<ExportCounter, Long>(ExportCounter.class);
+        for (ExportCounter e : ExportCounter.values()) {
+            c.put(e, counters.findCounter(e).getValue());
+        }
+
+        Map<String, Object> read = new LinkedHashMap<String, Object>();
+        read.put("records", c.get(ExportCounter.RECORDS_READ));
+        read.put("ms", toMillis(c.get(ExportCounter.READ_NANOS)));
+
+        Map<String, Object> latency = new LinkedHashMap<String, Object>();
+        latency.put("<1ms", c.get(ExportCounter.BATCH_LATENCY_UNDER_1MS));
+        latency.put("<10ms", c.get(ExportCounter.BATCH_LATENCY_UNDER_10MS));
+        latency.put("<100ms", c.get(ExportCounter.BATCH_LATENCY_UNDER_100MS));
+        latency.put("<1s", c.get(ExportCounter.BATCH_LATENCY_UNDER_1S));
+        latency.put(">=1s", c.get(ExportCounter.BATCH_LATENCY_OVER_1S));
+
+        Map<String, Object> sink = new LinkedHashMap<String, Object>();
+        sink.put("records", c.get(ExportCounter.SINK_RECORDS));
+        sink.put("bytes", c.get(ExportCounter.SINK_BYTES));
+        sink.put("ms", toMillis(c.get(ExportCounter.SINK_NANOS)));
+        sink.put("batches", c.get(ExportCounter.SINK_BATCHES));
+        sink.put("batch_ms", toMillis(c.get(ExportCounter.SINK_BATCH_NANOS)));
+        sink.put("batch_latency", latency);
+
+        summary.put("read", read);
+        summary.put("conversion_ms", toMillis(c.get(ExportCounter.CONVERSION_NANOS)));
+        summary.put("emit_ms", toMillis(c.get(ExportCounter.EMIT_NANOS)));
+        summary.put("sink", sink);
+
+        try {
+            return new ObjectMapper().writeValueAsString(summary);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -16,7 +16,6 @@
 
 package org.schedoscope.export.utils;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
 import org.apache.hive.hcatalog.data.schema.HCatSchema;
 
@@ -99,7 +98,27 @@ public class HCatUtils {
                                               String fieldValue, Set<String> anonFields, String salt) {
 
         if (anonFields.contains(fieldName)) {
-            return DigestUtils.md5Hex(fieldValue + salt);
+            return Anonymizer.md5Hex(fieldValue, salt);
+        } else {
+            return fieldValue;
+        }
+    }
+
+    /**
+     * This function checks if a given fields should be anonymized and computes
+     * the pseudonym using the given anonymizer if in a provided list.
+     *
+     * @param fieldName  The name of the field, will be checked against a provided list
+     * @param fieldValue The value for which to compute the pseudonym.
+     * @param anonFields A list of fields for which to compute the pseudonym.
+     * @param anonymizer The anonymizer to use.
+     * @return The pseudonym of the field value
+     */
+    public static String getHashValueIfInList(String fieldName,
+                                              String fieldValue, Set<String> anonFields, Anonymizer anonymizer) {
+
+        if (anonFields.contains(fieldName)) {
+            return anonymizer.anonymize(fieldValue);
         } else {
             return fieldValue;
         }
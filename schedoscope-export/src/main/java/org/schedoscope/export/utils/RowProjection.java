@@ -0,0 +1,165 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.ImmutableSet;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.data.schema.HCatFieldSchema;
+import org.apache.hive.hcatalog.data.schema.HCatSchema;
+import org.schedoscope.export.BaseExportJob;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A row projection plan, compiled once per task from the HCatSchema. It resolves
+ * the position, type category and anonymization flag of each column up front, so
+ * that the per record work is reduced to a positional lookup. Complex columns are
+ * serialized to Json once per record instead of once per column.
+ */
+public class RowProjection {
+
+    private final HCatSchema schema;
+
+    private final HCatRecordJsonSerializer serializer;
+
+    private final Set<String> anonFields;
+
+    private final String salt;
+
+    private final Anonymizer anonymizer;
+
+    private final String[] names;
+
+    private final int[] positions;
+
+    private final boolean[] complex;
+
+    private final boolean[] anonymized;
+
+    /**
+     * The constructor to compile the projection plan, the anonymization
+     * settings are read from the configuration.
+     *
+     * @param conf   The Hadoop configuration object.
+     * @param schema The HCatSchema of the input table.
+     * @throws IOException Is thrown if an error occurs.
+     */
+    public RowProjection(Configuration conf, HCatSchema schema) throws IOException {
+
+        this.schema = schema;
+        this.serializer = new HCatRecordJsonSerializer(conf, schema);
+        this.anonFields = ImmutableSet.copyOf(conf.getStrings(
+                BaseExportJob.EXPORT_ANON_FIELDS, new String[0]));
+        this.salt = conf.get(BaseExportJob.EXPORT_ANON_SALT, "");
+        this.anonymizer = new Anonymizer(conf);
+
+        List<String> fieldNames = schema.getFieldNames();
+        int size = fieldNames.size();
+
+        names = new String[size];
+        positions = new int[size];
+        complex = new boolean[size];
+        anonymized = new boolean[size];
+
+        for (int i = 0; i < size; i++) {
+            String f = fieldNames.get(i);
+            HCatFieldSchema fieldSchema = schema.get(f);
+
+            names[i] = f;
+            positions[i] = schema.getPosition(f);
+            complex[i] = fieldSchema.isComplex();
+            anonymized[i] = !complex[i] && anonFields.contains(f);
+        }
+    }
+
+    /**
+     * Projects a record to the string representation of all its columns.
+     * Primitive values are anonymized if configured, complex values are
+     * rendered as Json.
+     *
+     * @param record    The HCatRecord.
+     * @param nullValue The value to use for null columns.
+     * @return An array containing one value per column, in schema order.
+     * @throws IOException Is thrown if an error occurs.
+     */
+    public String[] project(HCatRecord record, String nullValue) throws IOException {
+
+        String[] values = new String[names.length];
+        JsonNode json = null;
+
+        for (int i = 0; i < names.length; i++) {
+
+            Object obj = record.get(positions[i]);
+            if (obj == null) {
+                values[i] = nullValue;
+            } else if (complex[i]) {
+                if (json == null) {
+                    json = serializer.getRecordAsJson(record);
+                }
+                values[i] = json.get(names[i]).toString();
+            } else if (anonymized[i]) {
+                values[i] = anonymizer.anonymize(obj.toString());
+            } else {
+                values[i] = obj.toString();
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the number of projected columns.
+     *
+     * @return The number of columns.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the name of a projected column.
+     *
+     * @param i The index of the column.
+     * @return The column name.
+     */
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public HCatSchema getSchema() {
+        return schema;
+    }
+
+    public HCatRecordJsonSerializer getSerializer() {
+        return serializer;
+    }
+
+    public Set<String> getAnonFields() {
+        return anonFields;
+    }
+
+    public String getSalt() {
+        return salt;
+    }
+
+    public Anonymizer getAnonymizer() {
+        return anonymizer;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.fanout;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.apache.hive.hcatalog.mapreduce.HCatInputFormat;
+import org.junit.Before;
+import org.junit.Test;
+import org.rarefiedredis.redis.adapter.jedis.JedisAdapter;
+import org.schedoscope.export.ExportSink;
+import org.schedoscope.export.HiveUnitBaseTest;
+import org.schedoscope.export.redis.RedisExportSink;
+import org.schedoscope.export.redis.outputformat.RedisOutputFormat;
+import org.schedoscope.export.utils.ExportCounter;
+import org.schedoscope.export.utils.RedisMRJedisFactory;
+import org.schedoscope.export.utils.RowProjection;
+import org.schedoscope.export.utils.StatCounter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FanOutExportMRTest extends HiveUnitBaseTest {
+
+    private static final Set<String> COLLECTED_KEYS = Collections.synchronizedSet(new HashSet<String>());
+
+    JedisAdapter jedisAdapter;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        jedisAdapter = new JedisAdapter();
+        RedisMRJedisFactory.setJedisMock(jedisAdapter);
+        COLLECTED_KEYS.clear();
+    }
+
+    @Test
+    public void testFanOutToTwoSinks() throws Exception {
+
+        Job job = setUpRedisSink();
+        FanOutExportMapper.addSink(job, "collect", KeyCollectingSink.class,
+                NullOutputFormat.class, Text.class, NullWritable.class);
+
+        assertTrue(job.waitForCompletion(true));
+
+        assertRedisExported();
+
+        long read = job.getCounters().findCounter(ExportCounter.RECORDS_READ).getValue();
+        assertTrue(read > 0);
+        assertEquals(read, getSinkCounters(job, "redis").findCounter(StatCounter.SUCCESS.name()).getValue());
+        assertEquals(read, getSinkCounters(job, "collect").findCounter(StatCounter.SUCCESS.name()).getValue());
+        assertEquals(read, COLLECTED_KEYS.size());
+        assertTrue(COLLECTED_KEYS.contains("0000434c-aa04-449d-b6d5-319da5d94064"));
+    }
+
+    @Test
+    public void testFailingSinkIsDisabled() throws Exception {
+
+        Job job = setUpRedisSink();
+        FanOutExportMapper.addSink(job, "failing", FailingSink.class,
+                NullOutputFormat.class, Text.class, NullWritable.class);
+        job.getConfiguration().setLong(FanOutExportMapper.EXPORT_FANOUT_MAX_FAILURES, 2);
+
+        // the task must not fail, a retry would write the redis records twice
+        assertTrue(job.waitForCompletion(true));
+
+        assertRedisExported();
+
+        long read = job.getCounters().findCounter(ExportCounter.RECORDS_READ).getValue();
+        assertEquals(read, getSinkCounters(job, "redis").findCounter(StatCounter.SUCCESS.name()).getValue());
+        assertEquals(0, getSinkCounters(job, "redis").findCounter(FanOutExportMapper.DISABLED_COUNTER).getValue());
+
+        CounterGroup failing = getSinkCounters(job, "failing");
+        assertEquals(0, failing.findCounter(StatCounter.SUCCESS.name()).getValue());
+        assertEquals(3, failing.findCounter(FanOutExportMapper.ERRORS_COUNTER).getValue());
+        assertEquals(1, failing.findCounter(FanOutExportMapper.DISABLED_COUNTER).getValue());
+    }
+
+    private Job setUpRedisSink() throws Exception {
+
+        setUpHiveServer("src/test/resources/test_map_data.txt",
+                "src/test/resources/test_map.hql", "test_map");
+
+        final String KEY = "id";
+        final String VALUE = "created_at";
+
+        conf.set(RedisOutputFormat.REDIS_EXPORT_KEY_PREFIX, "fanout_export");
+        conf.set(RedisOutputFormat.REDIS_EXPORT_KEY_NAME, KEY);
+        conf.set(RedisOutputFormat.REDIS_EXPORT_VALUE_NAME, VALUE);
+
+        Class<?> OutputClazz = RedisOutputFormat.getRedisWritableClazz(
+                hcatInputSchema, VALUE);
+
+        Job job = Job.getInstance(conf);
+
+        job.setInputFormatClass(HCatInputFormat.class);
+        job.setNumReduceTasks(0);
+        job.setOutputFormatClass(NullOutputFormat.class);
+
+        FanOutExportMapper.addSink(job, "redis", RedisExportSink.class,
+                RedisOutputFormat.class, Text.class, OutputClazz);
+
+        return job;
+    }
+
+    private void assertRedisExported() {
+
+        assertEquals(
+                "2016-02-09T12:21:24.581+01:00",
+                jedisAdapter
+                        .get("fanout_export_0000434c-aa04-449d-b6d5-319da5d94064"));
+        assertEquals(
+                "2016-02-09T12:21:24.581+01:00",
+                jedisAdapter
+                        .get("fanout_export_00017475-db44-495f-a357-97cd277e9d5b"));
+    }
+
+    private CounterGroup getSinkCounters(Job job, String sink) throws IOException {
+
+        return job.getCounters().getGroup(FanOutExportMapper.EXPORT_FANOUT_COUNTER_GROUP_PREFIX + sink);
+    }
+
+    /**
+     * A sink remembering the key of every record it writes.
+     */
+    public static class KeyCollectingSink implements ExportSink<Text, NullWritable> {
+
+        private RowProjection projection;
+
+        private String keyName;
+
+        @Override
+        public void setup(Configuration conf, RowProjection projection) throws IOException {
+
+            this.projection = projection;
+            keyName = conf.get(RedisOutputFormat.REDIS_EXPORT_KEY_NAME);
+        }
+
+        @Override
+        public boolean write(HCatRecord record, TaskInputOutputContext<?, ?, Text, NullWritable> context)
+                throws IOException, InterruptedException {
+
+            String key = record.getString(keyName, projection.getSchema());
+            COLLECTED_KEYS.add(key);
+            context.write(new Text(key), NullWritable.get());
+            return true;
+        }
+    }
+
+    /**
+     * A sink failing on every record.
+     */
+    public static class FailingSink implements ExportSink<Text, NullWritable> {
+
+        @Override
+        public void setup(Configuration conf, RowProjection projection) throws IOException {
+        }
+
+        @Override
+        public boolean write(HCatRecord record, TaskInputOutputContext<?, ?, Text, NullWritable> context)
+                throws IOException {
+
+            throw new IOException("sink not available");
+        }
+    }
+}
@@ -1,9 +1,42 @@
 package org.schedoscope.export.ftp.upload;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.schedoscope.export.testsupport.EmbeddedFtpSftpServer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class UploaderTest {
 
+    private static final String FTP_ENDPOINT = "ftp://localhost:2221/";
+
+    private static EmbeddedFtpSftpServer server;
+
+    @BeforeClass()
+    public static void setUpServer() throws Exception {
+
+        server = new EmbeddedFtpSftpServer();
+        server.startEmbeddedFtpServer();
+    }
+
+    @AfterClass
+    public static void tearDownServer() throws InterruptedException {
+
+        server.stopEmbeddedFtpServer();
+    }
+
     @Test
     public void testEncrypetedKey() throws Exception {
         Uploader.checkPrivateKey("src/test/resources/keys/id_rsa_encrypted");
@@ -14,4 +47,115 @@ public class UploaderTest {
     public void testNotEncryptedKey() throws Exception {
         Uploader.checkPrivateKey("src/test/resources/keys/id_rsa_not_encrypted");
     }
+
+    @Test
+    public void testUploadWritesChecksumSidecar() throws Exception {
+
+        byte[] data = RandomStringUtils.randomAlphanumeric(100000).getBytes(StandardCharsets.US_ASCII);
+        File local = createLocalFile(data);
+        String name = RandomStringUtils.randomNumeric(20);
+
+        upload(local, name);
+
+        File remote = new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name);
+        File sidecar = new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name + ChecksumAlgorithm.md5.getExtension());
+
+        assertArrayEquals(data, Files.readAllBytes(remote.toPath()));
+        assertFalse(new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name + Uploader.PART_FILE_SUFFIX).exists());
+        assertEquals(DigestUtils.md5Hex(data) + "  " + name,
+                new String(Files.readAllBytes(sidecar.toPath()), StandardCharsets.US_ASCII).trim());
+    }
+
+    @Test
+    public void testUploadWritesNoSidecarByDefault() throws Exception {
+
+        byte[] data = RandomStringUtils.randomAlphanumeric(1000).getBytes(StandardCharsets.US_ASCII);
+        File local = createLocalFile(data);
+        String name = RandomStringUtils.randomNumeric(20);
+
+        upload(local, name, ChecksumAlgorithm.none);
+
+        assertArrayEquals(data, Files.readAllBytes(new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name).toPath()));
+        assertFalse(new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name + ChecksumAlgorithm.md5.getExtension()).exists());
+        assertFalse(new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name + Uploader.PART_FILE_SUFFIX).exists());
+    }
+
+    @Test
+    public void testUploadResumesPartFile() throws Exception {
+
+        byte[] data = RandomStringUtils.randomAlphanumeric(100000).getBytes(StandardCharsets.US_ASCII);
+        File local = createLocalFile(data);
+        String name = RandomStringUtils.randomNumeric(20);
+
+        File part = new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name + Uploader.PART_FILE_SUFFIX);
+        File partSidecar = new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR,
+                name + Uploader.PART_FILE_SUFFIX + ChecksumAlgorithm.md5.getExtension());
+        Files.write(part.toPath(), Arrays.copyOf(data, 40000));
+        Files.write(partSidecar.toPath(), DigestUtils.md5Hex(data).getBytes(StandardCharsets.US_ASCII));
+
+        upload(local, name);
+
+        assertArrayEquals(data, Files.readAllBytes(new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name).toPath()));
+        assertFalse(part.exists());
+        assertFalse(partSidecar.exists());
+    }
+
+    @Test
+    public void testUploadRestartsPartFileOfOtherContent() throws Exception {
+
+        byte[] data = RandomStringUtils.randomAlphanumeric(1000).getBytes(StandardCharsets.US_ASCII);
+        File local = createLocalFile(data);
+        String name = RandomStringUtils.randomNumeric(20);
+
+        File part = new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name + Uploader.PART_FILE_SUFFIX);
+        Files.write(part.toPath(), RandomStringUtils.randomAlphanumeric(500).getBytes(StandardCharsets.US_ASCII));
+
+        upload(local, name);
+
+        assertArrayEquals(data, Files.readAllBytes(new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name).toPath()));
+    }
+
+    @Test
+    public void testUploadSkipsCommittedFile() throws Exception {
+
+        byte[] data = RandomStringUtils.randomAlphanumeric(1000).getBytes(StandardCharsets.US_ASCII);
+        File local = createLocalFile(data);
+        String name = RandomStringUtils.randomNumeric(20);
+
+        upload(local, name);
+
+        // a stale part file is left untouched if the upload is skipped
+        File part = new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name + Uploader.PART_FILE_SUFFIX);
+        Files.write(part.toPath(), new byte[]{1, 2, 3});
+
+        upload(local, name);
+
+        assertTrue(part.exists());
+        assertArrayEquals(data, Files.readAllBytes(new File(EmbeddedFtpSftpServer.FTP_SERVER_DIR, name).toPath()));
+    }
+
+    private void upload(File local, String name) throws Exception {
+
+        upload(local, name, ChecksumAlgorithm.md5);
+    }
+
+    private void upload(File local, String name, ChecksumAlgorithm checksum) throws Exception {
+
+        Uploader uploader = new Uploader(EmbeddedFtpSftpServer.FTP_USER_FOR_TESTING,
+                EmbeddedFtpSftpServer.FTP_PASS_FOR_TESTING, new Configuration(), true, true);
+        uploader.setChecksumAlgorithm(checksum);
+        try {
+            uploader.uploadFile(local.getAbsolutePath(), FTP_ENDPOINT + name);
+        } finally {
+            uploader.closeFilesystem();
+        }
+    }
+
+    private File createLocalFile(byte[] data) throws Exception {
+
+        File local = File.createTempFile("upload_", ".csv");
+        local.deleteOnExit();
+        Files.write(local.toPath(), data);
+        return local;
+    }
 }
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.schedoscope.export.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.mapreduce.Counters;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExportMetricsTest {
+
+    @Test
+    public void testRecordWrite() {
+
+        ExportMetrics metrics = new ExportMetrics();
+        metrics.recordWrite(System.nanoTime(), 10);
+        metrics.recordWrite(System.nanoTime(), 5);
+
+        assertEquals(2, metrics.get(ExportCounter.SINK_RECORDS));
+        assertEquals(15, metrics.get(ExportCounter.SINK_BYTES));
+        assertTrue(metrics.get(ExportCounter.SINK_NANOS) >= 0);
+    }
+
+    @Test
+    public void testBatchLatencyHistogram() {
+
+        ExportMetrics metrics = new ExportMetrics();
+        metrics.recordBatch(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50));
+        metrics.recordBatch(System.nanoTime() - TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals(2, metrics.get(ExportCounter.SINK_BATCHES));
+        assertEquals(1, metrics.get(ExportCounter.BATCH_LATENCY_UNDER_100MS));
+        assertEquals(1, metrics.get(ExportCounter.BATCH_LATENCY_OVER_1S));
+        assertTrue(metrics.get(ExportCounter.SINK_BATCH_NANOS) >= TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void testConversionExcludesEmitTime() {
+
+        ExportMetrics metrics = new ExportMetrics();
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(30);
+        metrics.recordConversion(start, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), metrics.get(ExportCounter.EMIT_NANOS));
+        assertTrue(metrics.get(ExportCounter.CONVERSION_NANOS) >= TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    public void testJsonSummary() throws Exception {
+
+        Counters counters = new Counters();
+        counters.findCounter(StatCounter.SUCCESS).increment(3);
+        counters.findCounter(ExportCounter.RECORDS_READ).increment(3);
+        counters.findCounter(ExportCounter.SINK_RECORDS).increment(3);
+        counters.findCounter(ExportCounter.SINK_BYTES).increment(42);
+        counters.findCounter(ExportCounter.SINK_NANOS).increment(TimeUnit.MILLISECONDS.toNanos(7));
+        counters.findCounter(ExportCounter.BATCH_LATENCY_UNDER_10MS).increment(1);
+
+        JsonNode summary = new ObjectMapper().readTree(ExportMetrics.toJson(counters));
+
+        assertEquals(3, summary.get("success").asLong());
+        assertEquals(3, summary.get("read").get("records").asLong());
+        assertEquals(42, summary.get("sink").get("bytes").asLong());
+        assertEquals(7, summary.get("sink").get("ms").asLong());
+        assertEquals(1, summary.get("sink").get("batch_latency").get("<10ms").asLong());
+    }
+
+    @Test
+    public void testJsonSummaryPerSink() throws Exception {
+
+        Counters counters = new Counters();
+        counters.findCounter("FanOut redis", StatCounter.SUCCESS.name()).increment(3);
+        counters.findCounter("FanOut kafka", StatCounter.SUCCESS.name()).increment(1);
+        counters.findCounter("FanOut kafka", "DISABLED").increment(1);
+        counters.findCounter(ExportCounter.RECORDS_READ).increment(3);
+
+        JsonNode summary = new ObjectMapper().readTree(ExportMetrics.toJson(counters, "FanOut ", "redis", "kafka"));
+
+        assertFalse(summary.has("success"));
+        assertEquals(3, summary.get("sinks").get("redis").get("success").asLong());
+        assertEquals(1, summary.get("sinks").get("kafka").get("success").asLong());
+        assertEquals(1, summary.get("sinks").get("kafka").get("disabled").asLong());
+        assertEquals(3, summary.get("read").get("records").asLong());
+    }
+}
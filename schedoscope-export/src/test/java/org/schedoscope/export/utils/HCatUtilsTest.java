@@ -22,6 +22,7 @@ import org.junit.Test;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 public class HCatUtilsTest {
 
@@ -46,4 +47,59 @@ public class HCatUtilsTest {
         assertEquals("not hashed", HCatUtils.getHashValueIfInList("no_id",
                 "not hashed", anonFieldsEmpty, salt));
     }
+
+    @Test
+    public void testAnonymizerMd5IsCompatible() {
+
+        Anonymizer anonymizer = new Anonymizer(Anonymizer.Algorithm.md5, salt, 0);
+        assertEquals(HCatUtils.getHashValueIfInList("id", "abcd", anonFields, salt),
+                HCatUtils.getHashValueIfInList("id", "abcd", anonFields, anonymizer));
+        assertEquals("not hashed", HCatUtils.getHashValueIfInList("no_id",
+                "not hashed", anonFields, anonymizer));
+    }
+
+    @Test
+    public void testAnonymizerHmac() {
+
+        Anonymizer anonymizer = new Anonymizer(Anonymizer.Algorithm.hmac_sha256, salt, 0);
+        assertEquals("12e44fd1b089835e1c8a65a25a3a1ee0d4566fa3350a104e874d6ff89f672251",
+                anonymizer.anonymize("abcd"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAnonymizerHmacWithoutSalt() {
+        new Anonymizer(Anonymizer.Algorithm.hmac_sha256, "", 0);
+    }
+
+    @Test
+    public void testSipHashReferenceVectors() {
+
+        long k0 = 0x0706050403020100L;
+        long k1 = 0x0f0e0d0c0b0a0908L;
+        byte[] data = new byte[15];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        assertEquals(0x726fdb47dd0e0e31L, Anonymizer.sipHash24(k0, k1, new byte[0]));
+        assertEquals(0xa129ca6149be45e5L, Anonymizer.sipHash24(k0, k1, data));
+    }
+
+    @Test
+    public void testAnonymizerSipHash() {
+
+        Anonymizer anonymizer = new Anonymizer(Anonymizer.Algorithm.siphash, salt, 0);
+        assertEquals("70001a4afaa5f160", anonymizer.anonymize("abcd"));
+        assertNotEquals(anonymizer.anonymize("abcd"),
+                new Anonymizer(Anonymizer.Algorithm.siphash, "other", 0).anonymize("abcd"));
+    }
+
+    @Test
+    public void testAnonymizerMemo() {
+
+        Anonymizer anonymizer = new Anonymizer(Anonymizer.Algorithm.md5, salt, 2);
+        for (String v : new String[]{"abcd", "de", "fr", "abcd", "de"}) {
+            assertEquals(Anonymizer.md5Hex(v, salt), anonymizer.anonymize(v));
+        }
+    }
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.schedoscope.export.utils;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.hive.hcatalog.data.HCatRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.export.BaseExportJob;
+import org.schedoscope.export.HiveUnitBaseTest;
+
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class RowProjectionTest extends HiveUnitBaseTest {
+
+    private static final String SALT = "vD75MqvaasIlCf7H";
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+
+        super.setUp();
+        setUpHiveServer("src/test/resources/test_map_data.txt",
+                "src/test/resources/test_map.hql", "test_map");
+    }
+
+    @Test
+    public void testProjectMatchesFieldWiseConversion() throws Exception {
+
+        conf.setStrings(BaseExportJob.EXPORT_ANON_FIELDS, "id");
+        conf.set(BaseExportJob.EXPORT_ANON_SALT, SALT);
+
+        RowProjection projection = new RowProjection(conf, hcatInputSchema);
+        HCatRecordJsonSerializer serializer = new HCatRecordJsonSerializer(conf, hcatInputSchema);
+        Set<String> anonFields = ImmutableSet.of("id");
+
+        assertEquals(hcatInputSchema.size(), projection.size());
+
+        Iterator<HCatRecord> it = hcatRecordReader.read();
+        while (it.hasNext()) {
+            HCatRecord record = it.next();
+            String[] values = projection.project(record, "NULL");
+
+            for (int i = 0; i < projection.size(); i++) {
+                String f = projection.getName(i);
+                Object obj = record.get(f, hcatInputSchema);
+
+                String expected = "NULL";
+                if (obj != null) {
+                    if (hcatInputSchema.get(f).isComplex()) {
+                        expected = serializer.getFieldAsJson(record, f);
+                    } else {
+                        expected = HCatUtils.getHashValueIfInList(f, obj.toString(), anonFields, SALT);
+                    }
+                }
+                assertEquals(expected, values[i]);
+            }
+        }
+    }
+}
@@ -63,6 +63,10 @@ public class MetascopeConfig {
     /* Hive settings */
     private String hiveJdbcDriver;
     private String hiveServerUrl;
+    private int hiveServerPoolSize;
+    private int hiveServerMaxQueriesPerUser;
+    private int hiveServerSampleTimeout;
+    private int hiveServerQueryTimeout;
 
     /* Repository settings */
     private String repositoryUrl;
@@ -75,6 +79,10 @@ public class MetascopeConfig {
     private String metastoreJdbcUrl;
     private String metastoreJdbcUser;
     private String metastoreJdbcPassword;
+    private int metastoreWorkers;
+    private int hdfsStatsThreads;
+    private int hdfsStatsRpcPerSecond;
+    private int hdfsStatsCacheTtl;
 
     /* Solr settings */
     private String solrUrl;
@@ -116,6 +124,10 @@ public class MetascopeConfig {
 
         this.hiveJdbcDriver = getString("org.apache.hive.jdbc.HiveDriver");
         this.hiveServerUrl = getString(config.jdbcUrl());
+        this.hiveServerPoolSize = Math.max(1, config.metascopeHiveServerPoolSize());
+        this.hiveServerMaxQueriesPerUser = Math.max(1, config.metascopeHiveServerMaxQueriesPerUser());
+        this.hiveServerSampleTimeout = Math.max(1, config.metascopeHiveServerSampleTimeout());
+        this.hiveServerQueryTimeout = Math.max(1, config.metascopeHiveServerQueryTimeout());
 
         this.repositoryUrl = getString(config.metascopeRepositoryUrl());
         this.repositoryUser = getString(config.metascopeRepositoryUser());
@@ -126,6 +138,10 @@ public class MetascopeConfig {
         this.metastoreJdbcUrl = getString(config.metascopeMetastoreJdbcUrl());
         this.metastoreJdbcUser = getString(config.metascopeMetastoreJdbcUser());
         this.metastoreJdbcPassword = getString(config.metascopeMetastoreJdbcPw());
+        this.metastoreWorkers = Math.max(1, config.metascopeMetastoreWorkers());
+        this.hdfsStatsThreads = Math.max(1, config.metascopeHdfsStatsThreads());
+        this.hdfsStatsRpcPerSecond = Math.max(1, config.metascopeHdfsStatsRpcPerSecond());
+        this.hdfsStatsCacheTtl = Math.max(1, config.metascopeHdfsStatsCacheTtl());
 
         this.solrUrl = getString(config.metascopeSolrUrl());
 
@@ -204,6 +220,22 @@ public class MetascopeConfig {
         return metastoreJdbcPassword;
     }
 
+    public int getMetastoreWorkers() {
+        return metastoreWorkers;
+    }
+
+    public int getHdfsStatsThreads() {
+        return hdfsStatsThreads;
+    }
+
+    public int getHdfsStatsRpcPerSecond() {
+        return hdfsStatsRpcPerSecond;
+    }
+
+    public int getHdfsStatsCacheTtl() {
+        return hdfsStatsCacheTtl;
+    }
+
     public String getRepositoryUrl() {
         return repositoryUrl;
     }
@@ -236,6 +268,22 @@ public class MetascopeConfig {
         return hiveServerUrl;
     }
 
+    public int getHiveServerPoolSize() {
+        return hiveServerPoolSize;
+    }
+
+    public int getHiveServerMaxQueriesPerUser() {
+        return hiveServerMaxQueriesPerUser;
+    }
+
+    public int getHiveServerSampleTimeout() {
+        return hiveServerSampleTimeout;
+    }
+
+    public int getHiveServerQueryTimeout() {
+        return hiveServerQueryTimeout;
+    }
+
     public String getSolrUrl() {
         return solrUrl;
     }
@@ -39,7 +39,7 @@ public class MetascopeDataDistributionController {
             MetascopeTable table = metascopeTableService.findByFqdn(fqdn);
             if (table != null) {
                 MetascopeDataDistributionService.Status status = metascopeDataDistributionService.checkStatus(table);
-                if (status != null && status.equals(MetascopeDataDistributionService.Status.NotAvailable)) {
+                if (status != null && !status.equals(MetascopeDataDistributionService.Status.Running)) {
                     metascopeDataDistributionService.calculateDistribution(table);
                 }
             }
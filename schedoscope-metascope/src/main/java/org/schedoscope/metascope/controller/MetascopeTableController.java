@@ -15,12 +15,14 @@
  */
 package org.schedoscope.metascope.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.schedoscope.metascope.config.MetascopeConfig;
 import org.schedoscope.metascope.model.*;
 import org.schedoscope.metascope.service.*;
 import org.schedoscope.metascope.util.HTMLUtil;
+import org.schedoscope.metascope.util.LineageGraph;
 import org.schedoscope.metascope.util.ParseUtil;
-import org.schedoscope.metascope.util.model.CategoryMap;
 import org.schedoscope.metascope.util.model.HiveQueryResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +30,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
@@ -57,14 +61,14 @@ public class MetascopeTableController {
     @Autowired
     private MetascopeUserService metascopeUserService;
     @Autowired
-    private MetascopeTaxonomyService metascopeTaxonomyService;
-    @Autowired
     private MetascopeDocumentationService metascopeDocumentationService;
     @Autowired
     private MetascopeDataDistributionService metascopeDataDistributionService;
     @Autowired
     private MetascopeStatusService metascopeStatusService;
     @Autowired
+    private MetascopeTableViewCache metascopeTableViewCache;
+    @Autowired
     private MetascopeConfig config;
     @Autowired
     private HTMLUtil htmlUtil;
@@ -97,29 +101,9 @@ public class MetascopeTableController {
             }
         }
 
-    /* get all taxonomies */
-        Iterable<MetascopeTaxonomy> taxonomies = metascopeTaxonomyService.getTaxonomies();
-        List<String> taxonomyNames = new ArrayList<String>();
-        for (MetascopeTaxonomy taxonomyEntity : taxonomies) {
-            taxonomyNames.add(taxonomyEntity.getName());
-        }
-
-        Map<String, Map<String, List<MetascopeField>>> fieldDeps = metascopeTableService.getFieldDependencies(tableEntity);
-        Map<String, Map<String, List<MetascopeField>>> fieldSucs = metascopeTableService.getFieldSuccessors(tableEntity);
-
-        Map<String, CategoryMap> tableTaxonomies = metascopeTableService.getTableTaxonomies(tableEntity);
-
-    /* get all users for user management and owner auto completion */
-        Iterable<MetascopeUser> users = metascopeUserService.getAllUser();
-
-    /* get all registered table owners for auto completion */
-        Set<String> owner = metascopeTableService.getAllOwner();
-        owner.remove(null);
-        for (MetascopeUser user : users) {
-            if (!owner.contains(user.getFullname())) {
-                owner.add(user.getFullname());
-            }
-        }
+    /* get all taxonomies and the field lineage and taxonomies of the table (cached until next sync or edit) */
+        MetascopeTableViewCache.Taxonomies taxonomies = metascopeTableViewCache.getTaxonomies();
+        MetascopeTableViewCache.TableDetails tableDetails = metascopeTableViewCache.getTableDetails(tableEntity);
 
     /* check data distribution calculation status */
         MetascopeDataDistributionService.Status dataDistStatus = metascopeDataDistributionService.checkStatus(tableEntity);
@@ -189,13 +173,11 @@ public class MetascopeTableController {
         mav.addObject("util", htmlUtil);
         mav.addObject("local", local);
         mav.addObject("partitionPage", partitionPage);
-        mav.addObject("users", users);
-        mav.addObject("owner", owner);
-        mav.addObject("fieldDependencyMap", fieldDeps);
-        mav.addObject("fieldSuccessorMap", fieldSucs);
-        mav.addObject("taxonomies", taxonomies);
-        mav.addObject("taxonomyNames", taxonomyNames);
-        mav.addObject("tableTaxonomies", tableTaxonomies);
+        mav.addObject("fieldDependencyMap", tableDetails.getFieldDependencies());
+        mav.addObject("fieldSuccessorMap", tableDetails.getFieldSuccessors());
+        mav.addObject("taxonomies", taxonomies.getTaxonomies());
+        mav.addObject("taxonomyNames", taxonomies.getTaxonomyNames());
+        mav.addObject("tableTaxonomies", tableDetails.getTableTaxonomies());
         mav.addObject("admin", isAdmin);
         mav.addObject("draft", metascopeAutoSave);
         mav.addObject("isFavourite", isFavourite);
@@ -210,6 +192,31 @@ public class MetascopeTableController {
         return mav;
     }
 
+    /**
+     * Returns all registered table owners and users as JSON array, used for the
+     * auto completion of the 'person responsible' field. Loaded lazily by the
+     * table page.
+     *
+     * @return JSON array of names
+     */
+    @RequestMapping(value = "/table/owners", method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public String getOwners() {
+    /* get all registered table owners and all users */
+        Set<String> owner = new TreeSet<String>(metascopeTableService.getAllOwner());
+        for (MetascopeUser user : metascopeUserService.getAllUser()) {
+            if (user.getFullname() != null) {
+                owner.add(user.getFullname());
+            }
+        }
+        try {
+            return new ObjectMapper().writeValueAsString(owner);
+        } catch (JsonProcessingException e) {
+            LOG.warn("Could not serialize owners", e);
+            return "[]";
+        }
+    }
+
     /**
      * Adds or removes a table from users favourites
      *
@@ -295,11 +302,12 @@ public class MetascopeTableController {
     /**
      * Returns a {@link ModelAndView} for the view lineage detail page.
      *
-     * @param fqdn the table for which the lineage graph is requesed
+     * @param fqdn  the table for which the lineage graph is requesed
+     * @param depth optional maximum number of hops from the table
      * @return the corresponding {@link ModelAndView} object
      */
     @RequestMapping(value = "/table/view/lineage", method = RequestMethod.GET)
-    public ModelAndView getLineage(String fqdn) {
+    public ModelAndView getLineage(String fqdn, @RequestParam(required = false) Integer depth) {
         ModelAndView mav = new ModelAndView("body/viewLineage");
         MetascopeTable table = metascopeTableService.findByFqdn(fqdn);
         if (table == null) return new ModelAndView(new RedirectView("/notfound"));
@@ -307,7 +315,7 @@ public class MetascopeTableController {
         mav.addObject("admin", metascopeUserService.isAdmin());
         mav.addObject("userMgmnt", config.withUserManagement());
         mav.addObject("userEntityService", metascopeUserService);
-        mav.addObject("lineage", metascopeTableService.getViewLineage(table));
+        mav.addObject("lineage", metascopeTableService.getViewLineage(table, depth == null ? LineageGraph.UNLIMITED : depth));
 
         return mav;
     }
@@ -315,11 +323,12 @@ public class MetascopeTableController {
     /**
      * Returns a {@link ModelAndView} for the schema lineage detail page.
      *
-     * @param fqdn the table for which the schema lineage graph is requested
+     * @param fqdn  the table for which the schema lineage graph is requested
+     * @param depth optional maximum number of hops from the fields of the table
      * @return the corresponding {@link ModelAndView} object
      */
     @RequestMapping(value = "/table/schema/lineage", method = RequestMethod.GET)
-    public ModelAndView showSchemaLineage(String fqdn) {
+    public ModelAndView showSchemaLineage(String fqdn, @RequestParam(required = false) Integer depth) {
         ModelAndView mav = new ModelAndView("body/schemaLineage");
         MetascopeTable table = metascopeTableService.findByFqdn(fqdn);
         if (table == null) return new ModelAndView(new RedirectView("/notfound"));
@@ -327,7 +336,7 @@ public class MetascopeTableController {
         mav.addObject("admin", metascopeUserService.isAdmin());
         mav.addObject("userMgmnt", config.withUserManagement());
         mav.addObject("userEntityService", metascopeUserService);
-        mav.addObject("lineage", metascopeTableService.getSchemaLineage(table));
+        mav.addObject("lineage", metascopeTableService.getSchemaLineage(table, depth == null ? LineageGraph.UNLIMITED : depth));
 
         return mav;
     }
@@ -348,11 +357,15 @@ public class MetascopeTableController {
 
         params.remove("fqdn");
 
-        Future<HiveQueryResult> future = metascopeTableService.getSample(fqdn, params);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String user = authentication == null ? null : authentication.getName();
+
+        Future<HiveQueryResult> future = metascopeTableService.getSample(user, fqdn, params);
         HiveQueryResult sample;
         try {
-            sample = future.get(10, TimeUnit.SECONDS);
+            sample = future.get(config.getHiveServerSampleTimeout(), TimeUnit.SECONDS);
         } catch (TimeoutException e) {
+            future.cancel(true);
             sample = new HiveQueryResult("Query timed out");
         } catch (Exception e) {
             LOG.warn("Could not execute query", e);
@@ -31,6 +31,7 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
@@ -38,6 +39,12 @@ import java.util.concurrent.Future;
 @Component
 public class SolrFacade {
 
+    /**
+     * version of the way documents are indexed (see schema.xml). Syncs rewrite all documents of an instance whose
+     * index was built with another version.
+     */
+    public static final String SCHEMA_VERSION = "2";
+
     private static final String SOLR_HTTP_PREFIX = "http";
     private static final String METASCOPE_CORE = "metascope";
 
@@ -74,6 +81,13 @@ public class SolrFacade {
         }
     }
 
+    @PreDestroy
+    public void close() {
+        if (solrUpdateHandler != null) {
+            solrUpdateHandler.close();
+        }
+    }
+
     /**
      * Refer to {@link SolrUpdateHandler#getDocument(String)}
      *
@@ -145,10 +159,14 @@ public class SolrFacade {
     }
 
     /**
-     * Refer to {@link SolrUpdateHandler#commit()}
+     * Refer to {@link SolrUpdateHandler#commit()}. Rebuilds the suggester and
+     * refreshes the facet metadata afterwards, so that new tables, fields and
+     * tags show up in suggestions and filters.
      */
     public void commit() {
         solrUpdateHandler.commit();
+        solrQueryExecutor.buildSuggester();
+        solrQueryExecutor.refreshFacetMetadata();
     }
 
     /**
@@ -170,6 +188,7 @@ public class SolrFacade {
         this.solrUpdateHandler = new SolrUpdateHandler(solrClient);
         this.solrQueryExecutor = new SolrQueryExecutor(solrClient, metascopeTableService,
                 metascopeViewService, metascopeParameterService);
+        this.solrQueryExecutor.buildSuggesterAsync();
     }
 
 }
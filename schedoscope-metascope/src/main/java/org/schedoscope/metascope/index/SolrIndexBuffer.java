@@ -0,0 +1,214 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.index;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Buffers documents on their way to the index and sends them in batches from a background thread. Updates for the
+ * same document are coalesced before they are sent: a full document replaces everything buffered for its id, an
+ * atomic update is merged into what is buffered. Batches are added with commitWithin, so changes become visible
+ * without explicit commits. Documents are sent in the order they were buffered. If a batch cannot be sent, it and
+ * all documents after it are buffered again, so the next flush retries them.
+ */
+class SolrIndexBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SolrIndexBuffer.class);
+
+    static final String SET = "set";
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_PENDING = 10 * BATCH_SIZE;
+    private static final int COMMIT_WITHIN = 10000;
+    private static final long FLUSH_INTERVAL = 1000;
+
+    private final SolrClient solrClient;
+    private final Object sendLock = new Object();
+    private final Thread flusher;
+
+    private Map<String, SolrInputDocument> pending = new LinkedHashMap<>();
+    private long generation;
+    private volatile boolean running = true;
+
+    SolrIndexBuffer(SolrClient solrClient) {
+        this(solrClient, true);
+    }
+
+    /**
+     * @param background whether to send documents from a background thread, otherwise only {@link #flush()} sends
+     */
+    SolrIndexBuffer(SolrClient solrClient, boolean background) {
+        this.solrClient = solrClient;
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushPeriodically();
+            }
+        }, "metascope-solr-indexer");
+        this.flusher.setDaemon(true);
+        if (background) {
+            this.flusher.start();
+        }
+    }
+
+    /**
+     * Buffers a full document or an atomic update. Blocks while sending if too many documents are pending.
+     */
+    void add(SolrInputDocument doc) {
+        String id = (String) doc.getFieldValue(SolrUpdateHandler.ID);
+        int size;
+        synchronized (this) {
+            SolrInputDocument buffered = pending.get(id);
+            pending.put(id, buffered == null ? doc : merge(buffered, doc));
+            size = pending.size();
+            if (size >= BATCH_SIZE) {
+                notifyAll();
+            }
+        }
+        if (size >= MAX_PENDING) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends all buffered documents to the index.
+     *
+     * @return false if a batch could not be sent and has been buffered again
+     */
+    boolean flush() {
+        synchronized (sendLock) {
+            Map<String, SolrInputDocument> batch;
+            long batchGeneration;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return true;
+                }
+                batch = pending;
+                batchGeneration = generation;
+                pending = new LinkedHashMap<>();
+            }
+
+            List<SolrInputDocument> docs = new ArrayList<>(batch.values());
+            for (int i = 0; i < docs.size(); i += BATCH_SIZE) {
+                try {
+                    solrClient.add(docs.subList(i, Math.min(i + BATCH_SIZE, docs.size())), COMMIT_WITHIN);
+                } catch (SolrServerException | IOException | RuntimeException e) {
+                    LOG.error("Could not send " + (docs.size() - i) + " documents to the index, will retry", e);
+                    requeue(docs.subList(i, docs.size()), batchGeneration);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Drops all buffered documents without sending them.
+     */
+    synchronized void clear() {
+        pending = new LinkedHashMap<>();
+        generation++;
+    }
+
+    /**
+     * Stops the background thread and sends what is left.
+     */
+    void close() {
+        running = false;
+        flusher.interrupt();
+        flush();
+    }
+
+    private void flushPeriodically() {
+        boolean sent = true;
+        while (running) {
+            try {
+                synchronized (this) {
+                    /* after a failure, wait before retrying even if a full batch is pending */
+                    if (!sent || pending.size() < BATCH_SIZE) {
+                        wait(FLUSH_INTERVAL);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            sent = flush();
+        }
+    }
+
+    /**
+     * Puts documents which could not be sent back in front of the buffer. Updates buffered in the meantime are
+     * merged into them, unless the buffer has been cleared.
+     */
+    private synchronized void requeue(List<SolrInputDocument> docs, long batchGeneration) {
+        if (batchGeneration != generation) {
+            return;
+        }
+        Map<String, SolrInputDocument> requeued = new LinkedHashMap<>();
+        for (SolrInputDocument doc : docs) {
+            requeued.put((String) doc.getFieldValue(SolrUpdateHandler.ID), doc);
+        }
+        for (Map.Entry<String, SolrInputDocument> entry : pending.entrySet()) {
+            SolrInputDocument buffered = requeued.get(entry.getKey());
+            requeued.put(entry.getKey(), buffered == null ? entry.getValue() : merge(buffered, entry.getValue()));
+        }
+        pending = requeued;
+    }
+
+    private SolrInputDocument merge(SolrInputDocument buffered, SolrInputDocument update) {
+        if (!isAtomic(update)) {
+            return update;
+        }
+        boolean bufferedAtomic = isAtomic(buffered);
+        for (SolrInputField field : update) {
+            if (field.getName().equals(SolrUpdateHandler.ID)) {
+                continue;
+            }
+            if (bufferedAtomic) {
+                buffered.setField(field.getName(), field.getValue());
+                continue;
+            }
+            Object value = ((Map<?, ?>) field.getValue()).get(SET);
+            if (value == null) {
+                buffered.removeField(field.getName());
+            } else {
+                buffered.setField(field.getName(), value);
+            }
+        }
+        return buffered;
+    }
+
+    private boolean isAtomic(SolrInputDocument doc) {
+        for (SolrInputField field : doc) {
+            if (!field.getName().equals(SolrUpdateHandler.ID)) {
+                return field.getValue() instanceof Map;
+            }
+        }
+        return false;
+    }
+
+}
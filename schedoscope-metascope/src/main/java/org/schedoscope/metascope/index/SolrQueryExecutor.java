@@ -23,6 +23,7 @@ import org.apache.solr.client.solrj.response.FacetField.Count;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.SuggesterResponse;
 import org.apache.solr.client.solrj.response.Suggestion;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.params.CommonParams;
@@ -34,6 +35,8 @@ import org.schedoscope.metascope.service.MetascopeFieldService;
 import org.schedoscope.metascope.service.MetascopeTableService;
 import org.schedoscope.metascope.service.MetascopeViewService;
 import org.schedoscope.metascope.util.URLUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -41,6 +44,8 @@ import java.util.Map.Entry;
 //TODO this class should be refactored..
 public class SolrQueryExecutor {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SolrQueryExecutor.class);
+
     public static final String ID = "id";
     public static final String TYPE = "type";
     public static final String SCHEDOSCOPE_ID = "schedoscopeId";
@@ -71,6 +76,19 @@ public class SolrQueryExecutor {
     public static final String FILTER_CATEGORY_OBJECT = "Category Object";
     public static final String FILTER_TAGS = "Tags";
 
+    private static final String SUGGEST_HANDLER = "/suggest";
+    private static final String SUGGEST_DICTIONARY = "metascope";
+    private static final int SUGGEST_CACHE_SIZE = 1000;
+    private static final String SEARCH_QUERY_FIELDS = "name_ngram^8 field_ngram^4 tag_ngram^4 text^2 doc_ngram";
+    private static final String SEARCH_FALLBACK_FIELD = "text";
+    /* gram sizes of the text_ngram field type in schema.xml */
+    private static final int NGRAM_MIN_SIZE = 2;
+    private static final int NGRAM_MAX_SIZE = 30;
+    private static final int FACET_PAGE_SIZE = 20;
+    private static final String HIGHLIGHT_FIELDS = "schedoscopeId,tableName,databaseName,parameterString,fields,"
+            + "transformation,storageFormat,owner,status,description,documentation,comments,taxonomies,categories,"
+            + "categoryObjects,tags";
+
     private final MetascopeTableService metascopeTableService;
     private final MetascopeViewService metascopeViewService;
     private final MetascopeFieldService metascopeParameterService;
@@ -78,6 +96,8 @@ public class SolrQueryExecutor {
     private SolrClient solrClient;
     private List<SolrQueryParameter> facetFields;
     private List<SolrFacetQuery> facetQueries;
+    private final Map<String, List<String>> suggestCache;
+    private volatile List<SolrQueryParameter> partitionFacetFields;
 
     public SolrQueryExecutor(SolrClient solrClient, MetascopeTableService metascopeTableService,
                              MetascopeViewService metascopeViewService, MetascopeFieldService metascopeParameterService) {
@@ -87,6 +107,12 @@ public class SolrQueryExecutor {
         this.metascopeParameterService = metascopeParameterService;
         this.facetFields = new LinkedList<SolrQueryParameter>();
         this.facetQueries = new LinkedList<SolrFacetQuery>();
+        this.suggestCache = Collections.synchronizedMap(new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > SUGGEST_CACHE_SIZE;
+            }
+        });
         this.facetFields.add(new SolrQueryParameter(FILTER_SCHEDOSCOPE, SCHEDOSCOPE_ID, false, FilterType.AND, FacetSort.COUNT));
         this.facetFields.add(new SolrQueryParameter(FILTER_DATABASE, DATABASE_NAME, true, FilterType.OR, FacetSort.COUNT));
         this.facetFields.add(new SolrQueryParameter(FILTER_TABLE, TABLE_NAME, false, FilterType.AND, FacetSort.COUNT));
@@ -111,14 +137,86 @@ public class SolrQueryExecutor {
                 .withRange(new SolrHourRange("last year", 8760)).withRange(new SolrHourRange("older", Long.MAX_VALUE)));
     }
 
+    /**
+     * Rebuilds the suggester dictionary from the current index and drops all
+     * cached suggestions. Building the dictionary walks the whole index, so it
+     * is done once after the index has changed (see {@link SolrFacade#commit()})
+     * instead of on every suggest request. A failed build is not retried until
+     * the index changes again.
+     */
+    public synchronized void buildSuggester() {
+        SolrQuery query = new SolrQuery();
+        query.setParam(CommonParams.QT, SUGGEST_HANDLER);
+        query.setParam("suggest", true);
+        query.setParam(SuggesterParams.SUGGEST_BUILD, true);
+        query.setParam(SuggesterParams.SUGGEST_DICT, SUGGEST_DICTIONARY);
+
+        try {
+            solrClient.query(query);
+        } catch (Exception e) {
+            LOG.error("Could not build suggester dictionary", e);
+        }
+        suggestCache.clear();
+    }
+
+    /**
+     * Builds the suggester dictionary in the background, so that startup and
+     * the first suggest request do not wait for it. Until the build has
+     * finished, suggestions come from the dictionary as it was last built.
+     */
+    public void buildSuggesterAsync() {
+        Thread builder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                buildSuggester();
+            }
+        }, "metascope-suggester");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Drops the cached facet metadata (the distinct partition parameters), so
+     * that it is reloaded on the next partition search. Called after the index
+     * has changed.
+     */
+    public void refreshFacetMetadata() {
+        partitionFacetFields = null;
+    }
+
+    private List<SolrQueryParameter> getPartitionFacetFields() {
+        List<SolrQueryParameter> fields = partitionFacetFields;
+        if (fields == null) {
+            fields = new ArrayList<SolrQueryParameter>();
+            for (String parameter : metascopeParameterService.findDistinctParameters()) {
+                fields.add(new SolrQueryParameter("Parameter: " + parameter, parameter + "_s", FilterType.AND,
+                        FacetSort.INDEX));
+            }
+            fields = Collections.unmodifiableList(fields);
+            partitionFacetFields = fields;
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the suggestions for the given prefix. Results are served from a
+     * bounded cache which is invalidated whenever the suggester is rebuilt.
+     *
+     * @param userInput the prefix typed by the user
+     * @return list of suggested terms, ordered by weight
+     */
     public List<String> suggest(String userInput) {
+        List<String> cached = suggestCache.get(userInput);
+        if (cached != null) {
+            return cached;
+        }
+
         List<String> suggestions = new LinkedList<String>();
 
         SolrQuery query = new SolrQuery();
-        query.setParam(CommonParams.QT, "/suggest");
+        query.setParam(CommonParams.QT, SUGGEST_HANDLER);
         query.setParam("suggest", true);
-        query.setParam(SuggesterParams.SUGGEST_BUILD, true);
-        query.setParam(SuggesterParams.SUGGEST_DICT, "metascope");
+        query.setParam(SuggesterParams.SUGGEST_DICT, SUGGEST_DICTIONARY);
         query.setParam(SuggesterParams.SUGGEST_Q, userInput);
 
     /* execute the query */
@@ -126,7 +224,7 @@ public class SolrQueryExecutor {
         try {
             queryResponse = solrClient.query(query);
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.error("Could not retrieve suggestions for '" + userInput + "'", e);
         }
 
         List<Suggestion> currentSuggestions = new LinkedList<Suggestion>();
@@ -152,6 +250,10 @@ public class SolrQueryExecutor {
             suggestions.add(suggestion.getTerm());
         }
 
+        if (queryResponse != null) {
+            suggestions = Collections.unmodifiableList(suggestions);
+            suggestCache.put(userInput, suggestions);
+        }
         return suggestions;
     }
 
@@ -187,13 +289,11 @@ public class SolrQueryExecutor {
         filter.add(new SolrQueryParameter(FILTER_TYPE, TYPE, FilterType.EXCLUSIVE, FacetSort.COUNT));
         if (typeFilterValue != null && typeFilterValue.equalsIgnoreCase(TYPE_PARTITION)) {
             typeFilterValue = TYPE_PARTITION;
-            for (String parameter : metascopeParameterService.findDistinctParameters()) {
-                partitionFilter.add(new SolrQueryParameter("Parameter: " + parameter, parameter + "_s", FilterType.AND,
-                        FacetSort.INDEX));
-            }
+            partitionFilter.addAll(getPartitionFacetFields());
             for (SolrQueryParameter pFilter : partitionFilter) {
                 query.addFacetField(pFilter.getName());
                 query.add("f." + pFilter.getName() + ".facet.sort", "index");
+                query.add("f." + pFilter.getName() + ".facet.limit", "" + (getFacetLimit(params, pFilter.getName()) + 1));
                 String filterValue = params.get(pFilter.getName());
                 if (filterValue != null && !filterValue.isEmpty()) {
                     query.addFilterQuery(pFilter.getName() + ":" + "(" + filterValue.replace(",", " AND ") + ")");
@@ -205,6 +305,7 @@ public class SolrQueryExecutor {
         }
         query.addFilterQuery("{!tag=" + TYPE + "}" + TYPE + ":" + typeFilterValue);
         query.addFacetField("{!ex=" + TYPE + "}" + TYPE);
+        query.setFacetMinCount(1);
 
     /* set solr search query parameter 'q' */
         String searchQueryValue = params.get(URLUtil.SEARCH_QUERY_PARAM);
@@ -214,22 +315,48 @@ public class SolrQueryExecutor {
         } else {
             String[] queryTerms = searchQueryValue.trim().split(" ");
             String queryTerm = "";
+            String highlightTerm = "";
             for (String term : queryTerms) {
                 if (term.isEmpty()) {
                     continue;
                 }
 
                 if (!queryTerm.isEmpty()) {
-                    queryTerm += " AND ";
+                    queryTerm += " ";
+                    highlightTerm += " AND ";
+                }
+                String wildcardTerm = "*" + ClientUtils.escapeQueryChars(term) + "*";
+                if (term.length() < NGRAM_MIN_SIZE || term.length() > NGRAM_MAX_SIZE) {
+                    queryTerm += SEARCH_FALLBACK_FIELD + ":" + wildcardTerm.toLowerCase();
+                } else {
+                    queryTerm += ClientUtils.escapeQueryChars(term);
                 }
-                queryTerm += "*" + term + "*";
+                highlightTerm += wildcardTerm;
             }
+
+      /*
+       * match the terms against the n-gram copies of the searchable fields,
+       * every term has to match in at least one of them. Terms shorter or
+       * longer than the indexed grams can not match these fields, so they
+       * are searched as substrings of the full values instead
+       */
             query.setQuery(queryTerm);
+            query.set("defType", "edismax");
+            query.set("qf", SEARCH_QUERY_FIELDS);
+            query.set("mm", "100%");
+
+      /*
+       * the n-gram fields are not stored, so highlighting runs the wildcard
+       * query against the stored fields shown in the search preview. It is
+       * only evaluated on the documents of the current page.
+       */
             query.setHighlight(true);
             query.setHighlightSimplePre("<b>");
             query.setHighlightSimplePost("</b>");
             query.setHighlightSnippets(100);
-            query.set("hl.fl", "*");
+            query.set("hl.q", highlightTerm);
+            query.set("hl.fl", HIGHLIGHT_FIELDS);
+            query.set("hl.requireFieldMatch", false);
         }
 
     /* set the remaining filters */
@@ -279,7 +406,7 @@ public class SolrQueryExecutor {
             if (queryFilter.getFacetSort().equals(FacetSort.INDEX)) {
                 query.add("f." + queryFilter.getName() + ".facet.sort", "index");
             }
-            query.add("f." + queryFilter.getName() + ".facet.limit", "-1");
+            query.add("f." + queryFilter.getName() + ".facet.limit", "" + (getFacetLimit(params, queryFilter.getName()) + 1));
         }
 
     /* set facet queries */
@@ -299,8 +426,11 @@ public class SolrQueryExecutor {
             }
         }
 
-    /* always sort the entities (for a deterministic view) */
-        query.setSort(ID, ORDER.asc);
+    /* sort by relevance when searching, always by id (for a deterministic view) */
+        if (!searchQueryValue.equals("*")) {
+            query.addSort("score", ORDER.desc);
+        }
+        query.addSort(ID, ORDER.asc);
 
     /* set pagination information */
         int page = getPageParameter(params);
@@ -318,27 +448,34 @@ public class SolrQueryExecutor {
 
         SolrDocumentList list = queryResponse.getResults();
 
-    /* get table / view entities from local repository */
+    /* get table / view entities of the page from local repository with one query */
+        List<String> ids = new ArrayList<String>();
+        for (SolrDocument solrDocument : list) {
+            ids.add((String) solrDocument.get(ID));
+        }
+        Map<String, ?> entities;
+        if (typeFilterValue.equalsIgnoreCase(TYPE_PARTITION)) {
+            entities = metascopeViewService.findSearchResults(ids);
+        } else {
+            entities = metascopeTableService.findSearchResults(ids);
+        }
+
         List<SolrQueryResultEntity> resultEntities = new LinkedList<SolrQueryResultEntity>();
         String resultType = "";
-        for (SolrDocument solrDocument : list) {
-            String id = (String) solrDocument.get(ID);
+        for (String id : ids) {
+            Object entity = entities.get(id);
+            if (entity == null) {
+                /* document is not (yet) in sync with the repository */
+                continue;
+            }
 
+            if (!searchQueryValue.equals("*")) {
+                resultEntities.add(new SolrQueryResultEntity(entity, queryResponse.getHighlighting().get(id)));
+            } else {
+                resultEntities.add(new SolrQueryResultEntity(entity));
+            }
             if (typeFilterValue.equalsIgnoreCase(TYPE_PARTITION)) {
-                if (!searchQueryValue.equals("*")) {
-                    resultEntities.add(new SolrQueryResultEntity(metascopeViewService.findByViewId(id), queryResponse
-                            .getHighlighting().get(id)));
-                } else {
-                    resultEntities.add(new SolrQueryResultEntity(metascopeViewService.findByViewId(id)));
-                }
                 resultType = TYPE_PARTITION;
-            } else if (typeFilterValue.equalsIgnoreCase(TYPE_TABLE)) {
-                if (!searchQueryValue.equals("*")) {
-                    resultEntities.add(new SolrQueryResultEntity(metascopeTableService.findByFqdn(id), queryResponse
-                            .getHighlighting().get(id)));
-                } else {
-                    resultEntities.add(new SolrQueryResultEntity(metascopeTableService.findByFqdn(id)));
-                }
             }
         }
         if (resultType.isEmpty()) {
@@ -347,8 +484,12 @@ public class SolrQueryExecutor {
 
         filter.addAll(partitionFilter);
 
-    /* get the facet values and counts */
+    /*
+     * get the facet values and counts; one more value than shown has been
+     * requested to find out whether there are more values to page in
+     */
         Map<String, List<SolrFacet>> facetValues = new HashMap<String, List<SolrFacet>>();
+        Map<String, Integer> nextFacetLimits = new HashMap<String, Integer>();
         for (SolrQueryParameter f : filter) {
             if (!f.getName().equals(URLUtil.SEARCH_QUERY_PARAM)) {
                 List<SolrFacet> values = new ArrayList<SolrFacet>();
@@ -356,6 +497,13 @@ public class SolrQueryExecutor {
                 for (Count count : facet.getValues()) {
                     values.add(new SolrFacet(count.getName(), count.getCount()));
                 }
+                if (!f.getName().equals(TYPE)) {
+                    int limit = getFacetLimit(params, f.getName());
+                    if (values.size() > limit) {
+                        values = values.subList(0, limit);
+                        nextFacetLimits.put(f.getName(), limit + FACET_PAGE_SIZE);
+                    }
+                }
                 facetValues.put(f.getName(), values);
             }
         }
@@ -386,7 +534,7 @@ public class SolrQueryExecutor {
     /* build and return the result */
         SolrQueryResult result = new SolrQueryResult().withResultEntities(resultEntities).withResultType(resultType)
                 .withFilters(filter).withFacetValues(facetValues).withActiveFilterValues(activeFilterValues)
-                .withSearchQuery(searchQueryValue).withPage(page).withElements(elements)
+                .withNextFacetLimits(nextFacetLimits).withSearchQuery(searchQueryValue).withPage(page).withElements(elements)
                 .withTotalPages((int) Math.ceil(((double) list.getNumFound()) / elements)).withTotalResults(list.getNumFound())
                 .withIsSearchRequest(isSearchQuery);
         return result;
@@ -466,6 +614,19 @@ public class SolrQueryExecutor {
         return page;
     }
 
+    private int getFacetLimit(Map<String, String> params, String facet) {
+        String limitParam = params.get(URLUtil.FACET_LIMIT_PARAM_PREFIX + facet);
+        int limit = FACET_PAGE_SIZE;
+        if (limitParam != null) {
+            try {
+                limit = Math.max(Integer.parseInt(limitParam), FACET_PAGE_SIZE);
+            } catch (NumberFormatException e) {
+                // ignore corrupt user input
+            }
+        }
+        return limit;
+    }
+
     private int getElementsParameter(Map<String, String> params) {
         String elementsParam = params.get(URLUtil.PAGINATION_ELEMENTS_PARAM);
         int elements = URLUtil.PAGINATION_ELEMENTS_DEFAULT;
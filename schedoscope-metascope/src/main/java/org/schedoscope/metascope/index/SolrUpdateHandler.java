@@ -26,6 +26,7 @@ import org.schedoscope.metascope.model.MetascopeView;
 import org.springframework.scheduling.annotation.AsyncResult;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.concurrent.Future;
 
 public class SolrUpdateHandler {
@@ -58,9 +59,11 @@ public class SolrUpdateHandler {
     public static final String TYPE_PARTITION = "Partition";
 
     private SolrClient solrClient;
+    private SolrIndexBuffer indexBuffer;
 
     public SolrUpdateHandler(SolrClient solrClient) {
         this.solrClient = solrClient;
+        this.indexBuffer = new SolrIndexBuffer(solrClient);
     }
 
     /**
@@ -124,52 +127,49 @@ public class SolrUpdateHandler {
     /**
      * Updates the Solr document for the given table entity. In contrast to
      * {@link SolrUpdateHandler#updateTableEntity(MetascopeTable, boolean)}, only
-     * some specific fields are updated
+     * some specific fields are updated, using an atomic update
      *
      * @param table  table entity to update
      * @param commit immediately commit change to index
      */
     public void updateTablePartial(MetascopeTable table, boolean commit) {
-        SolrInputDocument doc = getDocument(table.getFqdn());
-        if (doc == null) {
-            doc = new SolrInputDocument();
-        }
+        SolrInputDocument doc = new SolrInputDocument();
         doc.setField(ID, table.getFqdn());
-        doc.setField(TYPE, TYPE_TABLE);
-        doc.setField(SCHEDOSCOPE_ID, table.getSchedoscopeId());
-        doc.setField(DATABASE_NAME, table.getDatabaseName());
-        doc.setField(TABLE_NAME, table.getTableName());
+        setAtomic(doc, TYPE, TYPE_TABLE);
+        setAtomic(doc, SCHEDOSCOPE_ID, table.getSchedoscopeId());
+        setAtomic(doc, DATABASE_NAME, table.getDatabaseName());
+        setAtomic(doc, TABLE_NAME, table.getTableName());
         if (table.getFields().size() > 0) {
-            doc.setField(FIELDS, table.getFieldNames());
+            setAtomic(doc, FIELDS, table.getFieldNames());
         }
         if (table.getParameters().size() > 0) {
-            doc.setField(PARAMETERS, table.getParameterNames());
+            setAtomic(doc, PARAMETERS, table.getParameterNames());
         }
-        doc.setField(TRANSFORMATION, table.getTransformation().getTransformationType().split(" -> ")[0]);
+        setAtomic(doc, TRANSFORMATION, table.getTransformation().getTransformationType().split(" -> ")[0]);
         if (table.getExports() != null) {
-            doc.setField(EXPORTS, table.getExportNames());
+            setAtomic(doc, EXPORTS, table.getExportNames());
         }
-        doc.setField(STORAGE_FORMAT, table.getStorageFormat());
-        doc.setField(MATERIALIZE_ONCE, table.isMaterializeOnce());
-        doc.setField(EXTERNAL, table.isExternalTable());
-        doc.setField(DESCRIPTION, table.getTableDescription());
+        setAtomic(doc, STORAGE_FORMAT, table.getStorageFormat());
+        setAtomic(doc, MATERIALIZE_ONCE, table.isMaterializeOnce());
+        setAtomic(doc, EXTERNAL, table.isExternalTable());
+        setAtomic(doc, DESCRIPTION, table.getTableDescription());
         if (table.getTableOwner() != null) {
-            doc.setField(OWNER, table.getTableOwner());
+            setAtomic(doc, OWNER, table.getTableOwner());
         }
         if (table.getCreatedAt() != 0) {
-            doc.setField(CREATED_AT, table.getCreatedAt() / 1000);
+            setAtomic(doc, CREATED_AT, table.getCreatedAt() / 1000);
         }
         if (table.getLastTransformation() != 0) {
-            doc.setField(TRANSFORMATIONTIMESTAMP, table.getLastTransformation() / 1000);
+            setAtomic(doc, TRANSFORMATIONTIMESTAMP, table.getLastTransformation() / 1000);
         }
         if (table.getTaxonomyNames() != null || table.getTaxonomyNames().size() > 0) {
-            doc.setField(TAXONOMIES, table.getTaxonomyNames());
+            setAtomic(doc, TAXONOMIES, table.getTaxonomyNames());
         }
         if (table.getCategoryNames() != null || table.getCategoryNames().size() > 0) {
-            doc.setField(CATEGORIES, table.getCategoryNames());
+            setAtomic(doc, CATEGORIES, table.getCategoryNames());
         }
         if (table.getCategoryObjectNames() != null || table.getCategoryObjectNames().size() > 0) {
-            doc.setField(CATEGORIE_OBJECTSS, table.getCategoryObjectNames());
+            setAtomic(doc, CATEGORIE_OBJECTSS, table.getCategoryObjectNames());
         }
         addDocument(doc);
         if (commit) {
@@ -177,17 +177,21 @@ public class SolrUpdateHandler {
         }
     }
 
+    /**
+     * Updates the createdAt and transformationTimestamp fields of the Solr document for the given table
+     * entity, using an atomic update
+     *
+     * @param table  table entity to update
+     * @param commit immediately commit change to index
+     */
     public void updateTableMetastoreData(MetascopeTable table, boolean commit) {
-        SolrInputDocument doc = getDocument(table.getFqdn());
-        if (doc == null) {
-            doc = new SolrInputDocument();
-        }
+        SolrInputDocument doc = new SolrInputDocument();
         doc.setField(ID, table.getFqdn());
         if (table.getCreatedAt() != 0) {
-            doc.setField(CREATED_AT, table.getCreatedAt() / 1000);
+            setAtomic(doc, CREATED_AT, table.getCreatedAt() / 1000);
         }
         if (table.getLastTransformation() != 0) {
-            doc.setField(TRANSFORMATIONTIMESTAMP, table.getLastTransformation() / 1000);
+            setAtomic(doc, TRANSFORMATIONTIMESTAMP, table.getLastTransformation() / 1000);
         }
         addDocument(doc);
         if (commit) {
@@ -240,22 +244,19 @@ public class SolrUpdateHandler {
     /**
      * Updates the Solr document for the given view entity. In contrast to
      * {@link SolrUpdateHandler#updateViewEntity(MetascopeView, boolean)}, only the
-     * status, transformationEnd and createdAt fields are updated
+     * status, transformationEnd and createdAt fields are updated, using an atomic update
      *
      * @param view   view entity to update
      * @param commit immediately commit change to index
      */
     public void updateViewStatusInformation(MetascopeView view, Long transformationEnd, Long createdAt, boolean commit) {
-        SolrInputDocument doc = getDocument(view.getViewId());
-        if (doc == null) {
-            doc = new SolrInputDocument();
-        }
+        SolrInputDocument doc = new SolrInputDocument();
         doc.setField(ID, view.getViewId());
         if (transformationEnd != null) {
-            doc.setField(TRANSFORMATIONTIMESTAMP, transformationEnd / 1000);
+            setAtomic(doc, TRANSFORMATIONTIMESTAMP, transformationEnd / 1000);
         }
         if (createdAt != null) {
-            doc.setField(CREATED_AT, createdAt / 1000);
+            setAtomic(doc, CREATED_AT, createdAt / 1000);
         }
         addDocument(doc);
         if (commit) {
@@ -286,15 +287,21 @@ public class SolrUpdateHandler {
     }
 
     /**
-     * Adds a document to solr index
+     * Sets a field of an atomic update document, replacing the stored value
+     */
+    private void setAtomic(SolrInputDocument doc, String field, Object value) {
+        doc.setField(field, Collections.singletonMap(SolrIndexBuffer.SET, value));
+    }
+
+    /**
+     * Adds a document to solr index. Documents are buffered and sent in batches.
      *
      * @param doc solr document to be added
      */
     private void addDocument(SolrInputDocument doc) {
-        try {
-            solrClient.add(doc);
-        } catch (SolrServerException | IOException e) {
-            e.printStackTrace();
+        /* an update without any field besides the id would replace the stored document */
+        if (doc.size() > 1) {
+            indexBuffer.add(doc);
         }
     }
 
@@ -302,6 +309,7 @@ public class SolrUpdateHandler {
      * Delete all data stored in solr index
      */
     public void clearSolrData() {
+        indexBuffer.clear();
         try {
             solrClient.deleteByQuery("*:*");
         } catch (Exception e) {
@@ -310,14 +318,23 @@ public class SolrUpdateHandler {
     }
 
     /**
-     * Commit all previous changes since last commit call to solr index
+     * Sends all buffered changes and makes them visible with a soft commit. Changes
+     * become visible within seconds without calling this, too.
      */
     public void commit() {
+        indexBuffer.flush();
         try {
-            solrClient.commit();
+            solrClient.commit(true, true, true);
         } catch (SolrServerException | IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Sends all buffered changes and stops the background indexing thread
+     */
+    public void close() {
+        indexBuffer.close();
+    }
+
 }
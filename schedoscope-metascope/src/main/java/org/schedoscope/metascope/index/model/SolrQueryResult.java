@@ -35,6 +35,12 @@ public class SolrQueryResult {
      */
     private Map<String, List<SolrFacet>> facetValues;
 
+    /**
+     * the limit to request for facets which have more values than shown (key =
+     * filter name, value = next limit)
+     */
+    private Map<String, Integer> nextFacetLimits;
+
     /**
      * user selections; (key = filter name, value = list of selections)
      */
@@ -106,6 +112,19 @@ public class SolrQueryResult {
         return this;
     }
 
+    public SolrQueryResult withNextFacetLimits(Map<String, Integer> nextFacetLimits) {
+        this.nextFacetLimits = nextFacetLimits;
+        return this;
+    }
+
+    public boolean hasMoreFacetValues(String facet) {
+        return nextFacetLimits != null && nextFacetLimits.containsKey(facet);
+    }
+
+    public int getNextFacetLimit(String facet) {
+        return nextFacetLimits.get(facet);
+    }
+
     public Map<String, List<String>> getActiveFilterValues() {
         return activeFilterValues;
     }
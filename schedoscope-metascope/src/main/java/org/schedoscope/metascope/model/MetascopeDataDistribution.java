@@ -15,9 +15,17 @@
  */
 package org.schedoscope.metascope.model;
 
+import org.hibernate.annotations.Type;
+
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 
+/**
+ * A data distribution metric of a table. Rows with a partition spec hold the
+ * mergeable profile of a single partition (as JSON in {@link #sketch}) from
+ * which the metrics of the table are computed.
+ */
 @Entity
 public class MetascopeDataDistribution {
 
@@ -26,6 +34,12 @@ public class MetascopeDataDistribution {
     private String fqdn;
     private String metric;
     private String value;
+    @Column(columnDefinition = "text")
+    private String partitionSpec;
+    @Column(columnDefinition = "bigint default 0")
+    private long lastTransformation;
+    @Type(type = "text")
+    private String sketch;
 
     public String getId() {
         return id;
@@ -59,4 +73,28 @@ public class MetascopeDataDistribution {
         this.value = value;
     }
 
+    public String getPartitionSpec() {
+        return partitionSpec;
+    }
+
+    public void setPartitionSpec(String partitionSpec) {
+        this.partitionSpec = partitionSpec;
+    }
+
+    public long getLastTransformation() {
+        return lastTransformation;
+    }
+
+    public void setLastTransformation(long lastTransformation) {
+        this.lastTransformation = lastTransformation;
+    }
+
+    public String getSketch() {
+        return sketch;
+    }
+
+    public void setSketch(String sketch) {
+        this.sketch = sketch;
+    }
+
 }
@@ -32,6 +32,8 @@ public class MetascopeField extends Documentable {
     @Column(columnDefinition = "text")
     private String description;
     private boolean isParameter;
+    @Column(columnDefinition = "varchar(32)")
+    private String contentHash;
     @ManyToOne(fetch = FetchType.LAZY)
     private MetascopeTable table;
     @Transient
@@ -112,6 +114,25 @@ public class MetascopeField extends Documentable {
         isParameter = parameter;
     }
 
+    /**
+     * @return hash of the column values last written by the sync, null if unknown
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Changes made through JPA are not reflected in the content hash, so the next sync writes the row again.
+     */
+    @PreUpdate
+    void invalidateContentHash() {
+        this.contentHash = null;
+    }
+
     public List<MetascopeField> getDependencies() {
         return dependencies;
     }
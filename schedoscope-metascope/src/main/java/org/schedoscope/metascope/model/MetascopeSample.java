@@ -0,0 +1,104 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.model;
+
+import org.hibernate.annotations.Type;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * A persisted data sample of a table, optionally restricted to a partition
+ * spec. The header and rows are stored as JSON.
+ */
+@Entity
+public class MetascopeSample {
+
+    @Id
+    @Column(columnDefinition = "varchar(766)")
+    private String id;
+    @Column(columnDefinition = "varchar(766)")
+    private String fqdn;
+    @Column(columnDefinition = "text")
+    private String partitionSpec;
+    @Column(columnDefinition = "bigint default 0")
+    private long lastTransformation;
+    @Column(columnDefinition = "bigint default 0")
+    private long sampledAt;
+    @Column(columnDefinition = "text")
+    private String header;
+    /* longtext on MySQL, the rows of a sample easily exceed the 64 KB of a text column */
+    @Type(type = "text")
+    private String rows;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFqdn() {
+        return fqdn;
+    }
+
+    public void setFqdn(String fqdn) {
+        this.fqdn = fqdn;
+    }
+
+    public String getPartitionSpec() {
+        return partitionSpec;
+    }
+
+    public void setPartitionSpec(String partitionSpec) {
+        this.partitionSpec = partitionSpec;
+    }
+
+    public long getLastTransformation() {
+        return lastTransformation;
+    }
+
+    public void setLastTransformation(long lastTransformation) {
+        this.lastTransformation = lastTransformation;
+    }
+
+    public long getSampledAt() {
+        return sampledAt;
+    }
+
+    public void setSampledAt(long sampledAt) {
+        this.sampledAt = sampledAt;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public String getRows() {
+        return rows;
+    }
+
+    public void setRows(String rows) {
+        this.rows = rows;
+    }
+
+}
@@ -64,6 +64,9 @@ public class MetascopeTable extends Documentable {
     @Column(columnDefinition = "int default 1")
     private int viewsSize;
     private String personResponsible;
+    private String schedoscopeFingerprint;
+    @Column(columnDefinition = "varchar(32)")
+    private String contentHash;
     @Transient
     private Long commentId;
 
@@ -207,6 +210,33 @@ public class MetascopeTable extends Documentable {
         this.personResponsible = personResponsible;
     }
 
+    public String getSchedoscopeFingerprint() {
+        return schedoscopeFingerprint;
+    }
+
+    public void setSchedoscopeFingerprint(String schedoscopeFingerprint) {
+        this.schedoscopeFingerprint = schedoscopeFingerprint;
+    }
+
+    /**
+     * @return hash of the column values last written by the sync, null if unknown
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Changes made through JPA are not reflected in the content hash, so the next sync writes the row again.
+     */
+    @PreUpdate
+    void invalidateContentHash() {
+        this.contentHash = null;
+    }
+
     public String getTableDescription() {
         return tableDescription;
     }
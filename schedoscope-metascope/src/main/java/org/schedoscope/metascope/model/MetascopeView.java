@@ -34,7 +34,11 @@ public class MetascopeView {
     @Column(columnDefinition = "bigint default 0")
     private long totalSize;
     @Column(columnDefinition = "bigint default 0")
+    private long dataSize;
+    @Column(columnDefinition = "bigint default 0")
     private long lastTransformation;
+    @Column(columnDefinition = "varchar(32)")
+    private String contentHash;
 
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinTable(name = "metascope_view_relationship",
@@ -57,6 +61,10 @@ public class MetascopeView {
 
     @Transient
     private String fqdn;
+    @Transient
+    private Map<String, String> parsedParameters;
+    @Transient
+    private List<String> parsedParameterValues;
 
     public String getViewId() {
         return viewId;
@@ -96,6 +104,8 @@ public class MetascopeView {
 
     public void setParameterString(String parameterString) {
         this.parameterString = parameterString;
+        this.parsedParameters = null;
+        this.parsedParameterValues = null;
     }
 
     public MetascopeTable getTable() {
@@ -122,6 +132,28 @@ public class MetascopeView {
         this.totalSize = totalSize;
     }
 
+    /**
+     * @return the space the partition directory of this view consumes on HDFS, including replication
+     */
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    public void setDataSize(long dataSize) {
+        this.dataSize = dataSize;
+    }
+
+    /**
+     * @return hash of the column values last written by the sync, null if unknown
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public long getLastTransformation() {
         return lastTransformation;
     }
@@ -166,28 +198,36 @@ public class MetascopeView {
         return null;
     }
 
+    /**
+     * @return the parameters of this view in partition order, parsed once from the parameter string
+     */
     public Map<String, String> getParameters() {
-        Map<String, String> paramMap = new HashMap<>();
-        if (parameterString != null && !parameterString.isEmpty()) {
-            String[] params = parameterString.split("/");
-            for (int i = 1; i < params.length; i++) {
-                String[] kv = params[i].split("=");
-                paramMap.put(kv[0], kv[1]);
-            }
+        if (parsedParameters == null) {
+            parseParameterString();
         }
-        return paramMap;
+        return parsedParameters;
     }
 
     public List<String> getParameterValues() {
-        List<String> parameters = new ArrayList<>();
+        if (parsedParameterValues == null) {
+            parseParameterString();
+        }
+        return parsedParameterValues;
+    }
+
+    private void parseParameterString() {
+        Map<String, String> paramMap = new LinkedHashMap<>();
+        List<String> values = new ArrayList<>();
         if (parameterString != null && !parameterString.isEmpty()) {
             String[] params = parameterString.split("/");
             for (int i = 1; i < params.length; i++) {
                 String[] kv = params[i].split("=");
-                parameters.add(kv[1]);
+                paramMap.put(kv[0], kv[1]);
+                values.add(kv[1]);
             }
         }
-        return parameters;
+        this.parsedParameters = Collections.unmodifiableMap(paramMap);
+        this.parsedParameterValues = Collections.unmodifiableList(values);
     }
 
     public String internalViewId() {
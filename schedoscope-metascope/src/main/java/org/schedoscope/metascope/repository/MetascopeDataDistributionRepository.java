@@ -24,4 +24,8 @@ public interface MetascopeDataDistributionRepository extends CrudRepository<Meta
 
     public List<MetascopeDataDistribution> findByFqdn(String fqdn);
 
+    public List<MetascopeDataDistribution> findByFqdnAndPartitionSpecIsNull(String fqdn);
+
+    public List<MetascopeDataDistribution> findByFqdnAndPartitionSpecIsNotNull(String fqdn);
+
 }
@@ -31,4 +31,8 @@ public interface MetascopeFieldRepository extends CrudRepository<MetascopeField,
     @Query("SELECT f FROM MetascopeField f WHERE :commentEntity MEMBER OF f.comments")
     public MetascopeField findByComment(@Param(value = "commentEntity") MetascopeComment commentEntity);
 
+    @Query("SELECT f.fieldId, f.fieldName, ft.fqdn, d.fieldId, d.fieldName, dt.fqdn "
+            + "FROM MetascopeField f JOIN f.table ft JOIN f.dependencies d JOIN d.table dt")
+    public List<Object[]> findLineage();
+
 }
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.repository;
+
+import org.schedoscope.metascope.model.MetascopeSample;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface MetascopeSampleRepository extends CrudRepository<MetascopeSample, String> {
+
+    public List<MetascopeSample> findByFqdn(String fqdn);
+
+    @Query("SELECT DISTINCT s.fqdn FROM MetascopeSample s")
+    public List<String> findSampledTables();
+
+}
@@ -22,6 +22,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -41,4 +42,13 @@ public interface MetascopeTableRepository extends CrudRepository<MetascopeTable,
     @Query("SELECT t.fqdn FROM MetascopeTable t")
     public List<String> getAllTablesNames();
 
+    @Query("SELECT t.fqdn, t.schedoscopeId, t.databaseName, t.tableName, t.viewPath, t.tableDescription, t.lastData, "
+            + "t.timestampFieldFormat, t.lastTransformationTimestamp, t.lastPartitionCreated, p.fieldId, p.fieldName "
+            + "FROM MetascopeTable t LEFT JOIN t.parameters p WHERE t.fqdn IN :fqdns ORDER BY t.fqdn, p.fieldOrder")
+    public List<Object[]> findSearchResults(@Param(value = "fqdns") Collection<String> fqdns);
+
+    @Query("SELECT t.fqdn, t.tableName, t.databaseName, d.fqdn, d.tableName, d.databaseName "
+            + "FROM MetascopeTable t JOIN t.dependencies d")
+    public List<Object[]> findLineage();
+
 }
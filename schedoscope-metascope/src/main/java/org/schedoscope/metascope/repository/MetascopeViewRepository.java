@@ -22,6 +22,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface MetascopeViewRepository extends CrudRepository<MetascopeView, String> {
@@ -36,4 +37,22 @@ public interface MetascopeViewRepository extends CrudRepository<MetascopeView, S
 
     public MetascopeView findFirstByTableFqdn(String fqdn);
 
+    public MetascopeView findFirstByTableFqdnOrderByLastTransformationDesc(String fqdn);
+
+    /**
+     * @return the latest transformation of the partitions matching the given parameter string, null if none matches
+     */
+    @Query("SELECT max(v.lastTransformation) FROM MetascopeView v WHERE v.table.fqdn = :fqdn "
+            + "AND (v.parameterString = :parameterString OR v.parameterString LIKE :prefix ESCAPE '!')")
+    public Long findLastTransformation(@Param(value = "fqdn") String fqdn,
+                                       @Param(value = "parameterString") String parameterString,
+                                       @Param(value = "prefix") String prefix);
+
+    @Query("SELECT v.parameterString, v.lastTransformation FROM MetascopeView v WHERE v.table.fqdn = :fqdn")
+    public List<Object[]> findPartitionTransformations(@Param(value = "fqdn") String fqdn);
+
+    @Query("SELECT v.viewId, v.viewUrl, v.parameterString, v.lastTransformation, t.fqdn, t.databaseName, t.tableName "
+            + "FROM MetascopeView v JOIN v.table t WHERE v.viewId IN :viewIds")
+    public List<Object[]> findSearchResults(@Param(value = "viewIds") Collection<String> viewIds);
+
 }
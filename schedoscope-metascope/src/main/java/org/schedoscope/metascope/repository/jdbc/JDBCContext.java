@@ -3,7 +3,13 @@ package org.schedoscope.metascope.repository.jdbc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -11,6 +17,8 @@ public class JDBCContext {
 
     private static final Logger LOG = LoggerFactory.getLogger(JDBCContext.class);
 
+    private static final int STREAMING_FETCH_SIZE = 1024;
+
     private final boolean isMySQLDatabase;
     private final boolean isH2Database;
 
@@ -19,6 +27,32 @@ public class JDBCContext {
         this.isH2Database = isH2Database;
     }
 
+    /**
+     * Prepares a read-only, forward-only statement whose rows are streamed instead of being buffered in memory by
+     * the driver. MySQL only streams with a fetch size of Integer.MIN_VALUE.
+     */
+    protected PreparedStatement prepareStreamingStatement(Connection connection, String sql) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(isMySQLDatabase ? Integer.MIN_VALUE : STREAMING_FETCH_SIZE);
+        return stmt;
+    }
+
+    /**
+     * Hashes the column values of a row, so a row can be compared with its stored state without reading it.
+     */
+    protected static String contentHash(Object... values) {
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Object value : values) {
+            md5.update(value == null ? new byte[]{1} : (String.valueOf(value) + "\u0000").getBytes(StandardCharsets.UTF_8));
+        }
+        return String.format("%032x", new BigInteger(1, md5.digest()));
+    }
+
     protected void disableChecks(Connection connection) {
         try {
             Statement stmt = connection.createStatement();
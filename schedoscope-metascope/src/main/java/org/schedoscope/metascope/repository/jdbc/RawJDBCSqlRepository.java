@@ -20,8 +20,10 @@ import org.schedoscope.metascope.repository.jdbc.entity.*;
 import org.schedoscope.metascope.task.model.Dependency;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class RawJDBCSqlRepository {
@@ -45,6 +47,10 @@ public class RawJDBCSqlRepository {
         return this.jdbcMetascopeTableRepository.findTable(connection, fqdn);
     }
 
+    public Map<String, MetascopeTable> findTables(Connection connection, String schedoscopeId) throws SQLException {
+        return this.jdbcMetascopeTableRepository.findAllBySchedoscopeId(connection, schedoscopeId);
+    }
+
     public void saveTable(Connection connection, MetascopeTable table) {
         this.jdbcMetascopeTableRepository.save(connection, table);
     }
@@ -53,10 +59,16 @@ public class RawJDBCSqlRepository {
         this.jdbcMetascopeTableRepository.saveTransformation(connection, transformation, fqdn);
     }
 
-    public void insertTableDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> tables) {
+    public void insertTableDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> tables)
+      throws SQLException {
         this.jdbcMetascopeTableRepository.saveTableDependency(connection, currentTables, tables);
     }
 
+    public void insertTableDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> tables,
+                                        boolean ownedOnly) throws SQLException {
+        this.jdbcMetascopeTableRepository.saveTableDependency(connection, currentTables, tables, ownedOnly);
+    }
+
     public List<MetascopeTable> findAllTables(Connection connection) {
         return this.jdbcMetascopeTableRepository.findAll(connection);
     }
@@ -66,7 +78,11 @@ public class RawJDBCSqlRepository {
         return this.jdbcMetascopeViewRepository.findAll(connection, fqdn);
     }
 
-    public void insertOrUpdateViews(Connection connection, Iterable<MetascopeView> views) {
+    public Map<String, String> findViewContentHashes(Connection connection, String schedoscopeId) throws SQLException {
+        return this.jdbcMetascopeViewRepository.findContentHashesBySchedoscopeId(connection, schedoscopeId);
+    }
+
+    public void insertOrUpdateViews(Connection connection, Iterable<MetascopeView> views) throws SQLException {
         this.jdbcMetascopeViewRepository.insertOrUpdateViews(connection, views);
     }
 
@@ -74,7 +90,7 @@ public class RawJDBCSqlRepository {
         this.jdbcMetascopeViewRepository.insertOrUpdateViewMetadata(connection, views);
     }
 
-    public void insertViewDependencies(Connection connection, List<Dependency> viewDependencies) {
+    public void insertViewDependencies(Connection connection, List<Dependency> viewDependencies) throws SQLException {
         this.jdbcMetascopeViewRepository.insertViewDependencies(connection, viewDependencies);
     }
 
@@ -87,24 +103,43 @@ public class RawJDBCSqlRepository {
         return this.jdbcMetascopeFieldRepository.findField(connection, fieldFqdn);
     }
 
-    public void saveFields(Connection connection, Set<MetascopeField> fields, String fqdn, boolean isParameter) {
-        this.jdbcMetascopeFieldRepository.saveFields(connection, fields, fqdn, isParameter);
+    public Map<String, MetascopeField> findFields(Connection connection, String schedoscopeId) throws SQLException {
+        return this.jdbcMetascopeFieldRepository.findAllBySchedoscopeId(connection, schedoscopeId);
+    }
+
+    public void saveFields(Connection connection, Set<MetascopeField> fields, Collection<MetascopeField> storedFields,
+                           String fqdn, boolean isParameter) {
+        this.jdbcMetascopeFieldRepository.saveFields(connection, fields, storedFields, fqdn, isParameter);
     }
 
-    public void insertFieldDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> fieldDependencies) {
+    public void insertFieldDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> fieldDependencies)
+      throws SQLException {
         this.jdbcMetascopeFieldRepository.insertFieldDependencies(connection, currentTables, fieldDependencies);
     }
 
+    public void insertFieldDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> fieldDependencies,
+                                        boolean ownedOnly) throws SQLException {
+        this.jdbcMetascopeFieldRepository.insertFieldDependencies(connection, currentTables, fieldDependencies, ownedOnly);
+    }
+
     /*### MetascopeExport ###*/
     public MetascopeExport findExport(Connection connection, String exportFqdn) {
         return this.jdbcMetascopeExportRepository.findExport(connection, exportFqdn);
     }
 
+    public Map<String, MetascopeExport> findExports(Connection connection, String schedoscopeId) throws SQLException {
+        return this.jdbcMetascopeExportRepository.findAllBySchedoscopeId(connection, schedoscopeId);
+    }
+
     public void saveExports(Connection connection, List<MetascopeExport> exports, String fqdn) {
         this.jdbcMetascopeExportRepository.save(connection, exports, fqdn);
     }
 
     /*### MetascopeMetadata ###*/
+    public String getMetadata(Connection connection, String key) {
+        return this.jdbcMetascopeMetadataRepository.getMetadata(connection, key);
+    }
+
     public void saveMetadata(Connection connection, String key, String value) {
         this.jdbcMetascopeMetadataRepository.saveMetadata(connection, key, value);
     }
@@ -10,6 +10,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -57,6 +58,53 @@ public class JDBCMetascopeExportRepository extends JDBCContext {
         return export;
     }
 
+    /**
+     * Loads all exports of the tables of a Schedoscope instance including their properties, keyed by export id.
+     * Exports and properties are read with one streaming query each.
+     */
+    public Map<String, MetascopeExport> findAllBySchedoscopeId(Connection connection, String schedoscopeId)
+      throws SQLException {
+        Map<String, MetascopeExport> exports = new HashMap<>();
+        String findQuery = "select e.export_id, e.export_type, e.table_fqdn from metascope_export e "
+          + "join metascope_table t on e.table_fqdn = t.fqdn where t.schedoscope_id = ?";
+        String findPropertiesQuery = "select p.metascope_export_export_id, p.export_properties_key, p.export_properties "
+          + "from metascope_export_export_properties p join metascope_export e on p.metascope_export_export_id = e.export_id "
+          + "join metascope_table t on e.table_fqdn = t.fqdn where t.schedoscope_id = ?";
+        PreparedStatement stmt = null;
+        PreparedStatement propertiesStmt = null;
+        ResultSet rs = null;
+        ResultSet propsRs = null;
+        try {
+            stmt = prepareStreamingStatement(connection, findQuery);
+            stmt.setString(1, schedoscopeId);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                MetascopeExport export = new MetascopeExport();
+                export.setExportId(rs.getString("export_id"));
+                export.setExportType(rs.getString("export_type"));
+                export.setTableFqdn(rs.getString("table_fqdn"));
+                exports.put(export.getExportId(), export);
+            }
+            DbUtils.closeQuietly(rs);
+
+            propertiesStmt = prepareStreamingStatement(connection, findPropertiesQuery);
+            propertiesStmt.setString(1, schedoscopeId);
+            propsRs = propertiesStmt.executeQuery();
+            while (propsRs.next()) {
+                MetascopeExport export = exports.get(propsRs.getString("metascope_export_export_id"));
+                if (export != null) {
+                    export.addProperty(propsRs.getString("export_properties_key"), propsRs.getString("export_properties"));
+                }
+            }
+        } finally {
+            DbUtils.closeQuietly(rs);
+            DbUtils.closeQuietly(propsRs);
+            DbUtils.closeQuietly(stmt);
+            DbUtils.closeQuietly(propertiesStmt);
+        }
+        return exports;
+    }
+
     public void save(Connection connection, List<MetascopeExport> exports, String fqdn) {
         String deleteQuery = "delete from metascope_export where table_fqdn = ?";
         String deletePropertyQuery = "delete from metascope_export_export_properties where metascope_export_export_id = ?";
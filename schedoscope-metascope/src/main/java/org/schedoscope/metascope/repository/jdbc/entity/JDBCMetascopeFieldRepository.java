@@ -10,7 +10,10 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class JDBCMetascopeFieldRepository extends JDBCContext {
@@ -28,8 +31,8 @@ public class JDBCMetascopeFieldRepository extends JDBCContext {
 
     public MetascopeField findField(Connection connection, String fieldFqdn) {
         MetascopeField field = null;
-        String findQuery = "select field_id, field_name, field_type, field_order, is_parameter, description, comment_id, table_fqdn "
-          + "from metascope_field where field_id = ?";
+        String findQuery = "select field_id, field_name, field_type, field_order, is_parameter, description, comment_id, "
+          + "table_fqdn, content_hash from metascope_field where field_id = ?";
         PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
@@ -37,16 +40,7 @@ public class JDBCMetascopeFieldRepository extends JDBCContext {
             stmt.setString(1, fieldFqdn);
             rs = stmt.executeQuery();
             if (rs.next()) {
-                field = new MetascopeField();
-                field.setFieldId(rs.getString("field_id"));
-                field.setFieldName(rs.getString("field_name"));
-                field.setFieldType(rs.getString("field_type"));
-                field.setFieldOrder(rs.getInt("field_order"));
-                field.setParameter(rs.getBoolean("is_parameter"));
-                field.setDescription(rs.getString("description"));
-                field.setTableFqdn(rs.getString("table_fqdn"));
-                long commentId = rs.getLong("comment_id");
-                field.setCommentId(rs.wasNull() ? null : commentId);
+                field = readField(rs);
             }
         } catch (SQLException e) {
             LOG.error("Could not retrieve table", e);
@@ -57,20 +51,59 @@ public class JDBCMetascopeFieldRepository extends JDBCContext {
         return field;
     }
 
-    public void saveFields(Connection connection, Set<MetascopeField> fields, String fqdn, boolean isParameter) {
+    /**
+     * Loads all fields and parameters of the tables of a Schedoscope instance in one streaming query, keyed by
+     * field id.
+     */
+    public Map<String, MetascopeField> findAllBySchedoscopeId(Connection connection, String schedoscopeId)
+      throws SQLException {
+        Map<String, MetascopeField> fields = new HashMap<>();
+        String findQuery = "select f.field_id, f.field_name, f.field_type, f.field_order, f.is_parameter, f.description, "
+          + "f.comment_id, f.table_fqdn, f.content_hash from metascope_field f join metascope_table t on f.table_fqdn = t.fqdn "
+          + "where t.schedoscope_id = ?";
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = prepareStreamingStatement(connection, findQuery);
+            stmt.setString(1, schedoscopeId);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                MetascopeField field = readField(rs);
+                fields.put(field.getFieldId(), field);
+            }
+        } finally {
+            DbUtils.closeQuietly(rs);
+            DbUtils.closeQuietly(stmt);
+        }
+        return fields;
+    }
+
+    /**
+     * Writes the fields or parameters of a table. Only fields whose columns differ from the stored row are written,
+     * as an update if the row was written by a previous sync and as an insert otherwise. Stored fields of the table
+     * which are no longer part of it are deleted together with their mapping rows.
+     *
+     * @param storedFields the fields of the table as loaded from the repository
+     */
+    public void saveFields(Connection connection, Set<MetascopeField> fields, Collection<MetascopeField> storedFields,
+                           String fqdn, boolean isParameter) {
         String mappingTable = isParameter ? PARAMETER_MAPPING_TABLE : FIELD_MAPPING_TABLE;
         String mappingField = isParameter ? PARAMETER_MAPPING_FIELD : FIELD_MAPPING_FIELD;
 
-        String deleteQuery = "delete from metascope_field where table_fqdn = ? and is_parameter = ?";
-        String deleteFromMappingTable = "delete from " + mappingTable + " where metascope_table_fqdn = ?";
+        String deleteQuery = "delete from metascope_field where field_id = ?";
+        String deleteFromMappingTable = "delete from " + mappingTable + " where metascope_table_fqdn = ? and " + mappingField + " = ?";
         String insertIntoMetascopeField = "insert into metascope_field (field_id, field_name, field_type, field_order, "
-          + "is_parameter, description, comment_id, table_fqdn) values "
-          + "(?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update field_id=values(field_id), field_name=values(field_name), "
+          + "is_parameter, description, comment_id, table_fqdn, content_hash) values "
+          + "(?, ?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update field_id=values(field_id), field_name=values(field_name), "
           + "field_type=values(field_type), field_order=values(field_order), is_parameter=values(is_parameter), "
-          + "description=values(description), comment_id=values(comment_id), table_fqdn=values(table_fqdn)";
+          + "description=values(description), comment_id=values(comment_id), table_fqdn=values(table_fqdn), "
+          + "content_hash=values(content_hash)";
+        String updateMetascopeField = "update metascope_field set field_name=?, field_type=?, field_order=?, "
+          + "is_parameter=?, description=?, comment_id=?, table_fqdn=?, content_hash=? where field_id = ?";
         String insertIntoMappingTable = "insert into " + mappingTable + " (metascope_table_fqdn, " + mappingField + ") values "
           + "(?,?) on duplicate key update metascope_table_fqdn=values(metascope_table_fqdn), " + mappingField + "=values(" + mappingField + ")";
         PreparedStatement insertMain = null;
+        PreparedStatement updateMain = null;
         PreparedStatement insertMapping = null;
         PreparedStatement deleteStmt = null;
         PreparedStatement deleteMappingStmt = null;
@@ -78,59 +111,112 @@ public class JDBCMetascopeFieldRepository extends JDBCContext {
             int batch = 0;
             disableChecks(connection);
 
+            Set<String> fieldIds = new HashSet<>();
+            for (MetascopeField field : fields) {
+                fieldIds.add(field.getFieldId());
+            }
             deleteStmt = connection.prepareStatement(deleteQuery);
-            deleteStmt.setString(1, fqdn);
-            deleteStmt.setBoolean(2, isParameter);
-            deleteStmt.executeUpdate();
-            deleteStmt.close();
-
             deleteMappingStmt = connection.prepareStatement(deleteFromMappingTable);
-            deleteMappingStmt.setString(1, fqdn);
-            deleteMappingStmt.execute();
-            deleteMappingStmt.close();
+            for (MetascopeField storedField : storedFields) {
+                if (storedField.isParameter() == isParameter && !fieldIds.contains(storedField.getFieldId())) {
+                    deleteStmt.setString(1, storedField.getFieldId());
+                    deleteStmt.addBatch();
+                    deleteMappingStmt.setString(1, fqdn);
+                    deleteMappingStmt.setString(2, storedField.getFieldId());
+                    deleteMappingStmt.addBatch();
+                }
+            }
+            deleteStmt.executeBatch();
+            deleteMappingStmt.executeBatch();
 
             insertMain = connection.prepareStatement(insertIntoMetascopeField);
+            updateMain = connection.prepareStatement(updateMetascopeField);
             insertMapping = connection.prepareStatement(insertIntoMappingTable);
+            Map<MetascopeField, String> written = new HashMap<>();
             for (MetascopeField field : fields) {
-                insertMain.setString(1, field.getFieldId());
-                insertMain.setString(2, field.getFieldName());
-                insertMain.setString(3, field.getFieldType());
-                insertMain.setInt(4, field.getFieldOrder());
-                insertMain.setBoolean(5, field.isParameter());
-                insertMain.setString(6, field.getDescription());
-                if (field.getCommentId() == null) {
-                    insertMain.setNull(7, Types.BIGINT);
-                } else {
-                    insertMain.setLong(7, field.getCommentId());
+                String hash = contentHash(field.getFieldId(), field.getFieldName(), field.getFieldType(),
+                  field.getFieldOrder(), field.isParameter(), field.getDescription(), field.getCommentId(),
+                  field.getTableFqdn());
+                if (hash.equals(field.getContentHash())) {
+                    continue;
                 }
-                insertMain.setString(8, field.getTableFqdn());
-                insertMain.addBatch();
 
-                insertMapping.setString(1, field.getTableFqdn());
-                insertMapping.setString(2, field.getFieldId());
-                insertMapping.addBatch();
+                if (field.getContentHash() != null) {
+                    updateMain.setString(1, field.getFieldName());
+                    updateMain.setString(2, field.getFieldType());
+                    updateMain.setInt(3, field.getFieldOrder());
+                    updateMain.setBoolean(4, field.isParameter());
+                    updateMain.setString(5, field.getDescription());
+                    if (field.getCommentId() == null) {
+                        updateMain.setNull(6, Types.BIGINT);
+                    } else {
+                        updateMain.setLong(6, field.getCommentId());
+                    }
+                    updateMain.setString(7, field.getTableFqdn());
+                    updateMain.setString(8, hash);
+                    updateMain.setString(9, field.getFieldId());
+                    updateMain.addBatch();
+                } else {
+                    insertMain.setString(1, field.getFieldId());
+                    insertMain.setString(2, field.getFieldName());
+                    insertMain.setString(3, field.getFieldType());
+                    insertMain.setInt(4, field.getFieldOrder());
+                    insertMain.setBoolean(5, field.isParameter());
+                    insertMain.setString(6, field.getDescription());
+                    if (field.getCommentId() == null) {
+                        insertMain.setNull(7, Types.BIGINT);
+                    } else {
+                        insertMain.setLong(7, field.getCommentId());
+                    }
+                    insertMain.setString(8, field.getTableFqdn());
+                    insertMain.setString(9, hash);
+                    insertMain.addBatch();
+
+                    insertMapping.setString(1, field.getTableFqdn());
+                    insertMapping.setString(2, field.getFieldId());
+                    insertMapping.addBatch();
+                }
+                written.put(field, hash);
                 batch++;
                 if (batch % 1024 == 0) {
                     insertMain.executeBatch();
+                    updateMain.executeBatch();
                     insertMapping.executeBatch();
                 }
             }
             insertMain.executeBatch();
+            updateMain.executeBatch();
             insertMapping.executeBatch();
             connection.commit();
             enableChecks(connection);
+
+            for (Map.Entry<MetascopeField, String> e : written.entrySet()) {
+                e.getKey().setContentHash(e.getValue());
+            }
         } catch (SQLException e) {
             LOG.error("Could not save/update fields", e);
         } finally {
             DbUtils.closeQuietly(insertMain);
+            DbUtils.closeQuietly(updateMain);
             DbUtils.closeQuietly(insertMapping);
             DbUtils.closeQuietly(deleteStmt);
             DbUtils.closeQuietly(deleteMappingStmt);
         }
     }
 
-    public void insertFieldDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> fieldDependencies) {
-        String delSql = "delete from metascope_field_relationship where successor like ? or dependency like ?";
+    public void insertFieldDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> fieldDependencies)
+      throws SQLException {
+        insertFieldDependencies(connection, currentTables, fieldDependencies, false);
+    }
+
+    /**
+     * Replaces the lineage rows of the fields of the given tables. If ownedOnly is set, rows of fields of other
+     * tables pointing to these fields are kept (see {@link JDBCMetascopeTableRepository#saveTableDependency}).
+     */
+    public void insertFieldDependencies(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> fieldDependencies,
+                                        boolean ownedOnly) throws SQLException {
+        String delSql = ownedOnly ? "delete from metascope_field_relationship where dependency like ?"
+          : "delete from metascope_field_relationship where successor like ? or dependency like ?";
         String sql = "insert into metascope_field_relationship (successor, dependency) values (?, ?) "
           + "on duplicate key update successor=values(successor), dependency=values(dependency)";
         PreparedStatement stmt = null;
@@ -142,7 +228,9 @@ public class JDBCMetascopeFieldRepository extends JDBCContext {
             delStmt = connection.prepareStatement(delSql);
             for (MetascopeTable t : currentTables) {
                 delStmt.setString(1, t.getFqdn() + "%");
-                delStmt.setString(2, t.getFqdn() + "%");
+                if (!ownedOnly) {
+                    delStmt.setString(2, t.getFqdn() + "%");
+                }
                 delStmt.addBatch();
                 batch++;
                 if (batch % 1024 == 0) {
@@ -165,12 +253,25 @@ public class JDBCMetascopeFieldRepository extends JDBCContext {
             stmt.executeBatch();
             connection.commit();
             enableChecks(connection);
-        } catch (SQLException e) {
-            LOG.error("Could not save field deoendencies", e);
         } finally {
             DbUtils.closeQuietly(stmt);
             DbUtils.closeQuietly(delStmt);
         }
     }
 
+    private MetascopeField readField(ResultSet rs) throws SQLException {
+        MetascopeField field = new MetascopeField();
+        field.setFieldId(rs.getString("field_id"));
+        field.setFieldName(rs.getString("field_name"));
+        field.setFieldType(rs.getString("field_type"));
+        field.setFieldOrder(rs.getInt("field_order"));
+        field.setParameter(rs.getBoolean("is_parameter"));
+        field.setDescription(rs.getString("description"));
+        field.setTableFqdn(rs.getString("table_fqdn"));
+        field.setContentHash(rs.getString("content_hash"));
+        long commentId = rs.getLong("comment_id");
+        field.setCommentId(rs.wasNull() ? null : commentId);
+        return field;
+    }
+
 }
@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class JDBCMetascopeMetadataRepository extends JDBCContext {
@@ -17,6 +18,25 @@ public class JDBCMetascopeMetadataRepository extends JDBCContext {
         super(isMySQLDatabase, isH2Database);
     }
 
+    public String getMetadata(Connection connection, String key) {
+        String value = null;
+        String findQuery = "select metadata_value from metascope_metadata where metadata_key = ?";
+        PreparedStatement stmt = null;
+        try {
+            stmt = connection.prepareStatement(findQuery);
+            stmt.setString(1, key);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                value = rs.getString("metadata_value");
+            }
+        } catch (SQLException e) {
+            LOG.error("Could not retrieve metadata", e);
+        } finally {
+            DbUtils.closeQuietly(stmt);
+        }
+        return value;
+    }
+
     public void saveMetadata(Connection connection, String key, String value) {
         String insertTableSql = "insert into metascope_metadata (metadata_key, metadata_value) values "
           + "(?, ?) on duplicate key update metadata_key=values(metadata_key), metadata_value=values(metadata_value)";
@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,54 +19,26 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
 
     private static final Logger LOG = LoggerFactory.getLogger(JDBCMetascopeTableRepository.class);
 
+    private static final String SELECT_TABLE = "select fqdn, schedoscope_id, database_name, table_name, view_path, "
+          + "external_table, table_description, storage_format, input_format, output_format, materialize_once, created_at, "
+          + "table_owner, data_path, data_size, permissions, rowcount, last_data, timestamp_field, timestamp_field_format, "
+          + "last_change, last_partition_created, last_schema_change, last_transformation_timestamp, view_count, views_size, "
+          + "person_responsible, schedoscope_fingerprint, content_hash, comment_id ";
+
     public JDBCMetascopeTableRepository(boolean isMySQLDatabase, boolean isH2Database) {
         super(isMySQLDatabase, isH2Database);
     }
 
     public MetascopeTable findTable(Connection connection, String fqdn) {
         MetascopeTable table = null;
-        String findQuery = "select fqdn, schedoscope_id, database_name, table_name, view_path, "
-          + "external_table, table_description, storage_format, input_format, output_format, materialize_once, created_at, "
-          + "table_owner, data_path, data_size, permissions, rowcount, last_data, timestamp_field, timestamp_field_format, "
-          + "last_change, last_partition_created, last_schema_change, last_transformation_timestamp, view_count, views_size, "
-          + "person_responsible, comment_id "
-          + "from metascope_table where fqdn = ?";
+        String findQuery = SELECT_TABLE + "from metascope_table where fqdn = ?";
         PreparedStatement stmt = null;
         try {
             stmt = connection.prepareStatement(findQuery);
             stmt.setString(1, fqdn);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                table = new MetascopeTable();
-                table.setFqdn(rs.getString("fqdn"));
-                table.setSchedoscopeId(rs.getString("schedoscope_id"));
-                table.setDatabaseName(rs.getString("database_name"));
-                table.setTableName(rs.getString("table_name"));
-                table.setViewPath(rs.getString("view_path"));
-                table.setExternalTable(rs.getBoolean("external_table"));
-                table.setTableDescription(rs.getString("table_description"));
-                table.setStorageFormat(rs.getString("storage_format"));
-                table.setInputFormat(rs.getString("input_format"));
-                table.setOutputFormat(rs.getString("output_format"));
-                table.setMaterializeOnce(rs.getBoolean("materialize_once"));
-                table.setCreatedAt(rs.getLong("created_at"));
-                table.setTableOwner(rs.getString("table_owner"));
-                table.setDataPath(rs.getString("data_path"));
-                table.setDataSize(rs.getLong("data_size"));
-                table.setPermissions(rs.getString("permissions"));
-                table.setRowcount(rs.getLong("rowcount"));
-                table.setLastData(rs.getString("last_data"));
-                table.setTimestampField(rs.getString("timestamp_field"));
-                table.setTimestampFieldFormat(rs.getString("timestamp_field_format"));
-                table.setLastChange(rs.getLong("last_change"));
-                table.setLastPartitionCreated(rs.getLong("last_partition_created"));
-                table.setLastSchemaChange(rs.getLong("last_schema_change"));
-                table.setLastTransformation(rs.getLong("last_transformation_timestamp"));
-                table.setViewCount(rs.getInt("view_count"));
-                table.setViewsSize(rs.getInt("views_size"));
-                table.setPersonResponsible(rs.getString("person_responsible"));
-                long comment_id = rs.getLong("comment_id");
-                table.setCommentId(rs.wasNull() ? null : comment_id);
+                table = readTable(rs);
             }
         } catch (SQLException e) {
             LOG.error("Could not retrieve table", e);
@@ -77,48 +50,13 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
 
     public List<MetascopeTable> findAll(Connection connection) {
         List<MetascopeTable> metascopeTables = new ArrayList<>();
-        String findQuery = "select fqdn, schedoscope_id, database_name, table_name, view_path, "
-          + "external_table, table_description, storage_format, input_format, output_format, materialize_once, created_at, "
-          + "table_owner, data_path, data_size, permissions, rowcount, last_data, timestamp_field, timestamp_field_format, "
-          + "last_change, last_partition_created, last_schema_change, last_transformation_timestamp, view_count, views_size, "
-          + "person_responsible, comment_id "
-          + "from metascope_table";
+        String findQuery = SELECT_TABLE + "from metascope_table";
         PreparedStatement stmt = null;
         try {
             stmt = connection.prepareStatement(findQuery);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                MetascopeTable table = new MetascopeTable();
-                table.setFqdn(rs.getString("fqdn"));
-                table.setSchedoscopeId(rs.getString("schedoscope_id"));
-                table.setDatabaseName(rs.getString("database_name"));
-                table.setTableName(rs.getString("table_name"));
-                table.setViewPath(rs.getString("view_path"));
-                table.setExternalTable(rs.getBoolean("external_table"));
-                table.setTableDescription(rs.getString("table_description"));
-                table.setStorageFormat(rs.getString("storage_format"));
-                table.setInputFormat(rs.getString("input_format"));
-                table.setOutputFormat(rs.getString("output_format"));
-                table.setMaterializeOnce(rs.getBoolean("materialize_once"));
-                table.setCreatedAt(rs.getLong("created_at"));
-                table.setTableOwner(rs.getString("table_owner"));
-                table.setDataPath(rs.getString("data_path"));
-                table.setDataSize(rs.getLong("data_size"));
-                table.setPermissions(rs.getString("permissions"));
-                table.setRowcount(rs.getLong("rowcount"));
-                table.setLastData(rs.getString("last_data"));
-                table.setTimestampField(rs.getString("timestamp_field"));
-                table.setTimestampFieldFormat(rs.getString("timestamp_field_format"));
-                table.setLastChange(rs.getLong("last_change"));
-                table.setLastPartitionCreated(rs.getLong("last_partition_created"));
-                table.setLastSchemaChange(rs.getLong("last_schema_change"));
-                table.setLastTransformation(rs.getLong("last_transformation_timestamp"));
-                table.setViewCount(rs.getInt("view_count"));
-                table.setViewsSize(rs.getInt("views_size"));
-                table.setPersonResponsible(rs.getString("person_responsible"));
-                long comment_id = rs.getLong("comment_id");
-                table.setCommentId(rs.wasNull() ? null : comment_id);
-                metascopeTables.add(table);
+                metascopeTables.add(readTable(rs));
             }
         } catch (SQLException e) {
             LOG.error("Could not retrieve table", e);
@@ -128,13 +66,53 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
         return metascopeTables;
     }
 
+    /**
+     * Loads all tables of a Schedoscope instance in one streaming query, keyed by fqdn.
+     */
+    public Map<String, MetascopeTable> findAllBySchedoscopeId(Connection connection, String schedoscopeId)
+      throws SQLException {
+        Map<String, MetascopeTable> metascopeTables = new HashMap<>();
+        String findQuery = SELECT_TABLE + "from metascope_table where schedoscope_id = ?";
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = prepareStreamingStatement(connection, findQuery);
+            stmt.setString(1, schedoscopeId);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                MetascopeTable table = readTable(rs);
+                metascopeTables.put(table.getFqdn(), table);
+            }
+        } finally {
+            DbUtils.closeQuietly(rs);
+            DbUtils.closeQuietly(stmt);
+        }
+        return metascopeTables;
+    }
+
+    /**
+     * Writes the table if its columns differ from the stored row, as an update if the row was written by a previous
+     * sync and as an insert otherwise.
+     */
     public void save(Connection connection, MetascopeTable table) {
+        String hash = contentHash(table.getFqdn(), table.getSchedoscopeId(), table.getDatabaseName(), table.getTableName(),
+          table.getViewPath(), table.isExternalTable(), table.getTableDescription(), table.getStorageFormat(),
+          table.getInputFormat(), table.getOutputFormat(), table.isMaterializeOnce(), table.getCreatedAt(),
+          table.getTableOwner(), table.getDataPath(), table.getDataSize(), table.getPermissions(), table.getRowcount(),
+          table.getLastData(), table.getTimestampField(), table.getTimestampFieldFormat(), table.getLastChange(),
+          table.getLastPartitionCreated(), table.getLastSchemaChange(), table.getLastTransformation(),
+          table.getViewCount(), table.getViewsSize(), table.getPersonResponsible(), table.getSchedoscopeFingerprint(),
+          table.getCommentId());
+        if (hash.equals(table.getContentHash())) {
+            return;
+        }
+
         String insertTableSql = "insert into metascope_table (fqdn, schedoscope_id, database_name, table_name, view_path, "
           + "external_table, table_description, storage_format, input_format, output_format, materialize_once, created_at, "
           + "table_owner, data_path, data_size, permissions, rowcount, last_data, timestamp_field, timestamp_field_format, "
           + "last_change, last_partition_created, last_schema_change, last_transformation_timestamp, view_count, views_size, "
-          + "person_responsible, comment_id) values "
-          + "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update "
+          + "person_responsible, schedoscope_fingerprint, comment_id, content_hash) values "
+          + "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update "
           + "fqdn=values(fqdn), "
           + "schedoscope_id=values(schedoscope_id), "
           + "database_name=values(database_name), "
@@ -162,11 +140,20 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
           + "view_count=values(view_count), "
           + "views_size=values(views_size), "
           + "person_responsible=values(person_responsible), "
-          + "comment_id=values(comment_id)";
+          + "schedoscope_fingerprint=values(schedoscope_fingerprint), "
+          + "comment_id=values(comment_id), "
+          + "content_hash=values(content_hash)";
+        String updateTableSql = "update metascope_table set fqdn=?, schedoscope_id=?, database_name=?, table_name=?, "
+          + "view_path=?, external_table=?, table_description=?, storage_format=?, input_format=?, output_format=?, "
+          + "materialize_once=?, created_at=?, table_owner=?, data_path=?, data_size=?, permissions=?, rowcount=?, "
+          + "last_data=?, timestamp_field=?, timestamp_field_format=?, last_change=?, last_partition_created=?, "
+          + "last_schema_change=?, last_transformation_timestamp=?, view_count=?, views_size=?, person_responsible=?, "
+          + "schedoscope_fingerprint=?, comment_id=?, content_hash=? where fqdn = ?";
+        boolean stored = table.getContentHash() != null;
         PreparedStatement stmt = null;
         try {
             disableChecks(connection);
-            stmt = connection.prepareStatement(insertTableSql);
+            stmt = connection.prepareStatement(stored ? updateTableSql : insertTableSql);
             stmt.setString(1, table.getFqdn());
             stmt.setString(2, table.getSchedoscopeId());
             stmt.setString(3, table.getDatabaseName());
@@ -194,12 +181,18 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
             stmt.setInt(25, table.getViewCount());
             stmt.setInt(26, table.getViewsSize());
             stmt.setString(27, table.getPersonResponsible());
+            stmt.setString(28, table.getSchedoscopeFingerprint());
             if (table.getCommentId() == null) {
-                stmt.setNull(28, Types.BIGINT);
+                stmt.setNull(29, Types.BIGINT);
             } else {
-                stmt.setLong(28, table.getCommentId());
+                stmt.setLong(29, table.getCommentId());
+            }
+            stmt.setString(30, hash);
+            if (stored) {
+                stmt.setString(31, table.getFqdn());
             }
             stmt.execute();
+            table.setContentHash(hash);
         } catch (SQLException e) {
             LOG.error("Could not save/update table", e);
         } finally {
@@ -258,8 +251,21 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
 
     }
 
-    public void saveTableDependency(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> tableDependencies) {
-        String delSql = "delete from metascope_table_relationship where successor = ? or dependency = ?";
+    public void saveTableDependency(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> tableDependencies)
+      throws SQLException {
+        saveTableDependency(connection, currentTables, tableDependencies, false);
+    }
+
+    /**
+     * Replaces the dependency rows of the given tables. If ownedOnly is set, only the rows describing the
+     * dependencies of the given tables are removed, while rows of other tables depending on them are kept. This
+     * is what an incremental sync needs, as it only re-emits the dependencies of the tables it touched. Errors are
+     * passed on, so the caller does not mark the tables as synced.
+     */
+    public void saveTableDependency(Connection connection, Collection<MetascopeTable> currentTables, List<Dependency> tableDependencies,
+                                    boolean ownedOnly) throws SQLException {
+        String delSql = ownedOnly ? "delete from metascope_table_relationship where dependency = ?"
+          : "delete from metascope_table_relationship where successor = ? or dependency = ?";
         String sql = "insert into metascope_table_relationship (successor, dependency) values (?, ?) "
           + "on duplicate key update successor=values(successor), dependency=values(dependency)";
         PreparedStatement stmt = null;
@@ -271,7 +277,9 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
             delStmt = connection.prepareStatement(delSql);
             for (MetascopeTable t : currentTables) {
                 delStmt.setString(1, t.getFqdn());
-                delStmt.setString(2, t.getFqdn());
+                if (!ownedOnly) {
+                    delStmt.setString(2, t.getFqdn());
+                }
                 delStmt.addBatch();
                 batch++;
                 if (batch % 1024 == 0) {
@@ -294,12 +302,46 @@ public class JDBCMetascopeTableRepository extends JDBCContext {
             stmt.executeBatch();
             connection.commit();
             enableChecks(connection);
-        } catch (SQLException e) {
-            LOG.error("Could not save table deoendencies", e);
         } finally {
             DbUtils.closeQuietly(stmt);
             DbUtils.closeQuietly(delStmt);
         }
     }
 
+    private MetascopeTable readTable(ResultSet rs) throws SQLException {
+        MetascopeTable table = new MetascopeTable();
+        table.setFqdn(rs.getString("fqdn"));
+        table.setSchedoscopeId(rs.getString("schedoscope_id"));
+        table.setDatabaseName(rs.getString("database_name"));
+        table.setTableName(rs.getString("table_name"));
+        table.setViewPath(rs.getString("view_path"));
+        table.setExternalTable(rs.getBoolean("external_table"));
+        table.setTableDescription(rs.getString("table_description"));
+        table.setStorageFormat(rs.getString("storage_format"));
+        table.setInputFormat(rs.getString("input_format"));
+        table.setOutputFormat(rs.getString("output_format"));
+        table.setMaterializeOnce(rs.getBoolean("materialize_once"));
+        table.setCreatedAt(rs.getLong("created_at"));
+        table.setTableOwner(rs.getString("table_owner"));
+        table.setDataPath(rs.getString("data_path"));
+        table.setDataSize(rs.getLong("data_size"));
+        table.setPermissions(rs.getString("permissions"));
+        table.setRowcount(rs.getLong("rowcount"));
+        table.setLastData(rs.getString("last_data"));
+        table.setTimestampField(rs.getString("timestamp_field"));
+        table.setTimestampFieldFormat(rs.getString("timestamp_field_format"));
+        table.setLastChange(rs.getLong("last_change"));
+        table.setLastPartitionCreated(rs.getLong("last_partition_created"));
+        table.setLastSchemaChange(rs.getLong("last_schema_change"));
+        table.setLastTransformation(rs.getLong("last_transformation_timestamp"));
+        table.setViewCount(rs.getInt("view_count"));
+        table.setViewsSize(rs.getInt("views_size"));
+        table.setPersonResponsible(rs.getString("person_responsible"));
+        table.setSchedoscopeFingerprint(rs.getString("schedoscope_fingerprint"));
+        table.setContentHash(rs.getString("content_hash"));
+        long comment_id = rs.getLong("comment_id");
+        table.setCommentId(rs.wasNull() ? null : comment_id);
+        return table;
+    }
+
 }
@@ -12,7 +12,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class JDBCMetascopeViewRepository extends JDBCContext {
 
@@ -24,8 +26,8 @@ public class JDBCMetascopeViewRepository extends JDBCContext {
 
     public List<MetascopeView> findAll(Connection connection, String fqdn) {
         List<MetascopeView> metascopeViews = new ArrayList<>();
-        String findQuery = "select view_id, view_url, parameter_string, num_rows, total_size, last_transformation, table_fqdn "
-               + "from metascope_view where table_fqdn = ?";
+        String findQuery = "select view_id, view_url, parameter_string, num_rows, total_size, data_size, last_transformation, "
+               + "table_fqdn from metascope_view where table_fqdn = ?";
         PreparedStatement stmt = null;
         try {
             stmt = connection.prepareStatement(findQuery);
@@ -38,6 +40,7 @@ public class JDBCMetascopeViewRepository extends JDBCContext {
                 view.setParameterString(rs.getString("parameter_string"));
                 view.setNumRows(rs.getLong("num_rows"));
                 view.setTotalSize(rs.getLong("total_size"));
+                view.setDataSize(rs.getLong("data_size"));
                 view.setLastTransformation(rs.getLong("last_transformation"));
                 view.setFqdn(rs.getString("table_fqdn"));
                 metascopeViews.add(view);
@@ -50,42 +53,100 @@ public class JDBCMetascopeViewRepository extends JDBCContext {
         return metascopeViews;
     }
 
-    public void insertOrUpdateViews(Connection connection, Iterable<MetascopeView> views) {
-        String insertViewSql = "insert into metascope_view (view_id, view_url, parameter_string, table_fqdn) values "
-          + "(?, ?, ?, ?) on duplicate key update view_id=values(view_id), view_url=values(view_url), "
-          + "parameter_string=values(parameter_string), table_fqdn=values(table_fqdn)";
+    /**
+     * Loads the content hashes of all views of a Schedoscope instance in one streaming query, keyed by view id.
+     */
+    public Map<String, String> findContentHashesBySchedoscopeId(Connection connection, String schedoscopeId)
+      throws SQLException {
+        Map<String, String> hashes = new HashMap<>();
+        String findQuery = "select v.view_id, v.content_hash from metascope_view v join metascope_table t "
+          + "on v.table_fqdn = t.fqdn where t.schedoscope_id = ? and v.content_hash is not null";
         PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = prepareStreamingStatement(connection, findQuery);
+            stmt.setString(1, schedoscopeId);
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                hashes.put(rs.getString("view_id"), rs.getString("content_hash"));
+            }
+        } finally {
+            DbUtils.closeQuietly(rs);
+            DbUtils.closeQuietly(stmt);
+        }
+        return hashes;
+    }
+
+    /**
+     * Writes the views whose columns differ from the stored row, as an update if the row was written by a previous
+     * sync and as an insert otherwise. The stored hash is expected in {@link MetascopeView#getContentHash()}.
+     */
+    public void insertOrUpdateViews(Connection connection, Iterable<MetascopeView> views) throws SQLException {
+        String insertViewSql = "insert into metascope_view (view_id, view_url, parameter_string, table_fqdn, content_hash) values "
+          + "(?, ?, ?, ?, ?) on duplicate key update view_id=values(view_id), view_url=values(view_url), "
+          + "parameter_string=values(parameter_string), table_fqdn=values(table_fqdn), content_hash=values(content_hash)";
+        String updateViewSql = "update metascope_view set view_url=?, parameter_string=?, table_fqdn=?, content_hash=? "
+          + "where view_id = ?";
+        PreparedStatement stmt = null;
+        PreparedStatement updateStmt = null;
         try {
             int batch = 0;
+            int total = 0;
             disableChecks(connection);
 
             stmt = connection.prepareStatement(insertViewSql);
+            updateStmt = connection.prepareStatement(updateViewSql);
+            Map<MetascopeView, String> written = new HashMap<>();
             for (MetascopeView viewEntity : views) {
-                stmt.setString(1, viewEntity.getViewId());
-                stmt.setString(2, viewEntity.getViewUrl());
-                stmt.setString(3, viewEntity.getParameterString());
-                stmt.setString(4, viewEntity.getTable().getFqdn());
-                stmt.addBatch();
+                total++;
+                String hash = contentHash(viewEntity.getViewId(), viewEntity.getViewUrl(), viewEntity.getParameterString(),
+                  viewEntity.getTable().getFqdn());
+                if (hash.equals(viewEntity.getContentHash())) {
+                    continue;
+                }
+
+                if (viewEntity.getContentHash() != null) {
+                    updateStmt.setString(1, viewEntity.getViewUrl());
+                    updateStmt.setString(2, viewEntity.getParameterString());
+                    updateStmt.setString(3, viewEntity.getTable().getFqdn());
+                    updateStmt.setString(4, hash);
+                    updateStmt.setString(5, viewEntity.getViewId());
+                    updateStmt.addBatch();
+                } else {
+                    stmt.setString(1, viewEntity.getViewId());
+                    stmt.setString(2, viewEntity.getViewUrl());
+                    stmt.setString(3, viewEntity.getParameterString());
+                    stmt.setString(4, viewEntity.getTable().getFqdn());
+                    stmt.setString(5, hash);
+                    stmt.addBatch();
+                }
+                written.put(viewEntity, hash);
                 batch++;
                 if (batch % 10000 == 0) {
                     stmt.executeBatch();
+                    updateStmt.executeBatch();
                 }
             }
             stmt.executeBatch();
+            updateStmt.executeBatch();
             connection.commit();
             enableChecks(connection);
-        } catch (SQLException e) {
-            LOG.error("Could not save view", e);
+
+            for (Map.Entry<MetascopeView, String> e : written.entrySet()) {
+                e.getKey().setContentHash(e.getValue());
+            }
+            LOG.info("Wrote " + batch + " of " + total + " views");
         } finally {
             DbUtils.closeQuietly(stmt);
+            DbUtils.closeQuietly(updateStmt);
         }
     }
 
     public void insertOrUpdateViewMetadata(Connection connection, Iterable<MetascopeView> views) {
-        String insertViewSql = "insert into metascope_view (view_id, view_url, parameter_string, num_rows, total_size, last_transformation, table_fqdn) values "
-                + "(?, ?, ?, ?, ?, ?, ?) on duplicate key update view_id=values(view_id), view_url=values(view_url), "
+        String insertViewSql = "insert into metascope_view (view_id, view_url, parameter_string, num_rows, total_size, data_size, last_transformation, table_fqdn) values "
+                + "(?, ?, ?, ?, ?, ?, ?, ?) on duplicate key update view_id=values(view_id), view_url=values(view_url), "
                 + "parameter_string=values(parameter_string), num_rows=values(num_rows), total_size=values(total_size), "
-                + "last_transformation=values(last_transformation), table_fqdn=values(table_fqdn)";
+                + "data_size=values(data_size), last_transformation=values(last_transformation), table_fqdn=values(table_fqdn)";
         PreparedStatement stmt = null;
         try {
             int batch = 0;
@@ -98,8 +159,9 @@ public class JDBCMetascopeViewRepository extends JDBCContext {
                 stmt.setString(3, viewEntity.getParameterString());
                 stmt.setLong(4, viewEntity.getNumRows());
                 stmt.setLong(5, viewEntity.getTotalSize());
-                stmt.setLong(6, viewEntity.getLastTransformation());
-                stmt.setString(7, viewEntity.getTable().getFqdn());
+                stmt.setLong(6, viewEntity.getDataSize());
+                stmt.setLong(7, viewEntity.getLastTransformation());
+                stmt.setString(8, viewEntity.getTable().getFqdn());
                 stmt.addBatch();
                 batch++;
                 if (batch % 10000 == 0) {
@@ -116,7 +178,7 @@ public class JDBCMetascopeViewRepository extends JDBCContext {
         }
     }
 
-    public void insertViewDependencies(Connection connection, List<Dependency> viewDependencies) {
+    public void insertViewDependencies(Connection connection, List<Dependency> viewDependencies) throws SQLException {
         String sql = "insert into metascope_view_relationship (successor, dependency) values (?, ?) "
           + "on duplicate key update successor=values(successor), dependency=values(dependency)";
         PreparedStatement stmt = null;
@@ -137,8 +199,6 @@ public class JDBCMetascopeViewRepository extends JDBCContext {
             stmt.executeBatch();
             connection.commit();
             enableChecks(connection);
-        } catch (SQLException e) {
-            LOG.error("Could not save view", e);
         } finally {
             DbUtils.closeQuietly(stmt);
         }
@@ -30,7 +30,7 @@ public class MetascopeAdminService {
     @Async
     @Transactional
     public void schedule() {
-        metascopeTask.run();
+        metascopeTask.runFullSync();
     }
 
 }
@@ -15,32 +15,66 @@
  */
 package org.schedoscope.metascope.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
 import org.schedoscope.metascope.config.MetascopeConfig;
 import org.schedoscope.metascope.model.MetascopeDataDistribution;
 import org.schedoscope.metascope.model.MetascopeTable;
 import org.schedoscope.metascope.repository.MetascopeDataDistributionRepository;
+import org.schedoscope.metascope.repository.MetascopeViewRepository;
 import org.schedoscope.metascope.util.DataDistributionSqlUtil;
-import org.schedoscope.metascope.util.HiveServerConnection;
+import org.schedoscope.metascope.util.HiveServerConnectionPool;
+import org.schedoscope.metascope.util.model.ColumnProfile;
+import org.schedoscope.metascope.util.model.DataProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Calculates the data distribution of tables. Each partition is profiled
+ * once (and again after it has been transformed), the profiles are stored as
+ * mergeable sketches and merged into the metrics of the table, so
+ * recalculating the distribution only scans new partitions.
+ */
 @Service
 public class MetascopeDataDistributionService {
 
-    private static final Logger LOG = LoggerFactory.getLogger(MetascopeTableService.class);
+    private static final Logger LOG = LoggerFactory.getLogger(MetascopeDataDistributionService.class);
+
+    /**
+     * Maximum number of partitions profiled by a single query
+     */
+    private static final int PARTITIONS_PER_QUERY = 100;
+
+    /**
+     * Number of most frequent values shown per column
+     */
+    private static final int TOP_VALUES_SHOWN = 5;
+
+    /**
+     * Length of the value column, longer values (e.g. long strings) are truncated
+     */
+    private static final int MAX_VALUE_LENGTH = 255;
+
+    private static final String PROFILE_METRIC = "profile";
 
     public enum Status {
         NotAvailable, Running, Finished
@@ -49,9 +83,17 @@ public class MetascopeDataDistributionService {
     @Autowired
     private MetascopeDataDistributionRepository metascopeDataDistributionRepository;
 
+    @Autowired
+    private MetascopeViewRepository metascopeViewRepository;
+
     @Autowired
     private MetascopeConfig config;
 
+    @Autowired
+    private HiveServerConnectionPool hiveServerConnectionPool;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     private Map<String, Boolean> runningJobs;
 
     public MetascopeDataDistributionService() {
@@ -62,7 +104,7 @@ public class MetascopeDataDistributionService {
         Boolean running = runningJobs.get(table.getFqdn());
         if (running != null && running == true) {
             return Status.Running;
-        } else if (!metascopeDataDistributionRepository.findByFqdn(table.getFqdn()).isEmpty()) {
+        } else if (!metascopeDataDistributionRepository.findByFqdnAndPartitionSpecIsNull(table.getFqdn()).isEmpty()) {
             return Status.Finished;
         } else {
             return Status.NotAvailable;
@@ -71,7 +113,7 @@ public class MetascopeDataDistributionService {
 
     public Map<String, MetascopeDataDistribution> getDataDistribution(MetascopeTable table) {
         Map<String, MetascopeDataDistribution> ddMap = new LinkedHashMap<>();
-        List<MetascopeDataDistribution> ddList = metascopeDataDistributionRepository.findByFqdn(table.getFqdn());
+        List<MetascopeDataDistribution> ddList = metascopeDataDistributionRepository.findByFqdnAndPartitionSpecIsNull(table.getFqdn());
         for (MetascopeDataDistribution distribution : ddList) {
             ddMap.put(distribution.getMetric(), distribution);
         }
@@ -81,49 +123,181 @@ public class MetascopeDataDistributionService {
     @Async("background")
     public void calculateDistribution(MetascopeTable table) {
         runningJobs.put(table.getFqdn(), true);
+        try {
+            profilePartitions(table);
+            saveDistribution(table, mergeProfiles(table));
+        } catch (SQLException e) {
+            LOG.error("Could not execute hive query", e);
+        } finally {
+            runningJobs.put(table.getFqdn(), false);
+        }
+    }
 
-        String sql = DataDistributionSqlUtil.buildSql(table);
+    /**
+     * Profiles all partitions which have not been profiled since their last
+     * transformation and drops the profiles of partitions which no longer exist
+     */
+    private void profilePartitions(MetascopeTable table) throws SQLException {
+        Map<String, Long> partitions = new HashMap<>();
+        if (table.getParameters().isEmpty()) {
+            partitions.put("", table.getLastTransformation());
+        } else {
+            for (Object[] partition : metascopeViewRepository.findPartitionTransformations(table.getFqdn())) {
+                partitions.put((String) partition[0], (Long) partition[1]);
+            }
+        }
 
-        HiveServerConnection hiveConn = new HiveServerConnection(config);
+        Map<String, Long> profiled = new HashMap<>();
+        for (MetascopeDataDistribution profile : metascopeDataDistributionRepository.findByFqdnAndPartitionSpecIsNotNull(table.getFqdn())) {
+            if (partitions.containsKey(profile.getPartitionSpec())) {
+                profiled.put(profile.getPartitionSpec(), profile.getLastTransformation());
+            } else {
+                metascopeDataDistributionRepository.delete(profile);
+            }
+        }
 
-        hiveConn.connect();
+        List<String> outdated = new ArrayList<>();
+        for (Map.Entry<String, Long> partition : partitions.entrySet()) {
+            Long profiledTransformation = profiled.get(partition.getKey());
+            if (profiledTransformation == null || profiledTransformation < partition.getValue()) {
+                outdated.add(partition.getKey());
+            }
+        }
 
-        if (hiveConn.getConnection() == null) {
-            runningJobs.put(table.getFqdn(), false);
+        LOG.info("Profiling " + outdated.size() + " of " + partitions.size() + " partitions of table " + table.getFqdn());
+        for (List<String> batch : Lists.partition(outdated, PARTITIONS_PER_QUERY)) {
+            profileBatch(table, batch, partitions);
+        }
+    }
+
+    private void profileBatch(final MetascopeTable table, List<String> partitionSpecs, Map<String, Long> partitions)
+            throws SQLException {
+        List<String> values = new ArrayList<>();
+        String sql = DataDistributionSqlUtil.buildSql(table, partitionSpecs, values);
+        if (sql == null) {
             return;
         }
 
+        Map<String, DataProfile> profiles = hiveServerConnectionPool.executeQuery(null, sql, values,
+                config.getHiveServerQueryTimeout(), new HiveServerConnectionPool.ResultHandler<Map<String, DataProfile>>() {
+                    @Override
+                    public Map<String, DataProfile> handle(ResultSet rs) throws SQLException {
+                        return DataDistributionSqlUtil.readProfiles(table, rs);
+                    }
+                });
+
+        for (String partitionSpec : partitionSpecs) {
+            DataProfile profile = profiles.get(partitionSpec);
+            if (profile == null) {
+                /* partition without data */
+                profile = new DataProfile();
+            }
+
+            MetascopeDataDistribution mdd = new MetascopeDataDistribution();
+            mdd.setId(getProfileId(table, partitionSpec));
+            mdd.setFqdn(table.getFqdn());
+            mdd.setMetric(PROFILE_METRIC);
+            mdd.setPartitionSpec(partitionSpec);
+            mdd.setLastTransformation(partitions.get(partitionSpec));
+            try {
+                mdd.setSketch(objectMapper.writeValueAsString(profile));
+            } catch (IOException e) {
+                LOG.warn("Could not serialize profile of partition " + partitionSpec, e);
+                continue;
+            }
+            metascopeDataDistributionRepository.save(mdd);
+        }
+    }
+
+    /**
+     * Partition specs may be longer than the id column, so profiles are keyed by a hash of the spec
+     */
+    private String getProfileId(MetascopeTable table, String partitionSpec) {
+        MessageDigest md5;
         try {
-            Statement stmt = hiveConn.getConnection().createStatement();
-            ResultSet rs = stmt.executeQuery(sql);
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] digest = md5.digest(partitionSpec.getBytes(StandardCharsets.UTF_8));
+        return table.getFqdn() + "." + PROFILE_METRIC + "." + String.format("%032x", new BigInteger(1, digest));
+    }
+
+    private DataProfile mergeProfiles(MetascopeTable table) {
+        DataProfile merged = new DataProfile();
+        for (MetascopeDataDistribution profile : metascopeDataDistributionRepository.findByFqdnAndPartitionSpecIsNotNull(table.getFqdn())) {
+            try {
+                merged.merge(objectMapper.readValue(profile.getSketch(), DataProfile.class));
+            } catch (IOException e) {
+                LOG.warn("Could not read profile of partition " + profile.getPartitionSpec(), e);
+            }
+        }
+        return merged;
+    }
 
-            ResultSetMetaData rsmd = rs.getMetaData();
+    private void saveDistribution(MetascopeTable table, DataProfile profile) {
+        Map<String, String> metrics = new LinkedHashMap<>();
+        metrics.put("agg_rows", String.valueOf(profile.getRows()));
+        for (Map.Entry<String, ColumnProfile> e : profile.getColumns().entrySet()) {
+            String fn = e.getKey();
+            ColumnProfile column = e.getValue();
+            putMetric(metrics, fn + "__nulls", format(100 * column.nullRatio(profile.getRows())) + "%");
+            putMetric(metrics, fn + "__min", column.getMin());
+            putMetric(metrics, fn + "__max", column.getMax());
+            putMetric(metrics, fn + "__distinct", column.distinctCount());
 
-            List<String> columnNames = new ArrayList<>();
-            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-                columnNames.add(rsmd.getColumnName(i));
+            if (ColumnProfile.NUMERIC.equals(column.getKind())) {
+                putMetric(metrics, fn + "__sum", format(column.getSum()));
+                putMetric(metrics, fn + "__avg", format(column.average()));
+                putMetric(metrics, fn + "__stddev", format(column.standardDeviation()));
+                putMetric(metrics, fn + "__p25", format(column.quantile(0.25)));
+                putMetric(metrics, fn + "__p50", format(column.quantile(0.5)));
+                putMetric(metrics, fn + "__p75", format(column.quantile(0.75)));
+            } else if (ColumnProfile.BOOLEAN.equals(column.getKind())) {
+                putMetric(metrics, fn + "__true", column.getTrueCount());
+                putMetric(metrics, fn + "__false", column.getCount() - column.getTrueCount());
             }
 
-            long ts = System.currentTimeMillis();
-            if (rs.next()) {
-                for (String columnName : columnNames) {
-                    MetascopeDataDistribution mdd = new MetascopeDataDistribution();
-                    mdd.setId(table.getFqdn() + "." + columnName);
-                    mdd.setFqdn(table.getFqdn());
-                    mdd.setMetric(columnName);
-                    mdd.setValue(rs.getString(columnName));
-                    metascopeDataDistributionRepository.save(mdd);
+            Map<String, Double> topValues = column.topValues(TOP_VALUES_SHOWN);
+            if (topValues != null && !topValues.isEmpty()) {
+                String top = "";
+                for (Map.Entry<String, Double> value : topValues.entrySet()) {
+                    top += (top.isEmpty() ? "" : ", ") + value.getKey() + " (" + format(value.getValue()) + ")";
                 }
+                metrics.put(fn + "__topk", top);
             }
-        } catch (SQLException e) {
-            hiveConn.close();
-            runningJobs.put(table.getFqdn(), false);
-            LOG.error("Could not execute hive query", e);
         }
 
-        hiveConn.close();
+        for (MetascopeDataDistribution distribution : metascopeDataDistributionRepository.findByFqdnAndPartitionSpecIsNull(table.getFqdn())) {
+            if (!metrics.containsKey(distribution.getMetric())) {
+                metascopeDataDistributionRepository.delete(distribution);
+            }
+        }
+        for (Map.Entry<String, String> metric : metrics.entrySet()) {
+            MetascopeDataDistribution mdd = new MetascopeDataDistribution();
+            mdd.setId(table.getFqdn() + "." + metric.getKey());
+            mdd.setFqdn(table.getFqdn());
+            mdd.setMetric(metric.getKey());
+            String value = metric.getValue();
+            mdd.setValue(value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH - 3) + "..." : value);
+            metascopeDataDistributionRepository.save(mdd);
+        }
+    }
+
+    private void putMetric(Map<String, String> metrics, String metric, Object value) {
+        if (value != null) {
+            metrics.put(metric, value.toString());
+        }
+    }
 
-        runningJobs.put(table.getFqdn(), false);
+    private String format(Double value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.isNaN() || value.isInfinite()) {
+            return value.toString();
+        }
+        return new BigDecimal(value).round(new MathContext(10)).stripTrailingZeros().toPlainString();
     }
 
 }
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.service;
+
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.repository.MetascopeFieldRepository;
+import org.schedoscope.metascope.repository.MetascopeTableRepository;
+import org.schedoscope.metascope.util.LineageGraph;
+import org.schedoscope.metascope.util.model.MetascopeLineageEdge;
+import org.schedoscope.metascope.util.model.MetascopeLineageNode;
+import org.schedoscope.metascope.util.model.MetascopeSchemaLineage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves table and field lineage from in-memory {@link LineageGraph}s. The
+ * graphs are loaded with one query each and rebuilt after every sync, which
+ * is the only way lineage changes.
+ */
+@Service
+public class MetascopeLineageService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetascopeLineageService.class);
+
+    @Autowired
+    private MetascopeTableRepository metascopeTableRepository;
+
+    @Autowired
+    private MetascopeFieldRepository metascopeFieldRepository;
+
+    private volatile LineageGraph tableGraph;
+    private volatile LineageGraph fieldGraph;
+
+    /**
+     * Reloads the lineage graphs from the repository
+     */
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+
+        LineageGraph.Builder tables = new LineageGraph.Builder();
+        for (Object[] row : metascopeTableRepository.findLineage()) {
+            tables.addDependency((String) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4],
+                    (String) row[5]);
+        }
+
+        LineageGraph.Builder fields = new LineageGraph.Builder();
+        for (Object[] row : metascopeFieldRepository.findLineage()) {
+            fields.addDependency((String) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4],
+                    (String) row[5]);
+        }
+
+        this.tableGraph = tables.build();
+        this.fieldGraph = fields.build();
+        LOG.info("Built lineage graphs with " + tableGraph.size() + " tables and " + fieldGraph.size() + " fields in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * @return the tables the given table depends on, directly or transitively,
+     * nearest first. The returned tables are detached and only carry their names.
+     */
+    public List<MetascopeTable> getTransitiveDependencies(MetascopeTable table, int maxDepth) {
+        return getTransitiveTables(table, true, maxDepth);
+    }
+
+    /**
+     * @return the tables depending on the given table, directly or transitively,
+     * nearest first. The returned tables are detached and only carry their names.
+     */
+    public List<MetascopeTable> getTransitiveSuccessors(MetascopeTable table, int maxDepth) {
+        return getTransitiveTables(table, false, maxDepth);
+    }
+
+    public Set<MetascopeLineageEdge> getViewLineage(MetascopeTable table, int maxDepth) {
+        LineageGraph graph = getTableGraph();
+        int[] start = new int[]{graph.indexOf(table.getFqdn())};
+        Set<MetascopeLineageEdge> result = new HashSet<>();
+
+        List<int[]> edges = new ArrayList<>();
+        graph.traverse(start, true, maxDepth, edges);
+        for (int[] edge : edges) {
+            result.add(new MetascopeLineageEdge(getNode(graph, edge[1]), getNode(graph, edge[0])));
+        }
+
+        edges.clear();
+        graph.traverse(start, false, maxDepth, edges);
+        for (int[] edge : edges) {
+            result.add(new MetascopeLineageEdge(getNode(graph, edge[0]), getNode(graph, edge[1])));
+        }
+        return result;
+    }
+
+    public MetascopeSchemaLineage getSchemaLineage(MetascopeTable table, int maxDepth) {
+        LineageGraph graph = getFieldGraph();
+        List<Integer> startNodes = new ArrayList<>();
+        for (MetascopeField field : table.getFields()) {
+            int node = graph.indexOf(field.getFieldId());
+            if (node >= 0) {
+                startNodes.add(node);
+            }
+        }
+        int[] starts = new int[startNodes.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = startNodes.get(i);
+        }
+
+        MetascopeSchemaLineage schemaLineage = new MetascopeSchemaLineage();
+        schemaLineage.setForwardEdges(getFieldEdges(graph, starts, false, maxDepth));
+        schemaLineage.setBackwardEdges(getFieldEdges(graph, starts, true, maxDepth));
+        return schemaLineage;
+    }
+
+    private List<MetascopeTable> getTransitiveTables(MetascopeTable table, boolean dependencies, int maxDepth) {
+        LineageGraph graph = getTableGraph();
+        List<MetascopeTable> result = new ArrayList<>();
+        int node = graph.indexOf(table.getFqdn());
+        if (node < 0) {
+            return result;
+        }
+
+        for (int other : graph.traverse(new int[]{node}, dependencies, maxDepth, null)) {
+            MetascopeTable otherTable = new MetascopeTable();
+            otherTable.setFqdn(graph.getId(other));
+            otherTable.setTableName(graph.getLabel(other));
+            otherTable.setDatabaseName(graph.getParent(other));
+            result.add(otherTable);
+        }
+        return result;
+    }
+
+    private List<MetascopeLineageEdge> getFieldEdges(LineageGraph graph, int[] starts, boolean dependencies, int maxDepth) {
+        List<int[]> edges = new ArrayList<>();
+        graph.traverse(starts, dependencies, maxDepth, edges);
+
+        List<MetascopeLineageEdge> result = new ArrayList<>(edges.size());
+        for (int[] edge : edges) {
+            result.add(new MetascopeLineageEdge(getNode(graph, edge[0]), getNode(graph, edge[1])));
+        }
+        return result;
+    }
+
+    private MetascopeLineageNode getNode(LineageGraph graph, int node) {
+        return new MetascopeLineageNode(graph.getId(node), graph.getLabel(node), graph.getParent(node));
+    }
+
+    private LineageGraph getTableGraph() {
+        if (tableGraph == null) {
+            buildIfMissing();
+        }
+        return tableGraph;
+    }
+
+    private LineageGraph getFieldGraph() {
+        if (fieldGraph == null) {
+            buildIfMissing();
+        }
+        return fieldGraph;
+    }
+
+    private synchronized void buildIfMissing() {
+        if (tableGraph == null || fieldGraph == null) {
+            rebuild();
+        }
+    }
+
+}
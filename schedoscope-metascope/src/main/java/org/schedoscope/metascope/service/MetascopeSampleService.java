@@ -0,0 +1,349 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.model.MetascopeSample;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeView;
+import org.schedoscope.metascope.repository.MetascopeSampleRepository;
+import org.schedoscope.metascope.repository.MetascopeTableRepository;
+import org.schedoscope.metascope.repository.MetascopeViewRepository;
+import org.schedoscope.metascope.util.HiveQueryExecutor;
+import org.schedoscope.metascope.util.model.HiveQueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves data samples from the Metascope database. Samples are keyed by
+ * table and partition spec, so they survive restarts and are shared by all
+ * Metascope instances. A sample taken before the last transformation of the
+ * partitions it covers is still served, but refreshed in the background.
+ */
+@Service
+public class MetascopeSampleService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetascopeSampleService.class);
+
+    private static final int MAX_ID_LENGTH = 766;
+
+    private static final TypeReference<List<String>> HEADER_TYPE = new TypeReference<List<String>>() {
+    };
+    private static final TypeReference<List<List<String>>> ROWS_TYPE = new TypeReference<List<List<String>>>() {
+    };
+
+    @Autowired
+    private MetascopeSampleRepository metascopeSampleRepository;
+
+    @Autowired
+    private MetascopeTableRepository metascopeTableRepository;
+
+    @Autowired
+    private MetascopeViewRepository metascopeViewRepository;
+
+    @Autowired
+    private HiveQueryExecutor hiveQueryExecutor;
+
+    @Autowired
+    @Qualifier("background")
+    private TaskExecutor backgroundExecutor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Returns a sample of the given table. Without partition parameters the
+     * sample is taken from the most recently transformed partition.
+     *
+     * @param user   the user requesting the sample
+     * @param table  the table to sample
+     * @param params partition parameters to filter the sample
+     * @return the stored sample, or a freshly queried one if none is stored yet
+     */
+    public HiveQueryResult getSample(String user, MetascopeTable table, Map<String, String> params) {
+        Map<String, String> filter = getPartitionFilter(table, params);
+        if (filter == null) {
+            /* not a partition of this table, let the query executor reject it */
+            return hiveQueryExecutor.executeQuery(user, table.getDatabaseName(), table.getTableName(),
+                    table.getFieldsCommaDelimited(), table.getParameters(), params);
+        }
+
+        String partitionSpec = toPartitionSpec(filter);
+        MetascopeSample sample = findSample(table.getFqdn(), partitionSpec);
+        if (sample == null) {
+            return takeSample(user, table, partitionSpec);
+        }
+
+        Long lastTransformation = getLastTransformation(table, partitionSpec);
+        if (lastTransformation != null && sample.getLastTransformation() < lastTransformation) {
+            refreshInBackground(table.getFqdn(), partitionSpec);
+        }
+        return toQueryResult(sample);
+    }
+
+    /**
+     * @return the tables with stored samples
+     */
+    public Set<String> getSampledTables() {
+        return new HashSet<>(metascopeSampleRepository.findSampledTables());
+    }
+
+    /**
+     * Refreshes the stored samples of the given table whose partitions have
+     * been transformed since they were taken, in the background. Samples of
+     * partitions which no longer exist are removed.
+     *
+     * @param table                    the table, with its last transformation
+     * @param partitionTransformations the last transformation of each existing
+     *                                 partition, keyed by parameter string
+     */
+    public void refreshSamples(MetascopeTable table, Map<String, Long> partitionTransformations) {
+        for (MetascopeSample sample : metascopeSampleRepository.findByFqdn(table.getFqdn())) {
+            String partitionSpec = sample.getPartitionSpec();
+            long lastTransformation = table.getLastTransformation();
+            if (partitionSpec != null && !partitionSpec.isEmpty()) {
+                Long partitionTransformation = getLastTransformation(partitionTransformations, partitionSpec);
+                if (partitionTransformation == null) {
+                    LOG.info("Partition " + partitionSpec + " of table " + table.getFqdn() + " no longer exists, "
+                            + "removing its sample");
+                    metascopeSampleRepository.delete(sample.getId());
+                    continue;
+                }
+                lastTransformation = partitionTransformation;
+            }
+            if (sample.getLastTransformation() < lastTransformation) {
+                refreshInBackground(sample.getFqdn(), partitionSpec);
+            }
+        }
+    }
+
+    private void refreshInBackground(final String fqdn, final String partitionSpec) {
+        final String id = getSampleId(fqdn, partitionSpec);
+        if (!refreshing.add(id)) {
+            return;
+        }
+
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    MetascopeTable table = metascopeTableRepository.findOne(fqdn);
+                    if (table == null) {
+                        metascopeSampleRepository.delete(id);
+                        return;
+                    }
+                    takeSample(null, table, partitionSpec);
+                } catch (Exception e) {
+                    LOG.warn("Could not refresh sample for table " + fqdn, e);
+                } finally {
+                    refreshing.remove(id);
+                }
+            }
+        });
+    }
+
+    private HiveQueryResult takeSample(String user, MetascopeTable table, String partitionSpec) {
+        Long lastTransformation = getLastTransformation(table, partitionSpec);
+
+        Map<String, String> filter = parsePartitionSpec(partitionSpec);
+        if (filter.isEmpty() && !table.getParameters().isEmpty()) {
+            MetascopeView latest = metascopeViewRepository.findFirstByTableFqdnOrderByLastTransformationDesc(table.getFqdn());
+            if (latest != null) {
+                filter = latest.getParameters();
+            }
+        }
+
+        HiveQueryResult result = hiveQueryExecutor.executeQuery(user, table.getDatabaseName(), table.getTableName(),
+                table.getFieldsCommaDelimited(), table.getParameters(), filter);
+        /* samples of unknown partitions are not stored, the sync could never refresh or remove them */
+        if (result.getErrorMessage() == null && lastTransformation != null) {
+            saveSample(table.getFqdn(), partitionSpec, lastTransformation, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the last transformation of the partitions covered by the given
+     * spec, the one of the table for an empty spec, or null if no partition
+     * matches
+     */
+    private Long getLastTransformation(MetascopeTable table, String partitionSpec) {
+        if (partitionSpec == null || partitionSpec.isEmpty()) {
+            return table.getLastTransformation();
+        }
+        String prefix = partitionSpec.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "/%";
+        return metascopeViewRepository.findLastTransformation(table.getFqdn(), partitionSpec, prefix);
+    }
+
+    /**
+     * Same as {@link #getLastTransformation(MetascopeTable, String)} for a
+     * non-empty spec, on the partitions reported by the metastore sync
+     */
+    private Long getLastTransformation(Map<String, Long> partitionTransformations, String partitionSpec) {
+        Long lastTransformation = null;
+        for (Map.Entry<String, Long> partition : partitionTransformations.entrySet()) {
+            String parameterString = partition.getKey();
+            if (parameterString.equals(partitionSpec) || parameterString.startsWith(partitionSpec + "/")) {
+                if (lastTransformation == null || partition.getValue() > lastTransformation) {
+                    lastTransformation = partition.getValue();
+                }
+            }
+        }
+        return lastTransformation;
+    }
+
+    private MetascopeSample findSample(String fqdn, String partitionSpec) {
+        String id = getSampleId(fqdn, partitionSpec);
+        if (id.length() > MAX_ID_LENGTH) {
+            return null;
+        }
+        return metascopeSampleRepository.findOne(id);
+    }
+
+    private void saveSample(String fqdn, String partitionSpec, long lastTransformation, HiveQueryResult result) {
+        String id = getSampleId(fqdn, partitionSpec);
+        if (id.length() > MAX_ID_LENGTH) {
+            return;
+        }
+
+        MetascopeSample sample = new MetascopeSample();
+        sample.setId(id);
+        sample.setFqdn(fqdn);
+        sample.setPartitionSpec(partitionSpec);
+        sample.setLastTransformation(lastTransformation);
+        sample.setSampledAt(System.currentTimeMillis());
+        try {
+            sample.setHeader(objectMapper.writeValueAsString(result.getHeader()));
+            sample.setRows(objectMapper.writeValueAsString(result.getRows()));
+        } catch (IOException e) {
+            LOG.warn("Could not serialize sample for table " + fqdn, e);
+            return;
+        }
+        try {
+            metascopeSampleRepository.save(sample);
+        } catch (DataAccessException | TransactionException e) {
+            /* the query result is served anyway, the next request samples again */
+            LOG.warn("Could not store sample for table " + fqdn, e);
+        }
+    }
+
+    private HiveQueryResult toQueryResult(MetascopeSample sample) {
+        try {
+            List<String> header = objectMapper.readValue(sample.getHeader(), HEADER_TYPE);
+            List<List<String>> rows = objectMapper.readValue(sample.getRows(), ROWS_TYPE);
+            return new HiveQueryResult(header, rows);
+        } catch (IOException e) {
+            LOG.warn("Could not read stored sample " + sample.getId(), e);
+            return new HiveQueryResult("Internal error");
+        }
+    }
+
+    /**
+     * @return the non-empty partition parameters in partition order, or null if
+     * a parameter is not a partition column of the table
+     */
+    private Map<String, String> getPartitionFilter(MetascopeTable table, Map<String, String> params) {
+        Map<String, String> filter = new LinkedHashMap<>();
+        if (params == null || params.isEmpty()) {
+            return filter;
+        }
+
+        Set<String> parameterNames = new HashSet<>();
+        for (MetascopeField parameter : table.getParameters()) {
+            parameterNames.add(parameter.getFieldName());
+        }
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String key = param.getKey();
+            if (key.equals("fqdn") || key.equals("_csrf") || param.getValue() == null || param.getValue().isEmpty()) {
+                continue;
+            }
+            if (!parameterNames.contains(key)) {
+                return null;
+            }
+        }
+
+        for (MetascopeField parameter : table.getOrderedParameters()) {
+            String value = params.get(parameter.getFieldName());
+            if (value != null && !value.isEmpty()) {
+                filter.put(parameter.getFieldName(), value);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Partition specs use the format of {@link MetascopeView#getParameterString()},
+     * e.g. "/year=2017/month=01"
+     */
+    private String toPartitionSpec(Map<String, String> filter) {
+        StringBuilder spec = new StringBuilder();
+        for (Map.Entry<String, String> e : filter.entrySet()) {
+            spec.append('/').append(e.getKey()).append('=').append(e.getValue());
+        }
+        return spec.toString();
+    }
+
+    private Map<String, String> parsePartitionSpec(String partitionSpec) {
+        Map<String, String> filter = new LinkedHashMap<>();
+        if (partitionSpec == null || partitionSpec.isEmpty()) {
+            return filter;
+        }
+        String[] params = partitionSpec.split("/");
+        for (int i = 1; i < params.length; i++) {
+            int idx = params[i].indexOf('=');
+            filter.put(params[i].substring(0, idx), params[i].substring(idx + 1));
+        }
+        return filter;
+    }
+
+    private String getSampleId(String fqdn, String partitionSpec) {
+        return fqdn + partitionSpec;
+    }
+
+    public void setMetascopeSampleRepository(MetascopeSampleRepository metascopeSampleRepository) {
+        this.metascopeSampleRepository = metascopeSampleRepository;
+    }
+
+    public void setMetascopeTableRepository(MetascopeTableRepository metascopeTableRepository) {
+        this.metascopeTableRepository = metascopeTableRepository;
+    }
+
+    public void setMetascopeViewRepository(MetascopeViewRepository metascopeViewRepository) {
+        this.metascopeViewRepository = metascopeViewRepository;
+    }
+
+    public void setHiveQueryExecutor(HiveQueryExecutor hiveQueryExecutor) {
+        this.hiveQueryExecutor = hiveQueryExecutor;
+    }
+
+    public void setBackgroundExecutor(TaskExecutor backgroundExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
+    }
+
+}
@@ -15,16 +15,12 @@
  */
 package org.schedoscope.metascope.service;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.LoadingCache;
 import org.schedoscope.metascope.index.SolrFacade;
 import org.schedoscope.metascope.model.*;
 import org.schedoscope.metascope.repository.MetascopeCategoryObjectRepository;
 import org.schedoscope.metascope.repository.MetascopeTableRepository;
 import org.schedoscope.metascope.repository.MetascopeViewRepository;
-import org.schedoscope.metascope.util.HiveQueryExecutor;
-import org.schedoscope.metascope.util.LineageUtil;
-import org.schedoscope.metascope.util.SampleCacheLoader;
+import org.schedoscope.metascope.util.LineageGraph;
 import org.schedoscope.metascope.util.model.CategoryMap;
 import org.schedoscope.metascope.util.model.HiveQueryResult;
 import org.schedoscope.metascope.util.model.MetascopeLineageEdge;
@@ -40,10 +36,8 @@ import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 @Service
 public class MetascopeTableService {
@@ -70,18 +64,13 @@ public class MetascopeTableService {
     private SolrFacade solr;
 
     @Autowired
-    private HiveQueryExecutor hiveQueryExecutor;
+    private MetascopeSampleService metascopeSampleService;
 
-    /**
-     * sample cache
-     */
-    private LoadingCache<String, HiveQueryResult> sampleCache;
+    @Autowired
+    private MetascopeLineageService metascopeLineageService;
 
-    @PostConstruct
-    public void init() {
-        this.sampleCache = CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(1, TimeUnit.DAYS)
-                .build(new SampleCacheLoader(this, hiveQueryExecutor));
-    }
+    @Autowired
+    private MetascopeTableViewCache metascopeTableViewCache;
 
     public MetascopeTable findByFqdn(String fqdn) {
         if (fqdn == null) {
@@ -90,6 +79,49 @@ public class MetascopeTableService {
         return metascopeTableRepository.findOne(fqdn);
     }
 
+    /**
+     * Loads the tables of a search result page with a single query. The
+     * returned tables are detached and only carry the attributes shown on a
+     * search result (names, description, timestamps and parameters).
+     *
+     * @param fqdns fqdns of the tables to load
+     * @return the tables by fqdn
+     */
+    public Map<String, MetascopeTable> findSearchResults(Collection<String> fqdns) {
+        Map<String, MetascopeTable> tables = new HashMap<String, MetascopeTable>();
+        if (fqdns.isEmpty()) {
+            return tables;
+        }
+
+        for (Object[] row : metascopeTableRepository.findSearchResults(fqdns)) {
+            String fqdn = (String) row[0];
+            MetascopeTable table = tables.get(fqdn);
+            if (table == null) {
+                table = new MetascopeTable();
+                table.setFqdn(fqdn);
+                table.setSchedoscopeId((String) row[1]);
+                table.setDatabaseName((String) row[2]);
+                table.setTableName((String) row[3]);
+                table.setViewPath((String) row[4]);
+                table.setTableDescription((String) row[5]);
+                table.setLastData((String) row[6]);
+                table.setTimestampFieldFormat((String) row[7]);
+                table.setLastTransformation((Long) row[8]);
+                table.setLastPartitionCreated((Long) row[9]);
+                table.setParameters(new LinkedHashSet<MetascopeField>());
+                tables.put(fqdn, table);
+            }
+            if (row[10] != null) {
+                MetascopeField parameter = new MetascopeField();
+                parameter.setFieldId((String) row[10]);
+                parameter.setFieldName((String) row[11]);
+                parameter.setParameter(true);
+                table.getParameters().add(parameter);
+            }
+        }
+        return tables;
+    }
+
     public List<MetascopeTable> getTopFiveTables() {
         return metascopeTableRepository.findTop5ByOrderByViewCountDesc();
     }
@@ -101,6 +133,7 @@ public class MetascopeTableService {
     @Transactional
     public void save(MetascopeTable table) {
         this.metascopeTableRepository.save(table);
+        metascopeTableViewCache.invalidate(table.getFqdn());
     }
 
     public Map<String, CategoryMap> getTableTaxonomies(MetascopeTable table) {
@@ -173,6 +206,7 @@ public class MetascopeTableService {
         }
 
         metascopeTableRepository.save(table);
+        metascopeTableViewCache.invalidate(fqdn);
         solr.updateTableEntityAsync(table, true);
         LOG.info("User '{}' changed category objects for table '{}' to '{}'", metascopeUserService.getUser().getUsername(),
                 fqdn, categoryObjectList);
@@ -199,6 +233,7 @@ public class MetascopeTableService {
             }
         }
         metascopeTableRepository.save(table);
+        metascopeTableViewCache.invalidate(fqdn);
         solr.updateTableEntityAsync(table, true);
         LOG.info("User '{}' changed tags for table '{}' to '{}'", metascopeUserService.getUser().getUsername(), fqdn,
                 tagsCommaDelimited);
@@ -214,6 +249,7 @@ public class MetascopeTableService {
                 if (user != null) {
                     table.setPersonResponsible(user.getFullname());
                     metascopeTableRepository.save(table);
+                    metascopeTableViewCache.invalidate(fqdn);
                     LOG.info("User '{}' changed responsible person for table '{}' to '{}'", metascopeUserService.getUser()
                             .getUsername(), fqdn, fullname);
                     metascopeActivityService.createUpdateTableMetadataActivity(table, metascopeUserService.getUser()
@@ -221,6 +257,7 @@ public class MetascopeTableService {
                 } else if (!fullname.isEmpty()) {
                     table.setPersonResponsible(fullname);
                     metascopeTableRepository.save(table);
+                    metascopeTableViewCache.invalidate(fqdn);
                     LOG.info("User '{}' changed responsible person for table '{}' to '{}'", metascopeUserService.getUser()
                             .getUsername(), fqdn, fullname);
                     metascopeActivityService.createUpdateTableMetadataActivity(table, metascopeUserService.getUser()
@@ -240,6 +277,7 @@ public class MetascopeTableService {
                 table.setTimestampFieldFormat(dataTimestampFieldFormat);
             }
             metascopeTableRepository.save(table);
+            metascopeTableViewCache.invalidate(fqdn);
             LOG.info("User '{}' changed timestamp field for table '{}' to '{}' with format '{}'", metascopeUserService.getUser()
                     .getUsername(), fqdn, dataTimestampField, dataTimestampFieldFormat);
             metascopeActivityService.createUpdateTableMetadataActivity(table, metascopeUserService.getUser().getUsername());
@@ -257,69 +295,35 @@ public class MetascopeTableService {
     }
 
     @Transactional
-    public Set<MetascopeLineageEdge> getViewLineage(MetascopeTable table) {
-        return LineageUtil.getViewLineage(table);
+    public Set<MetascopeLineageEdge> getViewLineage(MetascopeTable table, int maxDepth) {
+        return metascopeLineageService.getViewLineage(table, maxDepth);
     }
 
     @Transactional
-    public MetascopeSchemaLineage getSchemaLineage(MetascopeTable table) {
-        return LineageUtil.getSchemaLineage(table);
+    public MetascopeSchemaLineage getSchemaLineage(MetascopeTable table, int maxDepth) {
+        return metascopeLineageService.getSchemaLineage(table, maxDepth);
     }
 
     @Async
     @Transactional
-    public Future<HiveQueryResult> getSample(String fqdn, Map<String, String> params) {
-        if (params == null || params.isEmpty()) {
-            return new AsyncResult<HiveQueryResult>(sampleCache.getUnchecked(fqdn));
-        } else {
-            MetascopeTable table = metascopeTableRepository.findOne(fqdn);
-            return new AsyncResult<HiveQueryResult>(hiveQueryExecutor.executeQuery(table.getDatabaseName(), table.getTableName(),
-                    table.getFieldsCommaDelimited(), table.getParameters(), params));
+    public Future<HiveQueryResult> getSample(String user, String fqdn, Map<String, String> params) {
+        MetascopeTable table = metascopeTableRepository.findOne(fqdn);
+        if (table == null) {
+            return new AsyncResult<HiveQueryResult>(new HiveQueryResult("Internal error"));
         }
+        return new AsyncResult<HiveQueryResult>(metascopeSampleService.getSample(user, table, params));
     }
 
     public Page<MetascopeView> getRequestedViewPage(String fqdn, Pageable pageable) {
         return metascopeViewRepository.findByTableFqdnOrderByViewId(fqdn, pageable);
     }
 
-    @Transactional
-    public String getRandomParameterValue(MetascopeTable table, MetascopeField parameter) {
-        MetascopeView viewEntity = metascopeViewRepository.findFirstByTableFqdn(table.getFqdn());
-        return viewEntity.getParameters().get(parameter.getFieldName());
-    }
-
     public List<MetascopeTable> getTransitiveDependencies(MetascopeTable table) {
-        List<MetascopeTable> dependencies = new ArrayList<>();
-        for (MetascopeTable dependency : table.getDependencies()) {
-            getRecursiveDependencies(dependencies, dependency);
-        }
-        return dependencies;
-    }
-
-    private void getRecursiveDependencies(List<MetascopeTable> dependencies, MetascopeTable table) {
-        if (!dependencies.contains(table)) {
-            dependencies.add(table);
-            for (MetascopeTable dependency : table.getDependencies()) {
-                getRecursiveDependencies(dependencies, dependency);
-            }
-        }
+        return metascopeLineageService.getTransitiveDependencies(table, LineageGraph.UNLIMITED);
     }
 
     public List<MetascopeTable> getTransitiveSuccessors(MetascopeTable table) {
-        List<MetascopeTable> successors = new ArrayList<>();
-        for (MetascopeTable successor : table.getSuccessors()) {
-            getRecursiveSuccessors(successors, successor);
-        }
-        return successors;
-    }
-
-    private void getRecursiveSuccessors(List<MetascopeTable> successors, MetascopeTable table) {
-        if (!successors.contains(table)) {
-            successors.add(table);
-            for (MetascopeTable successor : table.getSuccessors()) {
-                getRecursiveSuccessors(successors, successor);
-            }
-        }
+        return metascopeLineageService.getTransitiveSuccessors(table, LineageGraph.UNLIMITED);
     }
 
     public Map<String, Set<String>> getParameterValues(MetascopeTable table) {
@@ -400,4 +404,8 @@ public class MetascopeTableService {
         return fieldDeps;
     }
 
+    public void setMetascopeTableRepository(MetascopeTableRepository metascopeTableRepository) {
+        this.metascopeTableRepository = metascopeTableRepository;
+    }
+
 }
@@ -0,0 +1,210 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.schedoscope.metascope.model.MetascopeCategory;
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeTaxonomy;
+import org.schedoscope.metascope.util.model.CategoryMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the parts of the table detail page which are the same for every user
+ * and only change with a sync or an edit: the field dependencies and
+ * successors and the taxonomies of a table, as well as all taxonomies.
+ * <p>
+ * Entries are versioned. A sync bumps the global version, an edit of a table
+ * bumps the version of that table, and entries built for an older version
+ * are rebuilt on the next request.
+ */
+@Service
+public class MetascopeTableViewCache {
+
+    private static final int MAX_TABLES = 1000;
+
+    @Autowired
+    @Lazy
+    private MetascopeTableService metascopeTableService;
+
+    @Autowired
+    @Lazy
+    private MetascopeTaxonomyService metascopeTaxonomyService;
+
+    private final AtomicLong version = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private final Cache<String, TableDetails> tableDetails = CacheBuilder.newBuilder().maximumSize(MAX_TABLES).build();
+    private volatile Taxonomies taxonomies;
+
+    public TableDetails getTableDetails(MetascopeTable table) {
+        String fqdn = table.getFqdn();
+        long globalVersion = version.get();
+        long tableVersion = getTableVersion(fqdn).get();
+
+        TableDetails details = tableDetails.getIfPresent(fqdn);
+        if (details == null || details.globalVersion != globalVersion || details.tableVersion != tableVersion) {
+            details = new TableDetails(globalVersion, tableVersion, metascopeTableService.getFieldDependencies(table),
+                    metascopeTableService.getFieldSuccessors(table), metascopeTableService.getTableTaxonomies(table));
+            tableDetails.put(fqdn, details);
+        }
+        return details;
+    }
+
+    public Taxonomies getTaxonomies() {
+        long globalVersion = version.get();
+
+        Taxonomies cached = taxonomies;
+        if (cached == null || cached.version != globalVersion) {
+            List<MetascopeTaxonomy> taxonomyList = new ArrayList<>();
+            List<String> taxonomyNames = new ArrayList<>();
+            for (MetascopeTaxonomy taxonomy : metascopeTaxonomyService.getTaxonomies()) {
+        /* initialize the lazy collections rendered on the table page */
+                for (MetascopeCategory category : taxonomy.getCategories()) {
+                    category.getCategoryObjects().size();
+                }
+                taxonomyList.add(taxonomy);
+                taxonomyNames.add(taxonomy.getName());
+            }
+            cached = new Taxonomies(globalVersion, taxonomyList, taxonomyNames);
+            taxonomies = cached;
+        }
+        return cached;
+    }
+
+    /**
+     * Invalidates the cached details of the given table. If called within a
+     * transaction, the table is invalidated again after the commit, so that
+     * requests running concurrently to the edit do not cache the old state.
+     *
+     * @param fqdn the edited table
+     */
+    public void invalidate(final String fqdn) {
+        getTableVersion(fqdn).incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    getTableVersion(fqdn).incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Invalidates all cached entries, e.g. after a sync or a taxonomy change.
+     * Behaves like {@link #invalidate(String)} with respect to transactions.
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public void setMetascopeTableService(MetascopeTableService metascopeTableService) {
+        this.metascopeTableService = metascopeTableService;
+    }
+
+    public void setMetascopeTaxonomyService(MetascopeTaxonomyService metascopeTaxonomyService) {
+        this.metascopeTaxonomyService = metascopeTaxonomyService;
+    }
+
+    private AtomicLong getTableVersion(String fqdn) {
+        AtomicLong tableVersion = tableVersions.get(fqdn);
+        if (tableVersion == null) {
+            AtomicLong newVersion = new AtomicLong();
+            tableVersion = tableVersions.putIfAbsent(fqdn, newVersion);
+            if (tableVersion == null) {
+                tableVersion = newVersion;
+            }
+        }
+        return tableVersion;
+    }
+
+    public static class TableDetails {
+
+        private final long globalVersion;
+        private final long tableVersion;
+        private final Map<String, Map<String, List<MetascopeField>>> fieldDependencies;
+        private final Map<String, Map<String, List<MetascopeField>>> fieldSuccessors;
+        private final Map<String, CategoryMap> tableTaxonomies;
+
+        private TableDetails(long globalVersion, long tableVersion,
+                             Map<String, Map<String, List<MetascopeField>>> fieldDependencies,
+                             Map<String, Map<String, List<MetascopeField>>> fieldSuccessors,
+                             Map<String, CategoryMap> tableTaxonomies) {
+            this.globalVersion = globalVersion;
+            this.tableVersion = tableVersion;
+            this.fieldDependencies = fieldDependencies;
+            this.fieldSuccessors = fieldSuccessors;
+            this.tableTaxonomies = tableTaxonomies;
+        }
+
+        public Map<String, Map<String, List<MetascopeField>>> getFieldDependencies() {
+            return fieldDependencies;
+        }
+
+        public Map<String, Map<String, List<MetascopeField>>> getFieldSuccessors() {
+            return fieldSuccessors;
+        }
+
+        public Map<String, CategoryMap> getTableTaxonomies() {
+            return tableTaxonomies;
+        }
+
+    }
+
+    public static class Taxonomies {
+
+        private final long version;
+        private final List<MetascopeTaxonomy> taxonomies;
+        private final List<String> taxonomyNames;
+
+        private Taxonomies(long version, List<MetascopeTaxonomy> taxonomies, List<String> taxonomyNames) {
+            this.version = version;
+            this.taxonomies = taxonomies;
+            this.taxonomyNames = taxonomyNames;
+        }
+
+        public List<MetascopeTaxonomy> getTaxonomies() {
+            return taxonomies;
+        }
+
+        public List<String> getTaxonomyNames() {
+            return taxonomyNames;
+        }
+
+    }
+
+}
@@ -55,6 +55,9 @@ public class MetascopeTaxonomyService {
     @Autowired
     private SolrFacade solr;
 
+    @Autowired
+    private MetascopeTableViewCache metascopeTableViewCache;
+
     //
     // ### Taxonomy ###
     //
@@ -78,6 +81,7 @@ public class MetascopeTaxonomyService {
         MetascopeTaxonomy metascopeTaxonomy = new MetascopeTaxonomy();
         metascopeTaxonomy.setName(taxonomyName);
         long taxonomyId = metascopeTaxonomyRepository.save(metascopeTaxonomy).getTaxonomyId();
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' created new taxonomy '{}'", metascopeUserService.getUser().getUsername(), taxonomyName);
 
         return taxonomyId;
@@ -105,6 +109,7 @@ public class MetascopeTaxonomyService {
 
         metascopeTaxonomy.setName(taxonomyName);
         metascopeTaxonomyRepository.save(metascopeTaxonomy);
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' changed taxonomy name from '{}' to '{}'", metascopeUserService.getUser().getUsername(), oldName,
                 taxonomyName);
     }
@@ -125,6 +130,7 @@ public class MetascopeTaxonomyService {
         deleteCategoryObjectsFromTable(metascopeTaxonomy);
 
         metascopeTaxonomyRepository.delete(metascopeTaxonomy);
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' deleted taxonomy '{}'", metascopeUserService.getUser().getUsername(), metascopeTaxonomy.getName());
     }
 
@@ -164,6 +170,7 @@ public class MetascopeTaxonomyService {
 
         metascopeTaxonomy.getCategories().add(MetascopeCategory);
         metascopeTaxonomyRepository.save(metascopeTaxonomy);
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' created new category '{}'", metascopeUserService.getUser().getUsername(), categoryName);
         return categoryId;
     }
@@ -190,6 +197,7 @@ public class MetascopeTaxonomyService {
 
         MetascopeCategory.setName(categoryName);
         metascopeCategoryRepository.save(MetascopeCategory);
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' changed category name from '{}' to '{}'", metascopeUserService.getUser().getUsername(), oldName,
                 categoryName);
     }
@@ -214,6 +222,7 @@ public class MetascopeTaxonomyService {
 
         metascopeCategoryRepository.delete(MetascopeCategory);
         metascopeTaxonomyRepository.save(metascopeTaxonomy);
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' deleted category '{}'", metascopeUserService.getUser().getUsername(), MetascopeCategory.getName());
     }
 
@@ -260,6 +269,7 @@ public class MetascopeTaxonomyService {
         MetascopeCategory.getCategoryObjects().add(metascopeCategoryObject);
         metascopeCategoryRepository.save(MetascopeCategory);
 
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' created new category object '{}'", metascopeUserService.getUser().getUsername(),
                 categoryObjectName);
     }
@@ -288,6 +298,7 @@ public class MetascopeTaxonomyService {
         }
 
         metascopeCategoryObjectRepository.save(MetascopeCategoryObject);
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' changed category name from '{}' to '{}' with description '{}'", metascopeUserService.getUser()
                 .getUsername(), oldName, categoryObjectName, description);
         return MetascopeCategoryObject.getCategory().getCategoryId();
@@ -313,6 +324,7 @@ public class MetascopeTaxonomyService {
 
         metascopeCategoryObjectRepository.delete(MetascopeCategoryObject);
         metascopeCategoryRepository.save(MetascopeCategory);
+        metascopeTableViewCache.invalidateAll();
         LOG.info("User '{}' deleted category object '{}'", metascopeUserService.getUser().getUsername(),
                 MetascopeCategoryObject.getName());
         return MetascopeCategory.getCategoryId();
@@ -53,6 +53,18 @@ public class MetascopeURLService {
         return request.getRequestURL() + URL_PARAMS_DIVIDER + queryParams;
     }
 
+    public String getFacetLimitURL(HttpServletRequest request, String facet, int limit) {
+        String limitParam = URLUtil.FACET_LIMIT_PARAM_PREFIX + facet;
+        String queryParams = "";
+        for (Entry<String, String[]> e : request.getParameterMap().entrySet()) {
+            if (!e.getKey().equals(limitParam)) {
+                queryParams = addKey(queryParams, e.getKey(), cleanseValue(e.getValue()[0]));
+            }
+        }
+        queryParams = addKey(queryParams, limitParam, "" + limit);
+        return request.getRequestURL() + URL_PARAMS_DIVIDER + queryParams;
+    }
+
     public String getFilterURL(HttpServletRequest request, String key, String value) {
         value = cleanseValue(value);
         String queryParams = "";
@@ -15,11 +15,16 @@
  */
 package org.schedoscope.metascope.service;
 
+import org.schedoscope.metascope.model.MetascopeTable;
 import org.schedoscope.metascope.model.MetascopeView;
 import org.schedoscope.metascope.repository.MetascopeViewRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 @Service
 public class MetascopeViewService {
 
@@ -30,4 +35,38 @@ public class MetascopeViewService {
         return metascopeViewRepository.findOne(viewId);
     }
 
+    /**
+     * Loads the partitions of a search result page with a single query. The
+     * returned views are detached and only carry the attributes shown on a
+     * search result (view id, url, parameters, timestamp and table names).
+     *
+     * @param viewIds ids of the views to load
+     * @return the views by view id
+     */
+    public Map<String, MetascopeView> findSearchResults(Collection<String> viewIds) {
+        Map<String, MetascopeView> views = new HashMap<String, MetascopeView>();
+        if (viewIds.isEmpty()) {
+            return views;
+        }
+
+        for (Object[] row : metascopeViewRepository.findSearchResults(viewIds)) {
+            MetascopeTable table = new MetascopeTable();
+            table.setFqdn((String) row[4]);
+            table.setDatabaseName((String) row[5]);
+            table.setTableName((String) row[6]);
+            MetascopeView view = new MetascopeView();
+            view.setViewId((String) row[0]);
+            view.setViewUrl((String) row[1]);
+            view.setParameterString((String) row[2]);
+            view.setLastTransformation((Long) row[3]);
+            view.setTable(table);
+            views.put(view.getViewId(), view);
+        }
+        return views;
+    }
+
+    public void setMetascopeViewRepository(MetascopeViewRepository metascopeViewRepository) {
+        this.metascopeViewRepository = metascopeViewRepository;
+    }
+
 }
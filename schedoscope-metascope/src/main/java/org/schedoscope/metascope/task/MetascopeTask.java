@@ -17,8 +17,11 @@ package org.schedoscope.metascope.task;
 
 import org.schedoscope.metascope.config.MetascopeConfig;
 import org.schedoscope.metascope.repository.jdbc.RawJDBCSqlRepository;
+import org.schedoscope.metascope.service.MetascopeLineageService;
+import org.schedoscope.metascope.service.MetascopeTableViewCache;
 import org.schedoscope.metascope.task.metastore.MetastoreTask;
 import org.schedoscope.metascope.util.TaskMutex;
+import org.schedoscope.metascope.util.ViewChangeTracker;
 import org.schedoscope.metascope.util.model.SchedoscopeInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +29,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
+import java.util.Set;
+
 @Component
 public class MetascopeTask implements Runnable {
 
@@ -43,9 +49,45 @@ public class MetascopeTask implements Runnable {
     @Autowired
     private TaskMutex taskMutex;
 
+    @Autowired
+    private ViewChangeTracker viewChangeTracker;
+
+    @Autowired
+    private MetascopeTableViewCache metascopeTableViewCache;
+
+    @Autowired
+    private MetascopeLineageService metascopeLineageService;
+
+    /**
+     * start of the last metastore sync of this process, -1 if none has run yet
+     */
+    private long lastMetastoreSync = -1;
+
+    /**
+     * set once a Schedoscope sync of all instances succeeded, until then every run is a full sync, as changes made
+     * while this process was down are unknown
+     */
+    private boolean schedoscopeSynced = false;
+
+    /**
+     * Runs an incremental sync: only tables which changed in Schedoscope or had views (re-)materialized since the
+     * last run are written. The first run after startup is a full sync.
+     */
     @Override
     @Transactional
     public void run() {
+        run(false);
+    }
+
+    /**
+     * Rewrites all tables and views of all instances, regardless of what changed.
+     */
+    @Transactional
+    public void runFullSync() {
+        run(true);
+    }
+
+    private void run(boolean fullSync) {
         long ts = System.currentTimeMillis();
         boolean isH2Database = config.getRepositoryUrl().startsWith("jdbc:h2");
         boolean isMySQLDatabase = config.getRepositoryUrl().startsWith("jdbc:mysql");
@@ -53,12 +95,59 @@ public class MetascopeTask implements Runnable {
 
         if (!taskMutex.isSchedoscopeTaskRunning()) {
             taskMutex.setSchedoscopeTaskRunning(true);
-            for (SchedoscopeInstance schedoscopeInstance : config.getSchedoscopeInstances()) {
-                syncTask.forInstance(schedoscopeInstance).run(sqlRepository, ts);
+            try {
+                fullSync = fullSync || !schedoscopeSynced;
+                boolean synced = true;
+                Set<String> changedTables = new HashSet<>();
+                for (SchedoscopeInstance schedoscopeInstance : config.getSchedoscopeInstances()) {
+                    synced &= syncTask.forInstance(schedoscopeInstance).fullSync(fullSync).run(sqlRepository, ts);
+                    changedTables.addAll(syncTask.getChangedTables());
+                }
+                schedoscopeSynced |= synced;
+
+                if (fullSync || !viewChangeTracker.coversSince(lastMetastoreSync)) {
+                    metastoreSyncTask.forTables(null);
+                } else {
+                    changedTables.addAll(viewChangeTracker.getTablesChangedSince(lastMetastoreSync));
+                    metastoreSyncTask.forTables(changedTables);
+                }
+                if (metastoreSyncTask.run(sqlRepository, ts)) {
+                    lastMetastoreSync = ts;
+                }
+                metascopeTableViewCache.invalidateAll();
+                metascopeLineageService.rebuild();
+            } finally {
+                taskMutex.setSchedoscopeTaskRunning(false);
             }
-            metastoreSyncTask.run(sqlRepository, ts);
-            taskMutex.setSchedoscopeTaskRunning(false);
         }
     }
 
+    public void setConfig(MetascopeConfig config) {
+        this.config = config;
+    }
+
+    public void setSyncTask(SchedoscopeTask syncTask) {
+        this.syncTask = syncTask;
+    }
+
+    public void setMetastoreSyncTask(MetastoreTask metastoreSyncTask) {
+        this.metastoreSyncTask = metastoreSyncTask;
+    }
+
+    public void setTaskMutex(TaskMutex taskMutex) {
+        this.taskMutex = taskMutex;
+    }
+
+    public void setViewChangeTracker(ViewChangeTracker viewChangeTracker) {
+        this.viewChangeTracker = viewChangeTracker;
+    }
+
+    public void setMetascopeTableViewCache(MetascopeTableViewCache metascopeTableViewCache) {
+        this.metascopeTableViewCache = metascopeTableViewCache;
+    }
+
+    public void setMetascopeLineageService(MetascopeLineageService metascopeLineageService) {
+        this.metascopeLineageService = metascopeLineageService;
+    }
+
 }
@@ -23,6 +23,7 @@ import org.schedoscope.metascope.model.*;
 import org.schedoscope.metascope.repository.jdbc.RawJDBCSqlRepository;
 import org.schedoscope.metascope.task.model.*;
 import org.schedoscope.metascope.util.SchedoscopeUtil;
+import org.schedoscope.metascope.util.TableViewsHandler;
 import org.schedoscope.metascope.util.model.SchedoscopeInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
@@ -43,6 +48,9 @@ public class SchedoscopeTask extends Task {
     private static final String OCCURRED_AT = "occurred_at";
     private static final String OCCURRED_UNTIL = "occurred_until";
     private static final String SCHEDOSCOPE_TIMESTAMP_FORMAT = "yyyy-MM-dd''T''HH:mm:ss.SSS''Z''";
+    private static final String SCHEDOSCOPE_TIMESTAMP = "schedoscopeTimestamp";
+    private static final String SOLR_SCHEMA_VERSION = "solrSchemaVersion";
+    private static final int FLUSH_VIEWS = 50000;
 
     @Autowired
     private MetascopeConfig config;
@@ -52,17 +60,13 @@ public class SchedoscopeTask extends Task {
     private DataSource dataSource;
 
     private SchedoscopeInstance schedoscopeInstance;
+    private boolean fullSync = true;
+    private Set<String> changedTables = new HashSet<>();
 
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public boolean run(RawJDBCSqlRepository sqlRepository, long start) {
-        Map<String, MetascopeTable> cachedTables = new HashMap<>();
-        Map<String, MetascopeField> cachedFields = new HashMap<>();
-        Map<String, MetascopeView> cachedViews = new HashMap<>();
-        List<MetascopeView> viewsToPersist = new ArrayList<>();
-        List<Dependency> tableDependencies = new ArrayList<>();
-        List<Dependency> viewDependencies = new ArrayList<>();
-        List<Dependency> fieldDependencies = new ArrayList<>();
+        changedTables = new HashSet<>();
 
         LOG.info("Retrieve and parse data from schedoscope instance \"" + schedoscopeInstance.getId() + "\"");
 
@@ -74,257 +78,159 @@ public class SchedoscopeTask extends Task {
             return false;
         }
 
-        /** get data from schedoscope */
-        ViewStatus viewStatus;
+        /**
+         * without a previous sync there is nothing to diff against, and documents indexed with an older schema have
+         * to be rewritten
+         */
+        String schemaVersionKey = SOLR_SCHEMA_VERSION + "." + schedoscopeInstance.getId();
+        String schemaVersion = sqlRepository.getMetadata(connection, schemaVersionKey);
+        boolean indexCurrent = SolrFacade.SCHEMA_VERSION.equals(schemaVersion);
+        if (!indexCurrent) {
+            LOG.info("Index schema changed to version " + SolrFacade.SCHEMA_VERSION + ", reindexing all tables");
+        }
+        boolean incremental = !fullSync && indexCurrent
+          && sqlRepository.getMetadata(connection, SCHEDOSCOPE_TIMESTAMP) != null;
+        LOG.info(incremental ? "Running incremental sync" : "Running full sync");
+
+        /** views are streamed from schedoscope and written table by table */
+        SyncHandler handler;
+        try {
+            handler = new SyncHandler(sqlRepository, connection, incremental);
+        } catch (SQLException e) {
+            /* diffing against an incomplete state would rewrite or skip tables at random */
+            LOG.error("[SchedoscopeSyncTask] FAILED: Could not load stored state of schedoscope instance \""
+              + schedoscopeInstance.getId() + "\"", e);
+            closeQuietly(connection);
+            return false;
+        }
+        int size;
         try {
-            viewStatus = SchedoscopeUtil.getViewStatus(true, false, null, schedoscopeInstance.getHost(), schedoscopeInstance.getPort());
+            size = SchedoscopeUtil.streamViewsByTable(schedoscopeInstance.getHost(), schedoscopeInstance.getPort(), handler);
         } catch (SchedoscopeConnectException e) {
             LOG.error("Could not retrieve view information", e);
             return false;
         }
 
-        if (viewStatus == null) {
+        if (size < 0) {
             LOG.info("[SchedoscopeSyncTask] FAILED: Schedoscope status information is not available");
             return false;
         }
 
-        if (viewStatus.getViews().size() == 0) {
+        if (size == 0) {
             LOG.info("[SchedoscopeSyncTask] No schedoscope metadata available. Maybe materialize some views?");
-            sqlRepository.saveMetadata(connection, "schedoscopeTimestamp", String.valueOf(System.currentTimeMillis()));
+            sqlRepository.saveMetadata(connection, SCHEDOSCOPE_TIMESTAMP, String.valueOf(System.currentTimeMillis()));
             return false;
         }
 
-        int size = viewStatus.getViews().size();
-        LOG.info("Received " + size + " views");
-
-        /** save tables to avoid foreign key constraint violation */
-        int tableCount = 0;
-        for (View view : viewStatus.getViews()) {
-            if (view.isTable() && !view.isExternal()) {
-                String fqdn = view.getDatabase() + "." + view.getTableName();
-                MetascopeTable table = sqlRepository.findTable(connection, fqdn);
-                if (table == null) {
-                    table = new MetascopeTable();
-                    table.setFqdn(fqdn);
-                }
-                cachedTables.put(fqdn, table);
-                tableCount++;
-            }
-        }
-        LOG.info("Received " + tableCount + " tables");
-
-        for (View view : viewStatus.getViews()) {
-            if (view.isTable() && !view.isExternal()) {
-                String fqdn = view.getDatabase() + "." + view.getTableName();
-
-                LOG.info("Consuming table " + fqdn);
-
-                MetascopeTable table = cachedTables.get(fqdn);
-                table.setSchedoscopeId(schedoscopeInstance.getId());
-                table.setDatabaseName(view.getDatabase());
-                table.setTableName(view.getTableName());
-                table.setViewPath(view.viewPath());
-                table.setExternalTable(view.isExternal());
-                table.setTableDescription(view.getComment());
-                table.setStorageFormat(view.getStorageFormat());
-                table.setMaterializeOnce(view.isMaterializeOnce());
-                for (ViewField field : view.getFields()) {
-                    if (field.getName().equals(OCCURRED_AT)) {
-                        table.setTimestampField(OCCURRED_AT);
-                        table.setTimestampFieldFormat(SCHEDOSCOPE_TIMESTAMP_FORMAT);
-                        break;
-                    } else if (field.getName().equals(OCCURRED_UNTIL)) {
-                        table.setTimestampField(OCCURRED_UNTIL);
-                        table.setTimestampFieldFormat(SCHEDOSCOPE_TIMESTAMP_FORMAT);
-                        break;
-                    }
-                }
-
-                /** fields */
-                Set<MetascopeField> tableFields = new HashSet<>();
-                int i = 0;
-                for (ViewField viewField : view.getFields()) {
-                    String fieldFqdn = fqdn + "." + viewField.getName();
-                    MetascopeField field = sqlRepository.findField(connection, fieldFqdn);
-                    if (field == null) {
-                        field = new MetascopeField();
-                        field.setFieldId(fieldFqdn);
-                        field.setTableFqdn(fqdn);
-                    }
-                    field.setFieldName(viewField.getName());
-                    field.setFieldType(viewField.getFieldtype());
-                    field.setFieldOrder(i++);
-                    field.setParameter(false);
-                    field.setDescription(viewField.getComment());
-
-                    //lineage
-                    if (view.getLineage() != null && view.getLineage().get(fieldFqdn) != null) {
-                        for (String dependencyField : view.getLineage().get(fieldFqdn)) {
-                            if (!dependencyField.equals(fieldFqdn)) {
-                                MetascopeField dField = cachedFields.get(dependencyField);
-                                if (dField == null) {
-                                    dField = new MetascopeField();
-                                    dField.setFieldId(dependencyField);
-                                    cachedFields.put(dependencyField, dField);
-                                }
-                                fieldDependencies.add(new Dependency(field.getFieldId(), dField.getFieldId()));
-                            }
-                        }
-                    }
-
-                    tableFields.add(field);
-                    cachedFields.put(field.getFieldId(), field);
-                }
-                table.setFields(tableFields);
-                sqlRepository.saveFields(connection, table.getFields(), table.getFqdn(), false);
-
-                /** parameter */
-                Set<MetascopeField> tableParameter = new HashSet<>();
-                i = 0;
-                for (ViewField viewField : view.getParameters()) {
-                    String parameterFqdn = fqdn + "." + viewField.getName();
-                    MetascopeField parameter = sqlRepository.findField(connection, parameterFqdn);
-                    if (parameter == null) {
-                        parameter = new MetascopeField();
-                        parameter.setFieldId(parameterFqdn);
-                        parameter.setTableFqdn(fqdn);
-                    }
-                    parameter.setFieldName(viewField.getName());
-                    parameter.setFieldType(viewField.getFieldtype());
-                    parameter.setFieldOrder(i++);
-                    parameter.setParameter(true);
-                    parameter.setDescription(viewField.getComment());
-
-                    parameter.setTable(table);
-                    tableParameter.add(parameter);
-                }
-                table.setParameters(tableParameter);
-                sqlRepository.saveFields(connection, table.getParameters(), table.getFqdn(), true);
-
-                /** exports */
-                List<MetascopeExport> tableExports = new ArrayList<>();
-                i = 0;
-                if (view.getExport() != null) {
-                    for (ViewTransformation viewExport : view.getExport()) {
-                        String exportFqdn = fqdn + "." + viewExport.getName() + "_" + i;
-                        MetascopeExport export = sqlRepository.findExport(connection, exportFqdn);
-                        if (export == null) {
-                            export = new MetascopeExport();
-                            export.setExportId(exportFqdn);
-                            export.setTableFqdn(fqdn);
-                        }
-                        export.setExportType(viewExport.getName());
-                        export.setProperties(viewExport.getProperties());
-
-                        export.setTable(table);
-                        tableExports.add(export);
-                        i++;
-                    }
-                }
-                table.setExports(tableExports);
-                sqlRepository.saveExports(connection, table.getExports(), table.getFqdn());
-
-                /** transformation */
-                MetascopeTransformation metascopeTransformation = new MetascopeTransformation();
-                metascopeTransformation.setTransformationId(fqdn + "." + view.getTransformation().getName());
-                metascopeTransformation.setTransformationType(view.getTransformation().getName());
-                metascopeTransformation.setProperties(view.getTransformation().getProperties());
-                table.setTransformation(metascopeTransformation);
-                sqlRepository.saveTransformation(connection, table.getTransformation(), table.getFqdn());
-
-                /** views and dependencies */
-                LOG.info("Getting views for table " + fqdn);
-                List<View> views = getViewsForTable(table.getViewPath(), viewStatus.getViews());
-                LOG.info("Found " + views.size() + " views");
-
-                for (View partition : views) {
-                    MetascopeView metascopeView = cachedViews.get(partition.getName());
-                    if (metascopeView == null) {
-                        metascopeView = new MetascopeView();
-                        metascopeView.setViewUrl(partition.getName());
-                        metascopeView.setViewId(partition.getName());
-                        cachedViews.put(partition.getName(), metascopeView);
-                    }
-                    viewsToPersist.add(metascopeView);
-                    if (table.getParameters() != null && table.getParameters().size() > 0) {
-                        String parameterString = getParameterString(partition.getName(), table);
-                        metascopeView.setParameterString(parameterString);
-                    }
-                    for (List<String> dependencyLists : partition.getDependencies().values()) {
-                        for (String dependency : dependencyLists) {
-                            MetascopeView dependencyView = cachedViews.get(dependency);
-                            if (dependencyView == null) {
-                                dependencyView = new MetascopeView();
-                                dependencyView.setViewUrl(dependency);
-                                dependencyView.setViewId(dependency);
-                                cachedViews.put(dependency, dependencyView);
-                            }
-                            metascopeView.addToDependencies(dependencyView);
-                            dependencyView.addToSuccessors(metascopeView);
-                            viewDependencies.add(new Dependency(metascopeView.getViewId(), dependencyView.getViewId()));
-                        }
-                    }
-                    for (String dependency : partition.getDependencies().keySet()) {
-                        tableDependencies.add(new Dependency(fqdn, dependency));
-                    }
-                    cachedViews.put(partition.getName(), metascopeView);
-                    metascopeView.setTable(table);
-                }
-
-                LOG.info("Processed all views for table " + fqdn);
-
-                table.setViewsSize(views.size());
-                sqlRepository.saveTable(connection, table);
-
-                LOG.info("Finished processing table " + fqdn);
-            }
-        }
-
-        try {
-            LOG.info("Saving field dependency information (" + fieldDependencies.size() + ") ...");
-            sqlRepository.insertFieldDependencies(connection, cachedTables.values(), fieldDependencies);
-            LOG.info("Saving table dependency information (" + tableDependencies.size() + ") ...");
-            sqlRepository.insertTableDependencies(connection, cachedTables.values(), tableDependencies);
-            LOG.info("Saving views (" + viewsToPersist.size() + ")...");
-            sqlRepository.insertOrUpdateViews(connection, viewsToPersist);
-            LOG.info("Saving view dependency information (" + viewDependencies.size() + ") ...");
-            sqlRepository.insertViewDependencies(connection, viewDependencies);
-        } catch (Exception e) {
-            LOG.error("Error writing to database", e);
+        handler.flushIfNoFailure();
+        if (handler.failure != null) {
+            LOG.error("[SchedoscopeSyncTask] FAILED: Could not write to database", handler.failure);
+            closeQuietly(connection);
+            return false;
         }
+        LOG.info("Received " + size + " views");
+        LOG.info("Changed tables: " + changedTables.size() + " of " + handler.tableCount);
 
-        LOG.info("Saving to index");
-        for (MetascopeTable table : cachedTables.values()) {
-            solrFacade.updateTablePartial(table, false);
-        }
         solrFacade.commit();
         LOG.info("Finished index update");
 
-        sqlRepository.saveMetadata(connection, "schedoscopeTimestamp", String.valueOf(System.currentTimeMillis()));
+        sqlRepository.saveMetadata(connection, SCHEDOSCOPE_TIMESTAMP, String.valueOf(System.currentTimeMillis()));
+        sqlRepository.saveMetadata(connection, schemaVersionKey, SolrFacade.SCHEMA_VERSION);
+
+        closeQuietly(connection);
+
+        LOG.info("Finished sync with schedoscope instance \"" + schedoscopeInstance.getId() + "\"");
+        return true;
+    }
 
+    private void closeQuietly(Connection connection) {
         try {
             connection.close();
         } catch (SQLException e) {
             LOG.error("Could not close connection", e);
         }
+    }
 
-        LOG.info("Finished sync with schedoscope instance \"" + schedoscopeInstance.getId() + "\"");
-        return true;
+    public SchedoscopeTask forInstance(SchedoscopeInstance schedoscopeInstance) {
+        this.schedoscopeInstance = schedoscopeInstance;
+        return this;
+    }
+
+    /**
+     * A full sync processes every table, field and view of the instance, though only rows whose content changed are
+     * written. Otherwise only tables whose fingerprint differs from the one stored by the previous sync are
+     * processed and written to the index.
+     */
+    public SchedoscopeTask fullSync(boolean fullSync) {
+        this.fullSync = fullSync;
+        return this;
     }
 
-    private List<View> getViewsForTable(String viewPath, List<View> views) {
-        List<View> results = new ArrayList<>();
+    /**
+     * @return the view paths of the tables written by the last run
+     */
+    public Set<String> getChangedTables() {
+        return changedTables;
+    }
+
+    public void setSolrFacade(SolrFacade solrFacade) {
+        this.solrFacade = solrFacade;
+    }
+
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Hashes everything the sync derives from a table and its views, so an unchanged hash means there is nothing
+     * to write for this table.
+     */
+    private String fingerprint(View table, List<View> views) {
+        MessageDigest md5;
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest(md5, schedoscopeInstance.getId(), table.getName(), table.getComment(), table.getStorageFormat(),
+          table.isExternal(), table.isMaterializeOnce());
+        for (ViewField field : table.getFields()) {
+            digest(md5, "field", field.getName(), field.getFieldtype(), field.getComment());
+        }
+        for (ViewField parameter : table.getParameters()) {
+            digest(md5, "parameter", parameter.getName(), parameter.getFieldtype(), parameter.getComment());
+        }
+        if (table.getLineage() != null) {
+            for (Map.Entry<String, List<String>> e : new TreeMap<>(table.getLineage()).entrySet()) {
+                digest(md5, "lineage", e.getKey(), e.getValue());
+            }
+        }
+        if (table.getExport() != null) {
+            for (ViewTransformation export : table.getExport()) {
+                digest(md5, "export", export.getName(), sorted(export.getProperties()));
+            }
+        }
+        digest(md5, "transformation", table.getTransformation().getName(), sorted(table.getTransformation().getProperties()));
         for (View view : views) {
-            if (view.getName().startsWith(viewPath) && !view.isTable()) {
-                results.add(view);
+            digest(md5, "view", view.getName());
+            if (view.getDependencies() != null) {
+                for (Map.Entry<String, List<String>> e : new TreeMap<>(view.getDependencies()).entrySet()) {
+                    digest(md5, e.getKey(), e.getValue());
+                }
             }
         }
-        return results;
+        return String.format("%032x", new BigInteger(1, md5.digest()));
     }
 
-    public SchedoscopeTask forInstance(SchedoscopeInstance schedoscopeInstance) {
-        this.schedoscopeInstance = schedoscopeInstance;
-        return this;
+    private void digest(MessageDigest md5, Object... values) {
+        for (Object value : values) {
+            md5.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            md5.update((byte) 0);
+        }
+    }
+
+    private Map<String, String> sorted(Map<String, String> properties) {
+        return properties == null ? null : new TreeMap<>(properties);
     }
 
     private String getParameterString(String viewName, MetascopeTable table) {
@@ -344,4 +250,302 @@ public class SchedoscopeTask extends Task {
         return parameterString;
     }
 
-}
\ No newline at end of file
+    /**
+     * Writes the tables of one sync as they are streamed from schedoscope. Views and dependencies are collected and
+     * written in chunks of {@link #FLUSH_VIEWS} views, so memory does not grow with the size of the catalog.
+     */
+    private class SyncHandler implements TableViewsHandler {
+
+        private final RawJDBCSqlRepository sqlRepository;
+        private final Connection connection;
+        private final boolean incremental;
+
+        private final Map<String, MetascopeTable> storedTables;
+        private final Map<String, MetascopeField> storedFields;
+        private final Map<String, MetascopeExport> storedExports;
+        private final Map<String, String> storedViewHashes;
+        private final Map<String, List<MetascopeField>> storedFieldsByTable = new HashMap<>();
+
+        private Map<String, MetascopeField> cachedFields = new HashMap<>();
+        private Map<String, MetascopeView> cachedViews = new HashMap<>();
+        private List<MetascopeView> viewsToPersist = new ArrayList<>();
+        private List<Dependency> tableDependencies = new ArrayList<>();
+        private List<Dependency> viewDependencies = new ArrayList<>();
+        private List<Dependency> fieldDependencies = new ArrayList<>();
+        private List<MetascopeTable> touchedTables = new ArrayList<>();
+        private Map<MetascopeTable, String> pendingFingerprints = new HashMap<>();
+        private SQLException failure;
+        private boolean dependenciesReset;
+        private int tableCount;
+
+        private SyncHandler(RawJDBCSqlRepository sqlRepository, Connection connection, boolean incremental)
+          throws SQLException {
+            this.sqlRepository = sqlRepository;
+            this.connection = connection;
+            this.incremental = incremental;
+
+            /** load the stored state of this instance up front instead of looking up every entity on its own */
+            this.storedTables = sqlRepository.findTables(connection, schedoscopeInstance.getId());
+            this.storedFields = sqlRepository.findFields(connection, schedoscopeInstance.getId());
+            this.storedExports = sqlRepository.findExports(connection, schedoscopeInstance.getId());
+            this.storedViewHashes = sqlRepository.findViewContentHashes(connection, schedoscopeInstance.getId());
+            LOG.info("Loaded " + storedTables.size() + " tables, " + storedFields.size() + " fields, "
+              + storedExports.size() + " exports and " + storedViewHashes.size() + " views from repository");
+            for (MetascopeField field : storedFields.values()) {
+                List<MetascopeField> tableFields = storedFieldsByTable.get(field.getTableFqdn());
+                if (tableFields == null) {
+                    tableFields = new ArrayList<>();
+                    storedFieldsByTable.put(field.getTableFqdn(), tableFields);
+                }
+                tableFields.add(field);
+            }
+        }
+
+        @Override
+        public void onTable(View view, List<View> views) {
+            if (view.isExternal() || failure != null) {
+                return;
+            }
+            tableCount++;
+
+            String fqdn = view.getDatabase() + "." + view.getTableName();
+            MetascopeTable table = storedTables.get(fqdn);
+            if (table == null) {
+                table = new MetascopeTable();
+                table.setFqdn(fqdn);
+            }
+
+            /** skip tables whose definition, partitions and dependencies did not change since the last sync */
+            String fingerprint = fingerprint(view, views);
+            if (incremental && fingerprint.equals(table.getSchedoscopeFingerprint())) {
+                LOG.debug("Table " + fqdn + " is unchanged, skipping");
+                return;
+            }
+
+            LOG.info("Consuming table " + fqdn);
+            List<MetascopeField> storedTableFields = storedFieldsByTable.containsKey(fqdn)
+              ? storedFieldsByTable.get(fqdn) : new ArrayList<MetascopeField>();
+
+            table.setSchedoscopeId(schedoscopeInstance.getId());
+            table.setDatabaseName(view.getDatabase());
+            table.setTableName(view.getTableName());
+            table.setViewPath(view.viewPath());
+            table.setExternalTable(view.isExternal());
+            table.setTableDescription(view.getComment());
+            table.setStorageFormat(view.getStorageFormat());
+            table.setMaterializeOnce(view.isMaterializeOnce());
+            for (ViewField field : view.getFields()) {
+                if (field.getName().equals(OCCURRED_AT)) {
+                    table.setTimestampField(OCCURRED_AT);
+                    table.setTimestampFieldFormat(SCHEDOSCOPE_TIMESTAMP_FORMAT);
+                    break;
+                } else if (field.getName().equals(OCCURRED_UNTIL)) {
+                    table.setTimestampField(OCCURRED_UNTIL);
+                    table.setTimestampFieldFormat(SCHEDOSCOPE_TIMESTAMP_FORMAT);
+                    break;
+                }
+            }
+
+            /** fields */
+            Set<MetascopeField> tableFields = new HashSet<>();
+            int i = 0;
+            for (ViewField viewField : view.getFields()) {
+                String fieldFqdn = fqdn + "." + viewField.getName();
+                MetascopeField field = storedFields.get(fieldFqdn);
+                if (field == null) {
+                    field = new MetascopeField();
+                    field.setFieldId(fieldFqdn);
+                    field.setTableFqdn(fqdn);
+                }
+                field.setFieldName(viewField.getName());
+                field.setFieldType(viewField.getFieldtype());
+                field.setFieldOrder(i++);
+                field.setParameter(false);
+                field.setDescription(viewField.getComment());
+
+                //lineage
+                if (view.getLineage() != null && view.getLineage().get(fieldFqdn) != null) {
+                    for (String dependencyField : view.getLineage().get(fieldFqdn)) {
+                        if (!dependencyField.equals(fieldFqdn)) {
+                            MetascopeField dField = cachedFields.get(dependencyField);
+                            if (dField == null) {
+                                dField = new MetascopeField();
+                                dField.setFieldId(dependencyField);
+                                cachedFields.put(dependencyField, dField);
+                            }
+                            fieldDependencies.add(new Dependency(field.getFieldId(), dField.getFieldId()));
+                        }
+                    }
+                }
+
+                tableFields.add(field);
+                cachedFields.put(field.getFieldId(), field);
+            }
+            table.setFields(tableFields);
+            sqlRepository.saveFields(connection, table.getFields(), storedTableFields, table.getFqdn(), false);
+
+            /** parameter */
+            Set<MetascopeField> tableParameter = new HashSet<>();
+            i = 0;
+            for (ViewField viewField : view.getParameters()) {
+                String parameterFqdn = fqdn + "." + viewField.getName();
+                MetascopeField parameter = storedFields.get(parameterFqdn);
+                if (parameter == null) {
+                    parameter = new MetascopeField();
+                    parameter.setFieldId(parameterFqdn);
+                    parameter.setTableFqdn(fqdn);
+                }
+                parameter.setFieldName(viewField.getName());
+                parameter.setFieldType(viewField.getFieldtype());
+                parameter.setFieldOrder(i++);
+                parameter.setParameter(true);
+                parameter.setDescription(viewField.getComment());
+
+                parameter.setTable(table);
+                tableParameter.add(parameter);
+            }
+            table.setParameters(tableParameter);
+            sqlRepository.saveFields(connection, table.getParameters(), storedTableFields, table.getFqdn(), true);
+
+            /** exports */
+            List<MetascopeExport> tableExports = new ArrayList<>();
+            i = 0;
+            if (view.getExport() != null) {
+                for (ViewTransformation viewExport : view.getExport()) {
+                    String exportFqdn = fqdn + "." + viewExport.getName() + "_" + i;
+                    MetascopeExport export = storedExports.get(exportFqdn);
+                    if (export == null) {
+                        export = new MetascopeExport();
+                        export.setExportId(exportFqdn);
+                        export.setTableFqdn(fqdn);
+                    }
+                    export.setExportType(viewExport.getName());
+                    export.setProperties(viewExport.getProperties());
+
+                    export.setTable(table);
+                    tableExports.add(export);
+                    i++;
+                }
+            }
+            table.setExports(tableExports);
+            sqlRepository.saveExports(connection, table.getExports(), table.getFqdn());
+
+            /** transformation */
+            MetascopeTransformation metascopeTransformation = new MetascopeTransformation();
+            metascopeTransformation.setTransformationId(fqdn + "." + view.getTransformation().getName());
+            metascopeTransformation.setTransformationType(view.getTransformation().getName());
+            metascopeTransformation.setProperties(view.getTransformation().getProperties());
+            table.setTransformation(metascopeTransformation);
+            sqlRepository.saveTransformation(connection, table.getTransformation(), table.getFqdn());
+
+            /** views and dependencies */
+            LOG.info("Found " + views.size() + " views for table " + fqdn);
+
+            for (View partition : views) {
+                MetascopeView metascopeView = cachedViews.get(partition.getName());
+                if (metascopeView == null) {
+                    metascopeView = new MetascopeView();
+                    metascopeView.setViewUrl(partition.getName());
+                    metascopeView.setViewId(partition.getName());
+                    cachedViews.put(partition.getName(), metascopeView);
+                }
+                if (metascopeView.getContentHash() == null) {
+                    metascopeView.setContentHash(storedViewHashes.get(metascopeView.getViewId()));
+                }
+                viewsToPersist.add(metascopeView);
+                if (table.getParameters() != null && table.getParameters().size() > 0) {
+                    String parameterString = getParameterString(partition.getName(), table);
+                    metascopeView.setParameterString(parameterString);
+                }
+                for (List<String> dependencyLists : partition.getDependencies().values()) {
+                    for (String dependency : dependencyLists) {
+                        MetascopeView dependencyView = cachedViews.get(dependency);
+                        if (dependencyView == null) {
+                            dependencyView = new MetascopeView();
+                            dependencyView.setViewUrl(dependency);
+                            dependencyView.setViewId(dependency);
+                            cachedViews.put(dependency, dependencyView);
+                        }
+                        metascopeView.addToDependencies(dependencyView);
+                        dependencyView.addToSuccessors(metascopeView);
+                        viewDependencies.add(new Dependency(metascopeView.getViewId(), dependencyView.getViewId()));
+                    }
+                }
+                for (String dependency : partition.getDependencies().keySet()) {
+                    tableDependencies.add(new Dependency(fqdn, dependency));
+                }
+                cachedViews.put(partition.getName(), metascopeView);
+                metascopeView.setTable(table);
+            }
+
+            LOG.info("Processed all views for table " + fqdn);
+
+            /** the new fingerprint is stored by flush(), once the views and dependencies of the table are written */
+            table.setViewsSize(views.size());
+            sqlRepository.saveTable(connection, table);
+            touchedTables.add(table);
+            pendingFingerprints.put(table, fingerprint);
+            changedTables.add(table.getViewPath());
+            solrFacade.updateTablePartial(table, false);
+
+            LOG.info("Finished processing table " + fqdn);
+
+            if (viewsToPersist.size() >= FLUSH_VIEWS) {
+                flushIfNoFailure();
+            }
+        }
+
+        private void flushIfNoFailure() {
+            if (failure != null) {
+                return;
+            }
+            try {
+                flush();
+            } catch (SQLException e) {
+                /** keeps the old fingerprints, so the next sync writes these tables again */
+                failure = e;
+            }
+        }
+
+        /**
+         * Writes the collected views and dependencies of the tables processed since the last flush, then the
+         * fingerprints of these tables. Dependencies are replaced per owning table, so tables written by earlier
+         * flushes are not affected. A full sync first removes all dependencies of the known tables in both
+         * directions, so rows left behind by tables that no longer exist are dropped as well.
+         */
+        private void flush() throws SQLException {
+            if (!incremental && !dependenciesReset) {
+                Set<MetascopeTable> knownTables = new LinkedHashSet<>(storedTables.values());
+                knownTables.addAll(touchedTables);
+                LOG.info("Removing dependency information of " + knownTables.size() + " tables ...");
+                sqlRepository.insertFieldDependencies(connection, knownTables, new ArrayList<Dependency>(), false);
+                sqlRepository.insertTableDependencies(connection, knownTables, new ArrayList<Dependency>(), false);
+                dependenciesReset = true;
+            }
+            LOG.info("Saving field dependency information (" + fieldDependencies.size() + ") ...");
+            sqlRepository.insertFieldDependencies(connection, touchedTables, fieldDependencies, true);
+            LOG.info("Saving table dependency information (" + tableDependencies.size() + ") ...");
+            sqlRepository.insertTableDependencies(connection, touchedTables, tableDependencies, true);
+            LOG.info("Saving views (" + viewsToPersist.size() + ")...");
+            sqlRepository.insertOrUpdateViews(connection, viewsToPersist);
+            LOG.info("Saving view dependency information (" + viewDependencies.size() + ") ...");
+            sqlRepository.insertViewDependencies(connection, viewDependencies);
+
+            for (Map.Entry<MetascopeTable, String> e : pendingFingerprints.entrySet()) {
+                e.getKey().setSchedoscopeFingerprint(e.getValue());
+                sqlRepository.saveTable(connection, e.getKey());
+            }
+
+            cachedFields = new HashMap<>();
+            cachedViews = new HashMap<>();
+            viewsToPersist = new ArrayList<>();
+            tableDependencies = new ArrayList<>();
+            viewDependencies = new ArrayList<>();
+            fieldDependencies = new ArrayList<>();
+            touchedTables = new ArrayList<>();
+            pendingFingerprints = new HashMap<>();
+        }
+
+    }
+
+}
@@ -23,6 +23,7 @@ import org.schedoscope.metascope.task.model.View;
 import org.schedoscope.metascope.task.model.ViewStatus;
 import org.schedoscope.metascope.util.SchedoscopeUtil;
 import org.schedoscope.metascope.util.StatusUtil;
+import org.schedoscope.metascope.util.ViewChangeTracker;
 import org.schedoscope.metascope.util.model.SchedoscopeInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,7 +31,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -45,8 +45,12 @@ public class StatusTask extends Task {
     @Autowired
     private MetascopeStatusService metascopeStatusService;
 
+    @Autowired
+    private ViewChangeTracker viewChangeTracker;
+
     @Override
     public boolean run(RawJDBCSqlRepository sqlRepository, long start) {
+        boolean complete = true;
         for (SchedoscopeInstance schedoscopeInstance : metascopeConfig.getSchedoscopeInstances()) {
             String host = schedoscopeInstance.getHost();
             int port = schedoscopeInstance.getPort();
@@ -57,28 +61,28 @@ public class StatusTask extends Task {
                 viewStatus = SchedoscopeUtil.getViewStatus(false, false, null, host, port);
             } catch (SchedoscopeConnectException e) {
                 LOG.warn("Could not retrieve Schedoscope status information (" + host + ":" + port + ")", e);
+                complete = false;
                 continue;
             }
 
-            Map<String, List<String>> tableAggregation = new HashMap<>();
-            for (View view : viewStatus.getViews()) {
-                List<String> statusesForTable = tableAggregation.get(view.viewPath());
-                if (statusesForTable == null) {
-                    statusesForTable = new ArrayList<>();
+            for (Map.Entry<String, List<View>> e : viewStatus.viewsByTable().entrySet()) {
+                List<String> statusesForTable = new ArrayList<>(e.getValue().size());
+                for (View view : e.getValue()) {
+                    statusesForTable.add(view.getStatus());
+                    metascopeStatusService.setStatus(view.getName(), view.getStatus());
+                    viewChangeTracker.observe(e.getKey(), view.getName(), view.getStatus(), start);
                 }
-                statusesForTable.add(view.getStatus());
-                tableAggregation.put(view.viewPath(), statusesForTable);
-                metascopeStatusService.setStatus(view.getName(), view.getStatus());
-            }
-            for (Map.Entry<String, List<String>> e : tableAggregation.entrySet()) {
-                String status = StatusUtil.getStatus(e.getValue());
-                metascopeStatusService.setStatus(e.getKey(), status);
+                metascopeStatusService.setStatus(e.getKey(), StatusUtil.getStatus(statusesForTable));
             }
 
             LOG.info("Finished status update");
 
         }
 
+        if (complete) {
+            viewChangeTracker.pollCompleted(start);
+        }
+
         return true;
     }
 
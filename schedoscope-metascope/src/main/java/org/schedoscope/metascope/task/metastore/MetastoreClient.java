@@ -4,6 +4,7 @@ import org.schedoscope.metascope.config.MetascopeConfig;
 import org.schedoscope.metascope.task.metastore.model.MetastorePartition;
 import org.schedoscope.metascope.task.metastore.model.MetastoreTable;
 
+import java.util.Collection;
 import java.util.List;
 
 public abstract class MetastoreClient {
@@ -16,8 +17,20 @@ public abstract class MetastoreClient {
         this.config = config;
     }
 
+    /**
+     * @return a new, not yet initialized client with the same configuration, e.g. for a parallel sync worker
+     */
+    public abstract MetastoreClient newClient();
+
     public abstract void init();
     public abstract void close();
+    /**
+     * Gives the client the chance to load everything about the tables of the given databases at once, before the
+     * tables are requested one by one. Does nothing by default.
+     */
+    public void prefetch(Collection<String> databaseNames) {
+    }
+
     public abstract MetastoreTable getTable(String databaseName, String tableName);
     public abstract List<String> listPartitionNames(String databaseName, String tableName, short size);
     public abstract List<List<String>> partitionLists(List<String> partitionNames, int size);
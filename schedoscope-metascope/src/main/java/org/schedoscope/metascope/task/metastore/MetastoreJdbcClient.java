@@ -1,6 +1,7 @@
 package org.schedoscope.metascope.task.metastore;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.dbutils.DbUtils;
 import org.schedoscope.metascope.config.MetascopeConfig;
 import org.schedoscope.metascope.task.metastore.model.MetastorePartition;
 import org.schedoscope.metascope.task.metastore.model.MetastoreTable;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +19,17 @@ public class MetastoreJdbcClient extends MetastoreClient {
 
     private static final Logger LOG = LoggerFactory.getLogger(MetastoreJdbcClient.class);
 
+    private static final String NUM_ROWS = "numRows";
+    private static final String TOTAL_SIZE = "totalSize";
+
+    private static final String TABLE_QUERY = "select t.TBL_ID, d.NAME as DB_NAME, t.TBL_NAME, t.OWNER, t.CREATE_TIME, "
+      + "sd.INPUT_FORMAT, sd.OUTPUT_FORMAT, sd.LOCATION, tp.PARAM_VALUE "
+      + "from TBLS t join DBS d on t.DB_ID = d.DB_ID join SDS sd on t.SD_ID = sd.SD_ID "
+      + "left join TABLE_PARAMS tp on t.TBL_ID = tp.TBL_ID and tp.PARAM_KEY = ? ";
+
+    private static final String PARTITION_QUERY = "select p.TBL_ID, p.PART_ID, p.PART_NAME, pp.PARAM_KEY, pp.PARAM_VALUE "
+      + "from PARTITIONS p left join PARTITION_PARAMS pp on p.PART_ID = pp.PART_ID and pp.PARAM_KEY in (?, ?, ?) ";
+
     private Connection connection;
 
     private Map<Long, String> tableIdToTableName;
@@ -24,10 +37,26 @@ public class MetastoreJdbcClient extends MetastoreClient {
     private Map<String, Long> tableNameToTableId;
     private Map<String, Long> databaseNameToDatabaseId;
 
+    /**
+     * tables and partitions extracted by {@link #prefetch(Collection)}, shared with clients created by
+     * {@link #newClient()}
+     */
+    private BulkExtract bulkExtract;
+
     public MetastoreJdbcClient(MetascopeConfig config) {
         super(config);
     }
 
+    private MetastoreJdbcClient(MetascopeConfig config, BulkExtract bulkExtract) {
+        super(config);
+        this.bulkExtract = bulkExtract;
+    }
+
+    @Override
+    public MetastoreClient newClient() {
+        return new MetastoreJdbcClient(config, bulkExtract);
+    }
+
     @Override
     public void init() {
         try {
@@ -41,12 +70,14 @@ public class MetastoreJdbcClient extends MetastoreClient {
               config.getMetastoreJdbcPassword());
         } catch (SQLException e) {
             LOG.error("Could not connect to hive metastore via JDBC", e);
+            return;
         }
 
         this.databaseIdToDatabaseName = new HashMap<>();
         this.databaseNameToDatabaseId = new HashMap<>();
+        Statement stmt = null;
         try {
-            Statement stmt = connection.createStatement();
+            stmt = connection.createStatement();
             ResultSet rs = stmt.executeQuery("select DB_ID, NAME from DBS");
             while (rs.next()) {
                 long db_id = rs.getLong("DB_ID");
@@ -56,12 +87,14 @@ public class MetastoreJdbcClient extends MetastoreClient {
             }
         } catch (SQLException e) {
             LOG.error("Could not retrieve database information", e);
+        } finally {
+            DbUtils.closeQuietly(stmt);
         }
 
         this.tableIdToTableName = new HashMap<>();
         this.tableNameToTableId = new HashMap<>();
         try {
-            Statement stmt = connection.createStatement();
+            stmt = streamingStatement();
             ResultSet rs = stmt.executeQuery("select TBL_ID, DB_ID, TBL_NAME from TBLS");
             while (rs.next()) {
                 long tbl_id = rs.getLong("TBL_ID");
@@ -73,35 +106,108 @@ public class MetastoreJdbcClient extends MetastoreClient {
             }
         } catch (SQLException e) {
             LOG.error("Could not retrieve table information", e);
+        } finally {
+            DbUtils.closeQuietly(stmt);
+        }
+    }
+
+    /**
+     * Extracts all tables and partitions of the given databases with one streaming scan each, instead of one query
+     * per table. Later calls to {@link #getTable} and {@link #listPartitions} are answered from memory.
+     */
+    @Override
+    public void prefetch(Collection<String> databaseNames) {
+        if (connection == null || databaseNames.isEmpty()) {
+            return;
+        }
+
+        BulkExtract extract = new BulkExtract();
+        String databaseFilter = "(" + placeholders(databaseNames.size()) + ")";
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            stmt = prepareStreaming(TABLE_QUERY + "where d.NAME in " + databaseFilter);
+            int i = 1;
+            stmt.setString(i++, SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP);
+            for (String databaseName : databaseNames) {
+                stmt.setString(i++, databaseName);
+            }
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                long tableId = rs.getLong("TBL_ID");
+                extract.tableIds.put(rs.getString("DB_NAME") + "." + rs.getString("TBL_NAME"), tableId);
+                extract.tables.put(tableId, readTable(rs));
+            }
+            DbUtils.closeQuietly(rs);
+            DbUtils.closeQuietly(stmt);
+
+            stmt = prepareStreaming(PARTITION_QUERY + "join TBLS t on p.TBL_ID = t.TBL_ID join DBS d on t.DB_ID = d.DB_ID "
+              + "where d.NAME in " + databaseFilter);
+            i = 1;
+            stmt.setString(i++, NUM_ROWS);
+            stmt.setString(i++, TOTAL_SIZE);
+            stmt.setString(i++, SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP);
+            for (String databaseName : databaseNames) {
+                stmt.setString(i++, databaseName);
+            }
+            rs = stmt.executeQuery();
+            Map<Long, MetastorePartition> partitionsById = new HashMap<>();
+            while (rs.next()) {
+                long partitionId = rs.getLong("PART_ID");
+                MetastorePartition partition = partitionsById.get(partitionId);
+                if (partition == null) {
+                    partition = new MetastorePartition();
+                    partition.setValuesFromName("/" + rs.getString("PART_NAME"));
+                    partitionsById.put(partitionId, partition);
+
+                    long tableId = rs.getLong("TBL_ID");
+                    List<MetastorePartition> tablePartitions = extract.partitions.get(tableId);
+                    if (tablePartitions == null) {
+                        tablePartitions = new ArrayList<>();
+                        extract.partitions.put(tableId, tablePartitions);
+                    }
+                    tablePartitions.add(partition);
+                }
+                setParameter(partition, rs.getString("PARAM_KEY"), rs.getString("PARAM_VALUE"));
+            }
+            LOG.info("Extracted " + extract.tables.size() + " tables and " + partitionsById.size()
+              + " partitions from metastore");
+            this.bulkExtract = extract;
+        } catch (SQLException e) {
+            LOG.error("Could not extract tables and partitions from metastore, falling back to per table queries", e);
+        } finally {
+            DbUtils.closeQuietly(rs);
+            DbUtils.closeQuietly(stmt);
         }
-        System.out.println();
     }
 
     @Override
     public MetastoreTable getTable(String databaseName, String tableName) {
+        if (bulkExtract != null) {
+            Long tableId = bulkExtract.tableIds.get(databaseName + "." + tableName);
+            if (tableId != null) {
+                return bulkExtract.tables.get(tableId);
+            }
+        }
+
         if (connection == null) {
             return null;
         }
 
+        PreparedStatement stmt = null;
         try {
-            Statement stmt = connection.createStatement();
-            String query = new StringBuilder()
-                    .append("select OWNER, CREATE_TIME, INPUT_FORMAT, OUTPUT_FORMAT, LOCATION, PARAM_VALUE ")
-                    .append("from (")
-                    .append("  select TBL_ID, SD_ID, OWNER, CREATE_TIME from TBLS where TBL_NAME=\"" + tableName + "\" and DB_ID=" + databaseNameToDatabaseId.get(databaseName))
-                    .append(") t ")
-                    .append("join SDS sd on t.SD_ID = sd.SD_ID ")
-                    .append("left join (")
-                    .append("select * from TABLE_PARAMS where TBL_ID=3 and PARAM_KEY=\"" + SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP + "\"")
-                    .append(") tp on t.TBL_ID = tp.TBL_ID")
-                    .toString();
-            ResultSet rs = stmt.executeQuery(query);
+            stmt = connection.prepareStatement(TABLE_QUERY + "where d.NAME = ? and t.TBL_NAME = ?");
+            stmt.setString(1, SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP);
+            stmt.setString(2, databaseName);
+            stmt.setString(3, tableName);
+            ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return new MetastoreTable(rs.getString("OWNER"), rs.getInt("CREATE_TIME") * 1000L, rs.getString("INPUT_FORMAT"),
-                        rs.getString("OUTPUT_FORMAT"), rs.getString("LOCATION"), rs.getString("PARAM_VALUE"));
+                return readTable(rs);
             }
         } catch (SQLException e) {
             LOG.error("Could not retrieve table from metastore", e);
+        } finally {
+            DbUtils.closeQuietly(stmt);
         }
         return null;
     }
@@ -118,41 +224,44 @@ public class MetastoreJdbcClient extends MetastoreClient {
 
     @Override
     public List<MetastorePartition> listPartitions(String databaseName, String tableName, List<String> groupedPartitionNames) {
-        if (connection == null) {
+        if (bulkExtract != null) {
+            Long extractedTableId = bulkExtract.tableIds.get(databaseName + "." + tableName);
+            if (extractedTableId != null) {
+                List<MetastorePartition> partitions = bulkExtract.partitions.get(extractedTableId);
+                return partitions != null ? partitions : new ArrayList<MetastorePartition>();
+            }
+        }
+
+        Long tableId = tableNameToTableId != null ? tableNameToTableId.get(databaseName + "." + tableName) : null;
+        if (connection == null || tableId == null) {
             return Lists.newArrayList();
         }
 
+        Map<Long, MetastorePartition> partitionsById = new HashMap<>();
         List<MetastorePartition> partitions = new ArrayList<>();
+        PreparedStatement stmt = null;
         try {
-            Statement stmt = connection.createStatement();
-            String query = new StringBuilder()
-                    .append("select ")
-                    .append("  PART_ID, PART_NAME, max(NUM_ROWS) as NUM_ROWS, max(TOTAL_SIZE) AS TOTAL_SIZE, max(TRANSFORMATION_TIMESTAMP) AS TIMESTAMP ")
-                    .append("from (")
-                    .append("  select ")
-                    .append("    p.PART_ID, p.PART_NAME, ")
-                    .append("    case when pp.PARAM_KEY = \"numRows\" then pp.PARAM_VALUE END as NUM_ROWS, ")
-                    .append("    case when pp.PARAM_KEY = \"totalSize\" then pp.PARAM_VALUE END as TOTAL_SIZE, ")
-                    .append("    case when pp.PARAM_KEY = \"transformation.timestamp\" then pp.PARAM_VALUE END as TRANSFORMATION_TIMESTAMP ")
-                    .append("  from PARTITIONS p left join PARTITION_PARAMS pp on p.PART_ID = pp.PART_ID ")
-                    .append("  where TBL_ID=" + tableNameToTableId.get(databaseName + "." + tableName) + " and (pp.PARAM_KEY=\"numRows\" or pp.PARAM_KEY=\"totalSize\" or pp.PARAM_KEY=\"transformation.timestamp\")) asd ")
-                    .append("group by PART_ID, PART_NAME")
-                    .toString();
-            ResultSet rs = stmt.executeQuery(query);
+            stmt = connection.prepareStatement(PARTITION_QUERY + "where p.TBL_ID = ?");
+            stmt.setString(1, NUM_ROWS);
+            stmt.setString(2, TOTAL_SIZE);
+            stmt.setString(3, SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP);
+            stmt.setLong(4, tableId);
+            ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
-                MetastorePartition metastorePartition = new MetastorePartition();
-                String partitionName = rs.getString("PART_NAME");
-                String num_rows = rs.getString("NUM_ROWS");
-                String total_size = rs.getString("TOTAL_SIZE");
-                String timestamp = rs.getString("TIMESTAMP");
-                metastorePartition.setValuesFromName("/" + partitionName);
-                metastorePartition.setNumRows(num_rows);
-                metastorePartition.setTotalSize(total_size);
-                metastorePartition.setSchedoscopeTimestamp(timestamp);
-                partitions.add(metastorePartition);
+                long partitionId = rs.getLong("PART_ID");
+                MetastorePartition partition = partitionsById.get(partitionId);
+                if (partition == null) {
+                    partition = new MetastorePartition();
+                    partition.setValuesFromName("/" + rs.getString("PART_NAME"));
+                    partitionsById.put(partitionId, partition);
+                    partitions.add(partition);
+                }
+                setParameter(partition, rs.getString("PARAM_KEY"), rs.getString("PARAM_VALUE"));
             }
         } catch (SQLException e) {
             LOG.error("Could not retrieve table from metastore", e);
+        } finally {
+            DbUtils.closeQuietly(stmt);
         }
         return partitions;
     }
@@ -163,6 +272,7 @@ public class MetastoreJdbcClient extends MetastoreClient {
         this.databaseIdToDatabaseName = null;
         this.tableNameToTableId = null;
         this.databaseNameToDatabaseId = null;
+        this.bulkExtract = null;
 
         if (connection == null) {
             return;
@@ -176,4 +286,60 @@ public class MetastoreJdbcClient extends MetastoreClient {
         }
     }
 
+    private MetastoreTable readTable(ResultSet rs) throws SQLException {
+        return new MetastoreTable(rs.getString("OWNER"), rs.getInt("CREATE_TIME") * 1000L, rs.getString("INPUT_FORMAT"),
+          rs.getString("OUTPUT_FORMAT"), rs.getString("LOCATION"), rs.getString("PARAM_VALUE"));
+    }
+
+    private void setParameter(MetastorePartition partition, String key, String value) {
+        if (key == null) {
+            return;
+        }
+        switch (key) {
+            case NUM_ROWS:
+                partition.setNumRows(value);
+                break;
+            case TOTAL_SIZE:
+                partition.setTotalSize(value);
+                break;
+            case SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP:
+                partition.setSchedoscopeTimestamp(value);
+                break;
+        }
+    }
+
+    /**
+     * Rows of a streaming statement are read as they arrive instead of being buffered by the driver first.
+     * MySQL only streams with a fetch size of Integer.MIN_VALUE.
+     */
+    private PreparedStatement prepareStreaming(String sql) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(streamingFetchSize());
+        return stmt;
+    }
+
+    private Statement streamingStatement() throws SQLException {
+        Statement stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(streamingFetchSize());
+        return stmt;
+    }
+
+    private int streamingFetchSize() {
+        return config.getMetastoreJdbcUrl().startsWith("jdbc:mysql") ? Integer.MIN_VALUE : 1024;
+    }
+
+    private String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private static class BulkExtract {
+        private final Map<String, Long> tableIds = new HashMap<>();
+        private final Map<Long, MetastoreTable> tables = new HashMap<>();
+        private final Map<Long, List<MetastorePartition>> partitions = new HashMap<>();
+    }
+
 }
@@ -18,7 +18,6 @@ package org.schedoscope.metascope.task.metastore;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
-import org.apache.hadoop.fs.Path;
 
 import org.apache.tomcat.jdbc.pool.DataSource;
 import org.schedoscope.metascope.config.MetascopeConfig;
@@ -26,6 +25,7 @@ import org.schedoscope.metascope.index.SolrFacade;
 import org.schedoscope.metascope.model.MetascopeTable;
 import org.schedoscope.metascope.model.MetascopeView;
 import org.schedoscope.metascope.repository.jdbc.RawJDBCSqlRepository;
+import org.schedoscope.metascope.service.MetascopeSampleService;
 import org.schedoscope.metascope.task.Task;
 import org.schedoscope.metascope.task.metastore.model.MetastorePartition;
 import org.schedoscope.metascope.task.metastore.model.MetastoreTable;
@@ -36,12 +36,23 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class MetastoreTask extends Task {
@@ -57,19 +68,36 @@ public class MetastoreTask extends Task {
     @Autowired
     private SolrFacade solrFacade;
 
+    @Autowired
+    private MetascopeSampleService metascopeSampleService;
+
     private MetastoreClient metastoreClient;
 
+    private Set<String> tableViewPaths;
+
+    private StorageStatsCollector storageStats;
+
+    private Set<String> sampledTables;
+
+    private Map<MetascopeTable, Map<String, Long>> sampledPartitions;
+
     public MetastoreTask(MetastoreClient metastoreClient) {
         this.metastoreClient = metastoreClient;
     }
 
+    /**
+     * Restricts the next run to the tables with the given view paths. Pass null to sync all tables.
+     */
+    public MetastoreTask forTables(Set<String> tableViewPaths) {
+        this.tableViewPaths = tableViewPaths;
+        return this;
+    }
+
     @Override
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public boolean run(RawJDBCSqlRepository sqlRepository, long start) {
         LOG.info("Sync repository with metastore");
 
-        metastoreClient.init();
-
         FileSystem fs;
         try {
             Configuration hadoopConfig = new Configuration();
@@ -77,7 +105,6 @@ public class MetastoreTask extends Task {
             fs = FileSystem.get(hadoopConfig);
         } catch (IOException e) {
             LOG.info("[MetastoreSyncTask] FAILED: Could not connect to HDFS", e);
-            metastoreClient.close();
             return false;
         }
 
@@ -89,102 +116,61 @@ public class MetastoreTask extends Task {
             return false;
         }
 
-        LOG.info("Connected to metastore (" + config.getMetastoreThriftUri() + ")");
-
         List<MetascopeTable> allTables = sqlRepository.findAllTables(connection);
-
-        for (MetascopeTable table : allTables) {
-            LOG.info("Get metastore information for table " + table.getFqdn());
-
-            try {
-                MetastoreTable mTable = metastoreClient.getTable(table.getDatabaseName(), table.getTableName());
-
-                if (mTable == null) {
-                    LOG.error("Could not retrieve table from metastore.");
-                    continue;
-                }
-
-                table.setTableOwner(mTable.getOwner());
-                table.setCreatedAt(mTable.getCreateTime() * 1000L);
-                table.setInputFormat(mTable.getInputFormat());
-                table.setOutputFormat(mTable.getOutputFormat());
-                table.setDataPath(mTable.getLocation());
-                try {
-                    table.setDataSize(getDirectorySize(fs, table.getDataPath()));
-                    table.setPermissions(getPermission(fs, table.getDataPath()));
-                } catch (IllegalArgumentException e) {
-                    LOG.warn("Could not retrieve dir size: " + e.getMessage());
-                    LOG.debug("ERROR: Could not read HDFS metadata", e);
+        if (tableViewPaths != null) {
+            List<MetascopeTable> changedTables = new ArrayList<>();
+            for (MetascopeTable table : allTables) {
+                if (tableViewPaths.contains(table.getViewPath())) {
+                    changedTables.add(table);
                 }
+            }
+            LOG.info("Incremental sync: " + changedTables.size() + " of " + allTables.size() + " tables changed");
+            allTables = changedTables;
+        }
 
-                long maxLastTransformation = -1;
-
-                List<String> partitionNames = metastoreClient.listPartitionNames(table.getDatabaseName(), table.getTableName(), (short) -1);
-
-                List<MetascopeView> views = sqlRepository.findViews(connection, table.getFqdn());
-                List<List<String>> groupedPartitions = metastoreClient.partitionLists(partitionNames, 10000);
-                for (List<String> groupedPartitionNames : groupedPartitions) {
-                    List<MetastorePartition> partitions = metastoreClient.listPartitions(table.getDatabaseName(), table.getTableName(), groupedPartitionNames);
-                    List<MetascopeView> changedViews = new ArrayList<>();
-                    for (MetastorePartition partition : partitions) {
-                        MetascopeView view = getView(views, partition);
-                        if (view == null) {
-                            //a view which is not registered as a partition in hive metastore should not exists ...
-                            continue;
-                        }
-                        
-                        view.setTable(table);
-
-                        String numRows = partition.getNumRows();
-                        if (numRows != null && !numRows.toUpperCase().equals("NULL") && !numRows.isEmpty()) {
-                            view.setNumRows(Long.parseLong(numRows));
-                        }
-                        String totalSize = partition.getTotalSize();
-                        if (totalSize != null && !totalSize.toUpperCase().equals("NULL") && !totalSize.isEmpty()) {
-                            view.setTotalSize(Long.parseLong(totalSize));
-                        }
-                        String lastTransformation = partition.getSchedoscopeTimestamp();
-                        if (lastTransformation != null && !lastTransformation.toUpperCase().equals("NULL") && !lastTransformation.isEmpty()) {
-                            long ts = Long.parseLong(lastTransformation);
-                            view.setLastTransformation(ts);
-                            if (ts > maxLastTransformation) {
-                                maxLastTransformation = ts;
-                            }
-                        }
-                        solrFacade.updateViewEntity(view, false);
-                        changedViews.add(view);
-                    }
-                    sqlRepository.insertOrUpdateViewMetadata(connection, changedViews);
-                    solrFacade.commit();
-                }
+        if (storageStats == null) {
+            storageStats = new StorageStatsCollector(config.getHdfsStatsThreads(), config.getHdfsStatsRpcPerSecond(),
+              config.getHdfsStatsCacheTtl());
+        }
+        storageStats.open(fs);
 
-                if (maxLastTransformation != -1) {
-                    table.setLastTransformation(maxLastTransformation);
-                } else {
-                    String ts = mTable.getSchedoscopeTimestamp();//mTable.getParameters().get(SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP);
-                    if (ts != null) {
-                        long lastTransformationTs = Long.parseLong(ts);
-                        table.setLastTransformation(lastTransformationTs);
-                        MetascopeView rootView = views.get(0);
-                        rootView.setTable(table);
-                        rootView.setLastTransformation(lastTransformationTs);
-                        solrFacade.updateViewEntity(rootView, false);
-                    }
-                }
+        metastoreClient.init();
+        LOG.info("Connected to metastore (" + config.getMetastoreThriftUri() + ")");
 
-                sqlRepository.saveTable(connection, table);
-                solrFacade.updateTableMetastoreData(table, true);
-            } catch (Exception e) {
-                LOG.warn("Could not retrieve table from metastore", e);
-                continue;
+        /* a full sync touches every table, so let the client extract the relevant databases in bulk */
+        if (tableViewPaths == null) {
+            Set<String> databaseNames = new HashSet<>();
+            for (MetascopeTable table : allTables) {
+                databaseNames.add(table.getDatabaseName());
             }
+            metastoreClient.prefetch(databaseNames);
+        }
 
+        sampledTables = metascopeSampleService.getSampledTables();
+        sampledPartitions = new ConcurrentHashMap<>();
+
+        SyncProgress progress = new SyncProgress("Metastore sync", allTables.size());
+        int workers = Math.min(config.getMetastoreWorkers(), allTables.size());
+        if (workers > 1) {
+            LOG.info("Syncing " + allTables.size() + " tables with " + workers + " workers");
+            syncParallel(sqlRepository, allTables, workers, progress);
+        } else {
+            for (MetascopeTable table : allTables) {
+                syncTable(metastoreClient, connection, sqlRepository, table);
+                progress.tableDone();
+            }
         }
 
+        metastoreClient.close();
+        storageStats.close();
+
         /* commit to index */
         solrFacade.commit();
 
-        metastoreClient.close();
+        /* samples of partitions with new data are outdated, samples of dropped partitions are removed */
+        for (Map.Entry<MetascopeTable, Map<String, Long>> e : sampledPartitions.entrySet()) {
+            metascopeSampleService.refreshSamples(e.getKey(), e.getValue());
+        }
 
         try {
             fs.close();
@@ -202,35 +188,192 @@ public class MetastoreTask extends Task {
         return true;
     }
 
-    private MetascopeView getView(List<MetascopeView> views, MetastorePartition partition) {
-        for (MetascopeView view : views) {
-            if (view.getParameterValues().equals(partition.getValues())) {
-                return view;
+    /**
+     * Shards the tables across a pool of workers. Each worker takes the next table from a shared queue, so a few
+     * large tables do not hold up a whole shard, and uses its own metastore and repository connection.
+     */
+    private void syncParallel(final RawJDBCSqlRepository sqlRepository, List<MetascopeTable> tables, int workers,
+                              final SyncProgress progress) {
+        final Queue<MetascopeTable> queue = new ConcurrentLinkedQueue<>(tables);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    syncWorker(queue, sqlRepository, progress);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            for (Future<?> future : futures) {
+                future.get();
             }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting for metastore workers", e);
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.error("Metastore worker failed", e.getCause());
         }
-        return null;
     }
 
-    private Long getDirectorySize(FileSystem fs, String path) {
+    private void syncWorker(Queue<MetascopeTable> queue, RawJDBCSqlRepository sqlRepository, SyncProgress progress) {
+        Connection connection;
         try {
-            return fs.getContentSummary(new Path(path)).getSpaceConsumed();
-        } catch (FileNotFoundException e) {
-            LOG.warn("Directory '{}' does not exists", path);
-            return 0L;
-        } catch (IOException e) {
-            LOG.error(
-                    "Error retrieving size for directory '{}'", path, e);
-            return 0L;
+            connection = dataSource.getConnection();
+        } catch (SQLException e) {
+            LOG.error("Could not retrieve database connection.", e);
+            return;
+        }
+
+        MetastoreClient client = metastoreClient.newClient();
+        client.init();
+        try {
+            MetascopeTable table;
+            while ((table = queue.poll()) != null) {
+                syncTable(client, connection, sqlRepository, table);
+                progress.tableDone();
+            }
+        } finally {
+            client.close();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.error("Could not close connection", e);
+            }
         }
     }
 
-    private String getPermission(FileSystem fs, String path) {
+    private void syncTable(MetastoreClient client, Connection connection, RawJDBCSqlRepository sqlRepository,
+                           MetascopeTable table) {
+        LOG.info("Get metastore information for table " + table.getFqdn());
+
         try {
-            return fs.getFileStatus(new Path(path)).getPermission().toString();
-        } catch (IllegalArgumentException | IOException e) {
-            LOG.error("Error retrieving permissions for directory '{}'", path, e);
-            return "-";
+            MetastoreTable mTable = client.getTable(table.getDatabaseName(), table.getTableName());
+
+            if (mTable == null) {
+                LOG.error("Could not retrieve table from metastore.");
+                return;
+            }
+
+            table.setTableOwner(mTable.getOwner());
+            table.setCreatedAt(mTable.getCreateTime() * 1000L);
+            table.setInputFormat(mTable.getInputFormat());
+            table.setOutputFormat(mTable.getOutputFormat());
+            table.setDataPath(mTable.getLocation());
+
+            List<MetascopeView> views = sqlRepository.findViews(connection, table.getFqdn());
+            try {
+                storageStats.collect(table, views);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("Could not retrieve dir size: " + e.getMessage());
+                LOG.debug("ERROR: Could not read HDFS metadata", e);
+            }
+
+            long maxLastTransformation = -1;
+
+            /* the partitions of sampled tables, keyed by their parameter string */
+            Map<String, Long> partitionTransformations = sampledTables.contains(table.getFqdn())
+              ? new HashMap<String, Long>() : null;
+
+            List<String> partitionNames = client.listPartitionNames(table.getDatabaseName(), table.getTableName(), (short) -1);
+
+            Map<List<String>, MetascopeView> viewsByParameterValues = indexByParameterValues(views);
+            List<List<String>> groupedPartitions = client.partitionLists(partitionNames, 10000);
+            for (List<String> groupedPartitionNames : groupedPartitions) {
+                List<MetastorePartition> partitions = client.listPartitions(table.getDatabaseName(), table.getTableName(), groupedPartitionNames);
+                List<MetascopeView> changedViews = new ArrayList<>();
+                for (MetastorePartition partition : partitions) {
+                    MetascopeView view = viewsByParameterValues.get(partition.getValues());
+                    if (view == null) {
+                        //a view which is not registered as a partition in hive metastore should not exists ...
+                        continue;
+                    }
+
+                    view.setTable(table);
+
+                    String numRows = partition.getNumRows();
+                    if (numRows != null && !numRows.toUpperCase().equals("NULL") && !numRows.isEmpty()) {
+                        view.setNumRows(Long.parseLong(numRows));
+                    }
+                    String totalSize = partition.getTotalSize();
+                    if (totalSize != null && !totalSize.toUpperCase().equals("NULL") && !totalSize.isEmpty()) {
+                        view.setTotalSize(Long.parseLong(totalSize));
+                    }
+                    String lastTransformation = partition.getSchedoscopeTimestamp();
+                    if (lastTransformation != null && !lastTransformation.toUpperCase().equals("NULL") && !lastTransformation.isEmpty()) {
+                        long ts = Long.parseLong(lastTransformation);
+                        view.setLastTransformation(ts);
+                        if (ts > maxLastTransformation) {
+                            maxLastTransformation = ts;
+                        }
+                    }
+                    solrFacade.updateViewEntity(view, false);
+                    changedViews.add(view);
+                    if (partitionTransformations != null && view.getParameterString() != null) {
+                        partitionTransformations.put(view.getParameterString(), view.getLastTransformation());
+                    }
+                }
+                sqlRepository.insertOrUpdateViewMetadata(connection, changedViews);
+            }
+
+            if (maxLastTransformation != -1) {
+                table.setLastTransformation(maxLastTransformation);
+            } else {
+                String ts = mTable.getSchedoscopeTimestamp();//mTable.getParameters().get(SCHEDOSCOPE_TRANSFORMATION_TIMESTAMP);
+                if (ts != null) {
+                    long lastTransformationTs = Long.parseLong(ts);
+                    table.setLastTransformation(lastTransformationTs);
+                    MetascopeView rootView = views.get(0);
+                    rootView.setTable(table);
+                    rootView.setLastTransformation(lastTransformationTs);
+                    solrFacade.updateViewEntity(rootView, false);
+                }
+            }
+
+            sqlRepository.saveTable(connection, table);
+            solrFacade.updateTableMetastoreData(table, false);
+
+            if (partitionTransformations != null) {
+                sampledPartitions.put(table, partitionTransformations);
+            }
+        } catch (Exception e) {
+            LOG.warn("Could not retrieve table from metastore", e);
+        }
+    }
+
+    /**
+     * Keys the views of a table by their partition values, the same tuple the metastore reports per partition.
+     */
+    private Map<List<String>, MetascopeView> indexByParameterValues(List<MetascopeView> views) {
+        Map<List<String>, MetascopeView> index = new HashMap<>(views.size() * 2);
+        for (MetascopeView view : views) {
+            List<String> values = view.getParameterValues();
+            if (!index.containsKey(values)) {
+                index.put(values, view);
+            }
         }
+        return index;
+    }
+
+    public void setConfig(MetascopeConfig config) {
+        this.config = config;
+    }
+
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void setSolrFacade(SolrFacade solrFacade) {
+        this.solrFacade = solrFacade;
+    }
+
+    public void setMetascopeSampleService(MetascopeSampleService metascopeSampleService) {
+        this.metascopeSampleService = metascopeSampleService;
     }
 
 }
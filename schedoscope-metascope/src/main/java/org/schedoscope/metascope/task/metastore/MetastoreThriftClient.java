@@ -26,6 +26,11 @@ public class MetastoreThriftClient extends MetastoreClient {
         super(config);
     }
 
+    @Override
+    public MetastoreClient newClient() {
+        return new MetastoreThriftClient(config);
+    }
+
     @Override
     public void init() {
         HiveConf conf = new HiveConf();
@@ -0,0 +1,242 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task.metastore;
+
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the HDFS sizes of tables and their partition directories. Directories are summarized in parallel on a
+ * bounded pool, shared by all metastore workers, which issues at most a configured number of namenode calls per
+ * second. Sizes are cached by path together with the number, total length and newest modification time of the
+ * directory's entries: an unchanged partition costs a single listStatus call, only partitions whose files were added,
+ * removed, rewritten or appended to are summarized again. As changes in nested directories do not always show up in
+ * the listing, cached sizes expire after a TTL. The cache outlives a single sync, expired sizes are dropped when the
+ * next sync starts.
+ */
+class StorageStatsCollector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageStatsCollector.class);
+
+    private final int threads;
+    private final long rpcInterval;
+    private final long cacheTtl;
+    private final ConcurrentMap<String, DirectoryStats> cache = new ConcurrentHashMap<>();
+
+    private long nextRpc;
+    private FileSystem fs;
+    private ExecutorService executor;
+
+    StorageStatsCollector(int threads, int rpcPerSecond, int cacheTtlSeconds) {
+        this.threads = threads;
+        this.rpcInterval = TimeUnit.SECONDS.toNanos(1) / rpcPerSecond;
+        this.cacheTtl = TimeUnit.SECONDS.toMillis(cacheTtlSeconds);
+    }
+
+    void open(FileSystem fs) {
+        this.fs = fs;
+        this.executor = Executors.newFixedThreadPool(threads);
+        evictExpired();
+    }
+
+    void close() {
+        executor.shutdownNow();
+        executor = null;
+        fs = null;
+    }
+
+    /**
+     * Sets the permissions and size of the table and the size of each of its views. The size of a partitioned table
+     * is the sum of its partition directories, an unpartitioned table is summarized as a whole.
+     */
+    void collect(MetascopeTable table, List<MetascopeView> views) throws InterruptedException {
+        String tablePath = table.getDataPath();
+        Path tableDir = new Path(tablePath);
+
+        try {
+            acquire();
+            table.setPermissions(fs.getFileStatus(tableDir).getPermission().toString());
+        } catch (IOException e) {
+            LOG.error("Error retrieving permissions for directory '{}'", tablePath, e);
+            table.setPermissions("-");
+        }
+
+        List<MetascopeView> rootViews = new ArrayList<>();
+        Map<String, List<MetascopeView>> viewsByDirectory = new LinkedHashMap<>();
+        for (MetascopeView view : views) {
+            String parameterString = view.getParameterString();
+            if (parameterString == null || parameterString.isEmpty()) {
+                rootViews.add(view);
+                continue;
+            }
+            String directory = tablePath + parameterString;
+            List<MetascopeView> directoryViews = viewsByDirectory.get(directory);
+            if (directoryViews == null) {
+                directoryViews = new ArrayList<>();
+                viewsByDirectory.put(directory, directoryViews);
+            }
+            directoryViews.add(view);
+        }
+        if (viewsByDirectory.isEmpty()) {
+            viewsByDirectory.put(tablePath, new ArrayList<MetascopeView>());
+        }
+
+        Map<String, Future<Long>> sizes = new LinkedHashMap<>();
+        for (final String directory : viewsByDirectory.keySet()) {
+            sizes.put(directory, executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return getDirectorySize(directory);
+                }
+            }));
+        }
+
+        long tableSize = 0;
+        for (Map.Entry<String, Future<Long>> entry : sizes.entrySet()) {
+            long size;
+            try {
+                size = entry.getValue().get();
+            } catch (ExecutionException e) {
+                LOG.error("Error retrieving size for directory '{}'", entry.getKey(), e.getCause());
+                size = 0;
+            }
+            for (MetascopeView view : viewsByDirectory.get(entry.getKey())) {
+                view.setDataSize(size);
+            }
+            tableSize += size;
+        }
+
+        table.setDataSize(tableSize);
+        for (MetascopeView view : rootViews) {
+            view.setDataSize(tableSize);
+        }
+    }
+
+    private long getDirectorySize(String directory) throws InterruptedException {
+        Path path = new Path(directory);
+        try {
+            acquire();
+            FileStatus[] entries = fs.listStatus(path);
+            int entryCount = entries.length;
+            long length = 0;
+            long newestModificationTime = 0;
+            for (FileStatus entry : entries) {
+                length += entry.getLen();
+                newestModificationTime = Math.max(newestModificationTime, entry.getModificationTime());
+            }
+
+            long now = currentTimeMillis();
+            DirectoryStats cached = cache.get(directory);
+            if (cached != null && cached.entryCount == entryCount && cached.length == length
+              && cached.newestModificationTime == newestModificationTime && now - cached.collectedAt < cacheTtl) {
+                return cached.size;
+            }
+
+            acquire();
+            long size = fs.getContentSummary(path).getSpaceConsumed();
+            cache.put(directory, new DirectoryStats(entryCount, length, newestModificationTime, now, size));
+            return size;
+        } catch (FileNotFoundException e) {
+            LOG.warn("Directory '{}' does not exists", directory);
+            cache.remove(directory);
+            return 0L;
+        } catch (IOException e) {
+            LOG.error("Error retrieving size for directory '{}'", directory, e);
+            return 0L;
+        }
+    }
+
+    /**
+     * Drops the sizes which are older than the TTL. They would be summarized again anyway, and the directories of
+     * dropped tables and partitions are not looked up again, so without eviction the cache would grow with every
+     * partition ever seen.
+     */
+    private void evictExpired() {
+        long now = currentTimeMillis();
+        Iterator<DirectoryStats> it = cache.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().collectedAt >= cacheTtl) {
+                it.remove();
+            }
+        }
+    }
+
+    int cachedDirectories() {
+        return cache.size();
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Blocks until the next namenode call may be issued.
+     */
+    private void acquire() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextRpc - now < 0) {
+                nextRpc = now;
+            }
+            wait = nextRpc - now;
+            nextRpc += rpcInterval;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    private static class DirectoryStats {
+
+        private final int entryCount;
+        private final long length;
+        private final long newestModificationTime;
+        private final long collectedAt;
+        private final long size;
+
+        private DirectoryStats(int entryCount, long length, long newestModificationTime, long collectedAt, long size) {
+            this.entryCount = entryCount;
+            this.length = length;
+            this.newestModificationTime = newestModificationTime;
+            this.collectedAt = collectedAt;
+            this.size = size;
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task.metastore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts finished tables of a sync and logs progress and an ETA at most every 30 seconds. Safe to be used by
+ * several workers at once.
+ */
+class SyncProgress {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SyncProgress.class);
+
+    private static final long REPORT_INTERVAL = 30000;
+
+    private final String name;
+    private final int total;
+    private final long start;
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicLong lastReport;
+
+    SyncProgress(String name, int total) {
+        this.name = name;
+        this.total = total;
+        this.start = System.currentTimeMillis();
+        this.lastReport = new AtomicLong(start);
+    }
+
+    void tableDone() {
+        int finished = done.incrementAndGet();
+        long now = System.currentTimeMillis();
+        long last = lastReport.get();
+        if ((now - last >= REPORT_INTERVAL || finished == total) && lastReport.compareAndSet(last, now)) {
+            LOG.info(describe(finished, now));
+        }
+    }
+
+    String describe(int finished, long now) {
+        long elapsed = now - start;
+        StringBuilder sb = new StringBuilder(name).append(": ").append(finished).append("/").append(total)
+          .append(" tables (").append(total == 0 ? 100 : finished * 100 / total).append("%), elapsed ")
+          .append(formatDuration(elapsed));
+        if (finished > 0 && finished < total) {
+            long eta = elapsed * (total - finished) / finished;
+            sb.append(", ETA ").append(formatDuration(eta));
+        }
+        return sb.toString();
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        return seconds >= 60 ? (seconds / 60) + "m " + (seconds % 60) + "s" : seconds + "s";
+    }
+
+}
@@ -16,6 +16,7 @@
 package org.schedoscope.metascope.task.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +24,7 @@ public class ViewStatus {
 
     private Map<String, String> overview;
     private List<View> views;
+    private Map<String, List<View>> viewsByTable;
 
     public Map<String, String> getOverview() {
         return overview;
@@ -38,6 +40,31 @@ public class ViewStatus {
 
     public void setViews(List<View> views) {
         this.views = views;
+        this.viewsByTable = null;
+    }
+
+    /**
+     * Groups the partition views (all views which are not a table entry) by the view path of their table, see
+     * {@link View#viewPath()}. The index is built in one pass on first access.
+     */
+    public Map<String, List<View>> viewsByTable() {
+        if (viewsByTable == null) {
+            Map<String, List<View>> index = new HashMap<>();
+            for (View view : views) {
+                if (view.isTable()) {
+                    continue;
+                }
+                String viewPath = view.viewPath();
+                List<View> tableViews = index.get(viewPath);
+                if (tableViews == null) {
+                    tableViews = new ArrayList<>();
+                    index.put(viewPath, tableViews);
+                }
+                tableViews.add(view);
+            }
+            viewsByTable = index;
+        }
+        return viewsByTable;
     }
 
     public List<String> getTableNames() {
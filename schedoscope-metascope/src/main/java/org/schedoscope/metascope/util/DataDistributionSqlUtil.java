@@ -15,16 +15,47 @@
  */
 package org.schedoscope.metascope.util;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.schedoscope.metascope.model.MetascopeField;
 import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.util.model.ColumnProfile;
+import org.schedoscope.metascope.util.model.DataProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Builds the profiling query of a table and reads its result. A single scan
+ * profiles a batch of partitions: the query groups by the partition columns
+ * and returns one row of mergeable aggregates per partition (see
+ * {@link DataProfile}).
+ */
 public class DataDistributionSqlUtil {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DataDistributionSqlUtil.class);
+
+    /**
+     * Number of most frequent values requested per string column and partition
+     */
+    public static final int TOP_VALUES = 20;
+
+    private static final String PARTITION_ALIAS = "agg_part_";
+
+    private static final long HASH_RANGE = 1L << 32;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     public enum NumericType {
-        INT, BIGINT, TINYINT, DOUBLE, FLOAT
+        INT, BIGINT, SMALLINT, TINYINT, DOUBLE, FLOAT
     }
 
     public enum StringType {
@@ -39,42 +70,239 @@ public class DataDistributionSqlUtil {
         MAP, LIST, ARRAY
     }
 
-    public static String buildSql(MetascopeTable table) {
-        String sql = new String();
-        List<MetascopeField> fields = new ArrayList<>();
+    /**
+     * Builds the profiling query for the given partitions of a table.
+     *
+     * @param table          the table to profile
+     * @param partitionSpecs the partitions to profile, in the format of
+     *                       {@link org.schedoscope.metascope.model.MetascopeView#getParameterString()};
+     *                       ignored for unpartitioned tables
+     * @param values         receives the values for the placeholders of the query
+     * @return the query, or null if the table has no column to profile
+     */
+    public static String buildSql(MetascopeTable table, List<String> partitionSpecs, List<String> values) {
+        List<MetascopeField> parameters = table.getOrderedParameters();
+        List<MetascopeField> fields = getProfiledFields(table);
+        if (fields.isEmpty()) {
+            return null;
+        }
+
+        String hashes = "";
+        String mixedHashes = "";
+        String aggregates = "count(*) as agg_rows";
+        for (MetascopeField field : fields) {
+            String fn = field.getFieldName();
+            String col = "s." + fn;
+            String kind = getKind(field.getFieldType());
+            aggregates += ", count(" + col + ") as " + fn + "__count";
 
+            if (kind.equals(ColumnProfile.NUMERIC) || kind.equals(ColumnProfile.STRING)) {
+                hashes += ", case when t." + fn + " is not null then pmod(hash(t." + fn + "), " + HASH_RANGE
+                        + ") end as " + fn + "__h0";
+                mixedHashes += ", " + mixHash("u." + fn + "__h0") + " as " + fn + "__h";
+                aggregates += ", min(" + col + ") as " + fn + "__min, max(" + col + ") as " + fn + "__max"
+                        + ", collect_set(" + hllRegister("s." + fn + "__h") + ") as " + fn + "__hll";
+            }
+
+            if (kind.equals(ColumnProfile.NUMERIC)) {
+                String dbl = "cast(" + col + " as double)";
+                aggregates += ", sum(" + dbl + ") as " + fn + "__sum, sum(" + dbl + " * " + dbl + ") as " + fn + "__sumsq"
+                        + ", histogram_numeric(" + dbl + ", " + SketchUtil.HISTOGRAM_BINS + ") as " + fn + "__hist";
+            } else if (kind.equals(ColumnProfile.STRING)) {
+                aggregates += ", ngrams(case when " + col + " is not null then array(array(" + col + ")) end, 1, "
+                        + TOP_VALUES + ", 10) as " + fn + "__topk";
+            } else if (kind.equals(ColumnProfile.BOOLEAN)) {
+                aggregates += ", sum(case when " + col + " then 1 else 0 end) as " + fn + "__true";
+            } else if (kind.equals(ColumnProfile.COLLECTION)) {
+                aggregates += ", min(size(" + col + ")) as " + fn + "__min, max(size(" + col + ")) as " + fn + "__max";
+            }
+        }
+
+        String partitionColumns = "";
+        String groupBy = "";
+        for (int i = 0; i < parameters.size(); i++) {
+            String pn = "s." + parameters.get(i).getFieldName();
+            partitionColumns += pn + " as " + PARTITION_ALIAS + i + ", ";
+            groupBy += (groupBy.isEmpty() ? " group by " : ", ") + pn;
+        }
+
+        String where = "";
+        if (!parameters.isEmpty()) {
+            for (String partitionSpec : partitionSpecs) {
+                Map<String, String> partition = parsePartitionSpec(partitionSpec);
+                String condition = "";
+                for (MetascopeField parameter : parameters) {
+                    condition += (condition.isEmpty() ? "" : " and ") + "t." + parameter.getFieldName() + "=?";
+                    values.add(partition.get(parameter.getFieldName()));
+                }
+                where += (where.isEmpty() ? " where " : " or ") + "(" + condition + ")";
+            }
+        }
+
+        return "select " + partitionColumns + aggregates
+                + " from (select u.*" + mixedHashes + " from (select t.*" + hashes + " from " + table.getFqdn() + " t"
+                + where + ") u) s" + groupBy;
+    }
+
+    /**
+     * Reads the result of a query built by {@link #buildSql(MetascopeTable, List, List)}
+     *
+     * @return the profiles keyed by partition spec ("" for unpartitioned tables)
+     */
+    public static Map<String, DataProfile> readProfiles(MetascopeTable table, ResultSet rs) throws SQLException {
+        List<MetascopeField> parameters = table.getOrderedParameters();
+        List<MetascopeField> fields = getProfiledFields(table);
+
+        Map<String, DataProfile> profiles = new HashMap<>();
+        while (rs.next()) {
+            String partitionSpec = "";
+            for (int i = 0; i < parameters.size(); i++) {
+                partitionSpec += "/" + parameters.get(i).getFieldName() + "=" + rs.getString(PARTITION_ALIAS + i);
+            }
+
+            DataProfile profile = new DataProfile();
+            profile.setRows(rs.getLong("agg_rows"));
+            for (MetascopeField field : fields) {
+                String fn = field.getFieldName();
+                String kind = getKind(field.getFieldType());
+                ColumnProfile column = new ColumnProfile(kind);
+                column.setCount(rs.getLong(fn + "__count"));
+
+                if (!kind.equals(ColumnProfile.BOOLEAN)) {
+                    column.setMin(rs.getString(fn + "__min"));
+                    column.setMax(rs.getString(fn + "__max"));
+                }
+                if (kind.equals(ColumnProfile.NUMERIC) || kind.equals(ColumnProfile.STRING)) {
+                    column.setHll(readHll(rs.getString(fn + "__hll")));
+                }
+                if (kind.equals(ColumnProfile.NUMERIC)) {
+                    column.setSum(rs.getDouble(fn + "__sum"));
+                    column.setSumOfSquares(rs.getDouble(fn + "__sumsq"));
+                    column.setHistogram(readHistogram(rs.getString(fn + "__hist")));
+                } else if (kind.equals(ColumnProfile.STRING)) {
+                    column.setTopValues(readTopValues(rs.getString(fn + "__topk")));
+                } else if (kind.equals(ColumnProfile.BOOLEAN)) {
+                    column.setTrueCount(rs.getLong(fn + "__true"));
+                }
+                profile.getColumns().put(fn, column);
+            }
+            profiles.put(partitionSpec, profile);
+        }
+        return profiles;
+    }
+
+    public static Map<String, String> parsePartitionSpec(String partitionSpec) {
+        Map<String, String> partition = new LinkedHashMap<>();
+        if (partitionSpec == null || partitionSpec.isEmpty()) {
+            return partition;
+        }
+        String[] params = partitionSpec.split("/");
+        for (int i = 1; i < params.length; i++) {
+            int idx = params[i].indexOf('=');
+            partition.put(params[i].substring(0, idx), params[i].substring(idx + 1));
+        }
+        return partition;
+    }
+
+    public static List<MetascopeField> getProfiledFields(MetascopeTable table) {
+        List<MetascopeField> fields = new ArrayList<>();
         for (MetascopeField metascopeField : table.getFields()) {
-            if (isNumeric(metascopeField.getFieldType()) || isBoolean(metascopeField.getFieldType())
-                    || isString(metascopeField.getFieldType()) || isCollection(metascopeField.getFieldType())) {
+            if (getKind(metascopeField.getFieldType()) != null) {
                 fields.add(metascopeField);
             }
         }
+        return fields;
+    }
 
-        for (MetascopeField field : fields) {
-            if (sql.isEmpty()) {
-                sql += "select count(*) as agg_rows, ";
-            } else {
-                sql += ",";
-            }
+    private static String getKind(String type) {
+        if (isNumeric(type)) {
+            return ColumnProfile.NUMERIC;
+        } else if (isString(type)) {
+            return ColumnProfile.STRING;
+        } else if (isBoolean(type)) {
+            return ColumnProfile.BOOLEAN;
+        } else if (isCollection(type)) {
+            return ColumnProfile.COLLECTION;
+        }
+        return null;
+    }
 
-            String fn = field.getFieldName();
+    /**
+     * Spreads the bits of a 32 bit hash with the finalizer of MurmurHash3. The
+     * hash() of Hive returns e.g. the value itself for integers, which would put
+     * all multiples of the register count into the same register. Shifts and
+     * 32 bit overflows are expressed with bigint arithmetic, as the bit shift
+     * functions require Hive 1.2.
+     */
+    private static String mixHash(String hash) {
+        String mixed = xorShift(hash, 16);
+        mixed = "pmod(" + mixed + " * 2246822507L, " + HASH_RANGE + ")";
+        mixed = xorShift(mixed, 13);
+        mixed = "pmod(" + mixed + " * 3266489909L, " + HASH_RANGE + ")";
+        return xorShift(mixed, 16);
+    }
+
+    private static String xorShift(String hash, int bits) {
+        return "(" + hash + " ^ floor(" + hash + " / " + (1L << bits) + "))";
+    }
 
-            if (isNumeric(field.getFieldType())) {
-                sql += "min(" + fn + ") as " + fn + "__min, max(" + fn + ") as " + fn + "__max, avg(" + fn + ") as " + fn + "__avg, stddev_pop(" + fn
-                        + ") as " + fn + "__stddev, sum(" + fn + ") as " + fn + "__sum";
-            } else if (isBoolean(field.getFieldType())) {
-                sql += "sum(case when " + fn + " then 1 else 0 end) as " + fn + "__true, " + "sum(case when not(" + fn
-                        + ") then 1 when isnull(" + fn + ") then 1 else 0 end) as " + fn + "__false";
-            } else if (isString(field.getFieldType())) {
-                sql += "min(" + fn + ") as " + fn + "__min, max(" + fn + ") as " + fn + "__max";
-            } else if (isCollection(field.getFieldType())) {
-                sql += "min(size(" + fn + ")) as " + fn + "__min, max(size(" + fn + ")) as " + fn + "__max";
+    /**
+     * Encodes a 32 bit hash as HyperLogLog register * 32 + rank, where the rank
+     * is the position of the first set bit of the hash after the register bits
+     */
+    private static String hllRegister(String hash) {
+        String rest = "floor(" + hash + " / " + SketchUtil.HLL_REGISTERS + ")";
+        return "pmod(" + hash + ", " + SketchUtil.HLL_REGISTERS + ") * 32 + case when " + rest + " = 0 then "
+                + (SketchUtil.HLL_RANK_BITS + 1) + " else " + (SketchUtil.HLL_RANK_BITS + 1) + " - length(bin(" + rest
+                + ")) end";
+    }
+
+    private static byte[] readHll(String json) {
+        if (json == null) {
+            return null;
+        }
+        byte[] registers = new byte[SketchUtil.HLL_REGISTERS];
+        try {
+            for (JsonNode value : OBJECT_MAPPER.readTree(json)) {
+                SketchUtil.addHllValue(registers, value.asInt());
             }
+        } catch (IOException e) {
+            LOG.warn("Could not read distinct count sketch", e);
+            return null;
         }
+        return registers;
+    }
 
-        sql += " from " + table.getFqdn();
+    private static List<double[]> readHistogram(String json) {
+        if (json == null) {
+            return null;
+        }
+        List<double[]> histogram = new ArrayList<>();
+        try {
+            for (JsonNode bin : OBJECT_MAPPER.readTree(json)) {
+                histogram.add(new double[]{bin.get("x").asDouble(), bin.get("y").asDouble()});
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not read histogram", e);
+            return null;
+        }
+        return histogram;
+    }
 
-        return sql;
+    private static Map<String, Double> readTopValues(String json) {
+        if (json == null) {
+            return null;
+        }
+        Map<String, Double> topValues = new HashMap<>();
+        try {
+            for (JsonNode ngram : OBJECT_MAPPER.readTree(json)) {
+                topValues.put(ngram.get("ngram").get(0).asText(), ngram.get("estfrequency").asDouble());
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not read frequent values", e);
+            return null;
+        }
+        return topValues;
     }
 
     private static boolean isNumeric(String type) {
@@ -27,7 +27,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -45,6 +44,9 @@ public class HiveQueryExecutor {
     @Autowired
     private MetascopeConfig config;
 
+    @Autowired
+    private HiveServerConnectionPool hiveServerConnectionPool;
+
     @PostConstruct
     private void init() {
         Configuration conf = new Configuration();
@@ -55,26 +57,18 @@ public class HiveQueryExecutor {
             conf.set("hadoop.security.authentication", "kerberos");
             UserGroupInformation.setConfiguration(conf);
         }
-        try {
-            Class.forName(config.getHiveJdbcDriver());
-        } catch (ClassNotFoundException e) {
-            LOG.error("Hive JDBC driver not found", e);
-        }
     }
 
+    /**
+     * Fetches a sample of the given table from HiveServer2.
+     *
+     * @param user the user the sample is fetched for, or null if the query is not
+     *             issued by a user (e.g. when the sample cache is populated); such
+     *             queries nobody waits for run with the longer query timeout
+     */
     @Transactional
-    public HiveQueryResult executeQuery(String databaseName, String tableName, String fields, Set<MetascopeField> parameters,
-                                        Map<String, String> params) {
-        List<List<String>> rows = new ArrayList<List<String>>();
-
-        HiveServerConnection hiveConn = new HiveServerConnection(config);
-
-        hiveConn.connect();
-
-        if (hiveConn.getConnection() == null) {
-            return new HiveQueryResult("Could not connect to HiveServer2");
-        }
-
+    public HiveQueryResult executeQuery(String user, String databaseName, String tableName, String fields,
+                                        Set<MetascopeField> parameters, Map<String, String> params) {
         String where = "";
         List<String> values = new ArrayList<String>();
         if (params != null) {
@@ -90,7 +84,6 @@ public class HiveQueryExecutor {
                         }
                     }
                     if (!parameterExists) {
-                        hiveConn.close();
                         return new HiveQueryResult("Query not allowed");
                     }
 
@@ -113,35 +106,39 @@ public class HiveQueryExecutor {
         sql += where.isEmpty() ? "" : " WHERE " + where;
         sql += " LIMIT 10";
 
-        List<String> header = new ArrayList<String>();
+        int timeout = user != null ? config.getHiveServerSampleTimeout() : config.getHiveServerQueryTimeout();
         try {
-            PreparedStatement pstmt = hiveConn.getConnection().prepareStatement(sql);
-            for (int i = 1; i <= values.size(); i++) {
-                pstmt.setString(i, values.get(i - 1));
-            }
-            ResultSet rs = pstmt.executeQuery();
-            ResultSetMetaData rsmd = rs.getMetaData();
-
-            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-                header.add(rsmd.getColumnName(i));
-            }
-
-            while (rs.next()) {
-                List<String> row = new ArrayList<String>();
-                for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-                    Object val = rs.getObject(i);
-                    String strVal = (val == null ? null : val.toString());
-                    row.add(strVal);
-                }
-                rows.add(row);
-            }
+            return hiveServerConnectionPool.executeQuery(user, sql, values, timeout,
+                    new HiveServerConnectionPool.ResultHandler<HiveQueryResult>() {
+                        @Override
+                        public HiveQueryResult handle(ResultSet rs) throws SQLException {
+                            return readResult(rs);
+                        }
+                    });
         } catch (SQLException e) {
             LOG.error("Could not execute query", e);
-            hiveConn.close();
             return new HiveQueryResult(e.getMessage());
         }
+    }
+
+    private HiveQueryResult readResult(ResultSet rs) throws SQLException {
+        List<String> header = new ArrayList<String>();
+        List<List<String>> rows = new ArrayList<List<String>>();
+        ResultSetMetaData rsmd = rs.getMetaData();
+
+        for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+            header.add(rsmd.getColumnName(i));
+        }
 
-        hiveConn.close();
+        while (rs.next()) {
+            List<String> row = new ArrayList<String>();
+            for (int i = 1; i <= rsmd.getColumnCount(); i++) {
+                Object val = rs.getObject(i);
+                String strVal = (val == null ? null : val.toString());
+                row.add(strVal);
+            }
+            rows.add(row);
+        }
         return new HiveQueryResult(header, rows);
     }
 
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.schedoscope.metascope.config.MetascopeConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded pool of HiveServer2 connections. At most
+ * {@link MetascopeConfig#getHiveServerPoolSize()} connections (and thus HS2
+ * sessions) are open at any time, idle connections are validated before they
+ * are handed out again. Every query runs with a timeout after which it is
+ * cancelled, and a single user may only run
+ * {@link MetascopeConfig#getHiveServerMaxQueriesPerUser()} queries at once.
+ */
+@Component
+public class HiveServerConnectionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HiveServerConnectionPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    /**
+     * Reads the result of a query, see
+     * {@link HiveServerConnectionPool#executeQuery(String, String, List, int, ResultHandler)}
+     */
+    public interface ResultHandler<T> {
+
+        T handle(ResultSet rs) throws SQLException;
+
+    }
+
+    @Autowired
+    private MetascopeConfig config;
+
+    private Semaphore connectionPermits;
+    private BlockingQueue<Connection> idleConnections;
+    private ConcurrentMap<String, Semaphore> userPermits;
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    public void init() {
+        try {
+            Class.forName(config.getHiveJdbcDriver());
+        } catch (ClassNotFoundException e) {
+            LOG.error("Hive JDBC driver not found", e);
+        }
+        this.connectionPermits = new Semaphore(config.getHiveServerPoolSize(), true);
+        this.idleConnections = new LinkedBlockingQueue<Connection>();
+        this.userPermits = new ConcurrentHashMap<String, Semaphore>();
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "metascope-hive-query-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        watchdog.shutdownNow();
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Executes the given query on a pooled connection.
+     *
+     * @param user           the user the query is executed for; at most the
+     *                       configured number of queries run per user at once. May
+     *                       be null for queries not issued by a user.
+     * @param sql            the query, with '?' placeholders
+     * @param values         the values for the placeholders
+     * @param timeoutSeconds time after which the query is cancelled; also bounds
+     *                       the time spent waiting for a free connection
+     * @param handler        reads the result set
+     * @return the result of the handler
+     * @throws SQLException if the query fails, times out, no connection becomes
+     *                      available or the user has too many running queries
+     */
+    public <T> T executeQuery(String user, String sql, List<String> values, int timeoutSeconds, ResultHandler<T> handler)
+            throws SQLException {
+        Semaphore userPermit = null;
+        if (user != null) {
+            userPermit = getUserPermits(user);
+            if (!userPermit.tryAcquire()) {
+                throw new SQLException("Too many running queries, please wait for them to finish");
+            }
+        }
+
+        try {
+            Connection connection = borrow(timeoutSeconds);
+            boolean broken = true;
+            try {
+                T result = execute(connection, sql, values, timeoutSeconds, handler);
+                broken = false;
+                return result;
+            } finally {
+                release(connection, broken);
+            }
+        } finally {
+            if (userPermit != null) {
+                userPermit.release();
+            }
+        }
+    }
+
+    private <T> T execute(Connection connection, String sql, List<String> values, int timeoutSeconds,
+                          ResultHandler<T> handler) throws SQLException {
+        final PreparedStatement stmt = connection.prepareStatement(sql);
+        final AtomicBoolean cancelled = new AtomicBoolean(false);
+        ScheduledFuture<?> cancellation = watchdog.schedule(new Runnable() {
+            @Override
+            public void run() {
+                cancelled.set(true);
+                try {
+                    stmt.cancel();
+                } catch (SQLException e) {
+                    LOG.warn("Could not cancel hive query", e);
+                }
+            }
+        }, timeoutSeconds, TimeUnit.SECONDS);
+
+        ResultSet rs = null;
+        try {
+            try {
+                stmt.setQueryTimeout(timeoutSeconds);
+            } catch (SQLException e) {
+                // not supported by older drivers, the watchdog cancels the query
+            }
+            if (values != null) {
+                for (int i = 1; i <= values.size(); i++) {
+                    stmt.setString(i, values.get(i - 1));
+                }
+            }
+            rs = stmt.executeQuery();
+            return handler.handle(rs);
+        } catch (SQLException e) {
+            if (cancelled.get()) {
+                throw new SQLException("Query timed out after " + timeoutSeconds + " seconds", e);
+            }
+            throw e;
+        } finally {
+            cancellation.cancel(false);
+            closeQuietly(rs);
+            closeQuietly(stmt);
+        }
+    }
+
+    private Connection borrow(int timeoutSeconds) throws SQLException {
+        try {
+            if (!connectionPermits.tryAcquire(timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new SQLException("No connection to HiveServer2 available");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to HiveServer2");
+        }
+
+        try {
+            Connection connection;
+            while ((connection = idleConnections.poll()) != null) {
+                if (isValid(connection)) {
+                    return connection;
+                }
+                closeQuietly(connection);
+            }
+            return DriverManager.getConnection(config.getHiveServerUrl());
+        } catch (SQLException e) {
+            connectionPermits.release();
+            LOG.warn("Could not connect to hive server", e);
+            throw e;
+        } catch (RuntimeException e) {
+            connectionPermits.release();
+            throw e;
+        }
+    }
+
+    private void release(Connection connection, boolean broken) {
+        if (broken) {
+            closeQuietly(connection);
+        } else {
+            idleConnections.offer(connection);
+        }
+        connectionPermits.release();
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            // isValid is not supported by older drivers
+            try {
+                return !connection.isClosed();
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+    }
+
+    private Semaphore getUserPermits(String user) {
+        Semaphore permits = userPermits.get(user);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(config.getHiveServerMaxQueriesPerUser());
+            permits = userPermits.putIfAbsent(user, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    public void setConfig(MetascopeConfig config) {
+        this.config = config;
+    }
+
+    private void closeQuietly(AutoCloseable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                LOG.debug("Failed closing hive server resource", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compact lineage graph. Nodes are numbered 0..n-1, edges are
+ * kept as int adjacency arrays (compressed sparse rows) in both directions,
+ * so traversals neither touch the database nor allocate per visited node
+ * beyond a bit of bookkeeping.
+ */
+public class LineageGraph {
+
+    /**
+     * Depth which does not limit a traversal
+     */
+    public static final int UNLIMITED = -1;
+
+    private final Map<String, Integer> index;
+    private final String[] ids;
+    private final String[] labels;
+    private final String[] parents;
+
+    /* node i depends on dependencyTargets[dependencyOffsets[i] .. dependencyOffsets[i + 1] - 1] */
+    private final int[] dependencyOffsets;
+    private final int[] dependencyTargets;
+    private final int[] successorOffsets;
+    private final int[] successorTargets;
+
+    private LineageGraph(Map<String, Integer> index, String[] ids, String[] labels, String[] parents, int[] from,
+                         int[] to, int edges) {
+        this.index = index;
+        this.ids = ids;
+        this.labels = labels;
+        this.parents = parents;
+        this.dependencyOffsets = new int[ids.length + 1];
+        this.dependencyTargets = new int[edges];
+        this.successorOffsets = new int[ids.length + 1];
+        this.successorTargets = new int[edges];
+        fill(dependencyOffsets, dependencyTargets, from, to, edges);
+        fill(successorOffsets, successorTargets, to, from, edges);
+    }
+
+    private static void fill(int[] offsets, int[] targets, int[] from, int[] to, int edges) {
+        for (int e = 0; e < edges; e++) {
+            offsets[from[e] + 1]++;
+        }
+        for (int i = 0; i < offsets.length - 1; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int e = 0; e < edges; e++) {
+            targets[next[from[e]]++] = to[e];
+        }
+    }
+
+    /**
+     * @return the node of the given id, or -1 if it has no lineage
+     */
+    public int indexOf(String id) {
+        Integer node = index.get(id);
+        return node == null ? -1 : node;
+    }
+
+    public String getId(int node) {
+        return ids[node];
+    }
+
+    public String getLabel(int node) {
+        return labels[node];
+    }
+
+    public String getParent(int node) {
+        return parents[node];
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Breadth-first traversal of the dependencies (or successors) of the start
+     * nodes.
+     *
+     * @param starts       the nodes to start from
+     * @param dependencies {@code true}: follow dependencies, {@code false}: follow successors
+     * @param maxDepth     maximum number of edges from a start node, or {@link #UNLIMITED}
+     * @param edges        if not null, receives each traversed edge as (node, neighbour)
+     * @return the reached nodes in order of their distance; a start node is
+     * only included if it is reachable from a start node
+     */
+    public int[] traverse(int[] starts, boolean dependencies, int maxDepth, List<int[]> edges) {
+        int[] offsets = dependencies ? dependencyOffsets : successorOffsets;
+        int[] targets = dependencies ? dependencyTargets : successorTargets;
+
+        boolean[] expanded = new boolean[ids.length];
+        boolean[] reached = new boolean[ids.length];
+        int[] queue = new int[ids.length];
+        int[] depth = new int[ids.length];
+        int head = 0;
+        int tail = 0;
+        for (int start : starts) {
+            if (start >= 0 && !expanded[start]) {
+                expanded[start] = true;
+                queue[tail++] = start;
+            }
+        }
+
+        int[] result = new int[ids.length];
+        int found = 0;
+        while (head < tail) {
+            int node = queue[head++];
+            if (maxDepth != UNLIMITED && depth[node] >= maxDepth) {
+                continue;
+            }
+            for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                int neighbour = targets[i];
+                if (edges != null) {
+                    edges.add(new int[]{node, neighbour});
+                }
+                if (!reached[neighbour]) {
+                    reached[neighbour] = true;
+                    result[found++] = neighbour;
+                }
+                if (!expanded[neighbour]) {
+                    expanded[neighbour] = true;
+                    depth[neighbour] = depth[node] + 1;
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Collects the nodes and dependency edges of a lineage graph
+     */
+    public static class Builder {
+
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final List<String> parents = new ArrayList<>();
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int edges;
+
+        /**
+         * Adds the edge "node depends on dependency"
+         */
+        public Builder addDependency(String id, String label, String parent, String dependencyId,
+                                     String dependencyLabel, String dependencyParent) {
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = addNode(id, label, parent);
+            to[edges] = addNode(dependencyId, dependencyLabel, dependencyParent);
+            edges++;
+            return this;
+        }
+
+        private int addNode(String id, String label, String parent) {
+            Integer node = index.get(id);
+            if (node == null) {
+                node = ids.size();
+                index.put(id, node);
+                ids.add(id);
+                labels.add(label);
+                parents.add(parent);
+            }
+            return node;
+        }
+
+        public LineageGraph build() {
+            return new LineageGraph(index, ids.toArray(new String[ids.size()]), labels.toArray(new String[labels.size()]),
+                    parents.toArray(new String[parents.size()]), from, to, edges);
+        }
+
+    }
+
+}
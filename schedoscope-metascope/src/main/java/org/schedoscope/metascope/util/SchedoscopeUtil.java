@@ -19,11 +19,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.filter.GZIPContentEncodingFilter;
 import org.schedoscope.metascope.exception.SchedoscopeConnectException;
 import org.schedoscope.metascope.task.model.ViewStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 public class SchedoscopeUtil {
 
     private static final Logger LOG = LoggerFactory.getLogger(SchedoscopeUtil.class);
@@ -47,6 +51,34 @@ public class SchedoscopeUtil {
         return getViewStatusFromJson(json);
     }
 
+    /**
+     * Streams all views of a Schedoscope instance (/views?all=true) to the given handler, one table at a time,
+     * instead of materializing the whole response. See {@link ViewStreamParser} for how views are grouped.
+     *
+     * @param host    host to schedoscope instance
+     * @param port    port to schedoscope instance
+     * @param handler receives each table with its views
+     * @return the number of views received, table entries included, or -1 if the response could not be parsed
+     * @throws SchedoscopeConnectException
+     */
+    public static int streamViewsByTable(String host, int port, TableViewsHandler handler)
+            throws SchedoscopeConnectException {
+        Client client = createClient();
+        ClientResponse response = makeRequest(client, viewsUrl(true, false, null, host, port));
+        InputStream in = response.getEntityInputStream();
+        try {
+            int views = new ViewStreamParser(handler).parse(in);
+            LOG.info("Streamed " + views + " views");
+            return views;
+        } catch (IOException e) {
+            LOG.error("Could not parse JSON from Schedoscope REST API (/). Aborting task execution ...", e);
+            return -1;
+        } finally {
+            response.close();
+            client.destroy();
+        }
+    }
+
     private static ViewStatus getViewStatusFromJson(String json) {
         ViewStatus viewStatus = null;
         ObjectMapper objectMapper = new ObjectMapper();
@@ -66,6 +98,16 @@ public class SchedoscopeUtil {
      */
     private static String getViewsAsJsonFromSchedoscope(boolean all, boolean dependencies, String filter, String host, int port)
             throws SchedoscopeConnectException {
+        Client client = createClient();
+        ClientResponse response = makeRequest(client, viewsUrl(all, dependencies, filter, host, port));
+        try {
+            return response.getEntity(String.class);
+        } finally {
+            client.destroy();
+        }
+    }
+
+    private static String viewsUrl(boolean all, boolean dependencies, String filter, String host, int port) {
         String url = "http://" + host + ":" + port + "/views/?";
         if (all) {
             url += "&all=true";
@@ -79,11 +121,19 @@ public class SchedoscopeUtil {
             url += "&filter=" + filter;
         }
 
-        return makeRequest(url);
+        return url;
     }
 
-    private static String makeRequest(String url) throws SchedoscopeConnectException {
+    /**
+     * Creates a client which asks for a gzip compressed response and transparently decompresses it.
+     */
+    private static Client createClient() {
         Client client = Client.create();
+        client.addFilter(new GZIPContentEncodingFilter(false));
+        return client;
+    }
+
+    private static ClientResponse makeRequest(Client client, String url) throws SchedoscopeConnectException {
         WebResource webResource = client.resource(url);
         ClientResponse response = null;
 
@@ -99,10 +149,10 @@ public class SchedoscopeUtil {
         if (response == null || response.getStatus() != 200) {
             LOG.error("Could not connect to Schedoscope REST API "
                     + "(Schedoscope is not running or host/port information may be wrong)");
+            client.destroy();
             throw new SchedoscopeConnectException("Could not connect to schedoscope", new Throwable("Could not connect"));
         }
-        client.destroy();
-        return response.getEntity(String.class);
+        return response;
     }
 
 }
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Mergeable sketches used for data profiling: HyperLogLog registers for
+ * approximate distinct counts and streaming histograms (Ben-Haim/Tom-Tov, as
+ * produced by Hive's histogram_numeric) for approximate quantiles.
+ */
+public class SketchUtil {
+
+    /**
+     * Number of bits of a hash value which select the HyperLogLog register
+     */
+    public static final int HLL_INDEX_BITS = 10;
+
+    /**
+     * Number of HyperLogLog registers, the standard error is about 1.04 / sqrt(registers), i.e. ~3%
+     */
+    public static final int HLL_REGISTERS = 1 << HLL_INDEX_BITS;
+
+    /**
+     * Number of bits of a 32 bit hash value left for the rank after selecting the register
+     */
+    public static final int HLL_RANK_BITS = 32 - HLL_INDEX_BITS;
+
+    /**
+     * Number of centroids kept per histogram
+     */
+    public static final int HISTOGRAM_BINS = 32;
+
+    private static final Comparator<double[]> BY_CENTROID = new Comparator<double[]>() {
+        @Override
+        public int compare(double[] o1, double[] o2) {
+            return Double.compare(o1[0], o2[0]);
+        }
+    };
+
+    /**
+     * Updates the registers with a value encoded as register * 32 + rank (see
+     * {@link DataDistributionSqlUtil})
+     */
+    public static void addHllValue(byte[] registers, int encoded) {
+        int register = encoded >>> 5;
+        byte rank = (byte) (encoded & 31);
+        if (register < registers.length && registers[register] < rank) {
+            registers[register] = rank;
+        }
+    }
+
+    public static byte[] mergeHll(byte[] a, byte[] b) {
+        if (a == null) {
+            return b == null ? null : b.clone();
+        }
+        byte[] merged = a.clone();
+        if (b != null) {
+            for (int i = 0; i < merged.length && i < b.length; i++) {
+                if (merged[i] < b[i]) {
+                    merged[i] = b[i];
+                }
+            }
+        }
+        return merged;
+    }
+
+    public static long estimateHll(byte[] registers) {
+        if (registers == null) {
+            return 0;
+        }
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.pow(2, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            /* small range correction */
+            estimate = m * Math.log((double) m / zeros);
+        } else if (estimate > Math.pow(2, 32) / 30) {
+            /* large range correction for 32 bit hashes */
+            estimate = -Math.pow(2, 32) * Math.log(1 - estimate / Math.pow(2, 32));
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Merges two histograms of (centroid, count) pairs, combining the closest
+     * centroids until at most {@link #HISTOGRAM_BINS} remain.
+     */
+    public static List<double[]> mergeHistograms(List<double[]> a, List<double[]> b) {
+        List<double[]> merged = new ArrayList<>();
+        if (a != null) {
+            for (double[] bin : a) {
+                merged.add(bin.clone());
+            }
+        }
+        if (b != null) {
+            for (double[] bin : b) {
+                merged.add(bin.clone());
+            }
+        }
+        Collections.sort(merged, BY_CENTROID);
+
+        while (merged.size() > HISTOGRAM_BINS) {
+            int closest = 0;
+            double minGap = Double.MAX_VALUE;
+            for (int i = 0; i < merged.size() - 1; i++) {
+                double gap = merged.get(i + 1)[0] - merged.get(i)[0];
+                if (gap < minGap) {
+                    minGap = gap;
+                    closest = i;
+                }
+            }
+            double[] left = merged.get(closest);
+            double[] right = merged.remove(closest + 1);
+            double count = left[1] + right[1];
+            left[0] = (left[0] * left[1] + right[0] * right[1]) / count;
+            left[1] = count;
+        }
+        return merged;
+    }
+
+    /**
+     * @return the approximate quantile q (0 <= q <= 1) of a histogram, or null
+     * if the histogram is empty
+     */
+    public static Double quantile(List<double[]> histogram, double q) {
+        if (histogram == null || histogram.isEmpty()) {
+            return null;
+        }
+        double total = 0;
+        for (double[] bin : histogram) {
+            total += bin[1];
+        }
+
+        double target = q * total;
+        double seen = 0;
+        double[] previous = null;
+        for (double[] bin : histogram) {
+            if (seen + bin[1] >= target) {
+                if (previous == null) {
+                    return bin[0];
+                }
+                double fraction = (target - seen) / bin[1];
+                return previous[0] + fraction * (bin[0] - previous[0]);
+            }
+            seen += bin[1];
+            previous = bin;
+        }
+        return histogram.get(histogram.size() - 1)[0];
+    }
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.schedoscope.metascope.task.model.View;
+
+import java.util.List;
+
+/**
+ * Receives the views of a Schedoscope instance one table at a time, see
+ * {@link SchedoscopeUtil#streamViewsByTable(String, int, TableViewsHandler)}.
+ */
+public interface TableViewsHandler {
+
+    /**
+     * @param table the table entry, carrying fields, parameters, lineage and transformation
+     * @param views the partition views of the table
+     */
+    void onTable(View table, List<View> views);
+
+}
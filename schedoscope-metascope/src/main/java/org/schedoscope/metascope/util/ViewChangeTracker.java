@@ -0,0 +1,82 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the last status seen for every view and the time a table last had a view change its status. It is fed
+ * by the status task every minute and lets the metastore sync restrict itself to the tables which were actually
+ * (re-)materialized since its last run.
+ */
+@Component
+public class ViewChangeTracker {
+
+    private final Map<String, String> viewStatus = new ConcurrentHashMap<>();
+    private final Map<String, Long> tableChanges = new ConcurrentHashMap<>();
+    private volatile long trackingSince = -1;
+
+    /**
+     * Records the status of a view as seen at the given time. A status different from the one seen before (or a
+     * view which shows up for the first time after the initial poll) marks its table as changed.
+     */
+    public void observe(String tablePath, String viewPath, String status, long ts) {
+        if (status == null) {
+            return;
+        }
+        String previous = viewStatus.put(viewPath, status.intern());
+        boolean changed = previous == null ? trackingSince != -1 : !previous.equals(status);
+        if (changed) {
+            tableChanges.put(tablePath, ts);
+        }
+    }
+
+    /**
+     * Marks the end of a complete status poll. Changes are reliable from the first completed poll on.
+     */
+    public void pollCompleted(long ts) {
+        if (trackingSince == -1) {
+            trackingSince = ts;
+        }
+    }
+
+    public void markChanged(String tablePath, long ts) {
+        tableChanges.put(tablePath, ts);
+    }
+
+    /**
+     * @return true, if every status change since the given time has been observed
+     */
+    public boolean coversSince(long ts) {
+        return trackingSince != -1 && trackingSince <= ts;
+    }
+
+    public Set<String> getTablesChangedSince(long ts) {
+        Set<String> tables = new HashSet<>();
+        for (Map.Entry<String, Long> e : tableChanges.entrySet()) {
+            if (e.getValue() >= ts) {
+                tables.add(e.getKey());
+            }
+        }
+        return tables;
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.schedoscope.metascope.task.model.View;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the /views?all=true payload of the Schedoscope REST interface view by view and hands it to a
+ * {@link TableViewsHandler} grouped by table, without materializing the document.
+ * <p>
+ * Current Schedoscope versions send each table entry directly followed by the partition views of that table. Once a
+ * table entry follows partition views, this order is certain and every table is handed over as soon as the next table
+ * entry starts, so only one table is held in memory. Older versions send all table entries first and all partition
+ * views afterwards. A partition view which does not belong to the latest table entry reveals this order, and the
+ * tables are then handed over at the end of the stream. Views in any other order are rejected with an
+ * {@link IOException}.
+ */
+class ViewStreamParser {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final TableViewsHandler handler;
+    private final Set<String> tables = new HashSet<>();
+    private final Map<String, View> pendingTables = new LinkedHashMap<>();
+    private final Map<String, List<View>> pendingViews = new HashMap<>();
+
+    private View currentTable;
+    private boolean viewsSeen;
+    private boolean streaming;
+    private boolean tablesFirst;
+    private int viewCount;
+
+    ViewStreamParser(TableViewsHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @return the number of views read, table entries included
+     */
+    int parse(InputStream in) throws IOException {
+        JsonParser parser = OBJECT_MAPPER.getFactory().createParser(in);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (fieldName.equals("views") && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        add(parser.readValueAs(View.class));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } finally {
+            parser.close();
+        }
+        finish();
+        return viewCount;
+    }
+
+    private void add(View view) throws IOException {
+        viewCount++;
+        String viewPath = view.viewPath();
+        if (view.isTable()) {
+            if (!tables.add(viewPath)) {
+                throw new IOException("Table " + viewPath + " appears more than once");
+            }
+            if (tablesFirst) {
+                throw new IOException("Table " + viewPath + " follows partition views, although all tables were "
+                        + "sent first");
+            }
+            /* with all tables first, no table entry can follow a partition view */
+            streaming = streaming || viewsSeen;
+            if (streaming) {
+                emitPending();
+            }
+            pendingTables.put(viewPath, view);
+            currentTable = view;
+            return;
+        }
+
+        viewsSeen = true;
+        if (currentTable == null || !currentTable.viewPath().equals(viewPath)) {
+            if (streaming || !pendingTables.containsKey(viewPath)) {
+                throw new IOException("View " + view.getName() + " does not belong to a preceding table entry");
+            }
+            /* with each table followed by its views, a view always belongs to the latest table */
+            tablesFirst = true;
+        }
+        List<View> views = pendingViews.get(viewPath);
+        if (views == null) {
+            views = new ArrayList<>();
+            pendingViews.put(viewPath, views);
+        }
+        views.add(view);
+    }
+
+    private void finish() {
+        emitPending();
+    }
+
+    private void emitPending() {
+        for (Map.Entry<String, View> table : pendingTables.entrySet()) {
+            List<View> views = pendingViews.get(table.getKey());
+            handler.onTable(table.getValue(), views != null ? views : new ArrayList<View>());
+        }
+        pendingTables.clear();
+        pendingViews.clear();
+    }
+
+}
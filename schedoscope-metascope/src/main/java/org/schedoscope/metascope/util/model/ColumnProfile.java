@@ -0,0 +1,224 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util.model;
+
+import org.schedoscope.metascope.util.SketchUtil;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Mergeable profile of a single column: counts, sums, min/max and sketches
+ * for distinct counts, quantiles and frequent values. Profiles of different
+ * partitions are combined with {@link #merge(ColumnProfile)}.
+ */
+public class ColumnProfile {
+
+    public static final String NUMERIC = "numeric";
+    public static final String STRING = "string";
+    public static final String BOOLEAN = "boolean";
+    public static final String COLLECTION = "collection";
+
+    /**
+     * Number of frequent values kept when merging
+     */
+    private static final int TOP_VALUES_KEPT = 100;
+
+    private String kind;
+    private long count;
+    private String min;
+    private String max;
+    private double sum;
+    private double sumOfSquares;
+    private long trueCount;
+    private byte[] hll;
+    private List<double[]> histogram;
+    private Map<String, Double> topValues;
+
+    public ColumnProfile() {
+    }
+
+    public ColumnProfile(String kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Adds the profile of another partition of the same column to this profile
+     */
+    public ColumnProfile merge(ColumnProfile other) {
+        this.count += other.count;
+        this.sum += other.sum;
+        this.sumOfSquares += other.sumOfSquares;
+        this.trueCount += other.trueCount;
+        if (other.min != null && (min == null || compare(other.min, min) < 0)) {
+            this.min = other.min;
+        }
+        if (other.max != null && (max == null || compare(other.max, max) > 0)) {
+            this.max = other.max;
+        }
+        this.hll = SketchUtil.mergeHll(hll, other.hll);
+        if (histogram != null || other.histogram != null) {
+            this.histogram = SketchUtil.mergeHistograms(histogram, other.histogram);
+        }
+        if (other.topValues != null) {
+            Map<String, Double> merged = topValues == null ? new HashMap<String, Double>() : new HashMap<>(topValues);
+            for (Map.Entry<String, Double> e : other.topValues.entrySet()) {
+                Double current = merged.get(e.getKey());
+                merged.put(e.getKey(), current == null ? e.getValue() : current + e.getValue());
+            }
+            this.topValues = topValues(merged, TOP_VALUES_KEPT);
+        }
+        return this;
+    }
+
+    public double nullRatio(long rows) {
+        return rows == 0 ? 0 : (double) (rows - count) / rows;
+    }
+
+    public Double average() {
+        return count == 0 ? null : sum / count;
+    }
+
+    public Double standardDeviation() {
+        if (count == 0) {
+            return null;
+        }
+        double mean = sum / count;
+        return Math.sqrt(Math.max(0, sumOfSquares / count - mean * mean));
+    }
+
+    public Long distinctCount() {
+        return hll == null ? null : SketchUtil.estimateHll(hll);
+    }
+
+    public Double quantile(double q) {
+        return SketchUtil.quantile(histogram, q);
+    }
+
+    /**
+     * @return the k most frequent values with their approximate frequency
+     */
+    public Map<String, Double> topValues(int k) {
+        return topValues == null ? null : topValues(topValues, k);
+    }
+
+    private static Map<String, Double> topValues(Map<String, Double> values, int k) {
+        List<Map.Entry<String, Double>> entries = new ArrayList<>(values.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Double>>() {
+            @Override
+            public int compare(Map.Entry<String, Double> o1, Map.Entry<String, Double> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        Map<String, Double> top = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size() && i < k; i++) {
+            top.put(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        return top;
+    }
+
+    private int compare(String a, String b) {
+        if (STRING.equals(kind)) {
+            return a.compareTo(b);
+        }
+        try {
+            return new BigDecimal(a).compareTo(new BigDecimal(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+
+    public String getKind() {
+        return kind;
+    }
+
+    public void setKind(String kind) {
+        this.kind = kind;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public String getMin() {
+        return min;
+    }
+
+    public void setMin(String min) {
+        this.min = min;
+    }
+
+    public String getMax() {
+        return max;
+    }
+
+    public void setMax(String max) {
+        this.max = max;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public void setSum(double sum) {
+        this.sum = sum;
+    }
+
+    public double getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    public void setSumOfSquares(double sumOfSquares) {
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    public long getTrueCount() {
+        return trueCount;
+    }
+
+    public void setTrueCount(long trueCount) {
+        this.trueCount = trueCount;
+    }
+
+    public byte[] getHll() {
+        return hll;
+    }
+
+    public void setHll(byte[] hll) {
+        this.hll = hll;
+    }
+
+    public List<double[]> getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(List<double[]> histogram) {
+        this.histogram = histogram;
+    }
+
+    public Map<String, Double> getTopValues() {
+        return topValues;
+    }
+
+    public void setTopValues(Map<String, Double> topValues) {
+        this.topValues = topValues;
+    }
+
+}
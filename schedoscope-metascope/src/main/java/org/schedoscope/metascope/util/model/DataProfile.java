@@ -0,0 +1,59 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mergeable profile of a partition (or of a whole table, after merging the
+ * profiles of its partitions), see {@link ColumnProfile}
+ */
+public class DataProfile {
+
+    private long rows;
+    private Map<String, ColumnProfile> columns = new LinkedHashMap<>();
+
+    public DataProfile merge(DataProfile other) {
+        this.rows += other.rows;
+        for (Map.Entry<String, ColumnProfile> e : other.columns.entrySet()) {
+            ColumnProfile column = columns.get(e.getKey());
+            if (column == null) {
+                column = new ColumnProfile(e.getValue().getKind());
+                columns.put(e.getKey(), column);
+            }
+            column.merge(e.getValue());
+        }
+        return this;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public Map<String, ColumnProfile> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(Map<String, ColumnProfile> columns) {
+        this.columns = columns;
+    }
+
+}
@@ -37,6 +37,9 @@ import org.springframework.test.context.junit4.SpringRunner;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ActiveProfiles(value = "test")
@@ -76,4 +79,40 @@ public class MetascopeDataDistributionControllerTest {
     assertTrue(response.getHeaders().get("Location").get(0).endsWith("/test#datadistributionContent"));
   }
 
+  @Test
+  public void startCalculatesMissingDistribution() throws Exception {
+    startDistribution();
+
+    verify(metascopeDataDistributionService, times(1)).calculateDistribution(any(MetascopeTable.class));
+  }
+
+  @Test
+  public void startRecalculatesFinishedDistribution() throws Exception {
+    when(metascopeDataDistributionService.checkStatus(any(MetascopeTable.class))).thenReturn(MetascopeDataDistributionService.Status.Finished);
+
+    ResponseEntity<String> response = startDistribution();
+
+    assertEquals(302, response.getStatusCodeValue());
+    verify(metascopeDataDistributionService, times(1)).calculateDistribution(any(MetascopeTable.class));
+  }
+
+  @Test
+  public void startIgnoresRunningDistribution() throws Exception {
+    when(metascopeDataDistributionService.checkStatus(any(MetascopeTable.class))).thenReturn(MetascopeDataDistributionService.Status.Running);
+
+    ResponseEntity<String> response = startDistribution();
+
+    assertEquals(302, response.getStatusCodeValue());
+    verify(metascopeDataDistributionService, never()).calculateDistribution(any(MetascopeTable.class));
+  }
+
+  private ResponseEntity<String> startDistribution() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("Referer", "/test");
+
+    HttpEntity<String> entity = new HttpEntity<String>("parameters", headers);
+
+    return this.restTemplate.exchange("/datadistribution/start?fqdn=test", HttpMethod.POST, entity, String.class);
+  }
+
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.index;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SolrIndexBufferTest {
+
+  /* class to test */
+  private SolrIndexBuffer solrIndexBuffer;
+
+  /* mocked fields */
+  private SolrClient solrClientMock;
+
+  /* documents received by the mocked client */
+  private List<SolrInputDocument> sent;
+  private int failures;
+
+  @Before
+  public void setup() throws Exception {
+    this.solrClientMock = mock(SolrClient.class);
+    this.sent = new ArrayList<>();
+    this.failures = 0;
+    when(solrClientMock.add(anyCollectionOf(SolrInputDocument.class), anyInt())).then(new Answer<Object>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public Object answer(InvocationOnMock invocationOnMock) throws Throwable {
+        if (failures > 0) {
+          failures--;
+          throw new SolrServerException("index not available");
+        }
+        sent.addAll((Collection<SolrInputDocument>) invocationOnMock.getArguments()[0]);
+        return null;
+      }
+    });
+    this.solrIndexBuffer = new SolrIndexBuffer(solrClientMock, false);
+  }
+
+  @Test
+  public void fullDocumentReplacesBufferedUpdatesTest() {
+    solrIndexBuffer.add(atomic("table", "description", "old"));
+    solrIndexBuffer.add(full("table", "owner", "hive"));
+
+    assertTrue(solrIndexBuffer.flush());
+
+    assertEquals(1, sent.size());
+    SolrInputDocument doc = sent.get(0);
+    assertEquals("hive", doc.getFieldValue("owner"));
+    assertNull(doc.getField("description"));
+  }
+
+  @Test
+  public void atomicUpdateIsMergedIntoFullDocumentTest() {
+    SolrInputDocument table = full("table", "owner", "hive");
+    table.setField("description", "old");
+    solrIndexBuffer.add(table);
+    solrIndexBuffer.add(atomic("table", "owner", "admin"));
+    solrIndexBuffer.add(atomic("table", "description", null));
+
+    assertTrue(solrIndexBuffer.flush());
+
+    assertEquals(1, sent.size());
+    SolrInputDocument doc = sent.get(0);
+    /* the result is still a full document */
+    assertEquals("admin", doc.getFieldValue("owner"));
+    assertNull(doc.getField("description"));
+  }
+
+  @Test
+  public void atomicUpdatesAreCoalescedTest() {
+    solrIndexBuffer.add(atomic("table", "owner", "hive"));
+    solrIndexBuffer.add(atomic("table", "owner", "admin"));
+    solrIndexBuffer.add(atomic("table", "description", "new"));
+
+    assertTrue(solrIndexBuffer.flush());
+
+    assertEquals(1, sent.size());
+    SolrInputDocument doc = sent.get(0);
+    assertEquals(Collections.singletonMap(SolrIndexBuffer.SET, "admin"), doc.getFieldValue("owner"));
+    assertEquals(Collections.singletonMap(SolrIndexBuffer.SET, "new"), doc.getFieldValue("description"));
+  }
+
+  @Test
+  public void documentsAreSentInOrderTest() {
+    solrIndexBuffer.add(full("a", "owner", "hive"));
+    solrIndexBuffer.add(full("b", "owner", "hive"));
+    solrIndexBuffer.add(atomic("a", "owner", "admin"));
+
+    assertTrue(solrIndexBuffer.flush());
+
+    assertEquals(2, sent.size());
+    assertEquals("a", sent.get(0).getFieldValue(SolrUpdateHandler.ID));
+    assertEquals("b", sent.get(1).getFieldValue(SolrUpdateHandler.ID));
+  }
+
+  @Test
+  public void failedBatchIsRetriedTest() {
+    solrIndexBuffer.add(full("a", "owner", "hive"));
+    solrIndexBuffer.add(full("b", "owner", "hive"));
+
+    failures = 1;
+    assertFalse(solrIndexBuffer.flush());
+    assertTrue(sent.isEmpty());
+
+    /* updates buffered after the failure are merged into the requeued documents */
+    solrIndexBuffer.add(atomic("a", "owner", "admin"));
+    solrIndexBuffer.add(full("c", "owner", "hive"));
+
+    assertTrue(solrIndexBuffer.flush());
+
+    assertEquals(3, sent.size());
+    assertEquals("a", sent.get(0).getFieldValue(SolrUpdateHandler.ID));
+    assertEquals("admin", sent.get(0).getFieldValue("owner"));
+    assertEquals("b", sent.get(1).getFieldValue(SolrUpdateHandler.ID));
+    assertEquals("c", sent.get(2).getFieldValue(SolrUpdateHandler.ID));
+  }
+
+  @Test
+  public void clearDropsRequeuedDocumentsTest() {
+    solrIndexBuffer.add(full("a", "owner", "hive"));
+
+    failures = 1;
+    assertFalse(solrIndexBuffer.flush());
+    solrIndexBuffer.clear();
+
+    assertTrue(solrIndexBuffer.flush());
+    assertTrue(sent.isEmpty());
+  }
+
+  private SolrInputDocument full(String id, String field, String value) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.setField(SolrUpdateHandler.ID, id);
+    doc.setField(field, value);
+    return doc;
+  }
+
+  private SolrInputDocument atomic(String id, String field, String value) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.setField(SolrUpdateHandler.ID, id);
+    doc.setField(field, Collections.singletonMap(SolrIndexBuffer.SET, value));
+    return doc;
+  }
+
+}
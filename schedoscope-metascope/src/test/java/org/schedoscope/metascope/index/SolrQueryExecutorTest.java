@@ -0,0 +1,351 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.index;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.response.SuggesterResponse;
+import org.apache.solr.client.solrj.response.Suggestion;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.spelling.suggest.SuggesterParams;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.schedoscope.metascope.index.model.SolrFacet;
+import org.schedoscope.metascope.index.model.SolrQueryResult;
+import org.schedoscope.metascope.index.model.SolrQueryResultEntity;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeView;
+import org.schedoscope.metascope.service.MetascopeFieldService;
+import org.schedoscope.metascope.service.MetascopeTableService;
+import org.schedoscope.metascope.service.MetascopeViewService;
+import org.schedoscope.metascope.util.URLUtil;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SolrQueryExecutorTest {
+
+  /* class to test */
+  private SolrQueryExecutor solrQueryExecutor;
+
+  /* mocked fields */
+  private SolrClient solrClientMock;
+  private MetascopeTableService metascopeTableServiceMock;
+  private MetascopeViewService metascopeViewServiceMock;
+  private MetascopeFieldService metascopeFieldServiceMock;
+
+  /* requests received by the mocked client */
+  private int suggestRequests;
+  private int buildRequests;
+  private SolrParams lastSearch;
+  private boolean solrAvailable;
+
+  /* test data */
+  private Map<String, QueryResponse> responses;
+  private List<String> hits;
+  private Map<String, FacetField> facets;
+
+  @Before
+  public void setup() throws Exception {
+    this.solrClientMock = mock(SolrClient.class);
+    this.suggestRequests = 0;
+    this.buildRequests = 0;
+    this.solrAvailable = true;
+    this.responses = new HashMap<>();
+    for (String prefix : Arrays.asList("te", "tes", "test")) {
+      responses.put(prefix, suggestResponse(prefix));
+    }
+    this.hits = new ArrayList<>();
+    this.facets = new HashMap<>();
+    final QueryResponse searchResponse = searchResponse();
+    when(solrClientMock.query(any(SolrParams.class))).then(new Answer<QueryResponse>() {
+      @Override
+      public QueryResponse answer(InvocationOnMock invocationOnMock) throws Throwable {
+        SolrParams params = (SolrParams) invocationOnMock.getArguments()[0];
+        if (params.get("suggest") == null) {
+          lastSearch = params;
+          return searchResponse;
+        }
+        if (params.getBool(SuggesterParams.SUGGEST_BUILD, false)) {
+          buildRequests++;
+        } else {
+          suggestRequests++;
+        }
+        if (!solrAvailable) {
+          throw new SolrServerException("index not available");
+        }
+        return responses.get(params.get(SuggesterParams.SUGGEST_Q));
+      }
+    });
+    this.metascopeTableServiceMock = mock(MetascopeTableService.class);
+    this.metascopeViewServiceMock = mock(MetascopeViewService.class);
+    this.metascopeFieldServiceMock = mock(MetascopeFieldService.class);
+    when(metascopeFieldServiceMock.findDistinctParameters()).thenReturn(Arrays.asList("year", "month"));
+    this.solrQueryExecutor = new SolrQueryExecutor(solrClientMock, metascopeTableServiceMock,
+      metascopeViewServiceMock, metascopeFieldServiceMock);
+  }
+
+  @Test
+  public void suggestionsAreOrderedByWeightTest() {
+    assertEquals(Arrays.asList("test_table", "test_view"), solrQueryExecutor.suggest("test"));
+  }
+
+  @Test
+  public void suggestionsAreCachedPerPrefixTest() {
+    List<String> first = solrQueryExecutor.suggest("test");
+    List<String> second = solrQueryExecutor.suggest("test");
+    solrQueryExecutor.suggest("te");
+
+    assertSame(first, second);
+    assertEquals(2, suggestRequests);
+  }
+
+  @Test
+  public void suggestDoesNotBuildSuggesterTest() {
+    solrQueryExecutor.suggest("test");
+
+    assertEquals(0, buildRequests);
+  }
+
+  @Test
+  public void buildSuggesterInvalidatesCacheTest() {
+    solrQueryExecutor.suggest("test");
+    solrQueryExecutor.buildSuggester();
+    solrQueryExecutor.suggest("test");
+
+    assertEquals(1, buildRequests);
+    assertEquals(2, suggestRequests);
+  }
+
+  @Test
+  public void failedBuildIsNotRetriedOnSuggestTest() {
+    solrAvailable = false;
+    solrQueryExecutor.buildSuggester();
+    solrAvailable = true;
+
+    solrQueryExecutor.suggest("test");
+    solrQueryExecutor.suggest("tes");
+
+    assertEquals(1, buildRequests);
+    assertEquals(2, suggestRequests);
+  }
+
+  @Test
+  public void failedSuggestionsAreNotCachedTest() {
+    solrAvailable = false;
+    assertTrue(solrQueryExecutor.suggest("test").isEmpty());
+    solrAvailable = true;
+
+    assertEquals(Arrays.asList("test_table", "test_view"), solrQueryExecutor.suggest("test"));
+    assertEquals(2, suggestRequests);
+  }
+
+  @Test
+  public void tablePageIsLoadedWithOneQueryTest() {
+    hits.addAll(Arrays.asList("test.c", "test.a", "test.b"));
+    Map<String, MetascopeTable> tables = new HashMap<>();
+    tables.put("test.a", table("test.a"));
+    tables.put("test.c", table("test.c"));
+    when(metascopeTableServiceMock.findSearchResults(hits)).thenReturn(tables);
+
+    SolrQueryResult result = solrQueryExecutor.query(new HashMap<String, String>());
+
+    verify(metascopeTableServiceMock, times(1)).findSearchResults(hits);
+    verifyZeroInteractions(metascopeViewServiceMock);
+    assertEquals(SolrQueryExecutor.TYPE_TABLE, result.getResultType());
+    /* the page keeps the order of the index, test.b is not in the repository (yet) and is skipped */
+    List<Object> entities = new ArrayList<>();
+    for (SolrQueryResultEntity entity : result.getResultEntities()) {
+      entities.add(entity.getResultEntity());
+    }
+    assertEquals(Arrays.<Object>asList(tables.get("test.c"), tables.get("test.a")), entities);
+  }
+
+  @Test
+  public void partitionPageIsLoadedWithOneQueryTest() {
+    hits.addAll(Arrays.asList("test.a/2017", "test.a/2018"));
+    Map<String, MetascopeView> views = new HashMap<>();
+    views.put("test.a/2018", view("test.a/2018"));
+    when(metascopeViewServiceMock.findSearchResults(hits)).thenReturn(views);
+
+    SolrQueryResult result = solrQueryExecutor.query(params(SolrQueryExecutor.TYPE, "partition"));
+
+    verify(metascopeViewServiceMock, times(1)).findSearchResults(hits);
+    verifyZeroInteractions(metascopeTableServiceMock);
+    assertEquals(SolrQueryExecutor.TYPE_PARTITION, result.getResultType());
+    assertEquals(1, result.getResultEntities().size());
+    assertSame(views.get("test.a/2018"), result.getResultEntities().get(0).getResultEntity());
+  }
+
+  @Test
+  public void emptyPageTest() {
+    when(metascopeTableServiceMock.findSearchResults(hits)).thenReturn(new HashMap<String, MetascopeTable>());
+
+    SolrQueryResult result = solrQueryExecutor.query(new HashMap<String, String>());
+
+    assertTrue(result.getResultEntities().isEmpty());
+    assertEquals(SolrQueryExecutor.TYPE_TABLE, result.getResultType());
+  }
+
+  @Test
+  public void facetLimitIsRequestedPlusOneTest() {
+    solrQueryExecutor.query(new HashMap<String, String>());
+    assertEquals("21", lastSearch.get("f." + SolrQueryExecutor.DATABASE_NAME + ".facet.limit"));
+
+    solrQueryExecutor.query(params(URLUtil.FACET_LIMIT_PARAM_PREFIX + SolrQueryExecutor.DATABASE_NAME, "40"));
+    assertEquals("41", lastSearch.get("f." + SolrQueryExecutor.DATABASE_NAME + ".facet.limit"));
+    assertEquals("21", lastSearch.get("f." + SolrQueryExecutor.TABLE_NAME + ".facet.limit"));
+
+    /* no less than one page, and corrupt limits fall back to one page */
+    solrQueryExecutor.query(params(URLUtil.FACET_LIMIT_PARAM_PREFIX + SolrQueryExecutor.DATABASE_NAME, "5"));
+    assertEquals("21", lastSearch.get("f." + SolrQueryExecutor.DATABASE_NAME + ".facet.limit"));
+    solrQueryExecutor.query(params(URLUtil.FACET_LIMIT_PARAM_PREFIX + SolrQueryExecutor.DATABASE_NAME, "many"));
+    assertEquals("21", lastSearch.get("f." + SolrQueryExecutor.DATABASE_NAME + ".facet.limit"));
+  }
+
+  @Test
+  public void facetValuesArePagedTest() {
+    facets.put(SolrQueryExecutor.DATABASE_NAME, facet(SolrQueryExecutor.DATABASE_NAME, 21));
+    facets.put(SolrQueryExecutor.TABLE_NAME, facet(SolrQueryExecutor.TABLE_NAME, 20));
+
+    SolrQueryResult result = solrQueryExecutor.query(new HashMap<String, String>());
+
+    /* the additional value only tells that there is more to show */
+    List<SolrFacet> databases = result.getFacetValues().get(SolrQueryExecutor.DATABASE_NAME);
+    assertEquals(20, databases.size());
+    assertEquals("value0", databases.get(0).getName());
+    assertEquals("value19", databases.get(19).getName());
+    assertTrue(result.hasMoreFacetValues(SolrQueryExecutor.DATABASE_NAME));
+    assertEquals(40, result.getNextFacetLimit(SolrQueryExecutor.DATABASE_NAME));
+
+    assertEquals(20, result.getFacetValues().get(SolrQueryExecutor.TABLE_NAME).size());
+    assertFalse(result.hasMoreFacetValues(SolrQueryExecutor.TABLE_NAME));
+  }
+
+  @Test
+  public void showMoreFacetValuesTest() {
+    facets.put(SolrQueryExecutor.DATABASE_NAME, facet(SolrQueryExecutor.DATABASE_NAME, 41));
+
+    SolrQueryResult result = solrQueryExecutor.query(
+      params(URLUtil.FACET_LIMIT_PARAM_PREFIX + SolrQueryExecutor.DATABASE_NAME, "40"));
+
+    assertEquals(40, result.getFacetValues().get(SolrQueryExecutor.DATABASE_NAME).size());
+    assertEquals(60, result.getNextFacetLimit(SolrQueryExecutor.DATABASE_NAME));
+  }
+
+  @Test
+  public void partitionFacetFieldsTest() {
+    facets.put("year_s", facet("year_s", 21));
+
+    SolrQueryResult result = solrQueryExecutor.query(params(SolrQueryExecutor.TYPE, SolrQueryExecutor.TYPE_PARTITION));
+
+    assertEquals("21", lastSearch.get("f.year_s.facet.limit"));
+    assertEquals("index", lastSearch.get("f.year_s.facet.sort"));
+    assertEquals("21", lastSearch.get("f.month_s.facet.limit"));
+    assertEquals(20, result.getFacetValues().get("year_s").size());
+    assertEquals(40, result.getNextFacetLimit("year_s"));
+
+    /* table searches do not facet on partition parameters */
+    solrQueryExecutor.query(new HashMap<String, String>());
+    assertNull(lastSearch.get("f.year_s.facet.limit"));
+  }
+
+  @Test
+  public void partitionFacetFieldsAreCachedTest() {
+    Map<String, String> params = params(SolrQueryExecutor.TYPE, SolrQueryExecutor.TYPE_PARTITION);
+    solrQueryExecutor.query(params);
+    solrQueryExecutor.query(params);
+    verify(metascopeFieldServiceMock, times(1)).findDistinctParameters();
+
+    when(metascopeFieldServiceMock.findDistinctParameters()).thenReturn(Arrays.asList("year", "month", "day"));
+    solrQueryExecutor.refreshFacetMetadata();
+    solrQueryExecutor.query(params);
+    verify(metascopeFieldServiceMock, times(2)).findDistinctParameters();
+    assertEquals("21", lastSearch.get("f.day_s.facet.limit"));
+  }
+
+  private QueryResponse searchResponse() {
+    QueryResponse queryResponse = mock(QueryResponse.class);
+    when(queryResponse.getResults()).then(new Answer<SolrDocumentList>() {
+      @Override
+      public SolrDocumentList answer(InvocationOnMock invocationOnMock) throws Throwable {
+        SolrDocumentList list = new SolrDocumentList();
+        for (String id : hits) {
+          SolrDocument doc = new SolrDocument();
+          doc.setField(SolrQueryExecutor.ID, id);
+          list.add(doc);
+        }
+        list.setNumFound(hits.size());
+        return list;
+      }
+    });
+    when(queryResponse.getFacetField(anyString())).then(new Answer<FacetField>() {
+      @Override
+      public FacetField answer(InvocationOnMock invocationOnMock) throws Throwable {
+        String name = (String) invocationOnMock.getArguments()[0];
+        return facets.containsKey(name) ? facets.get(name) : new FacetField(name);
+      }
+    });
+    when(queryResponse.getFacetQuery()).thenReturn(new HashMap<String, Integer>());
+    return queryResponse;
+  }
+
+  private FacetField facet(String name, int values) {
+    FacetField facet = new FacetField(name);
+    for (int i = 0; i < values; i++) {
+      facet.add("value" + i, values - i);
+    }
+    return facet;
+  }
+
+  private Map<String, String> params(String key, String value) {
+    Map<String, String> params = new HashMap<>();
+    params.put(key, value);
+    return params;
+  }
+
+  private MetascopeTable table(String fqdn) {
+    MetascopeTable table = new MetascopeTable();
+    table.setFqdn(fqdn);
+    return table;
+  }
+
+  private MetascopeView view(String viewId) {
+    MetascopeView view = new MetascopeView();
+    view.setViewId(viewId);
+    return view;
+  }
+
+  private QueryResponse suggestResponse(String prefix) {
+    Map<String, List<Suggestion>> suggestions = new HashMap<>();
+    suggestions.put("metascope", Arrays.asList(new Suggestion(prefix + "_view", 1, ""),
+      new Suggestion(prefix + "_table", 5, "")));
+    SuggesterResponse suggesterResponse = mock(SuggesterResponse.class);
+    when(suggesterResponse.getSuggestions()).thenReturn(suggestions);
+    QueryResponse queryResponse = mock(QueryResponse.class);
+    when(queryResponse.getSuggesterResponse()).thenReturn(suggesterResponse);
+    return queryResponse;
+  }
+
+}
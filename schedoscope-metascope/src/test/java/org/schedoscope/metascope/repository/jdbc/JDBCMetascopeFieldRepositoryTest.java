@@ -0,0 +1,135 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.repository.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.repository.jdbc.entity.JDBCMetascopeFieldRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class JDBCMetascopeFieldRepositoryTest {
+
+  private static final String FQDN = "test.table";
+
+  /* class to test */
+  private JDBCMetascopeFieldRepository repository;
+
+  /* mocked fields */
+  private Connection connectionMock;
+  private PreparedStatement insertMock;
+  private PreparedStatement updateMock;
+  private PreparedStatement insertMappingMock;
+  private PreparedStatement deleteMock;
+  private PreparedStatement deleteMappingMock;
+
+  @Before
+  public void setup() throws Exception {
+    this.repository = new JDBCMetascopeFieldRepository(true, false);
+    this.connectionMock = mock(Connection.class);
+    this.insertMock = mock(PreparedStatement.class);
+    this.updateMock = mock(PreparedStatement.class);
+    this.insertMappingMock = mock(PreparedStatement.class);
+    this.deleteMock = mock(PreparedStatement.class);
+    this.deleteMappingMock = mock(PreparedStatement.class);
+    when(connectionMock.createStatement()).thenReturn(mock(Statement.class));
+    when(connectionMock.prepareStatement(startsWith("insert into metascope_field "))).thenReturn(insertMock);
+    when(connectionMock.prepareStatement(startsWith("update metascope_field"))).thenReturn(updateMock);
+    when(connectionMock.prepareStatement(startsWith("insert into metascope_fields_mapping"))).thenReturn(insertMappingMock);
+    when(connectionMock.prepareStatement(startsWith("delete from metascope_field "))).thenReturn(deleteMock);
+    when(connectionMock.prepareStatement(startsWith("delete from metascope_fields_mapping"))).thenReturn(deleteMappingMock);
+  }
+
+  @Test
+  public void newFieldsAreInsertedTest() throws Exception {
+    MetascopeField a = field("a");
+    MetascopeField b = field("b");
+
+    repository.saveFields(connectionMock, set(a, b), Collections.<MetascopeField>emptyList(), FQDN, false);
+
+    verify(insertMock, times(2)).addBatch();
+    verify(insertMappingMock, times(2)).addBatch();
+    verify(updateMock, never()).addBatch();
+    verify(deleteMock, never()).addBatch();
+    assertNotNull(a.getContentHash());
+    assertNotNull(b.getContentHash());
+  }
+
+  @Test
+  public void unchangedFieldsAreSkippedAndChangedFieldsUpdatedTest() throws Exception {
+    MetascopeField a = field("a");
+    MetascopeField b = field("b");
+    repository.saveFields(connectionMock, set(a, b), Collections.<MetascopeField>emptyList(), FQDN, false);
+    String hashOfB = b.getContentHash();
+
+    b.setDescription("changed");
+    repository.saveFields(connectionMock, set(a, b), Arrays.asList(a, b), FQDN, false);
+
+    /* only the two inserts of the first call */
+    verify(insertMock, times(2)).addBatch();
+    verify(insertMappingMock, times(2)).addBatch();
+    verify(updateMock, times(1)).addBatch();
+    verify(updateMock).setString(5, "changed");
+    verify(updateMock).setString(9, FQDN + ".b");
+    verify(deleteMock, never()).addBatch();
+    assertNotEquals(hashOfB, b.getContentHash());
+  }
+
+  @Test
+  public void removedFieldsAreDeletedTest() throws Exception {
+    MetascopeField a = field("a");
+    MetascopeField b = field("b");
+    repository.saveFields(connectionMock, set(a, b), Collections.<MetascopeField>emptyList(), FQDN, false);
+
+    List<MetascopeField> stored = new ArrayList<>(Arrays.asList(a, b));
+    MetascopeField parameter = field("p");
+    parameter.setParameter(true);
+    stored.add(parameter);
+    repository.saveFields(connectionMock, set(a), stored, FQDN, false);
+
+    /* parameters are written by a separate call and must not be deleted */
+    verify(deleteMock, times(1)).addBatch();
+    verify(deleteMock).setString(1, FQDN + ".b");
+    verify(deleteMappingMock).setString(2, FQDN + ".b");
+    verify(insertMock, times(2)).addBatch();
+  }
+
+  private MetascopeField field(String name) {
+    MetascopeField field = new MetascopeField();
+    field.setFieldId(FQDN + "." + name);
+    field.setFieldName(name);
+    field.setFieldType("string");
+    field.setTableFqdn(FQDN);
+    return field;
+  }
+
+  private Set<MetascopeField> set(MetascopeField... fields) {
+    return new HashSet<>(Arrays.asList(fields));
+  }
+
+}
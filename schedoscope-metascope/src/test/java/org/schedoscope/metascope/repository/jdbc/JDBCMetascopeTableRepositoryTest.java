@@ -0,0 +1,105 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.repository.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.repository.jdbc.entity.JDBCMetascopeTableRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class JDBCMetascopeTableRepositoryTest {
+
+  /* class to test */
+  private JDBCMetascopeTableRepository repository;
+
+  /* mocked fields */
+  private Connection connectionMock;
+  private PreparedStatement insertMock;
+  private PreparedStatement updateMock;
+
+  /* test data */
+  private MetascopeTable table;
+
+  @Before
+  public void setup() throws Exception {
+    this.repository = new JDBCMetascopeTableRepository(true, false);
+    this.connectionMock = mock(Connection.class);
+    this.insertMock = mock(PreparedStatement.class);
+    this.updateMock = mock(PreparedStatement.class);
+    when(connectionMock.createStatement()).thenReturn(mock(Statement.class));
+    when(connectionMock.prepareStatement(startsWith("insert into metascope_table"))).thenReturn(insertMock);
+    when(connectionMock.prepareStatement(startsWith("update metascope_table"))).thenReturn(updateMock);
+
+    this.table = new MetascopeTable();
+    table.setFqdn("test.table");
+    table.setSchedoscopeId("test");
+    table.setTableDescription("description");
+  }
+
+  @Test
+  public void newTableIsInsertedTest() throws Exception {
+    repository.save(connectionMock, table);
+
+    verify(insertMock).execute();
+    verify(connectionMock, never()).prepareStatement(startsWith("update"));
+    assertNotNull(table.getContentHash());
+  }
+
+  @Test
+  public void unchangedTableIsSkippedTest() throws Exception {
+    repository.save(connectionMock, table);
+    String hash = table.getContentHash();
+
+    repository.save(connectionMock, table);
+
+    verify(connectionMock, times(1)).prepareStatement(anyString());
+    assertEquals(hash, table.getContentHash());
+  }
+
+  @Test
+  public void changedTableIsUpdatedTest() throws Exception {
+    repository.save(connectionMock, table);
+    String hash = table.getContentHash();
+
+    table.setTableDescription("changed");
+    repository.save(connectionMock, table);
+
+    verify(insertMock, times(1)).execute();
+    verify(updateMock).setString(7, "changed");
+    verify(updateMock).setString(31, "test.table");
+    verify(updateMock).execute();
+    assertNotEquals(hash, table.getContentHash());
+  }
+
+  @Test
+  public void failedWriteKeepsHashTest() throws Exception {
+    when(insertMock.execute()).thenThrow(new SQLException("connection lost"));
+
+    repository.save(connectionMock, table);
+
+    /* the next sync must try again */
+    assertNull(table.getContentHash());
+  }
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.repository.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeView;
+import org.schedoscope.metascope.repository.jdbc.entity.JDBCMetascopeViewRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class JDBCMetascopeViewRepositoryTest {
+
+  /* class to test */
+  private JDBCMetascopeViewRepository repository;
+
+  /* mocked fields */
+  private Connection connectionMock;
+  private PreparedStatement insertMock;
+  private PreparedStatement updateMock;
+
+  /* test data */
+  private MetascopeTable table;
+
+  @Before
+  public void setup() throws Exception {
+    this.repository = new JDBCMetascopeViewRepository(true, false);
+    this.connectionMock = mock(Connection.class);
+    this.insertMock = mock(PreparedStatement.class);
+    this.updateMock = mock(PreparedStatement.class);
+    when(connectionMock.createStatement()).thenReturn(mock(Statement.class));
+    when(connectionMock.prepareStatement(startsWith("insert into metascope_view "))).thenReturn(insertMock);
+    when(connectionMock.prepareStatement(startsWith("update metascope_view"))).thenReturn(updateMock);
+
+    this.table = new MetascopeTable();
+    table.setFqdn("test.table");
+  }
+
+  @Test
+  public void viewsAreSkippedUpdatedOrInsertedTest() throws Exception {
+    MetascopeView unchanged = view("test/table/1");
+    MetascopeView changed = view("test/table/2");
+    repository.insertOrUpdateViews(connectionMock, Arrays.asList(unchanged, changed));
+    verify(insertMock, times(2)).addBatch();
+    String hashOfChanged = changed.getContentHash();
+    assertNotNull(unchanged.getContentHash());
+
+    changed.setParameterString("/p=2");
+    MetascopeView added = view("test/table/3");
+    repository.insertOrUpdateViews(connectionMock, Arrays.asList(unchanged, changed, added));
+
+    verify(insertMock, times(3)).addBatch();
+    verify(insertMock).setString(1, "test/table/3");
+    verify(updateMock, times(1)).addBatch();
+    verify(updateMock).setString(2, "/p=2");
+    verify(updateMock).setString(5, "test/table/2");
+    assertNotEquals(hashOfChanged, changed.getContentHash());
+    assertNotNull(added.getContentHash());
+  }
+
+  @Test
+  public void failedWriteKeepsHashesTest() throws Exception {
+    MetascopeView view = view("test/table/1");
+    when(insertMock.executeBatch()).thenThrow(new SQLException("connection lost"));
+
+    try {
+      repository.insertOrUpdateViews(connectionMock, Arrays.asList(view));
+      fail("write errors must be passed on");
+    } catch (SQLException e) {
+      /* expected */
+    }
+
+    /* the next sync must write the view again */
+    assertNull(view.getContentHash());
+  }
+
+  private MetascopeView view(String id) {
+    MetascopeView view = new MetascopeView();
+    view.setViewId(id);
+    view.setViewUrl(id);
+    view.setTable(table);
+    return view;
+  }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.repository.jdbc;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeExport;
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.model.MetascopeTable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RawJDBCSqlRepositoryTest {
+
+  private static final String JDBC_URL = "jdbc:h2:mem:metascope_repository;DB_CLOSE_DELAY=-1";
+
+  private Connection connection;
+  private RawJDBCSqlRepository repository;
+
+  @Before
+  public void setup() throws Exception {
+    this.connection = DriverManager.getConnection(JDBC_URL, "sa", "");
+    execute("create table metascope_table (fqdn varchar(255), schedoscope_id varchar(255), database_name varchar(255), "
+        + "table_name varchar(255), view_path varchar(255), external_table boolean, table_description varchar(255), "
+        + "storage_format varchar(255), input_format varchar(255), output_format varchar(255), "
+        + "materialize_once boolean, created_at bigint, table_owner varchar(255), data_path varchar(255), "
+        + "data_size bigint, permissions varchar(255), rowcount bigint, last_data varchar(255), "
+        + "timestamp_field varchar(255), timestamp_field_format varchar(255), last_change bigint, "
+        + "last_partition_created bigint, last_schema_change bigint, last_transformation_timestamp bigint, "
+        + "view_count int, views_size int, person_responsible varchar(255), schedoscope_fingerprint varchar(32), "
+        + "content_hash varchar(32), comment_id bigint)",
+      "create table metascope_field (field_id varchar(255), field_name varchar(255), field_type varchar(255), "
+        + "field_order int, is_parameter boolean, description varchar(255), comment_id bigint, "
+        + "table_fqdn varchar(255), content_hash varchar(32))",
+      "create table metascope_export (export_id varchar(255), export_type varchar(255), table_fqdn varchar(255))",
+      "create table metascope_export_export_properties (metascope_export_export_id varchar(255), "
+        + "export_properties_key varchar(255), export_properties varchar(255))",
+      "create table metascope_view (view_id varchar(255), table_fqdn varchar(255), content_hash varchar(32))",
+      "insert into metascope_table (fqdn, schedoscope_id, database_name, table_name, view_path, external_table, "
+        + "last_transformation_timestamp, views_size, schedoscope_fingerprint, content_hash, comment_id) values "
+        + "('test.product', 'test', 'test', 'product', 'test/Product/', false, 42, 2, 'fp1', 'h1', null), "
+        + "('test.click', 'test', 'test', 'click', 'test/Click/', false, 43, 1, 'fp2', 'h2', 7), "
+        + "('other.order', 'other', 'other', 'order', 'other/Order/', false, 44, 1, 'fp3', 'h3', null)",
+      "insert into metascope_field values "
+        + "('test.product.id', 'id', 'string', 0, false, 'the id', null, 'test.product', 'fh1'), "
+        + "('test.product.year', 'year', 'string', 0, true, null, 3, 'test.product', 'fh2'), "
+        + "('other.order.id', 'id', 'string', 0, false, null, null, 'other.order', 'fh3')",
+      "insert into metascope_export values ('test.click.Redis_0', 'Redis', 'test.click'), "
+        + "('other.order.Jdbc_0', 'Jdbc', 'other.order')",
+      "insert into metascope_export_export_properties values ('test.click.Redis_0', 'host', 'localhost'), "
+        + "('test.click.Redis_0', 'port', '6379'), ('other.order.Jdbc_0', 'url', 'jdbc:mysql://db')",
+      "insert into metascope_view values ('test/Product/2017', 'test.product', 'vh1'), "
+        + "('test/Product/2018', 'test.product', null), ('other/Order/2017', 'other.order', 'vh3')");
+    this.repository = new RawJDBCSqlRepository(false, true);
+  }
+
+  @After
+  public void teardown() throws Exception {
+    execute("drop all objects");
+    connection.close();
+  }
+
+  @Test
+  public void findTablesTest() throws Exception {
+    Map<String, MetascopeTable> tables = repository.findTables(connection, "test");
+
+    assertEquals(2, tables.size());
+    MetascopeTable product = tables.get("test.product");
+    assertEquals("test/Product/", product.getViewPath());
+    assertEquals(42, product.getLastTransformation());
+    assertEquals(2, product.getViewsSize());
+    assertEquals("fp1", product.getSchedoscopeFingerprint());
+    assertEquals("h1", product.getContentHash());
+    assertNull(product.getCommentId());
+    assertEquals(Long.valueOf(7), tables.get("test.click").getCommentId());
+  }
+
+  @Test
+  public void findFieldsTest() throws Exception {
+    Map<String, MetascopeField> fields = repository.findFields(connection, "test");
+
+    assertEquals(2, fields.size());
+    MetascopeField id = fields.get("test.product.id");
+    assertEquals("test.product", id.getTableFqdn());
+    assertEquals("the id", id.getDescription());
+    assertFalse(id.isParameter());
+    assertEquals("fh1", id.getContentHash());
+    assertTrue(fields.get("test.product.year").isParameter());
+  }
+
+  @Test
+  public void findExportsTest() throws Exception {
+    Map<String, MetascopeExport> exports = repository.findExports(connection, "test");
+
+    assertEquals(1, exports.size());
+    MetascopeExport redis = exports.get("test.click.Redis_0");
+    assertEquals("Redis", redis.getExportType());
+    assertEquals("test.click", redis.getTableFqdn());
+    assertEquals(2, redis.getProperties().size());
+    assertEquals("6379", redis.getProperties().get("port"));
+  }
+
+  @Test
+  public void findViewContentHashesTest() throws Exception {
+    Map<String, String> hashes = repository.findViewContentHashes(connection, "test");
+
+    assertEquals(1, hashes.size());
+    assertEquals("vh1", hashes.get("test/Product/2017"));
+  }
+
+  @Test
+  public void unknownInstanceTest() throws Exception {
+    assertTrue(repository.findTables(connection, "unknown").isEmpty());
+    assertTrue(repository.findFields(connection, "unknown").isEmpty());
+    assertTrue(repository.findExports(connection, "unknown").isEmpty());
+    assertTrue(repository.findViewContentHashes(connection, "unknown").isEmpty());
+  }
+
+  @Test
+  public void failedLoadIsPropagatedTest() throws Exception {
+    execute("drop table metascope_export_export_properties");
+
+    /* a partial result would make the sync rewrite or skip tables */
+    try {
+      repository.findExports(connection, "test");
+      fail("loading exports must fail without the properties table");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    execute("drop table metascope_field");
+    try {
+      repository.findFields(connection, "test");
+      fail("loading fields must fail without the field table");
+    } catch (SQLException e) {
+      // expected
+    }
+  }
+
+  private void execute(String... statements) throws SQLException {
+    Statement stmt = connection.createStatement();
+    try {
+      for (String sql : statements) {
+        stmt.execute(sql);
+      }
+    } finally {
+      stmt.close();
+    }
+  }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.model.MetascopeSample;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.repository.MetascopeSampleRepository;
+import org.schedoscope.metascope.repository.MetascopeTableRepository;
+import org.schedoscope.metascope.repository.MetascopeViewRepository;
+import org.schedoscope.metascope.util.HiveQueryExecutor;
+import org.schedoscope.metascope.util.model.HiveQueryResult;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.*;
+
+public class MetascopeSampleServiceTest {
+
+  /* class to test */
+  private MetascopeSampleService metascopeSampleService;
+
+  /* mocked fields */
+  private MetascopeSampleRepository metascopeSampleRepositoryMock;
+  private MetascopeTableRepository metascopeTableRepositoryMock;
+  private MetascopeViewRepository metascopeViewRepositoryMock;
+  private HiveQueryExecutor hiveQueryExecutorMock;
+  private TaskExecutor backgroundExecutorMock;
+
+  /* test data */
+  private MetascopeTable product;
+  private MetascopeTable click;
+
+  @Before
+  public void setup() {
+    this.metascopeSampleRepositoryMock = mock(MetascopeSampleRepository.class);
+    this.metascopeTableRepositoryMock = mock(MetascopeTableRepository.class);
+    this.metascopeViewRepositoryMock = mock(MetascopeViewRepository.class);
+    this.hiveQueryExecutorMock = mock(HiveQueryExecutor.class);
+    this.backgroundExecutorMock = mock(TaskExecutor.class);
+    this.metascopeSampleService = new MetascopeSampleService();
+    metascopeSampleService.setMetascopeSampleRepository(metascopeSampleRepositoryMock);
+    metascopeSampleService.setMetascopeTableRepository(metascopeTableRepositoryMock);
+    metascopeSampleService.setMetascopeViewRepository(metascopeViewRepositoryMock);
+    metascopeSampleService.setHiveQueryExecutor(hiveQueryExecutorMock);
+    metascopeSampleService.setBackgroundExecutor(backgroundExecutorMock);
+
+    this.product = new MetascopeTable();
+    product.setFqdn("test.product");
+    product.setDatabaseName("test");
+    product.setTableName("product");
+    product.setParameters(new HashSet<MetascopeField>());
+    product.setLastTransformation(200);
+
+    this.click = new MetascopeTable();
+    click.setFqdn("test.click");
+    click.setDatabaseName("test");
+    click.setTableName("click");
+    Set<MetascopeField> parameters = new HashSet<>();
+    parameters.add(parameter("test.click.year", "year", 0));
+    parameters.add(parameter("test.click.month", "month", 1));
+    click.setParameters(parameters);
+    click.setLastTransformation(200);
+    when(metascopeTableRepositoryMock.findOne("test.click")).thenReturn(click);
+
+    when(hiveQueryExecutorMock.executeQuery(anyString(), anyString(), anyString(), anyString(), anySet(), anyMap()))
+      .thenReturn(new HiveQueryResult(Arrays.asList("id"), Arrays.asList(Arrays.asList("fresh"))));
+  }
+
+  @Test
+  public void sampleService_01_missingSampleIsQueriedAndStored() {
+    HiveQueryResult result = metascopeSampleService.getSample("user", product, null);
+
+    assertEquals("fresh", result.getRows().get(0).get(0));
+    ArgumentCaptor<MetascopeSample> saved = ArgumentCaptor.forClass(MetascopeSample.class);
+    verify(metascopeSampleRepositoryMock).save(saved.capture());
+    assertEquals("test.product", saved.getValue().getId());
+    assertEquals(200, saved.getValue().getLastTransformation());
+  }
+
+  @Test
+  public void sampleService_02_currentSampleIsServed() {
+    when(metascopeSampleRepositoryMock.findOne("test.product")).thenReturn(sample("test.product", "", 200));
+
+    HiveQueryResult result = metascopeSampleService.getSample("user", product, null);
+
+    assertEquals("stored", result.getRows().get(0).get(0));
+    verifyZeroInteractions(hiveQueryExecutorMock, backgroundExecutorMock);
+  }
+
+  @Test
+  public void sampleService_03_staleSampleIsServedAndRefreshedInBackground() {
+    when(metascopeSampleRepositoryMock.findOne("test.product")).thenReturn(sample("test.product", "", 100));
+    when(metascopeTableRepositoryMock.findOne("test.product")).thenReturn(product);
+
+    HiveQueryResult result = metascopeSampleService.getSample("user", product, null);
+
+    /* the stale sample is served right away, the query only runs in the background */
+    assertEquals("stored", result.getRows().get(0).get(0));
+    verifyZeroInteractions(hiveQueryExecutorMock);
+
+    runBackgroundTask();
+    verify(hiveQueryExecutorMock).executeQuery((String) isNull(), eq("test"), eq("product"), anyString(), anySet(),
+      anyMap());
+    ArgumentCaptor<MetascopeSample> saved = ArgumentCaptor.forClass(MetascopeSample.class);
+    verify(metascopeSampleRepositoryMock).save(saved.capture());
+    assertEquals(200, saved.getValue().getLastTransformation());
+  }
+
+  @Test
+  public void sampleService_04_pendingRefreshIsNotScheduledTwice() {
+    when(metascopeSampleRepositoryMock.findOne("test.product")).thenReturn(sample("test.product", "", 100));
+    when(metascopeTableRepositoryMock.findOne("test.product")).thenReturn(product);
+
+    metascopeSampleService.getSample("user", product, null);
+    metascopeSampleService.getSample("user", product, null);
+    runBackgroundTask();
+    metascopeSampleService.getSample("user", product, null);
+
+    /* once the first refresh is done, a still stale sample is refreshed again */
+    verify(backgroundExecutorMock, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void sampleService_05_failedStoreStillReturnsQueryResult() {
+    when(metascopeSampleRepositoryMock.save(any(MetascopeSample.class)))
+      .thenThrow(new DataIntegrityViolationException("Data too long for column 'rows'"));
+
+    HiveQueryResult result = metascopeSampleService.getSample("user", product, null);
+
+    assertNull(result.getErrorMessage());
+    assertEquals("fresh", result.getRows().get(0).get(0));
+  }
+
+  @Test
+  public void sampleService_06_partitionSampleIsJudgedByItsPartitions() {
+    when(metascopeSampleRepositoryMock.findOne("test.click/year=2017"))
+      .thenReturn(sample("test.click", "/year=2017", 100));
+    when(metascopeViewRepositoryMock.findLastTransformation("test.click", "/year=2017", "/year=2017/%"))
+      .thenReturn(150L);
+
+    Map<String, String> params = new HashMap<>();
+    params.put("fqdn", "test.click");
+    params.put("year", "2017");
+    HiveQueryResult result = metascopeSampleService.getSample("user", click, params);
+
+    /* the table has been transformed later, but only the partitions of 2017 count */
+    assertEquals("stored", result.getRows().get(0).get(0));
+    verify(metascopeViewRepositoryMock).findLastTransformation("test.click", "/year=2017", "/year=2017/%");
+    verify(backgroundExecutorMock).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void sampleService_07_refreshSamplesUsesSpecPrefix() {
+    List<MetascopeSample> samples = new ArrayList<>();
+    samples.add(sample("test.click", "/year=2017", 100));
+    samples.add(sample("test.click", "/year=2018", 100));
+    when(metascopeSampleRepositoryMock.findByFqdn("test.click")).thenReturn(samples);
+    when(metascopeViewRepositoryMock.findLastTransformation("test.click", "/year=2017", "/year=2017/%"))
+      .thenReturn(150L);
+
+    Map<String, Long> partitions = new HashMap<>();
+    partitions.put("/year=2017/month=01", 50L);
+    partitions.put("/year=2017/month=02", 150L);
+    partitions.put("/year=2018/month=01", 100L);
+    partitions.put("/year=20180/month=01", 300L);
+    metascopeSampleService.refreshSamples(click, partitions);
+
+    /* only 2017 has a partition transformed after its sample, 20180 is not part of 2018 */
+    verify(backgroundExecutorMock, times(1)).execute(any(Runnable.class));
+    runBackgroundTask();
+    ArgumentCaptor<MetascopeSample> saved = ArgumentCaptor.forClass(MetascopeSample.class);
+    verify(metascopeSampleRepositoryMock).save(saved.capture());
+    assertEquals("test.click/year=2017", saved.getValue().getId());
+    assertEquals(150, saved.getValue().getLastTransformation());
+    verify(metascopeSampleRepositoryMock, never()).delete(anyString());
+  }
+
+  @Test
+  public void sampleService_08_samplesOfDroppedPartitionsAreDeleted() {
+    List<MetascopeSample> samples = new ArrayList<>();
+    samples.add(sample("test.click", "", 200));
+    samples.add(sample("test.click", "/year=2016", 100));
+    samples.add(sample("test.click", "/year=2017/month=01", 100));
+    when(metascopeSampleRepositoryMock.findByFqdn("test.click")).thenReturn(samples);
+
+    Map<String, Long> partitions = new HashMap<>();
+    partitions.put("/year=2017/month=02", 150L);
+    metascopeSampleService.refreshSamples(click, partitions);
+
+    verify(metascopeSampleRepositoryMock).delete("test.click/year=2016");
+    verify(metascopeSampleRepositoryMock).delete("test.click/year=2017/month=01");
+    verify(metascopeSampleRepositoryMock, times(2)).delete(anyString());
+    verifyZeroInteractions(backgroundExecutorMock);
+  }
+
+  private void runBackgroundTask() {
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(backgroundExecutorMock, atLeastOnce()).execute(task.capture());
+    task.getValue().run();
+  }
+
+  private MetascopeSample sample(String fqdn, String partitionSpec, long lastTransformation) {
+    MetascopeSample sample = new MetascopeSample();
+    sample.setId(fqdn + partitionSpec);
+    sample.setFqdn(fqdn);
+    sample.setPartitionSpec(partitionSpec);
+    sample.setLastTransformation(lastTransformation);
+    sample.setHeader("[\"id\"]");
+    sample.setRows("[[\"stored\"]]");
+    return sample;
+  }
+
+  private MetascopeField parameter(String fieldId, String fieldName, int fieldOrder) {
+    MetascopeField parameter = new MetascopeField();
+    parameter.setFieldId(fieldId);
+    parameter.setFieldName(fieldName);
+    parameter.setFieldOrder(fieldOrder);
+    parameter.setParameter(true);
+    return parameter;
+  }
+
+}
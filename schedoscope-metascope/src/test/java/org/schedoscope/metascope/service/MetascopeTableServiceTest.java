@@ -0,0 +1,86 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.repository.MetascopeTableRepository;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MetascopeTableServiceTest {
+
+  /* service to test */
+  private MetascopeTableService metascopeTableService;
+
+  /* mocked fields */
+  private MetascopeTableRepository metascopeTableRepository;
+
+  @Before
+  public void setup() {
+    this.metascopeTableService = new MetascopeTableService();
+    this.metascopeTableRepository = mock(MetascopeTableRepository.class);
+    metascopeTableService.setMetascopeTableRepository(metascopeTableRepository);
+  }
+
+  @Test
+  public void findSearchResultsTest() {
+    List<String> fqdns = Arrays.asList("test.partitioned", "test.unpartitioned", "test.dropped");
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(row("test.partitioned", "test.partitioned.year", "year"));
+    rows.add(row("test.partitioned", "test.partitioned.month", "month"));
+    rows.add(row("test.unpartitioned", null, null));
+    when(metascopeTableRepository.findSearchResults(fqdns)).thenReturn(rows);
+
+    Map<String, MetascopeTable> tables = metascopeTableService.findSearchResults(fqdns);
+
+    /* a table which is in the index but no longer in the repository is not returned */
+    assertEquals(new HashSet<>(Arrays.asList("test.partitioned", "test.unpartitioned")), tables.keySet());
+    verify(metascopeTableRepository, times(1)).findSearchResults(fqdns);
+
+    MetascopeTable partitioned = tables.get("test.partitioned");
+    assertEquals("test", partitioned.getDatabaseName());
+    assertEquals("partitioned", partitioned.getTableName());
+    assertEquals("description of test.partitioned", partitioned.getTableDescription());
+    assertEquals(42L, partitioned.getLastTransformation());
+    List<String> parameterNames = new ArrayList<>();
+    for (MetascopeField parameter : partitioned.getParameters()) {
+      assertTrue(parameter.isParameter());
+      parameterNames.add(parameter.getFieldName());
+    }
+    assertEquals(Arrays.asList("year", "month"), parameterNames);
+
+    assertTrue(tables.get("test.unpartitioned").getParameters().isEmpty());
+  }
+
+  @Test
+  public void findSearchResultsOfEmptyPageTest() {
+    assertTrue(metascopeTableService.findSearchResults(Collections.<String>emptyList()).isEmpty());
+    verify(metascopeTableRepository, never()).findSearchResults(anyCollectionOf(String.class));
+  }
+
+  private Object[] row(String fqdn, String parameterId, String parameterName) {
+    String tableName = fqdn.substring(fqdn.indexOf('.') + 1);
+    return new Object[]{fqdn, "test", "test", tableName, "test/" + tableName, "description of " + fqdn, null, null,
+      42L, 21L, parameterId, parameterName};
+  }
+
+}
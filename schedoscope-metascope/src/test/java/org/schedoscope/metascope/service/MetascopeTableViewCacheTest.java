@@ -0,0 +1,164 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeTaxonomy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.*;
+
+public class MetascopeTableViewCacheTest {
+
+  /* class to test */
+  private MetascopeTableViewCache metascopeTableViewCache;
+
+  /* mocked fields */
+  private MetascopeTableService metascopeTableServiceMock;
+  private MetascopeTaxonomyService metascopeTaxonomyServiceMock;
+
+  /* test data */
+  private MetascopeTable product;
+  private MetascopeTable brand;
+
+  @Before
+  public void setup() {
+    this.metascopeTableServiceMock = mock(MetascopeTableService.class);
+    this.metascopeTaxonomyServiceMock = mock(MetascopeTaxonomyService.class);
+    this.metascopeTableViewCache = new MetascopeTableViewCache();
+    metascopeTableViewCache.setMetascopeTableService(metascopeTableServiceMock);
+    metascopeTableViewCache.setMetascopeTaxonomyService(metascopeTaxonomyServiceMock);
+
+    this.product = new MetascopeTable();
+    product.setFqdn("test.product");
+    this.brand = new MetascopeTable();
+    brand.setFqdn("test.brand");
+
+    MetascopeTaxonomy taxonomy = new MetascopeTaxonomy();
+    taxonomy.setName("taxonomy");
+    List<MetascopeTaxonomy> taxonomies = new ArrayList<>();
+    taxonomies.add(taxonomy);
+    when(metascopeTaxonomyServiceMock.getTaxonomies()).thenReturn(taxonomies);
+  }
+
+  @After
+  public void cleanup() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void tableViewCache_01_tableDetailsAreCached() {
+    MetascopeTableViewCache.TableDetails first = metascopeTableViewCache.getTableDetails(product);
+    MetascopeTableViewCache.TableDetails second = metascopeTableViewCache.getTableDetails(product);
+
+    assertSame(first, second);
+    verify(metascopeTableServiceMock, times(1)).getFieldDependencies(product);
+    verify(metascopeTableServiceMock, times(1)).getFieldSuccessors(product);
+    verify(metascopeTableServiceMock, times(1)).getTableTaxonomies(product);
+  }
+
+  @Test
+  public void tableViewCache_02_invalidateRebuildsOnlyThatTable() {
+    MetascopeTableViewCache.TableDetails productDetails = metascopeTableViewCache.getTableDetails(product);
+    MetascopeTableViewCache.TableDetails brandDetails = metascopeTableViewCache.getTableDetails(brand);
+
+    metascopeTableViewCache.invalidate(product.getFqdn());
+
+    assertNotSame(productDetails, metascopeTableViewCache.getTableDetails(product));
+    assertSame(brandDetails, metascopeTableViewCache.getTableDetails(brand));
+    verify(metascopeTableServiceMock, times(2)).getFieldDependencies(product);
+    verify(metascopeTableServiceMock, times(1)).getFieldDependencies(brand);
+  }
+
+  @Test
+  public void tableViewCache_03_invalidateAllRebuildsEverything() {
+    MetascopeTableViewCache.TableDetails productDetails = metascopeTableViewCache.getTableDetails(product);
+    MetascopeTableViewCache.TableDetails brandDetails = metascopeTableViewCache.getTableDetails(brand);
+    MetascopeTableViewCache.Taxonomies taxonomies = metascopeTableViewCache.getTaxonomies();
+
+    metascopeTableViewCache.invalidateAll();
+
+    assertNotSame(productDetails, metascopeTableViewCache.getTableDetails(product));
+    assertNotSame(brandDetails, metascopeTableViewCache.getTableDetails(brand));
+    assertNotSame(taxonomies, metascopeTableViewCache.getTaxonomies());
+    verify(metascopeTaxonomyServiceMock, times(2)).getTaxonomies();
+  }
+
+  @Test
+  public void tableViewCache_04_taxonomiesAreCached() {
+    MetascopeTableViewCache.Taxonomies taxonomies = metascopeTableViewCache.getTaxonomies();
+
+    assertSame(taxonomies, metascopeTableViewCache.getTaxonomies());
+    assertEquals(1, taxonomies.getTaxonomies().size());
+    assertEquals("taxonomy", taxonomies.getTaxonomyNames().get(0));
+    verify(metascopeTaxonomyServiceMock, times(1)).getTaxonomies();
+
+    /* editing a table does not affect the taxonomies */
+    metascopeTableViewCache.invalidate(product.getFqdn());
+    assertSame(taxonomies, metascopeTableViewCache.getTaxonomies());
+  }
+
+  @Test
+  public void tableViewCache_05_invalidateAgainAfterCommit() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    metascopeTableViewCache.invalidate(product.getFqdn());
+
+    /* a concurrent request caches the state before the edit is committed */
+    MetascopeTableViewCache.TableDetails beforeCommit = metascopeTableViewCache.getTableDetails(product);
+    assertSame(beforeCommit, metascopeTableViewCache.getTableDetails(product));
+
+    commit();
+
+    assertNotSame(beforeCommit, metascopeTableViewCache.getTableDetails(product));
+  }
+
+  @Test
+  public void tableViewCache_06_invalidateAllAgainAfterCommit() {
+    TransactionSynchronizationManager.initSynchronization();
+
+    metascopeTableViewCache.invalidateAll();
+
+    MetascopeTableViewCache.TableDetails beforeCommit = metascopeTableViewCache.getTableDetails(brand);
+    MetascopeTableViewCache.Taxonomies taxonomiesBeforeCommit = metascopeTableViewCache.getTaxonomies();
+
+    commit();
+
+    assertNotSame(beforeCommit, metascopeTableViewCache.getTableDetails(brand));
+    assertNotSame(taxonomiesBeforeCommit, metascopeTableViewCache.getTaxonomies());
+  }
+
+  private void commit() {
+    List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    for (TransactionSynchronization synchronization : synchronizations) {
+      synchronization.afterCommit();
+    }
+  }
+
+}
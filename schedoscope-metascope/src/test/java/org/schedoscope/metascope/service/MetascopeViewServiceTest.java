@@ -0,0 +1,77 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeView;
+import org.schedoscope.metascope.repository.MetascopeViewRepository;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MetascopeViewServiceTest {
+
+  /* service to test */
+  private MetascopeViewService metascopeViewService;
+
+  /* mocked fields */
+  private MetascopeViewRepository metascopeViewRepository;
+
+  @Before
+  public void setup() {
+    this.metascopeViewService = new MetascopeViewService();
+    this.metascopeViewRepository = mock(MetascopeViewRepository.class);
+    metascopeViewService.setMetascopeViewRepository(metascopeViewRepository);
+  }
+
+  @Test
+  public void findSearchResultsTest() {
+    List<String> viewIds = Arrays.asList("test.table/2017", "test.table/2018", "test.table/2019");
+    List<Object[]> rows = new ArrayList<>();
+    rows.add(row("test.table/2017", "/year=2017", 17L));
+    rows.add(row("test.table/2018", "/year=2018", 18L));
+    when(metascopeViewRepository.findSearchResults(viewIds)).thenReturn(rows);
+
+    Map<String, MetascopeView> views = metascopeViewService.findSearchResults(viewIds);
+
+    /* a partition which is in the index but no longer in the repository is not returned */
+    assertEquals(new HashSet<>(Arrays.asList("test.table/2017", "test.table/2018")), views.keySet());
+    verify(metascopeViewRepository, times(1)).findSearchResults(viewIds);
+
+    MetascopeView view = views.get("test.table/2018");
+    assertEquals("test/Table/2018", view.getViewUrl());
+    assertEquals("2018", view.getParameters().get("year"));
+    assertEquals(18L, view.getLastTransformation());
+    assertEquals("test.table", view.getTable().getFqdn());
+    assertEquals("table", view.getTable().getTableName());
+  }
+
+  @Test
+  public void findSearchResultsOfEmptyPageTest() {
+    assertTrue(metascopeViewService.findSearchResults(Collections.<String>emptyList()).isEmpty());
+    verify(metascopeViewRepository, never()).findSearchResults(anyCollectionOf(String.class));
+  }
+
+  private Object[] row(String viewId, String parameterString, long lastTransformation) {
+    String year = viewId.substring(viewId.indexOf('/') + 1);
+    return new Object[]{viewId, "test/Table/" + year, parameterString, lastTransformation, "test.table", "test",
+      "table"};
+  }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.schedoscope.metascope.config.MetascopeConfig;
+import org.schedoscope.metascope.repository.jdbc.RawJDBCSqlRepository;
+import org.schedoscope.metascope.service.MetascopeLineageService;
+import org.schedoscope.metascope.service.MetascopeTableViewCache;
+import org.schedoscope.metascope.task.metastore.MetastoreTask;
+import org.schedoscope.metascope.util.TaskMutex;
+import org.schedoscope.metascope.util.ViewChangeTracker;
+import org.schedoscope.metascope.util.model.SchedoscopeInstance;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MetascopeTaskTest {
+
+  /* class to test */
+  private MetascopeTask metascopeTask;
+
+  /* mocked fields */
+  private SchedoscopeTask syncTaskMock;
+  private MetastoreTask metastoreTaskMock;
+  private MetascopeLineageService metascopeLineageServiceMock;
+
+  /* test data */
+  private ViewChangeTracker viewChangeTracker;
+  private TaskMutex taskMutex;
+  private Set<String> changedInSchedoscope;
+
+  @Before
+  public void setup() {
+    MetascopeConfig config = mock(MetascopeConfig.class);
+    when(config.getRepositoryUrl()).thenReturn("jdbc:h2:mem:metascope");
+    when(config.getSchedoscopeInstances())
+      .thenReturn(Collections.singletonList(new SchedoscopeInstance("test", "localhost", 20698)));
+
+    this.changedInSchedoscope = new HashSet<>();
+    this.syncTaskMock = mock(SchedoscopeTask.class);
+    when(syncTaskMock.forInstance(any(SchedoscopeInstance.class))).thenReturn(syncTaskMock);
+    when(syncTaskMock.fullSync(anyBoolean())).thenReturn(syncTaskMock);
+    when(syncTaskMock.run(any(RawJDBCSqlRepository.class), anyLong())).thenReturn(true);
+    when(syncTaskMock.getChangedTables()).thenReturn(changedInSchedoscope);
+
+    this.metastoreTaskMock = mock(MetastoreTask.class);
+    when(metastoreTaskMock.forTables(Mockito.<Set<String>>any())).thenReturn(metastoreTaskMock);
+    when(metastoreTaskMock.run(any(RawJDBCSqlRepository.class), anyLong())).thenReturn(true);
+
+    this.metascopeLineageServiceMock = mock(MetascopeLineageService.class);
+    this.viewChangeTracker = new ViewChangeTracker();
+    this.taskMutex = new TaskMutex();
+
+    this.metascopeTask = new MetascopeTask();
+    metascopeTask.setConfig(config);
+    metascopeTask.setSyncTask(syncTaskMock);
+    metascopeTask.setMetastoreSyncTask(metastoreTaskMock);
+    metascopeTask.setTaskMutex(taskMutex);
+    metascopeTask.setViewChangeTracker(viewChangeTracker);
+    metascopeTask.setMetascopeTableViewCache(mock(MetascopeTableViewCache.class));
+    metascopeTask.setMetascopeLineageService(metascopeLineageServiceMock);
+  }
+
+  @Test
+  public void metascopeTask_01_firstRunIsFullSync() {
+    viewChangeTracker.pollCompleted(0);
+
+    metascopeTask.run();
+
+    verify(syncTaskMock).fullSync(true);
+    verify(metastoreTaskMock).forTables(null);
+  }
+
+  @Test
+  public void metascopeTask_02_changedTablesAreSynced() {
+    viewChangeTracker.pollCompleted(0);
+    metascopeTask.run();
+
+    changedInSchedoscope.add("test/Product/");
+    viewChangeTracker.markChanged("test/Click/", System.currentTimeMillis());
+    metascopeTask.run();
+
+    InOrder inOrder = inOrder(syncTaskMock, metastoreTaskMock);
+    inOrder.verify(syncTaskMock).fullSync(true);
+    inOrder.verify(metastoreTaskMock).forTables(null);
+    inOrder.verify(syncTaskMock).fullSync(false);
+    inOrder.verify(metastoreTaskMock).forTables(new HashSet<>(Arrays.asList("test/Product/", "test/Click/")));
+  }
+
+  @Test
+  public void metascopeTask_03_untrackedChangesSyncAllTables() {
+    /* no status poll has completed, so changes since the last metastore sync are unknown */
+    metascopeTask.run();
+    metascopeTask.run();
+
+    verify(syncTaskMock).fullSync(true);
+    verify(syncTaskMock).fullSync(false);
+    verify(metastoreTaskMock, times(2)).forTables(null);
+  }
+
+  @Test
+  public void metascopeTask_04_failedSyncIsRepeatedInFull() {
+    viewChangeTracker.pollCompleted(0);
+    when(syncTaskMock.run(any(RawJDBCSqlRepository.class), anyLong())).thenReturn(false, true);
+
+    metascopeTask.run();
+    metascopeTask.run();
+    metascopeTask.run();
+
+    verify(syncTaskMock, times(2)).fullSync(true);
+    verify(syncTaskMock, times(1)).fullSync(false);
+    verify(metastoreTaskMock, times(2)).forTables(null);
+  }
+
+  @Test
+  public void metascopeTask_05_failedRunReleasesMutex() {
+    doThrow(new IllegalStateException("lineage not available")).doNothing().when(metascopeLineageServiceMock).rebuild();
+
+    try {
+      metascopeTask.run();
+      fail("exception of the lineage rebuild is expected to be propagated");
+    } catch (IllegalStateException e) {
+      assertEquals("lineage not available", e.getMessage());
+    }
+    assertFalse(taskMutex.isSchedoscopeTaskRunning());
+
+    /* the next run is not blocked */
+    metascopeTask.run();
+    verify(syncTaskMock, times(2)).run(any(RawJDBCSqlRepository.class), anyLong());
+    verify(metascopeLineageServiceMock, times(2)).rebuild();
+  }
+
+}
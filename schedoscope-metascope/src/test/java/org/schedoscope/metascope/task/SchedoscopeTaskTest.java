@@ -0,0 +1,226 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.schedoscope.metascope.index.SolrFacade;
+import org.schedoscope.metascope.model.MetascopeExport;
+import org.schedoscope.metascope.model.MetascopeField;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeView;
+import org.schedoscope.metascope.repository.jdbc.RawJDBCSqlRepository;
+import org.schedoscope.metascope.util.model.SchedoscopeInstance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class SchedoscopeTaskTest {
+
+  private static final String INSTANCE = "test";
+
+  /* class to test */
+  private SchedoscopeTask schedoscopeTask;
+
+  /* mocked fields */
+  private RawJDBCSqlRepository sqlRepositoryMock;
+  private DataSource dataSourceMock;
+  private Connection connectionMock;
+  private SolrFacade solrFacadeMock;
+
+  /* schedoscope REST API serving the views below */
+  private HttpServer schedoscope;
+  private String views;
+
+  /* stored state and the writes of the sync, in order */
+  private Map<String, MetascopeTable> storedTables;
+  private Map<String, MetascopeTable> savedTables;
+  private List<String> writes;
+
+  @Before
+  public void setup() throws Exception {
+    this.schedoscope = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    schedoscope.createContext("/views/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        byte[] body = views.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+      }
+    });
+    schedoscope.start();
+
+    this.sqlRepositoryMock = mock(RawJDBCSqlRepository.class);
+    this.dataSourceMock = mock(DataSource.class);
+    this.connectionMock = mock(Connection.class);
+    this.solrFacadeMock = mock(SolrFacade.class);
+    when(dataSourceMock.getConnection()).thenReturn(connectionMock);
+
+    this.storedTables = new HashMap<>();
+    this.savedTables = new HashMap<>();
+    this.writes = new ArrayList<>();
+    when(sqlRepositoryMock.findTables(connectionMock, INSTANCE)).thenReturn(storedTables);
+    when(sqlRepositoryMock.findFields(connectionMock, INSTANCE)).thenReturn(new HashMap<String, MetascopeField>());
+    when(sqlRepositoryMock.findExports(connectionMock, INSTANCE)).thenReturn(new HashMap<String, MetascopeExport>());
+    when(sqlRepositoryMock.findViewContentHashes(connectionMock, INSTANCE)).thenReturn(new HashMap<String, String>());
+    when(sqlRepositoryMock.getMetadata(connectionMock, "solrSchemaVersion." + INSTANCE))
+      .thenReturn(SolrFacade.SCHEMA_VERSION);
+    when(sqlRepositoryMock.getMetadata(connectionMock, "schedoscopeTimestamp")).thenReturn("1");
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        MetascopeTable table = (MetascopeTable) invocation.getArguments()[1];
+        savedTables.put(table.getFqdn(), table);
+        writes.add("table " + table.getFqdn() + " " + table.getSchedoscopeFingerprint());
+        return null;
+      }
+    }).when(sqlRepositoryMock).saveTable(any(Connection.class), any(MetascopeTable.class));
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        for (Object view : (Iterable<?>) invocation.getArguments()[1]) {
+          writes.add("view " + ((MetascopeView) view).getViewId());
+        }
+        return null;
+      }
+    }).when(sqlRepositoryMock).insertOrUpdateViews(any(Connection.class), Mockito.<Iterable<MetascopeView>>any());
+
+    this.schedoscopeTask = new SchedoscopeTask();
+    schedoscopeTask.setSolrFacade(solrFacadeMock);
+    schedoscopeTask.setDataSource(dataSourceMock);
+    schedoscopeTask.forInstance(new SchedoscopeInstance(INSTANCE, "localhost", schedoscope.getAddress().getPort()));
+  }
+
+  @After
+  public void cleanup() {
+    schedoscope.stop(0);
+  }
+
+  @Test
+  public void schedoscopeTask_01_fingerprintIsWrittenAfterViews() {
+    this.views = views(table("test/Product/", "test.product"), view("test/Product/2017"), view("test/Product/2018"));
+
+    assertTrue(schedoscopeTask.fullSync(true).run(sqlRepositoryMock, 0));
+
+    assertEquals(4, writes.size());
+    assertEquals("table test.product null", writes.get(0));
+    assertEquals("view test/Product/2017", writes.get(1));
+    assertEquals("view test/Product/2018", writes.get(2));
+    assertEquals("table test.product " + savedTables.get("test.product").getSchedoscopeFingerprint(), writes.get(3));
+    assertNotNull(savedTables.get("test.product").getSchedoscopeFingerprint());
+    assertEquals(Collections.singleton("test/Product/"), schedoscopeTask.getChangedTables());
+  }
+
+  @Test
+  public void schedoscopeTask_02_unchangedTableIsSkipped() {
+    this.views = views(table("test/Product/", "test.product"), view("test/Product/2017"),
+      table("test/Brand/", "test.brand"), view("test/Brand/2017"));
+    assertTrue(schedoscopeTask.fullSync(true).run(sqlRepositoryMock, 0));
+    storedTables.putAll(savedTables);
+    writes.clear();
+    reset(solrFacadeMock);
+
+    assertTrue(schedoscopeTask.fullSync(false).run(sqlRepositoryMock, 0));
+
+    assertTrue(writes.isEmpty());
+    assertTrue(schedoscopeTask.getChangedTables().isEmpty());
+    verify(solrFacadeMock, never()).updateTablePartial(any(MetascopeTable.class), anyBoolean());
+  }
+
+  @Test
+  public void schedoscopeTask_03_changedTableIsWritten() {
+    this.views = views(table("test/Product/", "test.product"), view("test/Product/2017"),
+      table("test/Brand/", "test.brand"), view("test/Brand/2017"));
+    assertTrue(schedoscopeTask.fullSync(true).run(sqlRepositoryMock, 0));
+    storedTables.putAll(savedTables);
+    String fingerprint = savedTables.get("test.brand").getSchedoscopeFingerprint();
+    writes.clear();
+
+    /* a new partition changes the fingerprint of its table only */
+    this.views = views(table("test/Product/", "test.product"), view("test/Product/2017"),
+      table("test/Brand/", "test.brand"), view("test/Brand/2017"), view("test/Brand/2018"));
+    assertTrue(schedoscopeTask.fullSync(false).run(sqlRepositoryMock, 0));
+
+    assertEquals(Collections.singleton("test/Brand/"), schedoscopeTask.getChangedTables());
+    assertEquals("view test/Brand/2018", writes.get(writes.size() - 2));
+    assertNotEquals(fingerprint, savedTables.get("test.brand").getSchedoscopeFingerprint());
+    for (String write : writes) {
+      assertFalse(write, write.contains("test.product") || write.contains("test/Product/"));
+    }
+  }
+
+  @Test
+  public void schedoscopeTask_04_failedFlushKeepsOldFingerprint() throws SQLException {
+    this.views = views(table("test/Product/", "test.product"), view("test/Product/2017"));
+    doThrow(new SQLException("Lock wait timeout exceeded")).when(sqlRepositoryMock)
+      .insertOrUpdateViews(any(Connection.class), Mockito.<Iterable<MetascopeView>>any());
+
+    assertFalse(schedoscopeTask.fullSync(true).run(sqlRepositoryMock, 0));
+
+    assertEquals(Collections.singletonList("table test.product null"), writes);
+    verify(sqlRepositoryMock, never()).saveMetadata(any(Connection.class), eq("schedoscopeTimestamp"), anyString());
+  }
+
+  @Test
+  public void schedoscopeTask_05_failedLoadAbortsSync() throws SQLException {
+    this.views = views(table("test/Product/", "test.product"), view("test/Product/2017"));
+    when(sqlRepositoryMock.findFields(connectionMock, INSTANCE)).thenThrow(new SQLException("Connection reset"));
+
+    assertFalse(schedoscopeTask.fullSync(true).run(sqlRepositoryMock, 0));
+
+    assertTrue(writes.isEmpty());
+    verify(solrFacadeMock, never()).updateTablePartial(any(MetascopeTable.class), anyBoolean());
+    verify(connectionMock).close();
+  }
+
+  private String views(String... views) {
+    StringBuilder json = new StringBuilder("{\"overview\":{},\"views\":[");
+    for (int i = 0; i < views.length; i++) {
+      json.append(i > 0 ? "," : "").append(views[i]);
+    }
+    return json.append("]}").toString();
+  }
+
+  private String table(String viewPath, String fqdn) {
+    return "{\"viewPath\":\"" + viewPath + "\",\"viewTableName\":\"" + fqdn + "\",\"status\":\"materialized\","
+      + "\"isTable\":true,\"fields\":[{\"name\":\"id\",\"fieldtype\":\"string\"}],"
+      + "\"parameters\":[{\"name\":\"year\",\"fieldtype\":\"string\"}],\"transformation\":{\"name\":\"hive\"}}";
+  }
+
+  private String view(String viewPath) {
+    return "{\"viewPath\":\"" + viewPath + "\",\"status\":\"materialized\",\"isTable\":false}";
+  }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task.metastore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.config.MetascopeConfig;
+import org.schedoscope.metascope.task.metastore.model.MetastorePartition;
+import org.schedoscope.metascope.task.metastore.model.MetastoreTable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetastoreJdbcClientTest {
+
+  private static final String JDBC_URL = "jdbc:h2:mem:metastore;DB_CLOSE_DELAY=-1";
+
+  private Connection metastore;
+  private MetastoreJdbcClient client;
+
+  @Before
+  public void setup() throws Exception {
+    this.metastore = DriverManager.getConnection(JDBC_URL, "sa", "");
+    execute("create table DBS (DB_ID bigint, NAME varchar(128))",
+      "create table SDS (SD_ID bigint, INPUT_FORMAT varchar(255), OUTPUT_FORMAT varchar(255), LOCATION varchar(255))",
+      "create table TBLS (TBL_ID bigint, DB_ID bigint, SD_ID bigint, TBL_NAME varchar(128), OWNER varchar(128), "
+        + "CREATE_TIME int)",
+      "create table TABLE_PARAMS (TBL_ID bigint, PARAM_KEY varchar(256), PARAM_VALUE varchar(4000))",
+      "create table PARTITIONS (PART_ID bigint, TBL_ID bigint, PART_NAME varchar(767))",
+      "create table PARTITION_PARAMS (PART_ID bigint, PARAM_KEY varchar(256), PARAM_VALUE varchar(4000))",
+      "insert into DBS values (1, 'db'), (2, 'other')",
+      "insert into SDS values (1, 'in', 'out', 'hdfs:///db/clicks'), (2, 'in', 'out', 'hdfs:///db/users'), "
+        + "(3, 'in', 'out', 'hdfs:///other/orders')",
+      "insert into TBLS values (1, 1, 1, 'clicks', 'hive', 1000), (2, 1, 2, 'users', 'hive', 2000), "
+        + "(3, 2, 3, 'orders', 'hive', 3000)",
+      "insert into TABLE_PARAMS values (1, 'transformation.timestamp', '42'), (1, 'numFiles', '3')",
+      "insert into PARTITIONS values (1, 1, 'year=2017/month=01'), (2, 1, 'year=2017/month=02'), "
+        + "(3, 3, 'year=2017')",
+      "insert into PARTITION_PARAMS values (1, 'numRows', '10'), (1, 'totalSize', '100'), "
+        + "(1, 'transformation.timestamp', '43'), (2, 'numRows', '20'), (2, 'numFiles', '1')");
+
+    MetascopeConfig config = mock(MetascopeConfig.class);
+    when(config.getMetastoreJdbcUrl()).thenReturn(JDBC_URL);
+    when(config.getMetastoreJdbcUser()).thenReturn("sa");
+    when(config.getMetastoreJdbcPassword()).thenReturn("");
+    this.client = new MetastoreJdbcClient(config);
+    client.init();
+  }
+
+  @After
+  public void teardown() throws Exception {
+    client.close();
+    execute("drop all objects");
+    metastore.close();
+  }
+
+  @Test
+  public void prefetchTablesTest() throws Exception {
+    client.prefetch(Collections.singletonList("db"));
+
+    /* tables of the prefetched database must be answered from the extract from now on */
+    execute("delete from SDS where SD_ID < 3");
+
+    MetastoreTable clicks = client.getTable("db", "clicks");
+    assertEquals("hive", clicks.getOwner());
+    assertEquals(1000000L, clicks.getCreateTime());
+    assertEquals("hdfs:///db/clicks", clicks.getLocation());
+    assertEquals("42", clicks.getSchedoscopeTimestamp());
+
+    MetastoreTable users = client.getTable("db", "users");
+    assertEquals("hdfs:///db/users", users.getLocation());
+    assertNull(users.getSchedoscopeTimestamp());
+
+    /* tables of databases which have not been prefetched are still queried */
+    assertEquals("hdfs:///other/orders", client.getTable("other", "orders").getLocation());
+  }
+
+  @Test
+  public void prefetchPartitionsTest() throws Exception {
+    client.prefetch(Collections.singletonList("db"));
+    execute("delete from PARTITIONS", "delete from PARTITION_PARAMS");
+
+    List<MetastorePartition> partitions = client.listPartitions("db", "clicks", null);
+    assertEquals(2, partitions.size());
+
+    MetastorePartition january = findPartition(partitions, Arrays.asList("2017", "01"));
+    MetastorePartition february = findPartition(partitions, Arrays.asList("2017", "02"));
+    assertEquals("10", january.getNumRows());
+    assertEquals("100", january.getTotalSize());
+    assertEquals("43", january.getSchedoscopeTimestamp());
+    assertEquals("20", february.getNumRows());
+    assertNull(february.getSchedoscopeTimestamp());
+
+    assertTrue(client.listPartitions("db", "users", null).isEmpty());
+  }
+
+  @Test
+  public void prefetchSharedWithNewClientsTest() throws Exception {
+    client.prefetch(Collections.singletonList("db"));
+    execute("delete from TBLS", "delete from PARTITIONS");
+
+    MetastoreClient other = client.newClient();
+    assertEquals("hdfs:///db/clicks", other.getTable("db", "clicks").getLocation());
+    assertEquals(2, other.listPartitions("db", "clicks", null).size());
+  }
+
+  @Test
+  public void withoutPrefetchTest() throws Exception {
+    MetastoreTable orders = client.getTable("other", "orders");
+    assertEquals("hdfs:///other/orders", orders.getLocation());
+
+    List<MetastorePartition> partitions = client.listPartitions("other", "orders", null);
+    assertEquals(1, partitions.size());
+    assertEquals(Collections.singletonList("2017"), partitions.get(0).getValues());
+  }
+
+  private MetastorePartition findPartition(List<MetastorePartition> partitions, List<String> values) {
+    for (MetastorePartition partition : partitions) {
+      if (partition.getValues().equals(values)) {
+        return partition;
+      }
+    }
+    throw new AssertionError("partition " + values + " not found");
+  }
+
+  private void execute(String... statements) throws Exception {
+    Statement stmt = metastore.createStatement();
+    try {
+      for (String sql : statements) {
+        stmt.execute(sql);
+      }
+    } finally {
+      stmt.close();
+    }
+  }
+
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task.metastore;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.schedoscope.metascope.config.MetascopeConfig;
+import org.schedoscope.metascope.index.SolrFacade;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeView;
+import org.schedoscope.metascope.repository.jdbc.RawJDBCSqlRepository;
+import org.schedoscope.metascope.service.MetascopeSampleService;
+import org.schedoscope.metascope.task.metastore.model.MetastorePartition;
+import org.schedoscope.metascope.task.metastore.model.MetastoreTable;
+
+import java.sql.Connection;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MetastoreTaskTest {
+
+  private static final int TABLES = 10;
+  private static final int WORKERS = 3;
+
+  /* class to test */
+  private MetastoreTask metastoreTask;
+
+  /* mocked fields */
+  private MetascopeConfig configMock;
+  private MetastoreClient metastoreClientMock;
+  private List<MetastoreClient> workerClientMocks;
+  private RawJDBCSqlRepository sqlRepositoryMock;
+  private DataSource dataSourceMock;
+  private Connection connectionMock;
+  private MetascopeSampleService metascopeSampleServiceMock;
+
+  /* test data */
+  private List<MetascopeTable> tables;
+
+  @Before
+  public void setup() throws Exception {
+    this.configMock = mock(MetascopeConfig.class);
+    when(configMock.getHdfs()).thenReturn("file:///");
+    when(configMock.getHdfsStatsThreads()).thenReturn(2);
+    when(configMock.getHdfsStatsRpcPerSecond()).thenReturn(1000);
+    when(configMock.getHdfsStatsCacheTtl()).thenReturn(60);
+    when(configMock.getMetastoreWorkers()).thenReturn(WORKERS);
+
+    this.metastoreClientMock = mock(MetastoreClient.class);
+    stubClient(metastoreClientMock);
+    this.workerClientMocks = new ArrayList<>();
+    for (int i = 0; i < WORKERS; i++) {
+      MetastoreClient workerClientMock = mock(MetastoreClient.class);
+      stubClient(workerClientMock);
+      workerClientMocks.add(workerClientMock);
+    }
+    when(metastoreClientMock.newClient()).thenReturn(workerClientMocks.get(0),
+      workerClientMocks.subList(1, WORKERS).toArray(new MetastoreClient[WORKERS - 1]));
+
+    this.tables = new ArrayList<>();
+    for (int i = 0; i < TABLES; i++) {
+      MetascopeTable table = new MetascopeTable();
+      table.setFqdn("test.table" + i);
+      table.setDatabaseName("test");
+      table.setTableName("table" + i);
+      table.setViewPath("test/Table" + i + "/");
+      tables.add(table);
+    }
+    this.connectionMock = mock(Connection.class);
+    this.dataSourceMock = mock(DataSource.class);
+    when(dataSourceMock.getConnection()).thenReturn(connectionMock);
+    this.sqlRepositoryMock = mock(RawJDBCSqlRepository.class);
+    when(sqlRepositoryMock.findAllTables(connectionMock)).thenReturn(tables);
+    when(sqlRepositoryMock.findViews(any(Connection.class), anyString())).thenAnswer(new Answer<List<MetascopeView>>() {
+      @Override
+      public List<MetascopeView> answer(InvocationOnMock invocation) {
+        String fqdn = (String) invocation.getArguments()[1];
+        return Arrays.asList(view(fqdn, "/year=2017"), view(fqdn, "/year=2018"));
+      }
+    });
+
+    this.metascopeSampleServiceMock = mock(MetascopeSampleService.class);
+    when(metascopeSampleServiceMock.getSampledTables()).thenReturn(Collections.singleton("test.table0"));
+
+    this.metastoreTask = new MetastoreTask(metastoreClientMock);
+    metastoreTask.setConfig(configMock);
+    metastoreTask.setDataSource(dataSourceMock);
+    metastoreTask.setSolrFacade(mock(SolrFacade.class));
+    metastoreTask.setMetascopeSampleService(metascopeSampleServiceMock);
+  }
+
+  @Test
+  public void parallelSyncTest() throws Exception {
+    assertTrue(metastoreTask.forTables(null).run(sqlRepositoryMock, 0));
+
+    /* every table is synced exactly once, by the workers only */
+    ArgumentCaptor<MetascopeTable> saved = ArgumentCaptor.forClass(MetascopeTable.class);
+    verify(sqlRepositoryMock, times(TABLES)).saveTable(any(Connection.class), saved.capture());
+    assertEquals(new HashSet<>(tables), new HashSet<>(saved.getAllValues()));
+    for (MetascopeTable table : tables) {
+      assertEquals("hive", table.getTableOwner());
+      assertEquals(200, table.getLastTransformation());
+    }
+    verify(metastoreClientMock, never()).getTable(anyString(), anyString());
+    verify(metastoreClientMock).prefetch(Collections.singleton("test"));
+
+    /* each worker has its own metastore client and repository connection, and closes both */
+    verify(metastoreClientMock, times(WORKERS)).newClient();
+    for (MetastoreClient workerClientMock : workerClientMocks) {
+      verify(workerClientMock).init();
+      verify(workerClientMock).close();
+    }
+    verify(dataSourceMock, times(WORKERS + 1)).getConnection();
+    verify(connectionMock, times(WORKERS + 1)).close();
+  }
+
+  @Test
+  public void partitionsAreMatchedToViewsTest() throws Exception {
+    assertTrue(metastoreTask.forTables(null).run(sqlRepositoryMock, 0));
+
+    List<MetascopeView> updatedViews = new ArrayList<>();
+    for (Iterable<MetascopeView> views : captureViewMetadata()) {
+      for (MetascopeView view : views) {
+        updatedViews.add(view);
+      }
+    }
+    /* the partition 2019 has no view and is skipped */
+    assertEquals(2 * TABLES, updatedViews.size());
+    for (MetascopeView view : updatedViews) {
+      boolean year2017 = view.getParameterString().equals("/year=2017");
+      assertEquals(year2017 ? 10 : 20, view.getNumRows());
+      assertEquals(year2017 ? 100 : 200, view.getLastTransformation());
+    }
+
+    Map<String, Long> partitionTransformations = new HashMap<>();
+    partitionTransformations.put("/year=2017", 100L);
+    partitionTransformations.put("/year=2018", 200L);
+    verify(metascopeSampleServiceMock).refreshSamples(tables.get(0), partitionTransformations);
+    verify(metascopeSampleServiceMock, times(1)).refreshSamples(any(MetascopeTable.class), Mockito.<Map<String, Long>>any());
+  }
+
+  @Test
+  public void failedTableDoesNotStopWorkersTest() throws Exception {
+    for (MetastoreClient workerClientMock : workerClientMocks) {
+      when(workerClientMock.getTable("test", "table3")).thenThrow(new RuntimeException("Broken pipe"));
+    }
+
+    assertTrue(metastoreTask.forTables(null).run(sqlRepositoryMock, 0));
+
+    ArgumentCaptor<MetascopeTable> saved = ArgumentCaptor.forClass(MetascopeTable.class);
+    verify(sqlRepositoryMock, times(TABLES - 1)).saveTable(any(Connection.class), saved.capture());
+    assertFalse(saved.getAllValues().contains(tables.get(3)));
+  }
+
+  @Test
+  public void incrementalSyncTest() throws Exception {
+    Set<String> changed = new HashSet<>(Arrays.asList("test/Table1/", "test/Table2/"));
+
+    assertTrue(metastoreTask.forTables(changed).run(sqlRepositoryMock, 0));
+
+    /* no more workers than tables, and no bulk extract for a few tables */
+    verify(metastoreClientMock, times(2)).newClient();
+    verify(metastoreClientMock, never()).prefetch(anyCollectionOf(String.class));
+    ArgumentCaptor<MetascopeTable> saved = ArgumentCaptor.forClass(MetascopeTable.class);
+    verify(sqlRepositoryMock, times(2)).saveTable(any(Connection.class), saved.capture());
+    assertEquals(new HashSet<>(Arrays.asList(tables.get(1), tables.get(2))), new HashSet<>(saved.getAllValues()));
+  }
+
+  @Test
+  public void singleWorkerSyncTest() throws Exception {
+    when(configMock.getMetastoreWorkers()).thenReturn(1);
+
+    assertTrue(metastoreTask.forTables(null).run(sqlRepositoryMock, 0));
+
+    verify(metastoreClientMock, never()).newClient();
+    verify(metastoreClientMock, times(TABLES)).getTable(eq("test"), anyString());
+    verify(sqlRepositoryMock, times(TABLES)).saveTable(any(Connection.class), any(MetascopeTable.class));
+    verify(dataSourceMock, times(1)).getConnection();
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Iterable<MetascopeView>> captureViewMetadata() {
+    ArgumentCaptor<Iterable> views = ArgumentCaptor.forClass(Iterable.class);
+    verify(sqlRepositoryMock, atLeastOnce()).insertOrUpdateViewMetadata(any(Connection.class), views.capture());
+    List<Iterable<MetascopeView>> result = new ArrayList<>();
+    for (Iterable iterable : views.getAllValues()) {
+      result.add((Iterable<MetascopeView>) iterable);
+    }
+    return result;
+  }
+
+  private void stubClient(MetastoreClient client) {
+    when(client.getTable(anyString(), anyString())).thenAnswer(new Answer<MetastoreTable>() {
+      @Override
+      public MetastoreTable answer(InvocationOnMock invocation) {
+        String tableName = (String) invocation.getArguments()[1];
+        return new MetastoreTable("hive", 1, "in", "out", "/nonexistent/test/" + tableName, "42");
+      }
+    });
+    List<String> partitionNames = Arrays.asList("year=2017", "year=2018", "year=2019");
+    when(client.listPartitionNames(anyString(), anyString(), anyShort())).thenReturn(partitionNames);
+    when(client.partitionLists(partitionNames, 10000)).thenReturn(Collections.singletonList(partitionNames));
+    when(client.listPartitions(anyString(), anyString(), eq(partitionNames))).thenAnswer(new Answer<List<MetastorePartition>>() {
+      @Override
+      public List<MetastorePartition> answer(InvocationOnMock invocation) {
+        return Arrays.asList(partition("2017", "10", "100"), partition("2018", "20", "200"),
+          partition("2019", "30", "300"));
+      }
+    });
+  }
+
+  private MetascopeView view(String fqdn, String parameterString) {
+    MetascopeView view = new MetascopeView();
+    view.setViewId(fqdn + parameterString);
+    view.setParameterString(parameterString);
+    return view;
+  }
+
+  private MetastorePartition partition(String year, String numRows, String schedoscopeTimestamp) {
+    MetastorePartition partition = new MetastorePartition();
+    partition.setValues(Collections.singletonList(year));
+    partition.setNumRows(numRows);
+    partition.setSchedoscopeTimestamp(schedoscopeTimestamp);
+    return partition;
+  }
+
+}
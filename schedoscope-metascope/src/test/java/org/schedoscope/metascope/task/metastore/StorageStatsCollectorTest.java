@@ -0,0 +1,199 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task.metastore;
+
+import org.apache.hadoop.fs.ContentSummary;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.permission.FsPermission;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.model.MetascopeTable;
+import org.schedoscope.metascope.model.MetascopeView;
+
+import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class StorageStatsCollectorTest {
+
+  private static final String TABLE_PATH = "/hdfs/test/table";
+  private static final String PARTITION = "/p=1";
+  private static final Path PARTITION_PATH = new Path(TABLE_PATH + PARTITION);
+  private static final int TTL_SECONDS = 60;
+
+  /* class to test */
+  private StorageStatsCollector collector;
+
+  /* mocked fields */
+  private FileSystem fsMock;
+
+  /* test data */
+  private MetascopeTable table;
+  private MetascopeView view;
+  private long now = 1000000L;
+
+  @Before
+  public void setup() throws Exception {
+    this.fsMock = mock(FileSystem.class);
+    when(fsMock.getFileStatus(any(Path.class))).thenReturn(new FileStatus(0, true, 1, 0, 0, 0,
+      new FsPermission((short) 0755), "hive", "hive", new Path(TABLE_PATH)));
+
+    this.collector = new StorageStatsCollector(1, 1000, TTL_SECONDS) {
+      @Override
+      long currentTimeMillis() {
+        return now;
+      }
+    };
+    collector.open(fsMock);
+
+    this.table = new MetascopeTable();
+    table.setDataPath(TABLE_PATH);
+    this.view = new MetascopeView();
+    view.setParameterString(PARTITION);
+  }
+
+  @After
+  public void teardown() {
+    collector.close();
+  }
+
+  @Test
+  public void unchangedDirectoryIsCachedTest() throws Exception {
+    listing(file("part-0", 100, 10));
+    summary(300);
+
+    collect();
+    collect();
+
+    assertEquals(300, view.getDataSize());
+    assertEquals(300, table.getDataSize());
+    verify(fsMock, times(2)).listStatus(PARTITION_PATH);
+    verify(fsMock, times(1)).getContentSummary(PARTITION_PATH);
+  }
+
+  @Test
+  public void appendedFileIsSummarizedAgainTest() throws Exception {
+    listing(file("part-0", 100, 10));
+    summary(300);
+    collect();
+
+    /* an append changes the length, the modification time of the directory stays the same */
+    listing(file("part-0", 150, 10));
+    summary(450);
+    collect();
+
+    assertEquals(450, view.getDataSize());
+    verify(fsMock, times(2)).getContentSummary(PARTITION_PATH);
+  }
+
+  @Test
+  public void changedEntriesAreSummarizedAgainTest() throws Exception {
+    listing(file("part-0", 100, 10), directory("sub", 10));
+    summary(300);
+    collect();
+
+    /* a file written to a subdirectory only changes the modification time of the subdirectory */
+    listing(file("part-0", 100, 10), directory("sub", 20));
+    summary(600);
+    collect();
+    assertEquals(600, view.getDataSize());
+
+    /* an added file changes the number of entries */
+    listing(file("part-0", 100, 10), directory("sub", 20), file("part-1", 0, 5));
+    summary(900);
+    collect();
+    assertEquals(900, view.getDataSize());
+
+    verify(fsMock, times(3)).getContentSummary(PARTITION_PATH);
+  }
+
+  @Test
+  public void expiredEntryIsSummarizedAgainTest() throws Exception {
+    listing(file("part-0", 100, 10));
+    summary(300);
+    collect();
+
+    now += TTL_SECONDS * 1000L - 1;
+    collect();
+    verify(fsMock, times(1)).getContentSummary(PARTITION_PATH);
+
+    now += 1;
+    summary(500);
+    collect();
+    assertEquals(500, view.getDataSize());
+    verify(fsMock, times(2)).getContentSummary(PARTITION_PATH);
+  }
+
+  @Test
+  public void expiredEntriesAreEvictedTest() throws Exception {
+    listing(file("part-0", 100, 10));
+    summary(300);
+    collect();
+    assertEquals(1, collector.cachedDirectories());
+
+    /* the partition has been dropped, its size is not looked up again */
+    now += TTL_SECONDS * 1000L - 1;
+    collector.close();
+    collector.open(fsMock);
+    assertEquals(1, collector.cachedDirectories());
+
+    now += 1;
+    collector.close();
+    collector.open(fsMock);
+    assertEquals(0, collector.cachedDirectories());
+  }
+
+  @Test
+  public void missingDirectoryTest() throws Exception {
+    when(fsMock.listStatus(PARTITION_PATH)).thenThrow(new FileNotFoundException());
+
+    collect();
+
+    assertEquals(0, view.getDataSize());
+    assertEquals(0, table.getDataSize());
+    verify(fsMock, never()).getContentSummary(any(Path.class));
+  }
+
+  private void collect() throws Exception {
+    List<MetascopeView> views = Collections.singletonList(view);
+    collector.collect(table, views);
+  }
+
+  private void listing(FileStatus... entries) throws Exception {
+    when(fsMock.listStatus(PARTITION_PATH)).thenReturn(entries);
+  }
+
+  private void summary(long spaceConsumed) throws Exception {
+    ContentSummary summary = mock(ContentSummary.class);
+    when(summary.getSpaceConsumed()).thenReturn(spaceConsumed);
+    when(fsMock.getContentSummary(PARTITION_PATH)).thenReturn(summary);
+  }
+
+  private FileStatus file(String name, long length, long modificationTime) {
+    return new FileStatus(length, false, 3, 128, modificationTime, new Path(PARTITION_PATH, name));
+  }
+
+  private FileStatus directory(String name, long modificationTime) {
+    return new FileStatus(0, true, 0, 0, modificationTime, new Path(PARTITION_PATH, name));
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.task.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ViewStatusTest {
+
+  /* class to test */
+  private ViewStatus viewStatus;
+
+  @Before
+  public void setup() {
+    this.viewStatus = new ViewStatus();
+    viewStatus.setViews(Arrays.asList(view("test/Product/", true), view("test/Product/2017", false),
+      view("test/Brand/", true), view("test/Product/2018", false), view("test/Click/2017/01", false)));
+  }
+
+  @Test
+  public void viewStatus_01_viewsAreGroupedByTable() {
+    Map<String, List<View>> viewsByTable = viewStatus.viewsByTable();
+
+    assertEquals(2, viewsByTable.size());
+    assertEquals(Arrays.asList("test/Product/2017", "test/Product/2018"), names(viewsByTable.get("test/Product/")));
+    assertEquals(Arrays.asList("test/Click/2017/01"), names(viewsByTable.get("test/Click/")));
+  }
+
+  @Test
+  public void viewStatus_02_tablesWithoutViewsHaveNoEntry() {
+    assertNull(viewStatus.viewsByTable().get("test/Brand/"));
+  }
+
+  @Test
+  public void viewStatus_03_indexIsBuiltOnce() {
+    assertSame(viewStatus.viewsByTable(), viewStatus.viewsByTable());
+  }
+
+  @Test
+  public void viewStatus_04_indexIsResetWithViews() {
+    Map<String, List<View>> before = viewStatus.viewsByTable();
+
+    viewStatus.setViews(Arrays.asList(view("test/Brand/", true), view("test/Brand/shop", false)));
+
+    Map<String, List<View>> after = viewStatus.viewsByTable();
+    assertEquals(2, before.size());
+    assertEquals(1, after.size());
+    assertEquals(Arrays.asList("test/Brand/shop"), names(after.get("test/Brand/")));
+  }
+
+  @Test
+  public void viewStatus_05_emptyViews() {
+    viewStatus.setViews(new ArrayList<View>());
+
+    assertTrue(viewStatus.viewsByTable().isEmpty());
+  }
+
+  private View view(String viewPath, boolean isTable) {
+    View view = new View();
+    view.setName(viewPath);
+    view.setIsTable(isTable);
+    return view;
+  }
+
+  private List<String> names(List<View> views) {
+    List<String> names = new ArrayList<>();
+    for (View view : views) {
+      names.add(view.getName());
+    }
+    return names;
+  }
+
+}
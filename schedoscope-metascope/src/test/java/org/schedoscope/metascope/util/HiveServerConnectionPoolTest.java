@@ -0,0 +1,174 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.config.MetascopeConfig;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HiveServerConnectionPoolTest {
+
+  private static final String JDBC_URL = "jdbc:h2:mem:hiveserver;DB_CLOSE_DELAY=-1";
+
+  private static final int TIMEOUT = 1;
+
+  /* class to test */
+  private HiveServerConnectionPool pool;
+
+  @Before
+  public void setup() {
+    this.pool = createPool(JDBC_URL, 1, 1);
+  }
+
+  @After
+  public void teardown() {
+    pool.close();
+  }
+
+  @Test
+  public void connectionPool_01_connectionIsReused() throws SQLException {
+    String session = query(null, "select session_id()");
+
+    assertEquals(session, query(null, "select session_id()"));
+    assertEquals(session, query("user", "select session_id()"));
+  }
+
+  @Test
+  public void connectionPool_02_connectionIsDiscardedOnError() throws SQLException {
+    String session = query(null, "select session_id()");
+
+    try {
+      query(null, "select * from missing_table");
+      fail("query on missing table must fail");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    assertNotEquals(session, query(null, "select session_id()"));
+  }
+
+  @Test
+  public void connectionPool_03_permitsAreReleasedOnQueryFailure() throws SQLException {
+    for (int i = 0; i < 3; i++) {
+      try {
+        query("user", "select * from missing_table");
+        fail("query on missing table must fail");
+      } catch (SQLException e) {
+        /* with a leaked permit, the next attempt would not get a connection or be rejected for the user */
+        assertFalse(e.getMessage(), e.getMessage().contains("No connection to HiveServer2 available"));
+        assertFalse(e.getMessage(), e.getMessage().contains("Too many running queries"));
+      }
+    }
+
+    assertEquals("1", query("user", "select 1"));
+  }
+
+  @Test
+  public void connectionPool_04_permitsAreReleasedOnConnectFailure() {
+    pool.close();
+    this.pool = createPool("jdbc:unknown:hiveserver", 1, 1);
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        query("user", "select 1");
+        fail("connecting with an unknown driver must fail");
+      } catch (SQLException e) {
+        assertFalse(e.getMessage(), e.getMessage().contains("No connection to HiveServer2 available"));
+        assertFalse(e.getMessage(), e.getMessage().contains("Too many running queries"));
+      }
+    }
+  }
+
+  @Test
+  public void connectionPool_05_queriesPerUserAreLimited() throws SQLException {
+    pool.close();
+    this.pool = createPool(JDBC_URL, 3, 1);
+
+    String result = pool.executeQuery("user", "select 1", null, TIMEOUT,
+      new HiveServerConnectionPool.ResultHandler<String>() {
+        @Override
+        public String handle(ResultSet rs) throws SQLException {
+          try {
+            query("user", "select 1");
+            fail("second query of the same user must be rejected");
+          } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Too many running queries"));
+          }
+          /* other users and background queries are not affected */
+          assertEquals("1", query("other", "select 1"));
+          assertEquals("1", query(null, "select 1"));
+          rs.next();
+          return rs.getString(1);
+        }
+      });
+
+    assertEquals("1", result);
+    assertEquals("1", query("user", "select 1"));
+  }
+
+  @Test
+  public void connectionPool_06_poolSizeIsLimited() throws SQLException {
+    String result = pool.executeQuery(null, "select 1", null, TIMEOUT,
+      new HiveServerConnectionPool.ResultHandler<String>() {
+        @Override
+        public String handle(ResultSet rs) throws SQLException {
+          try {
+            query("other", "select 1");
+            fail("no second connection may be opened");
+          } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("No connection to HiveServer2 available"));
+          }
+          rs.next();
+          return rs.getString(1);
+        }
+      });
+
+    assertEquals("1", result);
+  }
+
+  private String query(String user, String sql) throws SQLException {
+    return pool.executeQuery(user, sql, Collections.<String>emptyList(), TIMEOUT,
+      new HiveServerConnectionPool.ResultHandler<String>() {
+        @Override
+        public String handle(ResultSet rs) throws SQLException {
+          rs.next();
+          return rs.getString(1);
+        }
+      });
+  }
+
+  private HiveServerConnectionPool createPool(String url, int poolSize, int maxQueriesPerUser) {
+    MetascopeConfig config = mock(MetascopeConfig.class);
+    when(config.getHiveJdbcDriver()).thenReturn("org.h2.Driver");
+    when(config.getHiveServerUrl()).thenReturn(url);
+    when(config.getHiveServerPoolSize()).thenReturn(poolSize);
+    when(config.getHiveServerMaxQueriesPerUser()).thenReturn(maxQueriesPerUser);
+    HiveServerConnectionPool pool = new HiveServerConnectionPool();
+    pool.setConfig(config);
+    pool.init();
+    return pool;
+  }
+
+}
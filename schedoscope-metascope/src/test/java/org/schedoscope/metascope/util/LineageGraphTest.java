@@ -0,0 +1,143 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LineageGraphTest {
+
+  /* class to test */
+  private LineageGraph lineageGraph;
+
+  @Before
+  public void setup() {
+    this.lineageGraph = new LineageGraph.Builder()
+      /* chain: a -> b -> c -> d */
+      .addDependency("a", "A", "t1", "b", "B", "t1")
+      .addDependency("b", "B", "t1", "c", "C", "t2")
+      .addDependency("c", "C", "t2", "d", "D", "t2")
+      /* cycle: x -> y -> x */
+      .addDependency("x", "X", "t3", "y", "Y", "t3")
+      .addDependency("y", "Y", "t3", "x", "X", "t3")
+      /* diamond: p -> q, p -> r, q -> s, r -> s */
+      .addDependency("p", "P", "t4", "q", "Q", "t4")
+      .addDependency("p", "P", "t4", "r", "R", "t4")
+      .addDependency("q", "Q", "t4", "s", "S", "t4")
+      .addDependency("r", "R", "t4", "s", "S", "t4")
+      /* self loop */
+      .addDependency("z", "Z", "t5", "z", "Z", "t5")
+      .build();
+  }
+
+  @Test
+  public void lineageGraph_01_nodes() {
+    assertEquals(11, lineageGraph.size());
+    int c = lineageGraph.indexOf("c");
+    assertEquals("c", lineageGraph.getId(c));
+    assertEquals("C", lineageGraph.getLabel(c));
+    assertEquals("t2", lineageGraph.getParent(c));
+    assertEquals(-1, lineageGraph.indexOf("unknown"));
+  }
+
+  @Test
+  public void lineageGraph_02_unlimitedDependencies() {
+    assertEquals(ids("b", "c", "d"), traverse(true, LineageGraph.UNLIMITED, "a"));
+  }
+
+  @Test
+  public void lineageGraph_03_unlimitedSuccessors() {
+    assertEquals(ids("c", "b", "a"), traverse(false, LineageGraph.UNLIMITED, "d"));
+  }
+
+  @Test
+  public void lineageGraph_04_depthLimit() {
+    assertEquals(ids(), traverse(true, 0, "a"));
+    assertEquals(ids("b"), traverse(true, 1, "a"));
+    assertEquals(ids("b", "c"), traverse(true, 2, "a"));
+    assertEquals(ids("b", "c", "d"), traverse(true, 3, "a"));
+    assertEquals(ids("b", "c", "d"), traverse(true, 10, "a"));
+  }
+
+  @Test
+  public void lineageGraph_05_cycleIncludesStart() {
+    /* the start node is only part of the result because it is reached through the cycle */
+    assertEquals(ids("y", "x"), traverse(true, LineageGraph.UNLIMITED, "x"));
+    assertEquals(ids("y", "x"), traverse(false, LineageGraph.UNLIMITED, "x"));
+    assertEquals(ids("y"), traverse(true, 1, "x"));
+    assertEquals(ids("z"), traverse(true, LineageGraph.UNLIMITED, "z"));
+  }
+
+  @Test
+  public void lineageGraph_06_diamondReachesNodesOnce() {
+    List<int[]> edges = new ArrayList<>();
+    int[] reached = lineageGraph.traverse(new int[]{lineageGraph.indexOf("p")}, true, LineageGraph.UNLIMITED, edges);
+
+    assertEquals(ids("q", "r", "s"), toIds(reached));
+    List<String> traversed = new ArrayList<>();
+    for (int[] edge : edges) {
+      traversed.add(lineageGraph.getId(edge[0]) + "->" + lineageGraph.getId(edge[1]));
+    }
+    assertEquals(ids("p->q", "p->r", "q->s", "r->s"), traversed);
+  }
+
+  @Test
+  public void lineageGraph_07_edgesStopAtDepthLimit() {
+    List<int[]> edges = new ArrayList<>();
+    lineageGraph.traverse(new int[]{lineageGraph.indexOf("a")}, true, 2, edges);
+
+    assertEquals(2, edges.size());
+    assertEquals("b", lineageGraph.getId(edges.get(1)[0]));
+    assertEquals("c", lineageGraph.getId(edges.get(1)[1]));
+  }
+
+  @Test
+  public void lineageGraph_08_multipleStarts() {
+    int[] starts = {lineageGraph.indexOf("a"), lineageGraph.indexOf("c"), lineageGraph.indexOf("unknown"),
+      lineageGraph.indexOf("a")};
+
+    /* c is a start node, but also reached from a */
+    assertEquals(ids("b", "d", "c"), toIds(lineageGraph.traverse(starts, true, LineageGraph.UNLIMITED, null)));
+    assertEquals(ids("b", "d"), toIds(lineageGraph.traverse(starts, true, 1, null)));
+    assertEquals(ids(), toIds(lineageGraph.traverse(new int[0], true, LineageGraph.UNLIMITED, null)));
+  }
+
+  private List<String> traverse(boolean dependencies, int maxDepth, String start) {
+    return toIds(lineageGraph.traverse(new int[]{lineageGraph.indexOf(start)}, dependencies, maxDepth, null));
+  }
+
+  private List<String> toIds(int[] nodes) {
+    List<String> result = new ArrayList<>();
+    for (int node : nodes) {
+      result.add(lineageGraph.getId(node));
+    }
+    return result;
+  }
+
+  private List<String> ids(String... ids) {
+    List<String> result = new ArrayList<>();
+    for (String id : ids) {
+      result.add(id);
+    }
+    return result;
+  }
+
+}
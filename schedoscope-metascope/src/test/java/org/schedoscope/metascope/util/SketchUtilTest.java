@@ -0,0 +1,183 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SketchUtilTest {
+
+  @Test
+  public void sketchUtil_01_estimateDistinctValues() {
+    assertEquals(0, SketchUtil.estimateHll(null));
+    assertEquals(0, SketchUtil.estimateHll(new byte[SketchUtil.HLL_REGISTERS]));
+    assertEquals(100, SketchUtil.estimateHll(sketch(0, 100)), 5);
+    assertEquals(10000, SketchUtil.estimateHll(sketch(0, 10000)), 500);
+    assertEquals(1000000, SketchUtil.estimateHll(sketch(0, 1000000)), 50000);
+  }
+
+  @Test
+  public void sketchUtil_02_duplicatesAreCountedOnce() {
+    byte[] registers = sketch(0, 1000);
+    for (int i = 0; i < 1000; i++) {
+      SketchUtil.addHllValue(registers, encode(i));
+    }
+
+    assertArrayEquals(sketch(0, 1000), registers);
+  }
+
+  @Test
+  public void sketchUtil_03_mergeHllEqualsSketchOfUnion() {
+    byte[] a = sketch(0, 6000);
+    byte[] b = sketch(4000, 10000);
+    byte[] aBefore = a.clone();
+    byte[] bBefore = b.clone();
+
+    byte[] merged = SketchUtil.mergeHll(a, b);
+
+    assertArrayEquals(sketch(0, 10000), merged);
+    assertEquals(10000, SketchUtil.estimateHll(merged), 500);
+    /* the inputs are left untouched */
+    assertArrayEquals(aBefore, a);
+    assertArrayEquals(bBefore, b);
+  }
+
+  @Test
+  public void sketchUtil_04_mergeHllWithNull() {
+    byte[] a = sketch(0, 100);
+
+    assertNull(SketchUtil.mergeHll(null, null));
+    assertArrayEquals(a, SketchUtil.mergeHll(a, null));
+    assertArrayEquals(a, SketchUtil.mergeHll(null, a));
+    assertNotSame(a, SketchUtil.mergeHll(null, a));
+  }
+
+  @Test
+  public void sketchUtil_05_mergeHistogramsKeepsBinsAndCounts() {
+    List<double[]> a = histogram(1, 501);
+    List<double[]> b = histogram(501, 1001);
+    List<double[]> aBefore = copy(a);
+
+    List<double[]> merged = SketchUtil.mergeHistograms(a, b);
+
+    assertEquals(SketchUtil.HISTOGRAM_BINS, merged.size());
+    assertEquals(1000, total(merged), 0.0001);
+    for (int i = 1; i < merged.size(); i++) {
+      assertTrue(merged.get(i - 1)[0] < merged.get(i)[0]);
+    }
+    /* the inputs are left untouched */
+    assertEquals(aBefore.size(), a.size());
+    for (int i = 0; i < a.size(); i++) {
+      assertArrayEquals(aBefore.get(i), a.get(i), 0);
+    }
+  }
+
+  @Test
+  public void sketchUtil_06_mergeSmallHistograms() {
+    List<double[]> a = new ArrayList<>();
+    a.add(new double[]{3, 2});
+    List<double[]> b = new ArrayList<>();
+    b.add(new double[]{1, 1});
+
+    List<double[]> merged = SketchUtil.mergeHistograms(a, b);
+
+    assertEquals(2, merged.size());
+    assertArrayEquals(new double[]{1, 1}, merged.get(0), 0);
+    assertArrayEquals(new double[]{3, 2}, merged.get(1), 0);
+    assertTrue(SketchUtil.mergeHistograms(null, null).isEmpty());
+  }
+
+  @Test
+  public void sketchUtil_07_quantiles() {
+    List<double[]> histogram = SketchUtil.mergeHistograms(histogram(1, 501), histogram(501, 1001));
+
+    assertEquals(500, SketchUtil.quantile(histogram, 0.5), 50);
+    assertEquals(100, SketchUtil.quantile(histogram, 0.1), 50);
+    assertEquals(900, SketchUtil.quantile(histogram, 0.9), 50);
+    assertEquals(histogram.get(0)[0], SketchUtil.quantile(histogram, 0), 0);
+    assertEquals(histogram.get(histogram.size() - 1)[0], SketchUtil.quantile(histogram, 1), 0);
+    assertTrue(SketchUtil.quantile(histogram, 0.25) <= SketchUtil.quantile(histogram, 0.75));
+  }
+
+  @Test
+  public void sketchUtil_08_quantileOfEmptyHistogram() {
+    assertNull(SketchUtil.quantile(null, 0.5));
+    assertNull(SketchUtil.quantile(Collections.<double[]>emptyList(), 0.5));
+  }
+
+  /**
+   * Sketch of the values [from, to), encoded like the profiling query does
+   */
+  static byte[] sketch(int from, int to) {
+    byte[] registers = new byte[SketchUtil.HLL_REGISTERS];
+    for (int i = from; i < to; i++) {
+      SketchUtil.addHllValue(registers, encode(i));
+    }
+    return registers;
+  }
+
+  /**
+   * Histogram of the values [from, to), built by merging one value at a time
+   */
+  static List<double[]> histogram(int from, int to) {
+    List<double[]> histogram = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      histogram = SketchUtil.mergeHistograms(histogram, Arrays.asList(new double[]{i, 1}));
+    }
+    return histogram;
+  }
+
+  /**
+   * Encodes a value as register * 32 + rank of its 32 bit hash, see DataDistributionSqlUtil
+   */
+  private static int encode(int value) {
+    int h = value * 0x9E3779B1;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    h *= 0xC2B2AE35;
+    h ^= h >>> 16;
+
+    long hash = h & 0xFFFFFFFFL;
+    int register = (int) (hash % SketchUtil.HLL_REGISTERS);
+    long rest = hash / SketchUtil.HLL_REGISTERS;
+    int rank = SketchUtil.HLL_RANK_BITS + 1 - (64 - Long.numberOfLeadingZeros(rest));
+    return register * 32 + rank;
+  }
+
+  private static double total(List<double[]> histogram) {
+    double total = 0;
+    for (double[] bin : histogram) {
+      total += bin[1];
+    }
+    return total;
+  }
+
+  private static List<double[]> copy(List<double[]> histogram) {
+    List<double[]> copy = new ArrayList<>();
+    for (double[] bin : histogram) {
+      copy.add(bin.clone());
+    }
+    return copy;
+  }
+
+}
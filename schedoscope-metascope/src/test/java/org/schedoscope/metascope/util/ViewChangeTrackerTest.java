@@ -0,0 +1,97 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ViewChangeTrackerTest {
+
+  /* class to test */
+  private ViewChangeTracker viewChangeTracker;
+
+  @Before
+  public void setup() {
+    this.viewChangeTracker = new ViewChangeTracker();
+    viewChangeTracker.observe("test/Product/", "test/Product/2017", "materialized", 10);
+    viewChangeTracker.observe("test/Click/", "test/Click/2017", "materialized", 10);
+  }
+
+  @Test
+  public void viewChangeTracker_01_initialPollIsNoChange() {
+    assertFalse(viewChangeTracker.coversSince(10));
+
+    viewChangeTracker.pollCompleted(10);
+
+    assertTrue(viewChangeTracker.getTablesChangedSince(0).isEmpty());
+    assertFalse(viewChangeTracker.coversSince(9));
+    assertTrue(viewChangeTracker.coversSince(10));
+    assertTrue(viewChangeTracker.coversSince(20));
+  }
+
+  @Test
+  public void viewChangeTracker_02_statusChangeMarksTable() {
+    viewChangeTracker.pollCompleted(10);
+
+    viewChangeTracker.observe("test/Product/", "test/Product/2017", "materialized", 20);
+    viewChangeTracker.observe("test/Click/", "test/Click/2017", "transforming", 20);
+
+    assertEquals(Collections.singleton("test/Click/"), viewChangeTracker.getTablesChangedSince(20));
+    assertTrue(viewChangeTracker.getTablesChangedSince(21).isEmpty());
+  }
+
+  @Test
+  public void viewChangeTracker_03_newViewMarksTable() {
+    viewChangeTracker.pollCompleted(10);
+
+    viewChangeTracker.observe("test/Product/", "test/Product/2018", "materialized", 20);
+
+    assertEquals(Collections.singleton("test/Product/"), viewChangeTracker.getTablesChangedSince(15));
+  }
+
+  @Test
+  public void viewChangeTracker_04_firstPollCompletionIsKept() {
+    viewChangeTracker.pollCompleted(10);
+    viewChangeTracker.pollCompleted(20);
+
+    assertTrue(viewChangeTracker.coversSince(15));
+  }
+
+  @Test
+  public void viewChangeTracker_05_unknownStatusIsIgnored() {
+    viewChangeTracker.pollCompleted(10);
+
+    viewChangeTracker.observe("test/Click/", "test/Click/2017", null, 20);
+    viewChangeTracker.observe("test/Click/", "test/Click/2018", null, 20);
+
+    assertTrue(viewChangeTracker.getTablesChangedSince(0).isEmpty());
+  }
+
+  @Test
+  public void viewChangeTracker_06_markChanged() {
+    viewChangeTracker.markChanged("test/Brand/", 30);
+
+    assertEquals(Collections.singleton("test/Brand/"), viewChangeTracker.getTablesChangedSince(30));
+    assertTrue(viewChangeTracker.getTablesChangedSince(31).isEmpty());
+  }
+
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.schedoscope.metascope.task.model.View;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ViewStreamParserTest {
+
+  /* class to test */
+  private ViewStreamParser viewStreamParser;
+
+  /* tables and views received by the handler, one string per table */
+  private List<String> received;
+
+  @Before
+  public void setup() {
+    this.received = new ArrayList<>();
+    this.viewStreamParser = new ViewStreamParser(new TableViewsHandler() {
+      @Override
+      public void onTable(View table, List<View> views) {
+        StringBuilder sb = new StringBuilder(table.getName());
+        for (View view : views) {
+          sb.append(" ").append(view.getName());
+        }
+        received.add(sb.toString());
+      }
+    });
+  }
+
+  @Test
+  public void viewStreamParser_01_tableFollowedByViews() throws IOException {
+    int count = parse(table("test/Product/"), view("test/Product/2017"), view("test/Product/2018"),
+      table("test/Brand/"), view("test/Brand/shop"));
+
+    assertEquals(5, count);
+    assertEquals(2, received.size());
+    assertEquals("test/Product/ test/Product/2017 test/Product/2018", received.get(0));
+    assertEquals("test/Brand/ test/Brand/shop", received.get(1));
+  }
+
+  @Test
+  public void viewStreamParser_02_tableIsHandedOverWhenNextTableStarts() throws IOException {
+    final List<Integer> receivedAt = new ArrayList<>();
+    final int[] seen = new int[1];
+    ViewStreamParser parser = new ViewStreamParser(new TableViewsHandler() {
+      @Override
+      public void onTable(View table, List<View> views) {
+        receivedAt.add(seen[0]);
+        seen[0] += 1 + views.size();
+      }
+    });
+
+    parser.parse(stream(table("test/Product/"), view("test/Product/2017"), table("test/Brand/"),
+      view("test/Brand/shop")));
+
+    assertEquals(2, receivedAt.size());
+    assertEquals(0, (int) receivedAt.get(0));
+    assertEquals(2, (int) receivedAt.get(1));
+  }
+
+  @Test
+  public void viewStreamParser_03_tablesWithoutViews() throws IOException {
+    int count = parse(table("test/Product/"), table("test/Brand/"), view("test/Brand/shop"), table("test/Click/"));
+
+    assertEquals(4, count);
+    assertEquals(3, received.size());
+    assertEquals("test/Product/", received.get(0));
+    assertEquals("test/Brand/ test/Brand/shop", received.get(1));
+    assertEquals("test/Click/", received.get(2));
+  }
+
+  @Test
+  public void viewStreamParser_04_emptyList() throws IOException {
+    int count = parse();
+
+    assertEquals(0, count);
+    assertTrue(received.isEmpty());
+  }
+
+  @Test
+  public void viewStreamParser_05_tablesFirst() throws IOException {
+    int count = parse(table("test/Product/"), table("test/Click/"), table("test/Brand/"), view("test/Product/2017"),
+      view("test/Brand/shop"), view("test/Product/2018"));
+
+    assertEquals(6, count);
+    assertEquals(3, received.size());
+    assertEquals("test/Product/ test/Product/2017 test/Product/2018", received.get(0));
+    assertEquals("test/Click/", received.get(1));
+    assertEquals("test/Brand/ test/Brand/shop", received.get(2));
+  }
+
+  @Test
+  public void viewStreamParser_06_tablesFirstStartingWithViewsOfLastTable() throws IOException {
+    int count = parse(table("test/Product/"), table("test/Brand/"), view("test/Brand/shop"),
+      view("test/Product/2017"));
+
+    assertEquals(4, count);
+    assertEquals(2, received.size());
+    assertEquals("test/Product/ test/Product/2017", received.get(0));
+    assertEquals("test/Brand/ test/Brand/shop", received.get(1));
+  }
+
+  @Test
+  public void viewStreamParser_07_tablesFirstIsHandedOverAtTheEnd() throws IOException {
+    final List<Integer> receivedAt = new ArrayList<>();
+    final int[] seen = new int[1];
+    ViewStreamParser parser = new ViewStreamParser(new TableViewsHandler() {
+      @Override
+      public void onTable(View table, List<View> views) {
+        receivedAt.add(seen[0]);
+        seen[0] += 1 + views.size();
+      }
+    });
+
+    parser.parse(stream(table("test/Product/"), table("test/Brand/"), view("test/Product/2017"),
+      view("test/Brand/shop")));
+
+    /* nothing is handed over before the last view has been read */
+    assertEquals(2, receivedAt.size());
+    assertEquals(0, (int) receivedAt.get(0));
+    assertEquals(2, (int) receivedAt.get(1));
+  }
+
+  @Test
+  public void viewStreamParser_08_viewWithoutTableIsRejected() {
+    assertRejected("test/Product/2017", view("test/Product/2017"), table("test/Product/"));
+    assertRejected("test/Brand/shop", table("test/Product/"), view("test/Brand/shop"));
+  }
+
+  @Test
+  public void viewStreamParser_09_repeatedTableIsRejected() {
+    assertRejected("test/Product/", table("test/Product/"), view("test/Product/2017"), table("test/Brand/"),
+      table("test/Product/"), view("test/Product/2018"));
+  }
+
+  @Test
+  public void viewStreamParser_10_viewOfEarlierTableIsRejected() {
+    /* views of a table already handed over can not be added anymore */
+    assertRejected("test/Product/2018", table("test/Product/"), view("test/Product/2017"), table("test/Brand/"),
+      view("test/Brand/shop"), view("test/Product/2018"));
+  }
+
+  @Test
+  public void viewStreamParser_11_tableAfterTablesFirstViewsIsRejected() {
+    assertRejected("test/Click/", table("test/Product/"), table("test/Brand/"), view("test/Product/2017"),
+      table("test/Click/"));
+  }
+
+  @Test
+  public void viewStreamParser_12_otherFieldsAreSkipped() throws IOException {
+    String json = "{\"overview\":{\"materialized\":2},\"views\":[" + table("test/Product/") + ","
+      + view("test/Product/2017") + "]}";
+
+    int count = viewStreamParser.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(2, count);
+    assertEquals("test/Product/ test/Product/2017", received.get(0));
+  }
+
+  private void assertRejected(String expectedInMessage, String... views) {
+    try {
+      parse(views);
+      fail("views in this order must be rejected");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(expectedInMessage));
+    }
+  }
+
+  private int parse(String... views) throws IOException {
+    return viewStreamParser.parse(stream(views));
+  }
+
+  private ByteArrayInputStream stream(String... views) {
+    StringBuilder json = new StringBuilder("{\"overview\":{},\"views\":[");
+    for (int i = 0; i < views.length; i++) {
+      if (i > 0) {
+        json.append(",");
+      }
+      json.append(views[i]);
+    }
+    json.append("]}");
+    return new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String table(String viewPath) {
+    return "{\"viewPath\":\"" + viewPath + "\",\"status\":\"materialized\",\"isTable\":true}";
+  }
+
+  private String view(String viewPath) {
+    return "{\"viewPath\":\"" + viewPath + "\",\"status\":\"materialized\",\"isTable\":false}";
+  }
+
+}
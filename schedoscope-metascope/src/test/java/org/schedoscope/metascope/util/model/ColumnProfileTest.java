@@ -0,0 +1,196 @@
+/**
+ * Copyright 2017 Otto (GmbH & Co KG)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.schedoscope.metascope.util.model;
+
+import org.junit.Test;
+import org.schedoscope.metascope.util.SketchUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ColumnProfileTest {
+
+  @Test
+  public void columnProfile_01_mergeCountsAndSums() {
+    ColumnProfile a = numeric(4, 10, 30);
+    a.setTrueCount(1);
+    ColumnProfile b = numeric(6, 20, 100);
+    b.setTrueCount(2);
+
+    ColumnProfile merged = a.merge(b);
+
+    assertSame(a, merged);
+    assertEquals(10, merged.getCount());
+    assertEquals(30, merged.getSum(), 0);
+    assertEquals(130, merged.getSumOfSquares(), 0);
+    assertEquals(3, merged.getTrueCount());
+    assertEquals(3, merged.average(), 0.0001);
+    assertEquals(Math.sqrt(13 - 9), merged.standardDeviation(), 0.0001);
+    assertEquals(0.5, merged.nullRatio(20), 0.0001);
+  }
+
+  @Test
+  public void columnProfile_02_mergeNumericMinMax() {
+    ColumnProfile a = numeric(1, 0, 0);
+    a.setMin("9");
+    a.setMax("9.5");
+    ColumnProfile b = numeric(1, 0, 0);
+    b.setMin("10");
+    b.setMax("10");
+
+    a.merge(b);
+
+    /* compared as numbers, not as strings */
+    assertEquals("9", a.getMin());
+    assertEquals("10", a.getMax());
+  }
+
+  @Test
+  public void columnProfile_03_mergeStringMinMax() {
+    ColumnProfile a = new ColumnProfile(ColumnProfile.STRING);
+    a.setMin("9");
+    a.setMax("9");
+    ColumnProfile b = new ColumnProfile(ColumnProfile.STRING);
+    b.setMin("10");
+    b.setMax("b");
+
+    a.merge(b);
+
+    assertEquals("10", a.getMin());
+    assertEquals("b", a.getMax());
+  }
+
+  @Test
+  public void columnProfile_04_mergeIntoEmptyProfile() {
+    ColumnProfile other = numeric(2, 3, 5);
+    other.setMin("1");
+    other.setMax("2");
+    other.setHll(new byte[SketchUtil.HLL_REGISTERS]);
+    List<double[]> histogram = new ArrayList<>();
+    histogram.add(new double[]{1, 1});
+    histogram.add(new double[]{2, 1});
+    other.setHistogram(histogram);
+
+    ColumnProfile merged = new ColumnProfile(ColumnProfile.NUMERIC).merge(other);
+
+    assertEquals(2, merged.getCount());
+    assertEquals("1", merged.getMin());
+    assertEquals("2", merged.getMax());
+    assertArrayEquals(other.getHll(), merged.getHll());
+    assertNotSame(other.getHll(), merged.getHll());
+    assertEquals(2, merged.getHistogram().size());
+    assertEquals(1.5, merged.quantile(0.75), 0.0001);
+  }
+
+  @Test
+  public void columnProfile_05_mergeWithoutSketches() {
+    ColumnProfile a = numeric(1, 1, 1);
+    ColumnProfile b = numeric(1, 1, 1);
+
+    a.merge(b);
+
+    assertNull(a.getHll());
+    assertNull(a.distinctCount());
+    assertNull(a.getHistogram());
+    assertNull(a.quantile(0.5));
+    assertNull(a.getTopValues());
+    assertNull(a.topValues(10));
+  }
+
+  @Test
+  public void columnProfile_06_mergeSketches() {
+    byte[] hllA = new byte[SketchUtil.HLL_REGISTERS];
+    hllA[0] = 3;
+    hllA[1] = 1;
+    byte[] hllB = new byte[SketchUtil.HLL_REGISTERS];
+    hllB[1] = 2;
+    hllB[2] = 1;
+    ColumnProfile a = numeric(1, 0, 0);
+    a.setHll(hllA);
+    ColumnProfile b = numeric(1, 0, 0);
+    b.setHll(hllB);
+    List<double[]> histogram = new ArrayList<>();
+    histogram.add(new double[]{5, 4});
+    b.setHistogram(histogram);
+
+    a.merge(b);
+
+    byte[] expected = new byte[SketchUtil.HLL_REGISTERS];
+    expected[0] = 3;
+    expected[1] = 2;
+    expected[2] = 1;
+    assertArrayEquals(expected, a.getHll());
+    assertEquals(SketchUtil.estimateHll(expected), (long) a.distinctCount());
+    assertEquals(1, a.getHistogram().size());
+    assertArrayEquals(new double[]{5, 4}, a.getHistogram().get(0), 0);
+  }
+
+  @Test
+  public void columnProfile_07_mergeTopValues() {
+    ColumnProfile a = new ColumnProfile(ColumnProfile.STRING);
+    a.setTopValues(topValues("x", 5.0, "y", 3.0));
+    ColumnProfile b = new ColumnProfile(ColumnProfile.STRING);
+    b.setTopValues(topValues("y", 4.0, "z", 1.0));
+
+    a.merge(b);
+
+    Map<String, Double> top = a.topValues(2);
+    assertEquals(2, top.size());
+    List<String> keys = new ArrayList<>(top.keySet());
+    assertEquals("y", keys.get(0));
+    assertEquals(7.0, top.get("y"), 0);
+    assertEquals("x", keys.get(1));
+    assertEquals(5.0, top.get("x"), 0);
+    assertEquals(1.0, a.getTopValues().get("z"), 0);
+  }
+
+  @Test
+  public void columnProfile_08_mergeKeepsHundredTopValues() {
+    ColumnProfile a = new ColumnProfile(ColumnProfile.STRING);
+    Map<String, Double> values = new HashMap<>();
+    for (int i = 0; i < 150; i++) {
+      values.put("v" + i, (double) i);
+    }
+    ColumnProfile b = new ColumnProfile(ColumnProfile.STRING);
+    b.setTopValues(values);
+
+    a.merge(b);
+
+    assertEquals(100, a.getTopValues().size());
+    assertTrue(a.getTopValues().containsKey("v149"));
+    assertFalse(a.getTopValues().containsKey("v49"));
+  }
+
+  private ColumnProfile numeric(long count, double sum, double sumOfSquares) {
+    ColumnProfile profile = new ColumnProfile(ColumnProfile.NUMERIC);
+    profile.setCount(count);
+    profile.setSum(sum);
+    profile.setSumOfSquares(sumOfSquares);
+    return profile;
+  }
+
+  private Map<String, Double> topValues(String k1, Double v1, String k2, Double v2) {
+    Map<String, Double> values = new HashMap<>();
+    values.put(k1, v1);
+    values.put(k2, v2);
+    return values;
+  }
+
+}